@@ -0,0 +1,21 @@
+@echo OFF
+setlocal
+
+:: Compiles the game and the benchmarks in bench\ and runs them, e.g.
+::   bench.cmd                      run everything
+::   bench.cmd game.turn -i 10      only benchmarks matching "game.turn", 10 measured iterations
+:: Results are also written to bench_output.txt.
+
+set out=out\bench
+if exist %out% rmdir /s /q %out%
+mkdir %out%
+
+dir /s /b src\*.java bench\*.java > %out%\sources.txt
+javac -encoding UTF-8 -d %out% @%out%\sources.txt
+if %ERRORLEVEL% neq 0 goto DONE
+
+java -cp %out% sttrswing.bench.ModelBench %* > bench_output.txt
+type bench_output.txt
+
+:DONE
+endlocal
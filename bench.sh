@@ -0,0 +1,14 @@
+#!/bin/bash
+
+# Compiles the game and the benchmarks in bench/ and runs them, e.g.
+#   ./bench.sh                      run everything
+#   ./bench.sh game.turn -i 10      only benchmarks matching "game.turn", 10 measured iterations
+# Results are also written to bench_output.txt.
+
+out=out/bench
+rm -rf "${out}"
+mkdir -p "${out}"
+
+javac -encoding UTF-8 -d "${out}" $(find src bench -name "*.java") || exit 1
+
+java -cp "${out}" sttrswing.bench.ModelBench "$@" | tee bench_output.txt
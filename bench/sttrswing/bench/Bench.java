@@ -0,0 +1,158 @@
+package sttrswing.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * A small benchmark runner in the style of JMH's average time mode, with no dependencies so it
+ * runs anywhere the game itself compiles. Each benchmark is run for a number of warmup iterations
+ * (results thrown away, giving the JIT time to settle) and then for a number of measured
+ * iterations of a fixed length. The score is the mean time per operation across the measured
+ * iterations, and the error is the half width of a 99.9% confidence interval, as JMH reports it.
+ *
+ * <p>Anything the game prints to {@link System#out} while a benchmark runs is discarded, so the
+ * numbers measure the model rather than the console.</p>
+ *
+ * <p>Options: {@code -wi N} warmup iterations (default 3), {@code -i N} measured iterations
+ * (default 5), {@code -t MS} length of each iteration in milliseconds (default 500), and any other
+ * argument is a regular expression selecting which benchmarks to run by name.</p>
+ */
+final class Bench {
+
+  /**
+   * One benchmark operation. The invocation counter lets an operation vary its input, e.g. cycle
+   * through courses, without paying for a random number generator.
+   */
+  interface Op {
+    /**
+     * Runs the operation once.
+     *
+     * @param invocation - how many times the operation has run before in this iteration
+     * @return any result, kept alive so the JIT cannot drop the work.
+     */
+    Object run(int invocation);
+  }
+
+  private static final double z999 = 3.291; // two sided 99.9% normal quantile
+
+  private final int warmupIterations;
+  private final int iterations;
+  private final long iterationNanos;
+  private final List<Pattern> filters = new ArrayList<>();
+  private final PrintStream out;
+  private final PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+  private long sink; // folded results, read at the end so no result is ever dead
+
+  /**
+   * Constructs a runner configured from command line arguments.
+   *
+   * @param args - command line arguments, see {@link Bench}
+   */
+  Bench(final String[] args) {
+    int warmup = 3;
+    int measured = 5;
+    long millis = 500;
+    for (int i = 0; i < args.length; i += 1) {
+      switch (args[i]) {
+        case "-wi" -> warmup = Integer.parseInt(args[++i]);
+        case "-i" -> measured = Integer.parseInt(args[++i]);
+        case "-t" -> millis = Long.parseLong(args[++i]);
+        default -> this.filters.add(Pattern.compile(args[i]));
+      }
+    }
+    this.warmupIterations = warmup;
+    this.iterations = Math.max(1, measured);
+    this.iterationNanos = millis * 1_000_000L;
+    this.out = System.out;
+    this.out.printf("# Warmup: %d iterations, Measurement: %d iterations, %d ms each%n",
+        warmup, this.iterations, millis);
+    this.out.printf("%-40s %-26s %5s %14s %12s  %s%n", "Benchmark", "Params", "Cnt", "Score",
+        "Error", "Units");
+  }
+
+  /**
+   * Runs one benchmark, unless it is filtered out, and prints its score.
+   *
+   * @param name   - benchmark name, matched against the filters
+   * @param params - parameter description printed with the score, e.g. "size=8 density=dense"
+   * @param setup  - builds fresh state for each iteration and returns the operation to time
+   */
+  void run(final String name, final String params, final Supplier<Op> setup) {
+    if (!this.selected(name)) {
+      return;
+    }
+    final double[] scores = new double[this.iterations];
+    System.setOut(this.silent);
+    try {
+      for (int i = 0; i < this.warmupIterations; i += 1) {
+        this.iteration(setup.get());
+      }
+      for (int i = 0; i < this.iterations; i += 1) {
+        scores[i] = this.iteration(setup.get());
+      }
+    } finally {
+      System.setOut(this.out);
+    }
+    double mean = 0;
+    for (double score : scores) {
+      mean += score;
+    }
+    mean /= scores.length;
+    double variance = 0;
+    for (double score : scores) {
+      variance += (score - mean) * (score - mean);
+    }
+    final double error = scores.length < 2
+        ? Double.NaN : z999 * Math.sqrt(variance / (scores.length - 1)) / Math.sqrt(scores.length);
+    this.out.printf(Locale.ROOT, "%-40s %-26s %5d %14.3f %12.3f  ns/op%n", name, params,
+        scores.length, mean, error);
+  }
+
+  /**
+   * Prints the folded results, which also stops the JIT treating them as unused.
+   */
+  void finish() {
+    this.out.println("# sink " + this.sink);
+  }
+
+  private boolean selected(final String name) {
+    if (this.filters.isEmpty()) {
+      return true;
+    }
+    for (Pattern filter : this.filters) {
+      if (filter.matcher(name).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs the operation in growing batches until the iteration time is used up and returns the
+   * mean nanoseconds per operation.
+   */
+  private double iteration(final Op op) {
+    int invocations = 0;
+    int batch = 1;
+    final long start = System.nanoTime();
+    long elapsed;
+    do {
+      for (int i = 0; i < batch; i += 1) {
+        this.consume(op.run(invocations));
+        invocations += 1;
+      }
+      batch = Math.min(batch * 2, 1 << 16);
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < this.iterationNanos);
+    return (double) elapsed / invocations;
+  }
+
+  private void consume(final Object result) {
+    this.sink += result == null ? 0 : System.identityHashCode(result);
+  }
+}
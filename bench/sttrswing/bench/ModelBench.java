@@ -0,0 +1,253 @@
+package sttrswing.bench;
+
+import sttrswing.controller.GameLoader;
+import sttrswing.controller.GameSaver;
+import sttrswing.controller.RecordingGameModel;
+import sttrswing.controller.ReplayEngine;
+import sttrswing.controller.SaveManager;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameRandom;
+import sttrswing.model.GameTimeline;
+import sttrswing.model.Quadrant;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmarks for the model's hot paths, each run for every galaxy size and entity density:
+ * {@link Quadrant} construction, {@link Galaxy#quadrantAt} and
+ * {@link Galaxy#getQuadrantClusterAt}, and {@link Game#turn()}, {@link Game#torpedoes},
+ * {@link Game#moveWithinQuadrant}, {@link Game#getSymbolsForQuadrant()} and {@link Game#export()},
+ * plus replaying a recorded session of play with {@link ReplayEngine} and loading a save of the
+ * galaxy with {@link GameLoader} in each save format, plain and compressed, seeking a recorded
+ * {@link GameTimeline} to any turn, and listing an archive of save slots with
+ * {@link SaveManager#list()}.
+ *
+ * <p>Every galaxy is built from a fixed seed, so runs on the same machine are comparable. Run it
+ * with {@code bench.sh} / {@code bench.cmd}; see {@link Bench} for the options.</p>
+ */
+public final class ModelBench {
+
+  private static final long seed = 20240601L; // fixed so every run builds the same galaxies
+  private static final int[] sizes = {8, 64, 256}; // galaxy width and height
+  private static final String[] densities = {"standard", "dense"};
+  private static final int sessionTurns = 200; // turns in the recorded session replayed
+  private static final String[] saveFormats = {".trek", ".trek.gz", ".trekb", ".trekb.gz",
+      ".trekd"};
+  private static final int keyframeInterval = 32; // as played, see sttrswing.Main
+  private static final int[] slotCounts = {10, 100, 1000}; // slots in the archive listed
+
+  private ModelBench() {
+  }
+
+  /**
+   * Runs every benchmark selected by the arguments.
+   *
+   * @param args - runner options, see {@link Bench}
+   */
+  public static void main(final String[] args) {
+    final Bench bench = new Bench(args);
+    for (String density : densities) {
+      bench.run("quadrant.construct", "density=" + density, () -> {
+        final boolean dense = density.equals("dense");
+        return i -> {
+          final SplittableRandom random = new SplittableRandom(seed + i);
+          return dense ? new Quadrant(0, 0, 3, 3, 9, random) : new Quadrant(0, 0, random);
+        };
+      });
+    }
+    for (int size : sizes) {
+      for (String density : densities) {
+        final String params = "size=" + size + " density=" + density;
+        final Galaxy galaxy = galaxy(size, density);
+        bench.run("galaxy.quadrantAt", params, () ->
+            i -> galaxy.quadrantAt(i % size, (i / size) % size));
+        bench.run("galaxy.getQuadrantClusterAt", params, () ->
+            i -> galaxy.getQuadrantClusterAt(i % size, (i / size) % size));
+        bench.run("game.turn", params, () -> {
+          final Game game = new Game(seed, galaxy(size, density));
+          return i -> {
+            game.turn();
+            return game;
+          };
+        });
+        bench.run("game.torpedoes", params, () -> {
+          final Game game = new Game(seed, galaxy(size, density));
+          return i -> {
+            game.getEnterprise().gainEnergy(1); // also restocks one torpedo
+            game.torpedoes(1 + i % 8, game.getCurrentQuadrant());
+            return game;
+          };
+        });
+        bench.run("game.moveWithinQuadrant", params, () -> {
+          final Game game = new Game(seed, galaxy(size, density));
+          return i -> {
+            game.getEnterprise().gainEnergy(200);
+            game.moveWithinQuadrant(1 + i % 8, 3);
+            return game;
+          };
+        });
+        bench.run("game.getSymbolsForQuadrant", params, () -> {
+          final Game game = new Game(seed, galaxy);
+          return i -> game.getSymbolsForQuadrant();
+        });
+        bench.run("game.export", params, () -> {
+          final Game game = new Game(seed, galaxy);
+          return i -> game.export();
+        });
+        bench.run("replay.session", params, () -> {
+          final byte[] log = session(galaxy(size, density));
+          return i -> {
+            try {
+              final ReplayEngine engine =
+                  new ReplayEngine(Channels.newChannel(new ByteArrayInputStream(log)));
+              engine.run();
+              return engine.game();
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          };
+        });
+      }
+      bench.run("timeline.seek", "size=" + size, () -> {
+        final GameTimeline timeline = timeline(galaxy(size, "standard"));
+        return i -> timeline.seek(i % (timeline.lastTurn() + 1));
+      });
+      for (String format : saveFormats) {
+        bench.run("save.load", "size=" + size + " format=" + format, () -> {
+          final String path = save(galaxy(size, "standard"), format);
+          return i -> {
+            final GameLoader loader = new GameLoader(path);
+            loader.load();
+            if (!loader.success()) {
+              throw new IllegalStateException("Could not load " + path);
+            }
+            return loader;
+          };
+        });
+      }
+    }
+    for (int count : slotCounts) {
+      bench.run("slots.list", "slots=" + count, () -> {
+        final SaveManager slots = slots(count);
+        return i -> {
+          try {
+            return slots.list();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        };
+      });
+    }
+    bench.finish();
+  }
+
+  /**
+   * Returns a timeline of {@link #sessionTurns} turns of play in the given galaxy.
+   */
+  private static GameTimeline timeline(final Galaxy galaxy) {
+    final Game game = new Game(seed, galaxy);
+    final GameTimeline timeline = new GameTimeline(keyframeInterval);
+    timeline.attach(game);
+    for (int turn = 0; turn < sessionTurns; turn += 1) {
+      game.getEnterprise().gainEnergy(200);
+      game.moveBetweenQuadrants(1 + turn % 8, 1);
+      game.turn();
+    }
+    timeline.detach();
+    return timeline;
+  }
+
+  /**
+   * Fills a temporary directory with the given number of slots of a 64x64 galaxy and returns the
+   * {@link SaveManager} over it.
+   */
+  private static SaveManager slots(final int count) {
+    try {
+      final Path directory = Files.createTempDirectory("bench-slots");
+      directory.toFile().deleteOnExit();
+      final SaveManager slots = new SaveManager(directory.toString());
+      final Game game = new Game(seed, galaxy(64, "standard"));
+      for (int slot = 0; slot < count; slot += 1) {
+        final GameSaver saver = slots.saver(game, "slot " + slot);
+        saver.save();
+        if (!saver.success()) {
+          throw new IOException("Could not save slot " + slot);
+        }
+        slots.path("slot " + slot).toFile().deleteOnExit();
+      }
+      return slots;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Saves a game in the given galaxy to a temporary file with the given extension, which picks
+   * the save format and compression, and returns its path.
+   */
+  private static String save(final Galaxy galaxy, final String format) {
+    try {
+      final Path file = Files.createTempFile("bench", format);
+      file.toFile().deleteOnExit();
+      final GameSaver saver = new GameSaver(new Game(seed, galaxy), file.toString());
+      saver.save();
+      if (!saver.success()) {
+        throw new IOException("Could not save " + file);
+      }
+      return file.toString();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Builds a square galaxy. "standard" uses the game's own generation; "dense" packs every
+   * {@link Quadrant} with 3 starbases, 3 Klingons and 9 stars, the most generation can produce.
+   */
+  private static Galaxy galaxy(final int size, final String density) {
+    if (!density.equals("dense")) {
+      return new Galaxy(size, size, seed);
+    }
+    final ArrayList<Quadrant> quadrants = new ArrayList<>(size * size);
+    for (int y = 0; y < size; y += 1) {
+      for (int x = 0; x < size; x += 1) {
+        quadrants.add(new Quadrant(x, y, 3, 3, 9, GameRandom.forQuadrant(seed, x, y)));
+      }
+    }
+    return new Galaxy(quadrants);
+  }
+
+  /**
+   * Records a session of play in the given galaxy: every turn the player scans, fires, moves and
+   * now and then warps, cycling through the courses, until the session ends or the Enterprise is
+   * destroyed.
+   */
+  private static byte[] session(final Galaxy galaxy) {
+    final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    final RecordingGameModel game =
+        new RecordingGameModel(new Game(seed, galaxy), Channels.newChannel(log));
+    game.shields(2000);
+    for (int turn = 0; turn < sessionTurns && !game.hasLost(); turn += 1) {
+      final int course = 1 + turn % 8;
+      game.scanQuadrant();
+      game.firePhasers(50);
+      game.fireTorpedo(course);
+      if (turn % 5 == 4) {
+        game.moveBetweenQuadrants(course, 1);
+      } else {
+        game.moveWithinQuadrant(course, 2);
+      }
+      game.turn();
+    }
+    game.flush();
+    return log.toByteArray();
+  }
+}
@@ -1,8 +1,22 @@
 package sttrswing;
 
 import sttrswing.controller.GameController;
+import sttrswing.controller.RecordingGameModel;
 import sttrswing.model.Game;
+import sttrswing.model.GameTimeline;
+import sttrswing.model.interfaces.GameModel;
 import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.stream.Stream;
 import javax.swing.SwingUtilities;
 
 /**
@@ -10,18 +24,62 @@ import javax.swing.SwingUtilities;
  */
 public class Main {
 
+    private static final String sessionLogs = "data/sessions"; // a command log for each session
+    private static final int sessionsKept = 10; // older session logs are deleted
+    private static final int undoLevels = 500; // turns that can be undone
+    private static final int keyframeInterval = 32; // most turns replayed to seek the timeline
+
     /**
      * Main entry point method for the program.
      *
      * @param args args given to the program when it is run.
      */
     public static void main(String[] args) {
-        Game game = new Game();
+        Game played = new Game();
+        played.keepHistory(undoLevels);
+        GameTimeline timeline = new GameTimeline(keyframeInterval);
+        timeline.attach(played);
+        GameModel game = record(played);
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
-                var controller = new GameController(new Dimension(800, 600), game);
+                var controller = new GameController(new Dimension(800, 600), game, timeline);
                 controller.start(game);
             }
         });
     }
+
+    /**
+     * Wraps the game so every action played is recorded to a command log of its own for this
+     * session, named after the time it started, which {@link sttrswing.controller.ReplayEngine}
+     * can play back. The log is closed when the game's window is. Only the newest session logs are
+     * kept. If the log cannot be opened the game is played unrecorded.
+     */
+    private static GameModel record(Game game) {
+        try {
+            Path directory = Paths.get(sessionLogs);
+            Files.createDirectories(directory);
+            String started = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+            FileChannel channel = FileChannel.open(directory.resolve("session-" + started + ".trekr"),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            prune(directory);
+            return new RecordingGameModel(game, channel);
+        } catch (IOException e) {
+            return game;
+        }
+    }
+
+    /**
+     * Deletes all but the newest session logs; their names sort by the time they started.
+     */
+    private static void prune(Path directory) throws IOException {
+        ArrayList<Path> logs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().matches("session-.*\\.trekr"))
+                    .forEach(logs::add);
+        }
+        Collections.sort(logs, Collections.reverseOrder());
+        for (int i = sessionsKept; i < logs.size(); i += 1) {
+            Files.deleteIfExists(logs.get(i));
+        }
+    }
 }
@@ -0,0 +1,187 @@
+package sttrswing.controller;
+
+import sttrswing.model.GameSnapshot;
+import sttrswing.model.interfaces.GameModel;
+import sttrswing.model.interfaces.TurnListener;
+
+import javax.swing.Timer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Saves the game in the background every few turns and every few seconds of
+ * play, without holding up {@link GameModel#turn()}.
+ *
+ * <p>
+ * When an autosave is due a {@link GameSnapshot} is taken on the thread playing
+ * the game and handed to a single background thread, which writes it with a
+ * {@link GameSaver}: to a temporary file, forced to disk, then atomically moved
+ * over the target, keeping a number of older generations next to it. If
+ * snapshots arrive while a write is still running they are coalesced, only the
+ * newest one is written next.
+ * </p>
+ * <p>
+ * Taking the snapshot is the only part on the thread playing the game. With
+ * undo history kept it costs nothing at the end of a turn, as the history's
+ * version of that turn, which shares its unchanged quadrants with the one
+ * before, is reused (see {@link GameModel#snapshot()}). Without history it
+ * is a full export of the galaxy, in proportion to its size.
+ * </p>
+ */
+public class AutosaveService implements TurnListener {
+
+    private final String path; // where the autosave goes, see GameSaver for the format
+    private final int everyTurns; // turns between autosaves, 0 to not save by turns
+    private final int everyMillis; // time between autosaves, 0 to not save by time
+    private final int generations; // older autosaves kept next to the target
+    private final ExecutorService writer; // writes autosaves one at a time, in order
+    // newest snapshot not yet written, null when there is nothing waiting
+    private final AtomicReference<GameSnapshot> pending = new AtomicReference<>();
+    private GameModel game; // game being autosaved, null when detached
+    private Timer timer; // fires every everyMillis on the Event Dispatch Thread
+    private int turnsSinceSave = 0;
+    private volatile boolean lastSucceeded = true;
+    private volatile int saves = 0; // number of autosaves written
+
+    /**
+     * Constructs an {@link AutosaveService}.
+     *
+     * @param path        the file to autosave to
+     * @param everyTurns  how many turns between autosaves, 0 to not save by turns
+     * @param everyMillis how long between autosaves while turns are being
+     *                    played, 0 to not save by time
+     * @param generations how many older autosaves to keep, see
+     *                    {@link GameSaver#generationPath(String, int)}
+     */
+    public AutosaveService(String path, int everyTurns, int everyMillis, int generations) {
+        this(path, everyTurns, everyMillis, generations, Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "trek-autosave");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Exposed for testability: constructs an {@link AutosaveService} writing
+     * on the given executor, which must run one task at a time.
+     *
+     * @param path        the file to autosave to
+     * @param everyTurns  how many turns between autosaves, 0 to not save by turns
+     * @param everyMillis how long between autosaves while turns are being
+     *                    played, 0 to not save by time
+     * @param generations how many older autosaves to keep
+     * @param writer      the single thread to write autosaves on
+     */
+    public AutosaveService(String path, int everyTurns, int everyMillis, int generations,
+                           ExecutorService writer) {
+        this.writer = writer;
+        this.path = path;
+        this.everyTurns = Math.max(0, everyTurns);
+        this.everyMillis = Math.max(0, everyMillis);
+        this.generations = Math.max(0, generations);
+    }
+
+    /**
+     * Starts autosaving the given game. Must be called on the thread playing the
+     * game, normally the Event Dispatch Thread.
+     *
+     * @param game the game to autosave
+     */
+    public void attach(GameModel game) {
+        detach();
+        this.game = game;
+        this.turnsSinceSave = 0;
+        game.addTurnListener(this);
+        if (everyMillis > 0) {
+            timer = new Timer(everyMillis, e -> {
+                // only save if something has been played since the last autosave
+                if (this.game != null && turnsSinceSave > 0) {
+                    request(this.game);
+                }
+            });
+            timer.start();
+        }
+    }
+
+    /**
+     * Stops autosaving the attached game. An autosave already being written is
+     * finished.
+     */
+    public void detach() {
+        if (timer != null) {
+            timer.stop();
+            timer = null;
+        }
+        if (game != null) {
+            game.removeTurnListener(this);
+            game = null;
+        }
+    }
+
+    @Override
+    public void turnEnded(GameModel game) {
+        turnsSinceSave += 1;
+        if (everyTurns > 0 && turnsSinceSave >= everyTurns) {
+            request(game);
+        }
+    }
+
+    /**
+     * Snapshots the game now and queues the snapshot to be written. Must be
+     * called on the thread playing the game.
+     *
+     * @param game the game to save
+     */
+    public void request(GameModel game) {
+        turnsSinceSave = 0;
+        if (pending.getAndSet(game.snapshot()) == null) {
+            // nothing was waiting, so no write is queued that would pick this one up
+            writer.execute(this::writePending);
+        }
+    }
+
+    private void writePending() {
+        GameSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null) {
+            return;
+        }
+        GameSaver saver = new GameSaver(snapshot, path, generations);
+        saver.save();
+        lastSucceeded = saver.success();
+        saves += 1;
+    }
+
+    /**
+     * Returns if the last autosave written succeeded, true if none has been
+     * written yet.
+     *
+     * @return if the last autosave succeeded
+     */
+    public boolean lastSucceeded() {
+        return lastSucceeded;
+    }
+
+    /**
+     * Returns how many autosaves have been written.
+     *
+     * @return the number of autosaves written
+     */
+    public int saves() {
+        return saves;
+    }
+
+    /**
+     * Detaches, then waits up to the given time for any queued autosave to be
+     * written.
+     *
+     * @param timeoutMillis how long to wait at most
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown(long timeoutMillis) throws InterruptedException {
+        detach();
+        writer.shutdown();
+        writer.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
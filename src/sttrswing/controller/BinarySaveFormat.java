@@ -0,0 +1,101 @@
+package sttrswing.controller;
+
+/**
+ * Constants describing the binary save format, which holds the same game as a .trek text save
+ * but with exact entity state and in a fraction of the space. All numbers are big-endian.
+ *
+ * <pre>
+ * header     int magic ('TREK'), short version, short flags,
+ *            int width, int height, long seed                       24 bytes
+ * enterprise int x, int y, int energy, int shields, int torpedoes   20 bytes
+ * current    int x, int y of the quadrant the player is in, -1 if    8 bytes
+ *            unknown (version 2 on, version 1 saves go straight on
+ *            to the quadrants)
+ * index      only if the indexed flag is set (version 3 on):
+ *            width * height ints in row-major order, each the offset   4 bytes
+ *            of that quadrant's entry from the start of the save       per quadrant
+ * quadrants  width * height entries in row-major order, each:
+ *            short composition: bits 0-3 stars, 4-7 starbases, 8-11 Klingons,
+ *                               bit 14 no quadrant here, bit 15 entity records follow
+ *            then, if entity records follow, one per entity, starbases, then
+ *            Klingons, then stars:
+ *            byte  sector: bits 0-5 y * 8 + x, bit 6 scanned, bit 7 marked for removal
+ *            short energy (starbases and Klingons only, stars have none)
+ *            or, if the delta flag is set (version 4 on), only the quadrants
+ *            that differ from what the seed generates, each an int row-major
+ *            index followed by its entry, ended by an index of -1
+ * </pre>
+ *
+ * <p>The index lets {@link IndexedSaveSource} read any one quadrant straight out of a mapped file
+ * without reading the ones before it. Offsets are ints, so an indexed save is at most 2 GiB, which
+ * is a galaxy of hundreds of millions of quadrants.</p>
+ *
+ * <p>A delta save, written to paths ending in {@link #deltaExtension}, leaves out every quadrant
+ * that is still as the seed generated it and is loaded by generating those again, so a typical
+ * game in progress saves and loads a few changed quadrants rather than the whole galaxy. It
+ * relies on generation staying the same for a seed, and is never indexed.</p>
+ */
+public final class BinarySaveFormat {
+
+    /**
+     * File extension that selects the binary format; any other extension is read and written as
+     * .trek text.
+     */
+    public static final String extension = ".trekb";
+
+    /**
+     * File extension that selects the binary format saved as a delta on the galaxy's seed.
+     */
+    public static final String deltaExtension = ".trekd";
+
+    static final int magic = 0x5452454B; // "TREK"
+    static final short version = 4;
+    static final short firstVersion = 1; // oldest version still read
+    static final int headerBytes = 24;
+    static final int enterpriseBytes = 20;
+    static final int currentBytes = 8;
+    static final int indexStart = headerBytes + enterpriseBytes + currentBytes;
+    static final int indexedFlag = 1; // header flag: an index follows the current quadrant
+    static final int deltaFlag = 2; // header flag: only quadrants changed from the seed follow
+    static final int countBits = 4; // bits per count in a packed composition
+    static final int maxCount = (1 << countBits) - 1;
+    static final int absentFlag = 1 << 14;
+    static final int entitiesFlag = 1 << 15;
+    static final int scannedBit = 1 << 6;
+    static final int removedBit = 1 << 7;
+
+    private BinarySaveFormat() {
+    }
+
+    /**
+     * Returns if the given path should be read and written in the binary format.
+     *
+     * @param path - path of the save file.
+     * @return true if the path ends in {@link #extension} or {@link #deltaExtension}, or in
+     *         either followed by {@link SaveCompression#extension}.
+     */
+    public static boolean isBinary(String path) {
+        if (path == null) {
+            return false;
+        }
+        final String name = path.toLowerCase();
+        return name.endsWith(extension) || name.endsWith(extension + SaveCompression.extension)
+                || isDelta(path);
+    }
+
+    /**
+     * Returns if a save written to the given path should be a delta on the galaxy's seed.
+     *
+     * @param path - path of the save file.
+     * @return true if the path ends in {@link #deltaExtension}, or in it followed by
+     *         {@link SaveCompression#extension}.
+     */
+    public static boolean isDelta(String path) {
+        if (path == null) {
+            return false;
+        }
+        final String name = path.toLowerCase();
+        return name.endsWith(deltaExtension)
+                || name.endsWith(deltaExtension + SaveCompression.extension);
+    }
+}
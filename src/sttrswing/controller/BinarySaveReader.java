@@ -0,0 +1,187 @@
+package sttrswing.controller;
+
+import sttrswing.model.EntityStore;
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.interfaces.GameRecordSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Reads a save in the binary format (see {@link BinarySaveFormat}) through a fixed buffer and
+ * hands its records to a {@link GameRecordSink} in the order of a full export.
+ *
+ * <p>A delta save only holds the quadrants that differ from what the seed generates, so only
+ * those are sent; see {@link #isDelta()} and
+ * {@link sttrswing.model.GameSnapshot#withGeneratedQuadrants()} for putting back the rest.</p>
+ */
+public final class BinarySaveReader {
+
+    private static final int bufferSize = 64 * 1024; // bytes read from the channel at a time
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+    private boolean delta = false; // whether the save read was a delta on the seed
+
+    /**
+     * Constructs a {@link BinarySaveReader} reading from the given channel. The channel is not
+     * closed.
+     *
+     * @param channel - where to read the save from.
+     */
+    public BinarySaveReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer.flip(); // start empty
+    }
+
+    /**
+     * Reads the whole binary save at the given path into the sink, decompressing it as it goes if
+     * it is compressed (see {@link SaveCompression}).
+     *
+     * @param path - the save file to read.
+     * @param sink - where to send each record.
+     * @throws IOException if the file cannot be read or is not a valid binary save.
+     */
+    public static void parse(Path path, GameRecordSink sink) throws IOException {
+        try (ReadableByteChannel channel = SaveCompression.open(path)) {
+            new BinarySaveReader(channel).parse(sink);
+        }
+    }
+
+    /**
+     * Returns if the save read by {@link #parse(GameRecordSink)} was a delta save, which only
+     * sent the quadrants that differ from what its seed generates.
+     *
+     * @return true if the save was a delta save.
+     */
+    public boolean isDelta() {
+        return this.delta;
+    }
+
+    /**
+     * Reads the save from the channel, sending each record to the sink.
+     *
+     * @param sink - where to send each record.
+     * @throws IOException if the channel cannot be read or does not hold a valid binary save.
+     */
+    public void parse(GameRecordSink sink) throws IOException {
+        this.require(BinarySaveFormat.headerBytes + BinarySaveFormat.enterpriseBytes);
+        if (this.buffer.getInt() != BinarySaveFormat.magic) {
+            throw new IOException("Not a binary save file");
+        }
+        final short version = this.buffer.getShort();
+        if (version < BinarySaveFormat.firstVersion || version > BinarySaveFormat.version) {
+            throw new IOException("Unsupported binary save version " + version);
+        }
+        final short flags = this.buffer.getShort();
+        final int width = this.buffer.getInt();
+        final int height = this.buffer.getInt();
+        final long seed = this.buffer.getLong();
+        if (width < 0 || height < 0) {
+            throw new IOException("Invalid galaxy size " + width + "x" + height);
+        }
+        sink.galaxy(width, height, seed);
+        sink.enterprise(this.buffer.getInt(), this.buffer.getInt(), this.buffer.getInt(),
+                this.buffer.getInt(), this.buffer.getInt());
+        if (version >= 2) {
+            this.require(BinarySaveFormat.currentBytes);
+            final int currentX = this.buffer.getInt();
+            final int currentY = this.buffer.getInt();
+            if (currentX >= 0 && currentY >= 0) {
+                sink.current(currentX, currentY);
+            }
+        }
+        if ((flags & BinarySaveFormat.indexedFlag) != 0) {
+            this.skip(4L * width * height); // read in order, the index is not needed
+        }
+
+        final long quadrants = (long) width * height;
+        this.delta = (flags & BinarySaveFormat.deltaFlag) != 0;
+        if (this.delta) {
+            long last = -1;
+            while (true) {
+                this.require(4);
+                final int index = this.buffer.getInt();
+                if (index == -1) {
+                    return;
+                }
+                if (index <= last || index >= quadrants) {
+                    throw new IOException("Invalid quadrant index " + index + " in delta save");
+                }
+                last = index;
+                this.readEntry(sink, index % width, index / width);
+            }
+        }
+        for (long index = 0; index < quadrants; index += 1) {
+            this.readEntry(sink, (int) (index % width), (int) (index / width));
+        }
+    }
+
+    /**
+     * Reads one quadrant entry and sends its records, if the quadrant is there.
+     */
+    private void readEntry(GameRecordSink sink, int x, int y) throws IOException {
+        this.require(2);
+        final int entry = this.buffer.getShort() & 0xFFFF;
+        if ((entry & BinarySaveFormat.absentFlag) != 0) {
+            return;
+        }
+        final int stars = entry & BinarySaveFormat.maxCount;
+        final int starbases = entry >>> BinarySaveFormat.countBits & BinarySaveFormat.maxCount;
+        final int klingons = entry >>> (2 * BinarySaveFormat.countBits) & BinarySaveFormat.maxCount;
+        sink.quadrant(x, y, stars, starbases, klingons);
+        if ((entry & BinarySaveFormat.entitiesFlag) != 0) {
+            this.readEntities(sink, EntityType.STARBASE, starbases);
+            this.readEntities(sink, EntityType.KLINGON, klingons);
+            this.readEntities(sink, EntityType.STAR, stars);
+        }
+    }
+
+    private void readEntities(GameRecordSink sink, EntityType type, int count) throws IOException {
+        final boolean hasEnergy = type != EntityType.STAR;
+        for (int i = 0; i < count; i += 1) {
+            this.require(hasEnergy ? 3 : 1);
+            final int sector = this.buffer.get() & 0xFF;
+            final int energy = hasEnergy ? this.buffer.getShort() & 0xFFFF : 0;
+            int flags = 0;
+            if ((sector & BinarySaveFormat.scannedBit) != 0) {
+                flags |= EntityStore.scannedFlag;
+            }
+            if ((sector & BinarySaveFormat.removedBit) != 0) {
+                flags |= EntityStore.removedFlag;
+            }
+            final int index = sector & 63;
+            sink.entity(type, index & 7, index >>> 3, energy, flags);
+        }
+    }
+
+    /**
+     * Skips the given number of bytes, a buffer at a time.
+     */
+    private void skip(long bytes) throws IOException {
+        while (bytes > 0) {
+            final int step = (int) Math.min(bytes, bufferSize);
+            this.require(step);
+            this.buffer.position(this.buffer.position() + step);
+            bytes -= step;
+        }
+    }
+
+    /**
+     * Makes sure at least the given number of bytes are buffered, reading more if needed.
+     */
+    private void require(int bytes) throws IOException {
+        if (this.buffer.remaining() >= bytes) {
+            return;
+        }
+        this.buffer.compact();
+        while (this.buffer.position() < bytes) {
+            if (this.channel.read(this.buffer) < 0) {
+                throw new IOException("Binary save file is truncated");
+            }
+        }
+        this.buffer.flip();
+    }
+}
@@ -0,0 +1,320 @@
+package sttrswing.controller;
+
+import sttrswing.model.EntityStore;
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.interfaces.GameRecordSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the records it is sent to a channel in the binary save format (see
+ * {@link BinarySaveFormat}), through a fixed buffer. Records must arrive in the order of a full
+ * export, see {@link GameRecordSink}. Call {@link #finish()} once the last record has been sent.
+ *
+ * <p>{@link GameRecordSink} methods cannot throw checked exceptions, so write failures are thrown
+ * as {@link UncheckedIOException}.</p>
+ *
+ * <p>An indexed save reserves room for the index after the current quadrant record and fills it
+ * in from {@link #finish()}, once every entry's offset is known, so it needs a channel it can
+ * seek back in.</p>
+ *
+ * <p>A delta save (see {@link #delta(WritableByteChannel)}) writes only the quadrant records it is
+ * sent, each after its index, and leaves every other quadrant to be generated from the seed, so it
+ * should be sent a delta export (see {@link sttrswing.model.GameSnapshot#exportDelta}).</p>
+ */
+public final class BinarySaveWriter implements GameRecordSink {
+
+    private static final int bufferSize = 64 * 1024; // bytes collected before each channel write
+    private static final int maxEntities = 64; // one per sector
+    private static final int maxEnergy = 0xFFFF; // entity energy is an unsigned short
+
+    private final WritableByteChannel channel;
+    private final boolean indexed;
+    private final boolean delta; // whether only the quadrants sent are written, each by index
+    private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+    private long written = 0; // bytes written to the channel so far
+    private int[] index; // offset of each quadrant entry, only kept for an indexed save
+    private int width = -1; // galaxy width, -1 until the galaxy record arrives
+    private int height;
+    private boolean enterpriseWritten = false;
+    private boolean currentWritten = false;
+    private int nextIndex = 0; // row-major index of the next quadrant entry to write
+    // the quadrant being collected: its composition and its entities by kind
+    private int pendingComposition = -1;
+    private final ByteBuffer starbases = ByteBuffer.allocate(maxEntities * 3);
+    private final ByteBuffer klingons = ByteBuffer.allocate(maxEntities * 3);
+    private final ByteBuffer stars = ByteBuffer.allocate(maxEntities);
+
+    /**
+     * Constructs a {@link BinarySaveWriter} writing to the given channel. The channel is not
+     * closed.
+     *
+     * @param channel - where to write the save.
+     */
+    public BinarySaveWriter(WritableByteChannel channel) {
+        this(channel, false, false);
+    }
+
+    /**
+     * Constructs a {@link BinarySaveWriter} writing to the given channel, with an index of where
+     * each quadrant's entry starts if asked to. The save starts at the channel's position. The
+     * channel is not closed.
+     *
+     * @param channel - where to write the save.
+     * @param indexed - whether to write the index.
+     */
+    public BinarySaveWriter(SeekableByteChannel channel, boolean indexed) {
+        this(channel, indexed, false);
+    }
+
+    private BinarySaveWriter(WritableByteChannel channel, boolean indexed, boolean delta) {
+        this.channel = channel;
+        this.indexed = indexed;
+        this.delta = delta;
+    }
+
+    /**
+     * Returns a {@link BinarySaveWriter} writing a delta save to the given channel: quadrants it
+     * is not sent are generated from the seed when the save is loaded, rather than missing. The
+     * channel is not closed.
+     *
+     * @param channel - where to write the save.
+     * @return the writer.
+     */
+    public static BinarySaveWriter delta(WritableByteChannel channel) {
+        return new BinarySaveWriter(channel, false, true);
+    }
+
+    @Override
+    public void galaxy(int width, int height, long seed) {
+        if (this.width >= 0) {
+            throw new IllegalStateException("Galaxy record already written");
+        }
+        if (this.indexed) {
+            this.index = new int[Math.multiplyExact(width, height)];
+        }
+        this.width = width;
+        this.height = height;
+        this.ensure(BinarySaveFormat.headerBytes);
+        this.buffer.putInt(BinarySaveFormat.magic);
+        this.buffer.putShort(BinarySaveFormat.version);
+        this.buffer.putShort((short) (this.indexed ? BinarySaveFormat.indexedFlag
+                : this.delta ? BinarySaveFormat.deltaFlag : 0));
+        this.buffer.putInt(width);
+        this.buffer.putInt(height);
+        this.buffer.putLong(seed);
+    }
+
+    @Override
+    public void enterprise(int x, int y, int energy, int shields, int torpedoes) {
+        if (this.width < 0 || this.enterpriseWritten) {
+            throw new IllegalStateException("Enterprise record must follow the galaxy record once");
+        }
+        this.enterpriseWritten = true;
+        this.ensure(BinarySaveFormat.enterpriseBytes);
+        this.buffer.putInt(x);
+        this.buffer.putInt(y);
+        this.buffer.putInt(energy);
+        this.buffer.putInt(shields);
+        this.buffer.putInt(torpedoes);
+    }
+
+    @Override
+    public void current(int x, int y) {
+        if (!this.enterpriseWritten || this.currentWritten) {
+            throw new IllegalStateException(
+                    "Current quadrant record must follow the enterprise record once");
+        }
+        this.currentWritten = true;
+        this.ensure(BinarySaveFormat.currentBytes);
+        this.buffer.putInt(x);
+        this.buffer.putInt(y);
+        if (this.indexed) {
+            // room for the index, filled in by finish()
+            for (int i = 0; i < this.index.length; i += 1) {
+                this.ensure(4);
+                this.buffer.putInt(0);
+            }
+        }
+    }
+
+    @Override
+    public void quadrant(int x, int y, int stars, int starbases, int klingons) {
+        if (!this.enterpriseWritten) {
+            throw new IllegalStateException("Quadrant records must follow the enterprise record");
+        }
+        if (!this.currentWritten) {
+            this.current(-1, -1);
+        }
+        this.flushQuadrant();
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+            throw new IllegalStateException("Quadrant " + x + "," + y + " is outside the galaxy");
+        }
+        final int index = y * this.width + x;
+        if (index < this.nextIndex) {
+            throw new IllegalStateException("Quadrant records must be in row-major order");
+        }
+        if (stars > BinarySaveFormat.maxCount || starbases > BinarySaveFormat.maxCount
+                || klingons > BinarySaveFormat.maxCount) {
+            throw new IllegalStateException("Quadrant " + x + "," + y + " holds too many entities");
+        }
+        if (this.delta) {
+            this.nextIndex = index;
+        } else {
+            this.writeAbsentUpTo(index);
+        }
+        this.pendingComposition = stars
+                | starbases << BinarySaveFormat.countBits
+                | klingons << (2 * BinarySaveFormat.countBits);
+    }
+
+    @Override
+    public void entity(EntityType type, int x, int y, int energy, int flags) {
+        if (this.pendingComposition < 0) {
+            throw new IllegalStateException("Entity records must follow a quadrant record");
+        }
+        if (type != EntityType.STAR && (energy < 0 || energy > maxEnergy)) {
+            throw new IllegalStateException("Energy " + energy + " does not fit in a binary save");
+        }
+        int sector = y * 8 + x;
+        if ((flags & EntityStore.scannedFlag) != 0) {
+            sector |= BinarySaveFormat.scannedBit;
+        }
+        if ((flags & EntityStore.removedFlag) != 0) {
+            sector |= BinarySaveFormat.removedBit;
+        }
+        switch (type) {
+            case STARBASE -> this.starbases.put((byte) sector).putShort((short) energy);
+            case KLINGON -> this.klingons.put((byte) sector).putShort((short) energy);
+            case STAR -> this.stars.put((byte) sector);
+        }
+    }
+
+    /**
+     * Writes out the last quadrant and marks any quadrants after it as absent, or ends the list of
+     * changed quadrants of a delta save, then writes everything still buffered to the channel.
+     *
+     * @throws IOException if the channel cannot be written.
+     */
+    public void finish() throws IOException {
+        try {
+            if (this.enterpriseWritten && !this.currentWritten) {
+                this.current(-1, -1);
+            }
+            this.flushQuadrant();
+            if (this.delta) {
+                this.ensure(4);
+                this.buffer.putInt(-1);
+            } else {
+                this.writeAbsentUpTo(this.width * this.height);
+            }
+            this.drain();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (this.indexed && this.currentWritten) {
+            this.writeIndex();
+        }
+    }
+
+    /**
+     * Goes back to the room reserved for the index and writes it, then returns to the end of the
+     * save.
+     */
+    private void writeIndex() throws IOException {
+        final SeekableByteChannel seekable = (SeekableByteChannel) this.channel;
+        final long end = seekable.position();
+        seekable.position(end - this.written + BinarySaveFormat.indexStart);
+        for (int offset : this.index) {
+            if (this.buffer.remaining() < 4) {
+                this.writeBuffer();
+            }
+            this.buffer.putInt(offset);
+        }
+        this.writeBuffer();
+        seekable.position(end);
+    }
+
+    /**
+     * Notes that the next entry written is the given quadrant's, for the index.
+     */
+    private void indexEntry(int quadrant) {
+        if (this.index == null) {
+            return;
+        }
+        final long offset = this.written + this.buffer.position();
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Save is too large to index");
+        }
+        this.index[quadrant] = (int) offset;
+    }
+
+    private void flushQuadrant() {
+        if (this.pendingComposition < 0) {
+            return;
+        }
+        final int entityBytes = this.starbases.position() + this.klingons.position()
+                + this.stars.position();
+        int entry = this.pendingComposition;
+        if (entityBytes > 0 && (this.stars.position() != (entry & BinarySaveFormat.maxCount)
+                || this.starbases.position() / 3
+                        != (entry >>> BinarySaveFormat.countBits & BinarySaveFormat.maxCount)
+                || this.klingons.position() / 3
+                        != (entry >>> (2 * BinarySaveFormat.countBits) & BinarySaveFormat.maxCount))) {
+            throw new IllegalStateException("Entity records do not match the quadrant counts");
+        }
+        if (entityBytes > 0 || entry == 0) {
+            entry |= BinarySaveFormat.entitiesFlag;
+        }
+        this.ensure(6 + entityBytes);
+        if (this.delta) {
+            this.buffer.putInt(this.nextIndex);
+        }
+        this.indexEntry(this.nextIndex);
+        this.buffer.putShort((short) entry);
+        for (ByteBuffer entities : new ByteBuffer[] {this.starbases, this.klingons, this.stars}) {
+            entities.flip();
+            this.buffer.put(entities);
+            entities.clear();
+        }
+        this.pendingComposition = -1;
+        this.nextIndex += 1;
+    }
+
+    private void writeAbsentUpTo(int index) {
+        while (this.nextIndex < index) {
+            this.ensure(2);
+            this.indexEntry(this.nextIndex);
+            this.buffer.putShort((short) BinarySaveFormat.absentFlag);
+            this.nextIndex += 1;
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (this.buffer.remaining() < bytes) {
+            this.drain();
+        }
+    }
+
+    private void drain() {
+        final int bytes = this.buffer.position();
+        try {
+            this.writeBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.written += bytes;
+    }
+
+    private void writeBuffer() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
@@ -0,0 +1,45 @@
+package sttrswing.controller;
+
+/**
+ * Constants describing the command log, a record of every action played in a game that
+ * {@link ReplayEngine} can play again and reach exactly the same state. All numbers are
+ * big-endian.
+ *
+ * <pre>
+ * header   int magic ('TRKR'), short version, short flags (0),
+ *          long seed of the game's own random decisions            16 bytes
+ * commands one after another, each a byte opcode then its arguments:
+ *          shields, phasers, torpedo  int energy or course
+ *          scan, turn                 nothing
+ *          move within, move between  int course, double distance
+ *          restore                    int length, then the game as a binary save
+ *                                     (see BinarySaveFormat) of that length
+ * </pre>
+ *
+ * <p>A log always starts with a restore of the game as it was when recording began, so it
+ * replays the same whatever galaxy the game was played in. Every later random decision comes from
+ * the game's seeded stream or from streams derived from the galaxy seed the restore carries.</p>
+ */
+public final class CommandLogFormat {
+
+    /**
+     * File extension of command logs.
+     */
+    public static final String extension = ".trekr";
+
+    static final int magic = 0x54524B52; // "TRKR"
+    static final short version = 1;
+    static final int headerBytes = 16;
+
+    static final byte shields = 1;
+    static final byte phasers = 2;
+    static final byte torpedo = 3;
+    static final byte scan = 4;
+    static final byte moveWithin = 5;
+    static final byte moveBetween = 6;
+    static final byte turn = 7;
+    static final byte restore = 8;
+
+    private CommandLogFormat() {
+    }
+}
@@ -0,0 +1,189 @@
+package sttrswing.controller;
+
+import sttrswing.model.GameSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads a command log (see {@link CommandLogFormat}) through a fixed buffer, one command at a
+ * time. After {@link #next()} returns true, {@link #opcode()} and the accessors for its arguments
+ * describe the command just read.
+ *
+ * <p>A log cut short by a crash simply ends at the last whole command; {@link #truncated()} tells
+ * the two apart.</p>
+ */
+public final class CommandLogReader {
+
+    private static final int bufferSize = 16 * 1024; // bytes read from the channel at a time
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+    private final long seed;
+    private byte opcode = 0; // opcode of the last command read, 0 before the first
+    private int argument = 0; // energy or course of the last command read
+    private double distance = 0.0; // distance of the last move read
+    private GameSnapshot snapshot = null; // game of the last restore read
+    private boolean truncated = false;
+
+    /**
+     * Constructs a {@link CommandLogReader} reading from the given channel, reading the log
+     * header straight away. The channel is not closed.
+     *
+     * @param channel - where to read the log from.
+     * @throws IOException if the channel cannot be read or does not hold a command log.
+     */
+    public CommandLogReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.buffer.flip(); // start empty
+        if (!this.fill(CommandLogFormat.headerBytes)
+                || this.buffer.getInt() != CommandLogFormat.magic) {
+            throw new IOException("Not a command log");
+        }
+        final short version = this.buffer.getShort();
+        if (version != CommandLogFormat.version) {
+            throw new IOException("Unsupported command log version " + version);
+        }
+        this.buffer.getShort(); // flags, none defined yet
+        this.seed = this.buffer.getLong();
+    }
+
+    /**
+     * Returns the seed of the recorded game's own random decisions.
+     *
+     * @return the game seed.
+     */
+    public long seed() {
+        return this.seed;
+    }
+
+    /**
+     * Reads the next command.
+     *
+     * @return false if the log has ended.
+     * @throws IOException if the channel cannot be read or holds an unknown command.
+     */
+    public boolean next() throws IOException {
+        if (!this.fill(1)) {
+            return false;
+        }
+        final byte next = this.buffer.get();
+        final int argumentBytes = switch (next) {
+            case CommandLogFormat.shields, CommandLogFormat.phasers, CommandLogFormat.torpedo,
+                    CommandLogFormat.restore -> 4;
+            case CommandLogFormat.moveWithin, CommandLogFormat.moveBetween -> 12;
+            case CommandLogFormat.scan, CommandLogFormat.turn -> 0;
+            default -> throw new IOException("Unknown command " + next + " in command log");
+        };
+        if (!this.fill(argumentBytes)) {
+            this.truncated = true;
+            return false;
+        }
+        if (argumentBytes > 0) {
+            this.argument = this.buffer.getInt();
+        }
+        if (argumentBytes == 12) {
+            this.distance = this.buffer.getDouble();
+        }
+        if (next == CommandLogFormat.restore && !this.readSnapshot(this.argument)) {
+            this.truncated = true;
+            return false;
+        }
+        this.opcode = next;
+        return true;
+    }
+
+    /**
+     * Returns the opcode of the last command read, one of the {@link CommandLogFormat} opcodes.
+     *
+     * @return the opcode.
+     */
+    public byte opcode() {
+        return this.opcode;
+    }
+
+    /**
+     * Returns the energy or course of the last command read, if it has one.
+     *
+     * @return the energy or course.
+     */
+    public int argument() {
+        return this.argument;
+    }
+
+    /**
+     * Returns the distance of the last move read.
+     *
+     * @return the distance.
+     */
+    public double distance() {
+        return this.distance;
+    }
+
+    /**
+     * Returns the game of the last restore read.
+     *
+     * @return the restored game.
+     */
+    public GameSnapshot snapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Returns if the log ended part way through a command, as a log being written when the game
+     * crashed does.
+     *
+     * @return if the last command was cut short.
+     */
+    public boolean truncated() {
+        return this.truncated;
+    }
+
+    private boolean readSnapshot(int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Negative restore length in command log");
+        }
+        final byte[] bytes = new byte[length];
+        final int buffered = Math.min(length, this.buffer.remaining());
+        this.buffer.get(bytes, 0, buffered);
+        final ByteBuffer rest = ByteBuffer.wrap(bytes, buffered, length - buffered);
+        while (rest.hasRemaining()) {
+            if (this.channel.read(rest) < 0) {
+                return false;
+            }
+        }
+        final GameSnapshot.Builder builder = new GameSnapshot.Builder();
+        try {
+            new BinarySaveReader(Channels.newChannel(new ByteArrayInputStream(bytes)))
+                    .parse(builder);
+            this.snapshot = builder.build();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("Invalid restore in command log", e);
+        }
+        return true;
+    }
+
+    /**
+     * Makes sure the given number of bytes are buffered, returning false if the channel ends
+     * first.
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (this.buffer.remaining() >= bytes) {
+            return true;
+        }
+        this.buffer.compact();
+        try {
+            while (this.buffer.position() < bytes) {
+                if (this.channel.read(this.buffer) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            this.buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package sttrswing.controller;
+
+import sttrswing.model.GameSnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes commands to a channel in the command log format (see {@link CommandLogFormat}), through
+ * a fixed buffer. Commands are only guaranteed to have reached the channel after
+ * {@link #flush()}.
+ *
+ * <p>Commands are recorded from {@link sttrswing.model.interfaces.GameModel} calls, which cannot
+ * throw checked exceptions, so write failures are thrown as {@link UncheckedIOException}.</p>
+ */
+public final class CommandLogWriter {
+
+    private static final int bufferSize = 16 * 1024; // bytes collected before each channel write
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+    private int commands = 0; // commands written so far
+
+    /**
+     * Constructs a {@link CommandLogWriter} writing to the given channel, starting with the log
+     * header. The channel is not closed.
+     *
+     * @param channel - where to write the log.
+     * @param seed    - seed of the recorded game's own random decisions.
+     */
+    public CommandLogWriter(WritableByteChannel channel, long seed) {
+        this.channel = channel;
+        this.buffer.putInt(CommandLogFormat.magic);
+        this.buffer.putShort(CommandLogFormat.version);
+        this.buffer.putShort((short) 0);
+        this.buffer.putLong(seed);
+    }
+
+    /**
+     * Records a {@link sttrswing.model.interfaces.GameModel#shields(int)} call.
+     *
+     * @param energy - the energy asked for.
+     */
+    public void shields(int energy) {
+        this.command(CommandLogFormat.shields, 4);
+        this.buffer.putInt(energy);
+    }
+
+    /**
+     * Records a {@link sttrswing.model.interfaces.GameModel#firePhasers(int)} call.
+     *
+     * @param energy - the energy asked for.
+     */
+    public void phasers(int energy) {
+        this.command(CommandLogFormat.phasers, 4);
+        this.buffer.putInt(energy);
+    }
+
+    /**
+     * Records a {@link sttrswing.model.interfaces.GameModel#fireTorpedo(int)} call.
+     *
+     * @param course - the course asked for.
+     */
+    public void torpedo(int course) {
+        this.command(CommandLogFormat.torpedo, 4);
+        this.buffer.putInt(course);
+    }
+
+    /**
+     * Records a {@link sttrswing.model.interfaces.GameModel#scanQuadrant()} call.
+     */
+    public void scan() {
+        this.command(CommandLogFormat.scan, 0);
+    }
+
+    /**
+     * Records a {@link sttrswing.model.interfaces.GameModel#turn()} call.
+     */
+    public void turn() {
+        this.command(CommandLogFormat.turn, 0);
+    }
+
+    /**
+     * Records a {@link sttrswing.model.interfaces.GameModel#moveWithinQuadrant(int, double)}
+     * call.
+     *
+     * @param course   - the course asked for.
+     * @param distance - the distance asked for.
+     */
+    public void moveWithin(int course, double distance) {
+        this.command(CommandLogFormat.moveWithin, 12);
+        this.buffer.putInt(course);
+        this.buffer.putDouble(distance);
+    }
+
+    /**
+     * Records a {@link sttrswing.model.interfaces.GameModel#moveBetweenQuadrants(int, double)}
+     * call.
+     *
+     * @param course   - the course asked for.
+     * @param distance - the distance asked for.
+     */
+    public void moveBetween(int course, double distance) {
+        this.command(CommandLogFormat.moveBetween, 12);
+        this.buffer.putInt(course);
+        this.buffer.putDouble(distance);
+    }
+
+    /**
+     * Records the game being replaced by the given snapshot, as by a load or restore.
+     *
+     * @param snapshot - the game as it was restored.
+     */
+    public void restore(GameSnapshot snapshot) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            final BinarySaveWriter writer = new BinarySaveWriter(Channels.newChannel(bytes));
+            snapshot.export(writer);
+            writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.command(CommandLogFormat.restore, 4);
+        this.buffer.putInt(bytes.size());
+        this.drain();
+        this.write(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    /**
+     * Returns how many commands have been written.
+     *
+     * @return the number of commands written.
+     */
+    public int commands() {
+        return this.commands;
+    }
+
+    /**
+     * Writes everything still buffered to the channel.
+     *
+     * @throws IOException if the channel cannot be written.
+     */
+    public void flush() throws IOException {
+        try {
+            this.drain();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void command(byte opcode, int argumentBytes) {
+        if (this.buffer.remaining() < 1 + argumentBytes) {
+            this.drain();
+        }
+        this.buffer.put(opcode);
+        this.commands += 1;
+    }
+
+    private void drain() {
+        this.buffer.flip();
+        this.write(this.buffer);
+        this.buffer.clear();
+    }
+
+    private void write(ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                this.channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package sttrswing.controller;
 
+import sttrswing.model.GameTimeline;
 import sttrswing.model.interfaces.GameModel;
+import sttrswing.view.LoadSlotDialog;
 import sttrswing.view.StartView;
 import sttrswing.view.StandardLayoutView;
+import sttrswing.view.TimelineDialog;
 import sttrswing.view.View;
 import sttrswing.view.WinGameView;
 import sttrswing.view.LoseGameView;
@@ -17,7 +20,11 @@ import sttrswing.view.panels.Shield;
 import sttrswing.view.panels.Torpedo;
 
 import javax.swing.*;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 /**
  * Top-level controller responsible for configuring the application window
@@ -27,7 +34,18 @@ public class GameController extends JFrame {
 
     private final Dimension windowSize;
     private final GameModel game;
+    private final GameTimeline timeline; // turns played, for the Timeline dialog; null if not kept
     private final JMenu fileMenu = new JMenu("File");
+    private final JMenu editMenu = new JMenu("Edit");
+    private final JProgressBar progress = new JProgressBar(); // shown while saving or loading
+    private final PersistenceService persistence = new PersistenceService();
+    // base save plus a log of each turn's changes, compacted every 100 turns
+    private final TurnJournal journal = new TurnJournal("data/journal.trek", "data/journal.log", 100);
+    // every 5 turns or minute of play, keeping the last 3 autosaves as well
+    private final AutosaveService autosave = new AutosaveService("data/autosave.trek", 5, 60_000, 3);
+    // named save slots, listed by the Load dialog from their headers alone
+    private final SaveManager slots = new SaveManager("data/slots");
+    private String lastSlot = "save"; // slot offered by the next Save
     private View currentView;
 
     /**
@@ -37,8 +55,22 @@ public class GameController extends JFrame {
      * @param game       the game model to be coordinated by this controller
      */
     public GameController(Dimension windowSize, GameModel game) {
+        this(windowSize, game, null);
+    }
+
+    /**
+     * Constructs a new {@code GameController} offering the turns recorded by
+     * the given timeline for looking back over from the File menu.
+     *
+     * @param windowSize the desired dimensions of the top-level window
+     * @param game       the game model to be coordinated by this controller
+     * @param timeline   the turns of the game recorded so far, or {@code null}
+     *                   if none are kept
+     */
+    public GameController(Dimension windowSize, GameModel game, GameTimeline timeline) {
         this.windowSize = windowSize;
         this.game = game;
+        this.timeline = timeline;
     }
 
     /**
@@ -53,11 +85,80 @@ public class GameController extends JFrame {
     /**
      * Ends the controller and disposes the underlying {@link JFrame}.
      * After calling this method, the window is destroyed and resources are released.
+     * Closing the window ends the controller before the program exits.
      */
     public void end() {
+        if (game instanceof RecordingGameModel) {
+            ((RecordingGameModel) game).close(); // the session's command log is complete
+        }
+        persistence.shutdown();
+        slots.detach();
+        try {
+            journal.shutdown(2_000);
+            autosave.shutdown(2_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         dispose();
     }
 
+    /**
+     * Shows or hides the progress bar and wait cursor while a save or load runs
+     * in the background, and stops another one being started meanwhile.
+     *
+     * @param busy if a save or load is running
+     */
+    private void setBusy(boolean busy) {
+        progress.setVisible(busy);
+        fileMenu.setEnabled(!busy);
+        editMenu.setEnabled(!busy);
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    /**
+     * Loads the given slot in the background and swaps it into the game, then
+     * counts turns on from the slot's.
+     *
+     * @param game the game to load the slot into
+     * @param slot the slot to load
+     */
+    private void loadSlot(GameModel game, SaveManager.Slot slot) {
+        setBusy(true);
+        persistence.load(slot.path().toString(), loader -> {
+            setBusy(false);
+            if (!loader.success()) {
+                JOptionPane.showMessageDialog(
+                        this,
+                        "Load failed. Slot " + slot.name() + " is missing or invalid.",
+                        "Load",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            try {
+                game.restore(loader.buildSnapshot(), loader.buildGalaxy());
+            } catch (IllegalStateException | IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(
+                        this,
+                        "Load failed. The save file could not be parsed.",
+                        "Load",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            slots.loaded(slot);
+            lastSlot = slot.name();
+
+            setCurrentQuadrantScanView(game);
+
+            String ent = loader.enterpriseLine();
+            JOptionPane.showMessageDialog(
+                    this,
+                    "Loaded OK from slot " + slot.name() + ".\n" + ent + "\nGalaxy lines loaded: " + loader.quadrantCount(),
+                    "Load",
+                    JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+
     /**
      * Initialises the primary window (if not yet created), wires up the menu bar
      * with Save/Load actions, and displays the initial four-panel layout:
@@ -76,6 +177,12 @@ public class GameController extends JFrame {
         // Initial window & menu
         if (!isDisplayable()) {
             setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    end();
+                }
+            });
             setSize(windowSize);
             setLocationRelativeTo(null);
             setTitle("Star Trek");
@@ -83,64 +190,124 @@ public class GameController extends JFrame {
             
             fileMenu.removeAll();
 
-            // Save
+            // Save: asks for a slot, the snapshot is taken here, the file is written in the background
             JMenuItem save = new JMenuItem("Save");
             save.addActionListener(e -> {
-                GameSaver saver = new GameSaver(game.export(), "data/save.trek");
-                saver.save();
-                JOptionPane.showMessageDialog(
-                        this,
-                        saver.success() ? "Saved to data/save.trek" : "Save failed. Check write permission.",
-                        "Save",
-                        saver.success() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+                String name = (String) JOptionPane.showInputDialog(
+                        this, "Save to slot:", "Save", JOptionPane.QUESTION_MESSAGE, null, null, lastSlot);
+                if (name == null) {
+                    return;
+                }
+                GameSaver slotSaver;
+                try {
+                    slotSaver = slots.saver(game, name);
+                } catch (IllegalArgumentException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Save", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                lastSlot = name.trim();
+                setBusy(true);
+                persistence.save(slotSaver, saver -> {
+                    setBusy(false);
+                    JOptionPane.showMessageDialog(
+                            this,
+                            saver.success() ? "Saved to slot " + name.trim() : "Save failed. Check write permission.",
+                            "Save",
+                            saver.success() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+                });
             });
 
-            // Load
+            // Load: slots listed from their headers, the chosen one parsed and built in the background
             JMenuItem load = new JMenuItem("Load");
             load.addActionListener(e -> {
-                GameLoader loader = new GameLoader("data/save.trek");
-                loader.load();
+                setBusy(true);
+                persistence.list(slots, listed -> {
+                    setBusy(false);
+                    if (listed == null || listed.isEmpty()) {
+                        JOptionPane.showMessageDialog(
+                                this,
+                                listed == null ? "Load failed. The save slots could not be read." : "There are no saved slots yet.",
+                                "Load",
+                                listed == null ? JOptionPane.ERROR_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                        return;
+                    }
+                    SaveManager.Slot slot = new LoadSlotDialog(this, listed).choose();
+                    if (slot != null) {
+                        loadSlot(game, slot);
+                    }
+                });
+            });
 
-                if (!loader.success()) {
-                    JOptionPane.showMessageDialog(
-                            this,
-                            "Load failed. Make sure data/save.trek exists and is valid.",
-                            "Load",
-                            JOptionPane.ERROR_MESSAGE);
-                    return;
+            // Timeline: scrub back through every turn played, seeking from the nearest keyframe
+            JMenuItem review = new JMenuItem("Timeline");
+            review.setEnabled(timeline != null);
+            review.addActionListener(e -> new TimelineDialog(this, timeline).setVisible(true));
+
+            // Undo/Redo: step between the versions the game keeps of each turn
+            JMenuItem undo = new JMenuItem("Undo");
+            undo.setAccelerator(KeyStroke.getKeyStroke('Z', Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+            undo.addActionListener(e -> {
+                if (game.undo()) {
+                    setCurrentQuadrantScanView(game);
                 }
-
-                try {
-                    game.load(loader.buildEnterprise(), loader.buildGalaxy());
-                } catch (IllegalStateException ex) {
-                    JOptionPane.showMessageDialog(
-                            this,
-                            "Load failed. The save file could not be parsed.",
-                            "Load",
-                            JOptionPane.ERROR_MESSAGE);
-                    return;
+            });
+            JMenuItem redo = new JMenuItem("Redo");
+            redo.setAccelerator(KeyStroke.getKeyStroke('Y', Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+            redo.addActionListener(e -> {
+                if (game.redo()) {
+                    setCurrentQuadrantScanView(game);
+                }
+            });
+            editMenu.removeAll();
+            editMenu.add(undo);
+            editMenu.add(redo);
+            editMenu.addMenuListener(new MenuListener() {
+                @Override
+                public void menuSelected(MenuEvent e) {
+                    undo.setEnabled(game.canUndo());
+                    redo.setEnabled(game.canRedo());
                 }
 
-                setCurrentQuadrantScanView(game);
-
-                String ent = loader.enterpriseLine();
-                java.util.List<String> galaxy = loader.galaxyLines();
-                JOptionPane.showMessageDialog(
-                        this,
-                        "Loaded OK from data/save.trek.\n" + ent + "\nGalaxy lines loaded: " + galaxy.size(),
-                        "Load",
-                        JOptionPane.INFORMATION_MESSAGE);
+                @Override
+                public void menuDeselected(MenuEvent e) {
+                    undo.setEnabled(true);
+                    redo.setEnabled(true);
+                }
 
+                @Override
+                public void menuCanceled(MenuEvent e) {
+                    undo.setEnabled(true);
+                    redo.setEnabled(true);
+                }
             });
 
             JMenuBar mb = new JMenuBar();
 
             fileMenu.add(save);
             fileMenu.add(load);
+            fileMenu.addSeparator();
+            fileMenu.add(review);
             mb.add(fileMenu);
+            mb.add(editMenu);
+            mb.add(Box.createHorizontalGlue());
+            progress.setIndeterminate(true);
+            progress.setVisible(false);
+            mb.add(progress);
             setJMenuBar(mb);
+
+            // pick up where the last session left off, then journal this one
+            setBusy(true);
+            journal.attach(game, recovered -> {
+                setBusy(false);
+                if (recovered) {
+                    start(game); // show the game as it was restored
+                }
+            });
         }
 
+        autosave.attach(game);
+        slots.attach(game);
+
         StartView startView = new StartView(game, this);
         StandardLayoutView layout = new StandardLayoutView("Star Trek");
         layout.addViewPanel(startView)
@@ -1,12 +1,14 @@
 package sttrswing.controller;
 
+import sttrswing.model.DeltaQuadrantSource;
 import sttrswing.model.Enterprise;
+import sttrswing.model.Composition;
 import sttrswing.model.Galaxy;
-import sttrswing.model.Quadrant;
+import sttrswing.model.GameSnapshot;
+import sttrswing.model.QuadrantSnapshot;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -15,12 +17,41 @@ import java.util.HashMap;
 /**
  * Loads a .trek file and provides helpers for constructing model objects from
  * it.
+ *
+ * <p>
+ * The file is read once by a {@link TrekTokenizer}, which hands each record
+ * straight to a {@link GameSnapshot.Builder}: the whole save becomes one
+ * {@link GameSnapshot}, with every entity exactly where it was saved and the
+ * quadrant the player was in, and its {@link Galaxy} is built straight away so
+ * all the slow work happens in {@link #load()}. Large saves are read on every
+ * core by a {@link ParallelTrekParser}. Paths ending in {@link BinarySaveFormat#extension}
+ * are read by a {@link BinarySaveReader} instead. Either kind is decompressed
+ * as it is read if it was saved compressed, see {@link SaveCompression}.
+ * </p>
+ * <p>
+ * An indexed binary save is not read in full at all: an {@link IndexedSaveSource}
+ * maps the file and a lazy {@link Galaxy} builds each quadrant from it when it is
+ * first needed. Only the quadrant the player is in and its neighbours are built
+ * straight away, and the snapshot holds only those, so resuming a huge galaxy
+ * takes about as long as the index takes to check.
+ * </p>
+ * <p>
+ * A delta save (see {@link BinarySaveFormat#deltaExtension}) is read in full,
+ * but only holds the quadrants that changed since the galaxy was generated. A
+ * lazy {@link Galaxy} over a {@link DeltaQuadrantSource} builds those from the
+ * save and generates every other one from the seed when it is first needed, so
+ * neither the file nor the loading grows with the untouched part of the galaxy.
+ * </p>
  */
 public class GameLoader {
 
+    private static final int residentLimit = 256; // built quadrants a lazily loaded galaxy keeps
+
     private final String path;
-    private final ArrayList<String> lines = new ArrayList<>();
     private Boolean success = false;
+    private GameSnapshot snapshot; // the loaded save, null until loaded
+    private Galaxy galaxy; // built from the snapshot, null until loaded
+    private int quadrantCount = 0; // quadrants in the save, which a lazy snapshot holds few of
 
     public GameLoader(String path) {
         this.path = path;
@@ -28,92 +59,174 @@ public class GameLoader {
 
     public void load() {
         success = false;
-        lines.clear();
+        snapshot = null;
+        galaxy = null;
+        quadrantCount = 0;
         try {
-            Path filePath = Paths.get(path);
-            lines.addAll(Files.readAllLines(filePath, StandardCharsets.UTF_8));
-            if (enterpriseLine().isEmpty()) {
-                throw new IOException("Missing enterprise line");
+            if (BinarySaveFormat.isBinary(path) && IndexedSaveSource.isIndexed(Paths.get(path))
+                    && loadIndexed(Paths.get(path))) {
+                success = true;
+                return;
             }
-            if (galaxyLines().isEmpty()) {
-                throw new IOException("Missing galaxy data");
+            GameSnapshot.Builder builder = new GameSnapshot.Builder();
+            if (BinarySaveFormat.isBinary(path)) {
+                try (ReadableByteChannel channel = SaveCompression.open(Paths.get(path))) {
+                    BinarySaveReader reader = new BinarySaveReader(channel);
+                    reader.parse(builder);
+                    if (reader.isDelta()) {
+                        loadDelta(builder.build());
+                        success = true;
+                        return;
+                    }
+                }
+            } else {
+                ParallelTrekParser.parse(Paths.get(path), builder);
             }
-            buildEnterprise();
-            buildGalaxy();
+            snapshot = builder.build();
+            galaxy = snapshot.toGalaxy();
+            quadrantCount = snapshot.quadrantCount();
             success = true;
-        } catch (IOException | IllegalStateException e) {
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
             success = false;
+            snapshot = null;
+            galaxy = null;
         }
     }
 
-    public String enterpriseLine() {
-        for (String line : lines) {
-            if (line != null && line.trim().startsWith("[e]")) {
-                return line.trim();
+    /**
+     * Loads an indexed save into a lazy galaxy, building only the current
+     * quadrant and its neighbours. Returns false, leaving nothing loaded, if the
+     * save is missing quadrants and has to be read in full.
+     */
+    private boolean loadIndexed(Path file) throws IOException {
+        IndexedSaveSource source = new IndexedSaveSource(file);
+        if (!source.isComplete()) {
+            return false;
+        }
+        GameSnapshot.Builder builder = new GameSnapshot.Builder();
+        source.exportHeader(builder);
+        Galaxy lazy = new Galaxy(source, residentLimit);
+        int x = source.currentX();
+        int y = source.currentY();
+        for (int dy = -1; dy <= 1; dy += 1) {
+            for (int dx = -1; dx <= 1; dx += 1) {
+                if (lazy.contains(x + dx, y + dy)) {
+                    source.exportQuadrant(x + dx, y + dy, builder);
+                    lazy.quadrantAt(x + dx, y + dy);
+                }
             }
         }
-        return "";
+        snapshot = builder.build();
+        galaxy = lazy;
+        quadrantCount = source.width() * source.height();
+        return true;
+    }
+
+    /**
+     * Loads a delta save into a lazy galaxy that builds the changed quadrants
+     * from the save and generates the rest from the seed, building only the
+     * current quadrant and its neighbours straight away. The snapshot is the
+     * delta itself, which holds the enterprise and the current quadrant.
+     */
+    private void loadDelta(GameSnapshot delta) {
+        Galaxy lazy = new Galaxy(new DeltaQuadrantSource(delta), residentLimit);
+        int x = delta.currentX();
+        int y = delta.currentY();
+        for (int dy = -1; dy <= 1; dy += 1) {
+            for (int dx = -1; dx <= 1; dx += 1) {
+                if (lazy.contains(x + dx, y + dy)) {
+                    lazy.quadrantAt(x + dx, y + dy);
+                }
+            }
+        }
+        snapshot = delta;
+        galaxy = lazy;
+        quadrantCount = delta.width() * delta.height();
+    }
+
+    /**
+     * Returns the loaded enterprise record as it would be saved, or an empty
+     * string if nothing has been loaded.
+     *
+     * @return the enterprise record
+     */
+    public String enterpriseLine() {
+        return snapshot == null ? "" : snapshot.toEnterprise().export().trim();
     }
 
+    /**
+     * Returns the loaded quadrant records as they would be saved, one
+     * {@code [q]} line per quadrant in the snapshot, row by row. For an indexed
+     * or delta save only the quadrants the snapshot holds are listed (see
+     * {@link #buildSnapshot()}).
+     *
+     * @return the quadrant records, empty if nothing has been loaded
+     */
     public ArrayList<String> galaxyLines() {
         ArrayList<String> result = new ArrayList<>();
-        for (String line : lines) {
-            if (line != null && line.trim().startsWith("[q]")) {
-                result.add(line.trim());
+        if (snapshot == null) {
+            return result;
+        }
+        for (int y = 0; y < snapshot.height(); y += 1) {
+            for (int x = 0; x < snapshot.width(); x += 1) {
+                QuadrantSnapshot quadrant = snapshot.quadrantAt(x, y);
+                if (quadrant != null) {
+                    result.add("[q] x:" + x + " y:" + y + " s:"
+                            + Composition.symbol(quadrant.composition()) + " |");
+                }
             }
         }
         return result;
     }
 
+    /**
+     * Returns how many quadrant records were loaded.
+     *
+     * @return the number of quadrants loaded, 0 if nothing has been loaded
+     */
+    public int quadrantCount() {
+        return quadrantCount;
+    }
+
     @Override
     public String toString() {
         return "GameLoader{"
                 + "path='" + path + '\''
                 + ", success=" + success
                 + ", enterpriseLine='" + enterpriseLine() + '\''
-                + ", galaxyLines=" + galaxyLines()
+                + ", quadrants=" + quadrantCount()
                 + '}';
     }
 
+    /**
+     * Returns the loaded save, ready for
+     * {@link sttrswing.model.interfaces.GameModel#restore(GameSnapshot, Galaxy)}
+     * with {@link #buildGalaxy()}. For an indexed save it holds only the
+     * quadrants built straight away, and for a delta save only the changed
+     * quadrants; the galaxy holds the rest.
+     *
+     * @return the loaded snapshot
+     * @throws IllegalStateException if nothing has been loaded
+     */
+    public GameSnapshot buildSnapshot() {
+        if (snapshot == null) {
+            throw new IllegalStateException("No save data loaded");
+        }
+        return snapshot;
+    }
+
     public Galaxy buildGalaxy() {
-        ArrayList<String> quadrantLines = galaxyLines();
-        if (quadrantLines.isEmpty()) {
+        if (galaxy == null) {
             throw new IllegalStateException("No galaxy data loaded");
         }
-        ArrayList<Quadrant> quadrants = new ArrayList<>();
-        for (String line : quadrantLines) {
-            try {
-                int x = parseLineForX(line);
-                int y = parseLineForY(line);
-                HashMap<String, Integer> counts = parseLineForQuadrantSymbol(line);
-                quadrants.add(new Quadrant(
-                        x,
-                        y,
-                        counts.get("starbases"),
-                        counts.get("klingons"),
-                        counts.get("stars")));
-            } catch (IOException e) {
-                throw new IllegalStateException("Unable to parse galaxy line: " + line, e);
-            }
-        }
-        return new Galaxy(quadrants);
+        return galaxy;
     }
 
     public Enterprise buildEnterprise() {
-        String line = enterpriseLine();
-        if (line.isEmpty()) {
+        if (snapshot == null) {
             throw new IllegalStateException("No enterprise data loaded");
         }
-        try {
-            int x = parseLineForX(line);
-            int y = parseLineForY(line);
-            int energy = parseLineForEnergy(line);
-            int shields = parseLineForShields(line);
-            int torpedoes = parseLineForTorpedoes(line);
-            return new Enterprise(x, y, energy, shields, torpedoes);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to parse enterprise line: " + line, e);
-        }
+        return snapshot.toEnterprise();
     }
 
     public int parseLineForX(String line) throws IOException {
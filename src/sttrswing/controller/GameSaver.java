@@ -1,51 +1,244 @@
 package sttrswing.controller;
 
-import java.io.BufferedWriter;
+import sttrswing.model.GameSnapshot;
+import sttrswing.model.TrekTextWriter;
+import sttrswing.model.interfaces.GameModel;
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Saves the stringified game state to a target file.
  * Javadoc: GameSaver(String gameData, String path), save(), success()
+ * <p>
+ * A saver built from a {@link GameModel} picks the format from the file
+ * extension: paths ending in {@link BinarySaveFormat#extension} are written in
+ * the binary format by a {@link BinarySaveWriter}, with an index so
+ * {@link GameLoader} can resume them lazily, paths ending in
+ * {@link BinarySaveFormat#deltaExtension} in the binary format holding only
+ * the quadrants that differ from what the galaxy's seed generates, and
+ * anything else as .trek text.
+ * Either is gzip compressed if the path ends in
+ * {@link SaveCompression#extension}, e.g. data/save.trek.gz.
+ * It takes a {@link GameSnapshot} of the game when constructed, so
+ * {@link #save()} can run on another thread while play carries on. That
+ * snapshot is what saving costs in memory: unless undo history is kept and
+ * the game has not changed since its last version (see
+ * {@link GameModel#snapshot()}), it is a full copy of the galaxy, every
+ * quadrant of a lazy galaxy included, so it grows with the size of the galaxy.
+ * Only writing it out is streamed to the file through a fixed buffer, so the
+ * encoding itself adds no memory whatever the size of the galaxy.
+ * </p>
  * @param gameData the game data to save
  * @param path     the file path to save the game data to
  */
 public class GameSaver {
-    private final String gameData; // stringified game data to save
+    private final String gameData; // stringified game data to save, null when saving a snapshot
+    private final GameSnapshot snapshot; // game state to save, null when saving stringified data
     private final String path; // file path to save the game data to
+    private int generations = 0; // older saves kept next to the target
+    private SaveSlotHeader header; // written in front of the save, null for a plain save
     private Boolean success = false; // whether the save was successful
 
     public GameSaver(String gameData, String path) {
         this.gameData = gameData;
+        this.snapshot = null;
+        this.path = path;
+    }
+
+    /**
+     * Constructs a saver for the given game as it is now, written as text or
+     * binary depending on the extension of the path. The game is snapshotted
+     * here, in proportion to the size of its galaxy unless its history's
+     * current version can be reused.
+     *
+     * @param game the game to save
+     * @param path the file path to save the game to
+     */
+    public GameSaver(GameModel game, String path) {
+        this(game.snapshot(), path);
+    }
+
+    /**
+     * Constructs a saver for the given snapshot, written as text or binary
+     * depending on the extension of the path.
+     *
+     * @param snapshot the game state to save
+     * @param path     the file path to save the game to
+     */
+    public GameSaver(GameSnapshot snapshot, String path) {
+        this.gameData = null;
+        this.snapshot = snapshot;
         this.path = path;
     }
 
+    /**
+     * Constructs a saver for the given snapshot that keeps the given number of
+     * older saves next to the target, see {@link #generationPath(String, int)}.
+     *
+     * @param snapshot    the game state to save
+     * @param path        the file path to save the game to
+     * @param generations how many older saves to keep, 0 to keep none
+     */
+    public GameSaver(GameSnapshot snapshot, String path, int generations) {
+        this(snapshot, path);
+        this.generations = Math.max(0, generations);
+    }
+
+    /**
+     * Constructs a saver for the given snapshot that writes the given slot
+     * header in front of the save, see {@link SaveManager}.
+     *
+     * @param snapshot the game state to save
+     * @param path     the file path to save the game to
+     * @param header   the header describing the save
+     */
+    public GameSaver(GameSnapshot snapshot, String path, SaveSlotHeader header) {
+        this(snapshot, path);
+        this.header = header;
+    }
+
+    /**
+     * Returns the path generation n of a rotated save is kept at, with the
+     * generation number put in front of the extension, e.g. generation 2 of
+     * data/autosave.trek is data/autosave.2.trek. Generation 0 is the path itself.
+     *
+     * @param path       the save path
+     * @param generation which older save, 1 for the most recent
+     * @return the path of that generation
+     */
+    public static String generationPath(String path, int generation) {
+        if (generation == 0) {
+            return path;
+        }
+        int dot = path.lastIndexOf('.');
+        int separator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        if (dot <= separator + 1) {
+            return path + "." + generation;
+        }
+        return path.substring(0, dot) + "." + generation + path.substring(dot);
+    }
+
     /**
      * Run the saving code, attempt to write to the file location with our
      * stringified game data.
+     * <p>
+     * The data is written to a temporary file next to the target and forced to
+     * disk first, then moved over the target in one atomic step, so a crash
+     * part way through leaves the previous save untouched. If older
+     * generations are kept they are shifted along just before the move.
+     * </p>
      */
     public void save() {
+        Path temp = null;
         try {
-            Path p = Paths.get(path);
+            Path p = Paths.get(path).toAbsolutePath();
             Path parent = p.getParent();
-            if (parent != null) {
-                Files.createDirectories(parent);
-            }
-            try (BufferedWriter writer = Files.newBufferedWriter(
-                    p,
-                    StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING,
-                    StandardOpenOption.WRITE)) {
-                writer.write(gameData == null ? "" : gameData);
+            Files.createDirectories(parent);
+            temp = Files.createTempFile(parent, p.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                if (header != null) {
+                    header.write(channel); // never compressed, so it can be read on its own
+                }
+                if (SaveCompression.isCompressed(path)) {
+                    GZIPOutputStream gzip = SaveCompression.compress(channel);
+                    write(Channels.newChannel(gzip), null);
+                    gzip.finish();
+                    channel.force(true);
+                    gzip.close(); // frees the compressor; the channel it closes is already forced
+                } else {
+                    write(channel, channel);
+                    channel.force(true);
+                }
             }
+            rotate();
+            replace(temp, p);
+            temp = null;
             success = true;
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
             success = false;
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // the save already failed, a stray temporary file is harmless
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the save to the given channel. A binary save is indexed when the
+     * channel can seek back to fill the index in, i.e. when it is not
+     * compressed. A snapshot missing quadrants cannot be a delta save, as
+     * loading would generate them, so it is saved in full instead.
+     */
+    private void write(WritableByteChannel out, SeekableByteChannel seekable) throws IOException {
+        if (snapshot != null && BinarySaveFormat.isDelta(path) && snapshot.isComplete()) {
+            BinarySaveWriter writer = BinarySaveWriter.delta(out);
+            snapshot.exportDelta(writer);
+            writer.finish();
+        } else if (snapshot != null && BinarySaveFormat.isBinary(path)) {
+            BinarySaveWriter writer = seekable != null
+                    ? new BinarySaveWriter(seekable, true) : new BinarySaveWriter(out);
+            snapshot.export(writer);
+            writer.finish();
+        } else if (snapshot != null) {
+            // streamed record by record, so the text is never held in memory
+            TrekTextWriter writer = new TrekTextWriter(out);
+            snapshot.export(writer);
+            writer.flush();
+        } else {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(gameData == null ? "" : gameData);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Shifts every kept generation along by one, dropping the oldest, and
+     * copies the current save into generation 1. The current save is copied
+     * rather than moved so the target is never missing.
+     */
+    private void rotate() throws IOException {
+        for (int generation = generations; generation > 0; generation -= 1) {
+            Path from = Paths.get(generationPath(path, generation - 1));
+            Path to = Paths.get(generationPath(path, generation));
+            if (!Files.exists(from)) {
+                continue;
+            }
+            if (generation == 1) {
+                Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                replace(from, to);
+            }
+        }
+    }
+
+    /**
+     * Moves a file over the target atomically, or as close to it as the file
+     * system allows.
+     */
+    static void replace(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
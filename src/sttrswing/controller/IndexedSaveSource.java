@@ -0,0 +1,319 @@
+package sttrswing.controller;
+
+import sttrswing.model.Composition;
+import sttrswing.model.EntityStore;
+import sttrswing.model.GameRandom;
+import sttrswing.model.Quadrant;
+import sttrswing.model.Starbase;
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.interfaces.GameRecordSink;
+import sttrswing.model.interfaces.QuadrantSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * A {@link QuadrantSource} reading an indexed binary save (see {@link BinarySaveFormat}) through a
+ * memory-mapped file. Opening it only checks the header and the index; each {@link Quadrant} is
+ * read from its own entry when a lazy {@link sttrswing.model.Galaxy} first asks for it, so
+ * resuming a huge galaxy costs little more than the handful of quadrants around the player.
+ *
+ * <p>Only absolute reads are made on the mapped file, so compositions may be read from several
+ * threads at once, as a lazy galaxy does for large galaxies.</p>
+ */
+public final class IndexedSaveSource implements QuadrantSource {
+
+    private final MappedByteBuffer map;
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final int currentX; // quadrant the player is in, -1 if the save does not say
+    private final int currentY;
+    private final boolean complete; // whether every quadrant in the galaxy is in the save
+    private final BitSet unsettled = new BitSet(); // quadrants with a starbase below full energy
+
+    /**
+     * Maps the indexed save at the given path and checks its header and index. Only the save is
+     * mapped, a slot header in front of it (see {@link SaveSlotHeader}) is left out, so offsets
+     * in the index still count from the start of the save.
+     *
+     * @param path - the save file to read.
+     * @throws IOException if the file cannot be read or is not a valid indexed save.
+     */
+    public IndexedSaveSource(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long start = SaveSlotHeader.saveStart(channel);
+            if (channel.size() - start > Integer.MAX_VALUE) {
+                throw new IOException("Indexed save is larger than 2 GiB");
+            }
+            this.map = channel.map(FileChannel.MapMode.READ_ONLY, start, channel.size() - start);
+        }
+        if (this.map.capacity() < BinarySaveFormat.indexStart
+                || this.map.getInt(0) != BinarySaveFormat.magic) {
+            throw new IOException("Not a binary save file");
+        }
+        if (this.map.getShort(4) < 3
+                || (this.map.getShort(6) & BinarySaveFormat.indexedFlag) == 0) {
+            throw new IOException("Binary save is not indexed");
+        }
+        this.width = this.map.getInt(8);
+        this.height = this.map.getInt(12);
+        this.seed = this.map.getLong(16);
+        final int current = BinarySaveFormat.headerBytes + BinarySaveFormat.enterpriseBytes;
+        this.currentX = this.map.getInt(current);
+        this.currentY = this.map.getInt(current + 4);
+        final long quadrants = (long) this.width * this.height;
+        if (this.width < 0 || this.height < 0
+                || BinarySaveFormat.indexStart + 4 * quadrants > this.map.capacity()) {
+            throw new IOException("Invalid galaxy size " + this.width + "x" + this.height);
+        }
+        boolean complete = true;
+        for (int index = 0; index < quadrants; index += 1) {
+            final int offset = this.checkedOffset(index);
+            final int entry = this.map.getShort(offset) & 0xFFFF;
+            if ((entry & BinarySaveFormat.absentFlag) != 0) {
+                complete = false;
+            } else if ((entry & BinarySaveFormat.entitiesFlag) != 0 && this.isBelowFull(offset)) {
+                this.unsettled.set(index);
+            }
+        }
+        this.complete = complete;
+    }
+
+    /**
+     * Returns if the file at the given path is a binary save with an index, without mapping it.
+     *
+     * @param path - the file to look at.
+     * @return true if the file can be opened as an {@link IndexedSaveSource}.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isIndexed(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(SaveSlotHeader.saveStart(channel));
+            final ByteBuffer header = ByteBuffer.allocate(8);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return false;
+                }
+            }
+            return header.getInt(0) == BinarySaveFormat.magic && header.getShort(4) >= 3
+                    && (header.getShort(6) & BinarySaveFormat.indexedFlag) != 0;
+        }
+    }
+
+    /**
+     * Returns if every quadrant of the galaxy is in the save. A lazy galaxy needs every one of
+     * them, so a save with missing quadrants has to be loaded in full instead.
+     *
+     * @return false if any quadrant is missing.
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * Sends the galaxy, enterprise and current quadrant records of the save to the sink, as the
+     * start of a full export would.
+     *
+     * @param sink - where to send the records.
+     */
+    public void exportHeader(GameRecordSink sink) {
+        sink.galaxy(this.width, this.height, this.seed);
+        final int enterprise = BinarySaveFormat.headerBytes;
+        sink.enterprise(this.map.getInt(enterprise), this.map.getInt(enterprise + 4),
+                this.map.getInt(enterprise + 8), this.map.getInt(enterprise + 12),
+                this.map.getInt(enterprise + 16));
+        if (this.currentX >= 0 && this.currentY >= 0) {
+            sink.current(this.currentX, this.currentY);
+        }
+    }
+
+    /**
+     * Sends the record of the quadrant at the given coordinates, then its entity records if the
+     * save holds them, to the sink. Nothing is sent for a quadrant missing from the save.
+     *
+     * @param x    - horizontal coordinate of the quadrant.
+     * @param y    - vertical coordinate of the quadrant.
+     * @param sink - where to send the records.
+     */
+    public void exportQuadrant(int x, int y, GameRecordSink sink) {
+        int offset = this.offset(x, y);
+        final int entry = this.map.getShort(offset) & 0xFFFF;
+        if ((entry & BinarySaveFormat.absentFlag) != 0) {
+            return;
+        }
+        final int stars = entry & BinarySaveFormat.maxCount;
+        final int starbases = entry >>> BinarySaveFormat.countBits & BinarySaveFormat.maxCount;
+        final int klingons = entry >>> (2 * BinarySaveFormat.countBits) & BinarySaveFormat.maxCount;
+        sink.quadrant(x, y, stars, starbases, klingons);
+        if ((entry & BinarySaveFormat.entitiesFlag) == 0) {
+            return;
+        }
+        offset += 2;
+        offset = this.exportEntities(offset, EntityType.STARBASE, starbases, sink);
+        offset = this.exportEntities(offset, EntityType.KLINGON, klingons, sink);
+        this.exportEntities(offset, EntityType.STAR, stars, sink);
+    }
+
+    /**
+     * Returns the x coordinate of the quadrant the player is in, or -1 if the save does not say.
+     *
+     * @return the current quadrant's x coordinate.
+     */
+    public int currentX() {
+        return this.currentX;
+    }
+
+    /**
+     * Returns the y coordinate of the quadrant the player is in, or -1 if the save does not say.
+     *
+     * @return the current quadrant's y coordinate.
+     */
+    public int currentY() {
+        return this.currentY;
+    }
+
+    @Override
+    public int width() {
+        return this.width;
+    }
+
+    @Override
+    public int height() {
+        return this.height;
+    }
+
+    @Override
+    public long seed() {
+        return this.seed;
+    }
+
+    @Override
+    public int composition(int x, int y) {
+        final int entry = this.map.getShort(this.offset(x, y)) & 0xFFFF;
+        if ((entry & BinarySaveFormat.absentFlag) != 0) {
+            return 0;
+        }
+        return Composition.pack(entry & BinarySaveFormat.maxCount,
+                entry >>> BinarySaveFormat.countBits & BinarySaveFormat.maxCount,
+                entry >>> (2 * BinarySaveFormat.countBits) & BinarySaveFormat.maxCount);
+    }
+
+    /**
+     * Builds the {@link Quadrant} at the given coordinates exactly as it was saved. Entities only
+     * saved by their counts are placed from the quadrant's own stream, as
+     * {@link sttrswing.model.QuadrantSnapshot#toQuadrant(long)} places them, so building the same
+     * quadrant twice gives equal quadrants and a lazy galaxy can drop it until it is changed.
+     */
+    @Override
+    public Quadrant materialize(int x, int y) {
+        final int offset = this.offset(x, y);
+        final int entry = this.map.getShort(offset) & 0xFFFF;
+        final Quadrant quadrant;
+        if ((entry & BinarySaveFormat.absentFlag) != 0) {
+            quadrant = new Quadrant(x, y, 0, 0, 0, GameRandom.forQuadrant(this.seed, x, y));
+        } else if ((entry & BinarySaveFormat.entitiesFlag) == 0) {
+            final int composition = this.composition(x, y);
+            quadrant = new Quadrant(x, y, Composition.starbases(composition),
+                    Composition.klingons(composition), Composition.stars(composition),
+                    GameRandom.forQuadrant(this.seed, x, y));
+        } else {
+            quadrant = new Quadrant(x, y, 0, 0, 0, GameRandom.forQuadrant(this.seed, x, y));
+            // only the entity records are wanted, to place each entity where it was saved
+            this.exportQuadrant(x, y, new GameRecordSink() {
+                @Override
+                public void galaxy(int width, int height, long seed) {
+                }
+
+                @Override
+                public void enterprise(int x, int y, int energy, int shields, int torpedoes) {
+                }
+
+                @Override
+                public void current(int x, int y) {
+                }
+
+                @Override
+                public void quadrant(int x, int y, int stars, int starbases, int klingons) {
+                }
+
+                @Override
+                public void entity(EntityType type, int x, int y, int energy, int flags) {
+                    quadrant.place(type, x, y, energy, flags);
+                }
+            });
+        }
+        quadrant.markUnmodified();
+        return quadrant;
+    }
+
+    @Override
+    public boolean isSettled(int x, int y) {
+        return !this.unsettled.get(y * this.width + x);
+    }
+
+    private int offset(int x, int y) {
+        return this.map.getInt(BinarySaveFormat.indexStart + 4 * (y * this.width + x));
+    }
+
+    /**
+     * Returns the offset of the given quadrant's entry, checking that the entry and its entities
+     * lie inside the file.
+     */
+    private int checkedOffset(int index) throws IOException {
+        final int offset = this.map.getInt(BinarySaveFormat.indexStart + 4 * index);
+        final long entries = BinarySaveFormat.indexStart + 4L * this.width * this.height;
+        if (offset < entries || offset > this.map.capacity() - 2) {
+            throw new IOException("Invalid index entry for quadrant " + index);
+        }
+        final int entry = this.map.getShort(offset) & 0xFFFF;
+        if ((entry & BinarySaveFormat.entitiesFlag) != 0) {
+            final int stars = entry & BinarySaveFormat.maxCount;
+            final int starbases = entry >>> BinarySaveFormat.countBits & BinarySaveFormat.maxCount;
+            final int klingons = entry >>> (2 * BinarySaveFormat.countBits)
+                    & BinarySaveFormat.maxCount;
+            if (offset + 2L + 3 * (starbases + klingons) + stars > this.map.capacity()) {
+                throw new IOException("Binary save file is truncated");
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Returns if any starbase in the entry at the given offset is below full energy.
+     */
+    private boolean isBelowFull(int offset) {
+        final int entry = this.map.getShort(offset) & 0xFFFF;
+        final int starbases = entry >>> BinarySaveFormat.countBits & BinarySaveFormat.maxCount;
+        for (int i = 0; i < starbases; i += 1) {
+            if ((this.map.getShort(offset + 2 + 3 * i + 1) & 0xFFFF) < Starbase.maxEnergy) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int exportEntities(int offset, EntityType type, int count, GameRecordSink sink) {
+        final boolean hasEnergy = type != EntityType.STAR;
+        for (int i = 0; i < count; i += 1) {
+            final int sector = this.map.get(offset) & 0xFF;
+            final int energy = hasEnergy ? this.map.getShort(offset + 1) & 0xFFFF : 0;
+            offset += hasEnergy ? 3 : 1;
+            int flags = 0;
+            if ((sector & BinarySaveFormat.scannedBit) != 0) {
+                flags |= EntityStore.scannedFlag;
+            }
+            if ((sector & BinarySaveFormat.removedBit) != 0) {
+                flags |= EntityStore.removedFlag;
+            }
+            final int index = sector & 63;
+            sink.entity(type, index & 7, index >>> 3, energy, flags);
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,173 @@
+package sttrswing.controller;
+
+import sttrswing.model.GameSnapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Reads a large .trek save on every core. The file is memory-mapped and cut into chunks, each
+ * starting at a {@code [q]} line so the entity records after a quadrant record always land in the
+ * same chunk as it. Each chunk is read by its own {@link TrekTokenizer} into its own
+ * {@link GameSnapshot.Builder} in parallel, and the builders are then appended in file order, so
+ * the snapshot is the same one a single {@link TrekTokenizer} would have built.
+ *
+ * <p>A malformed save fails with the same error it would fail with when read in one pass: the
+ * first chunk that fails is read again knowing which line of the file it starts on.</p>
+ */
+public final class ParallelTrekParser {
+
+    /**
+     * Smallest file worth reading in parallel; smaller saves are read faster in one pass.
+     */
+    public static final long threshold = 8L * 1024 * 1024;
+
+    /**
+     * Smallest chunk a file is cut into, so no chunk is too small to be worth a task of its own.
+     */
+    public static final int minChunkBytes = 1024 * 1024;
+
+    private static final int chunksPerCore = 4; // evens out chunks that take longer than others
+
+    private ParallelTrekParser() {
+    }
+
+    /**
+     * Reads the whole save file at the given path into the builder, in parallel if it is large
+     * enough to be worth it and small enough to be mapped in one piece. A compressed save is read
+     * in one pass, as it can only be decompressed from the start. A slot header in front of the
+     * save (see {@link SaveSlotHeader}) is skipped.
+     *
+     * @param path    the .trek file to read
+     * @param builder a builder started afresh, to send every record to
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void parse(Path path, GameSnapshot.Builder builder) throws IOException {
+        parse(path, builder, threshold, minChunkBytes);
+    }
+
+    /**
+     * Reads the whole save file at the given path into the builder as
+     * {@link #parse(Path, GameSnapshot.Builder)} does, with the given size limits in place of
+     * {@link #threshold} and {@link #minChunkBytes}. This is the entry point for tuning: e.g. a
+     * benchmark can measure where reading in parallel starts to pay off on a given machine, or a
+     * test can cut a small file into many chunks.
+     *
+     * @param path          the .trek file to read
+     * @param builder       a builder started afresh, to send every record to
+     * @param threshold     smallest file read in parallel, in bytes
+     * @param minChunkBytes smallest chunk the file is cut into, in bytes
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void parse(Path path, GameSnapshot.Builder builder, long threshold,
+            int minChunkBytes) throws IOException {
+        if (SaveCompression.isCompressed(path)) {
+            TrekTokenizer.parse(path, builder);
+            return;
+        }
+        final MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long start = SaveSlotHeader.saveStart(channel);
+            final long size = channel.size() - start;
+            if (size < threshold || size > Integer.MAX_VALUE) {
+                channel.position(start);
+                new TrekTokenizer(channel).parse(builder);
+                return;
+            }
+            map = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        }
+        final int[] starts = chunkStarts(map,
+                ForkJoinPool.getCommonPoolParallelism() * chunksPerCore, minChunkBytes);
+        final Object[] results = IntStream.range(0, starts.length - 1).parallel()
+                .mapToObj(chunk -> parseChunk(map, starts[chunk], starts[chunk + 1], 1))
+                .toArray();
+        for (int chunk = 0; chunk < results.length; chunk += 1) {
+            if (results[chunk] instanceof GameSnapshot.Builder) {
+                builder.append((GameSnapshot.Builder) results[chunk]);
+                continue;
+            }
+            // read the failed chunk again with its real line numbers to fail as one pass would
+            final int firstLine = 1 + countLines(map, starts[chunk]);
+            final Object again = parseChunk(map, starts[chunk], starts[chunk + 1], firstLine);
+            if (again instanceof IOException) {
+                throw (IOException) again;
+            }
+            throw (RuntimeException) again;
+        }
+    }
+
+    /**
+     * Returns where each chunk starts, with the end of the file last. Every chunk but the first
+     * starts at the beginning of a line holding a {@code [q]} record.
+     */
+    private static int[] chunkStarts(ByteBuffer map, int chunks, int minChunkBytes) {
+        final int size = map.limit();
+        final int step = Math.max(minChunkBytes, size / Math.max(1, chunks));
+        final ArrayList<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int position = step;
+        while (position < size) {
+            final int start = nextQuadrantLine(map, position);
+            if (start >= size) {
+                break;
+            }
+            starts.add(start);
+            position = Math.max(start + 1, position + step);
+        }
+        starts.add(size);
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns the position of the first line at or after the given position that starts with a
+     * {@code [q]} record, or the end of the file if there is none.
+     */
+    private static int nextQuadrantLine(ByteBuffer map, int position) {
+        final int size = map.limit();
+        while (position < size && map.get(position - 1) != '\n') {
+            position += 1;
+        }
+        while (position + 3 <= size) {
+            if (map.get(position) == '[' && map.get(position + 1) == 'q'
+                    && map.get(position + 2) == ']') {
+                return position;
+            }
+            while (position < size && map.get(position) != '\n') {
+                position += 1;
+            }
+            position += 1;
+        }
+        return size;
+    }
+
+    /**
+     * Reads one chunk into a builder of its own, returning the builder, or the exception the
+     * chunk failed with.
+     */
+    private static Object parseChunk(ByteBuffer map, int start, int end, int firstLine) {
+        final GameSnapshot.Builder chunk = new GameSnapshot.Builder();
+        try {
+            new TrekTokenizer(map.slice(start, end - start), firstLine).parse(chunk);
+            return chunk;
+        } catch (IOException | RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static int countLines(ByteBuffer map, int end) {
+        int lines = 0;
+        for (int position = 0; position < end; position += 1) {
+            if (map.get(position) == '\n') {
+                lines += 1;
+            }
+        }
+        return lines;
+    }
+}
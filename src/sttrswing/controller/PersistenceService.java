@@ -0,0 +1,111 @@
+package sttrswing.controller;
+
+import sttrswing.model.interfaces.GameModel;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs saves and loads on a single background thread so file I/O never blocks
+ * the Swing Event Dispatch Thread. Requests run one at a time in the order they
+ * were made, and each completion callback is run back on the Event Dispatch
+ * Thread.
+ *
+ * <p>
+ * A save takes a snapshot of the game on the calling thread before anything is
+ * written, so the game can keep being played while the snapshot is written
+ * out. A load reads the file and builds the new galaxy in the background; the
+ * callback only has to swap it in.
+ * </p>
+ */
+public class PersistenceService {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "trek-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Saves the game as it is now to the given path in the background. Must be
+     * called on the thread that plays the game, normally the Event Dispatch
+     * Thread.
+     *
+     * @param game the game to save
+     * @param path the file path to save to, see {@link GameSaver}
+     * @param done called on the Event Dispatch Thread with the finished saver
+     */
+    public void save(GameModel game, String path, Consumer<GameSaver> done) {
+        save(new GameSaver(game, path), done);
+    }
+
+    /**
+     * Runs the given saver in the background. The saver must already hold its
+     * snapshot, e.g. from {@link SaveManager#saver(GameModel, String)}.
+     *
+     * @param saver the saver to run
+     * @param done  called on the Event Dispatch Thread with the finished saver
+     */
+    public void save(GameSaver saver, Consumer<GameSaver> done) {
+        executor.execute(() -> {
+            try {
+                saver.save();
+            } finally {
+                SwingUtilities.invokeLater(() -> done.accept(saver));
+            }
+        });
+    }
+
+    /**
+     * Lists the slots of the given manager in the background, see
+     * {@link SaveManager#list()}.
+     *
+     * @param slots the save manager whose slots to list
+     * @param done  called on the Event Dispatch Thread with the slots, or null
+     *              if the slot directory could not be read
+     */
+    public void list(SaveManager slots, Consumer<List<SaveManager.Slot>> done) {
+        executor.execute(() -> {
+            List<SaveManager.Slot> listed = null;
+            try {
+                listed = slots.list();
+            } catch (IOException e) {
+                // reported to the callback as null
+            } finally {
+                List<SaveManager.Slot> result = listed;
+                SwingUtilities.invokeLater(() -> done.accept(result));
+            }
+        });
+    }
+
+    /**
+     * Loads the save at the given path in the background and builds its galaxy,
+     * ready for
+     * {@link GameModel#restore(sttrswing.model.GameSnapshot, sttrswing.model.Galaxy)}.
+     *
+     * @param path the file path to load from, see {@link GameLoader}
+     * @param done called on the Event Dispatch Thread with the finished loader;
+     *             check {@link GameLoader#success()} before using it
+     */
+    public void load(String path, Consumer<GameLoader> done) {
+        executor.execute(() -> {
+            GameLoader loader = new GameLoader(path);
+            try {
+                loader.load();
+            } finally {
+                SwingUtilities.invokeLater(() -> done.accept(loader));
+            }
+        });
+    }
+
+    /**
+     * Stops accepting new requests; any already queued still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
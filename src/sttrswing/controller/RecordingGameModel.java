@@ -0,0 +1,331 @@
+package sttrswing.controller;
+
+import sttrswing.model.Enterprise;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+import sttrswing.model.interfaces.GameModel;
+import sttrswing.model.interfaces.GameRecordSink;
+import sttrswing.model.interfaces.HasFaction;
+import sttrswing.model.interfaces.HasPosition;
+import sttrswing.model.interfaces.HasSymbol;
+import sttrswing.model.interfaces.TurnListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A {@link GameModel} that plays a {@link Game} while recording every action taken in it to a
+ * command log (see {@link CommandLogFormat}), so that {@link ReplayEngine} can play the same game
+ * again. Loads, restores, undos and redos are recorded as the whole game they left.
+ *
+ * <p>The log is written to the channel at the end of every turn. If a write fails recording stops,
+ * but the game carries on; see {@link #recording()}.</p>
+ */
+public class RecordingGameModel implements GameModel {
+
+    private final Game game; // the game actually being played
+    private final WritableByteChannel channel; // where the log goes, closed by close()
+    private final CommandLogWriter log;
+    private boolean recording = true; // false once a write has failed
+
+    /**
+     * Constructs a {@link RecordingGameModel} recording the given game from now on. The game's own
+     * random decisions are only replayed faithfully if it has not been played before it is
+     * wrapped.
+     *
+     * @param game    the game to play and record
+     * @param channel where to write the command log; closed by {@link #close()}
+     */
+    public RecordingGameModel(Game game, WritableByteChannel channel) {
+        this.game = game;
+        this.channel = channel;
+        this.log = new CommandLogWriter(channel, game.seed());
+        record(() -> log.restore(game.snapshot()));
+        flush();
+    }
+
+    /**
+     * Returns the game being played.
+     *
+     * @return the game being played
+     */
+    public Game game() {
+        return game;
+    }
+
+    /**
+     * Returns if every command so far has been recorded.
+     *
+     * @return false once writing the log has failed
+     */
+    public boolean recording() {
+        return recording;
+    }
+
+    /**
+     * Returns how many commands have been recorded, including the restore the log starts with.
+     *
+     * @return the number of commands recorded
+     */
+    public int commands() {
+        return log.commands();
+    }
+
+    /**
+     * Writes any commands recorded since the last turn ended to the channel.
+     */
+    public void flush() {
+        if (!recording) {
+            return;
+        }
+        try {
+            log.flush();
+        } catch (IOException e) {
+            recording = false;
+        }
+    }
+
+    /**
+     * Writes any commands not yet written, then stops recording and closes the channel, e.g. when
+     * the session ends. The game can still be played, unrecorded.
+     */
+    public void close() {
+        flush();
+        recording = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // everything recorded was already written
+        }
+    }
+
+    private void record(Runnable command) {
+        if (!recording) {
+            return;
+        }
+        try {
+            command.run();
+        } catch (UncheckedIOException e) {
+            recording = false;
+        }
+    }
+
+    @Override
+    public void shields(int requestedEnergyToSpend) {
+        record(() -> log.shields(requestedEnergyToSpend));
+        game.shields(requestedEnergyToSpend);
+    }
+
+    @Override
+    public void firePhasers(int energy) {
+        record(() -> log.phasers(energy));
+        game.firePhasers(energy);
+    }
+
+    @Override
+    public void fireTorpedo(int course) {
+        record(() -> log.torpedo(course));
+        game.fireTorpedo(course);
+    }
+
+    @Override
+    public void scanQuadrant() {
+        record(log::scan);
+        game.scanQuadrant();
+    }
+
+    @Override
+    public void turn() {
+        record(log::turn);
+        game.turn();
+        flush();
+    }
+
+    @Override
+    public void moveWithinQuadrant(int course, double distance) {
+        record(() -> log.moveWithin(course, distance));
+        game.moveWithinQuadrant(course, distance);
+    }
+
+    @Override
+    public void moveBetweenQuadrants(int course, double distance) {
+        record(() -> log.moveBetween(course, distance));
+        game.moveBetweenQuadrants(course, distance);
+    }
+
+    @Override
+    public void load(Enterprise enterprise, Galaxy galaxy) {
+        game.load(enterprise, galaxy);
+        record(() -> log.restore(game.snapshot()));
+        flush();
+    }
+
+    @Override
+    public void restore(GameSnapshot snapshot) {
+        game.restore(snapshot);
+        record(() -> log.restore(snapshot));
+        flush();
+    }
+
+    @Override
+    public void restore(GameSnapshot snapshot, Galaxy galaxy) {
+        game.restore(snapshot, galaxy);
+        // the snapshot may hold only part of a lazily loaded galaxy, so the whole game is recorded
+        record(() -> log.restore(game.snapshot()));
+        flush();
+    }
+
+    @Override
+    public boolean undo() {
+        boolean undone = game.undo();
+        if (undone) {
+            record(() -> log.restore(game.snapshot()));
+            flush();
+        }
+        return undone;
+    }
+
+    @Override
+    public boolean redo() {
+        boolean redone = game.redo();
+        if (redone) {
+            record(() -> log.restore(game.snapshot()));
+            flush();
+        }
+        return redone;
+    }
+
+    @Override
+    public boolean canUndo() {
+        return game.canUndo();
+    }
+
+    @Override
+    public boolean canRedo() {
+        return game.canRedo();
+    }
+
+    @Override
+    public boolean hasWon() {
+        return game.hasWon();
+    }
+
+    @Override
+    public boolean hasLost() {
+        return game.hasLost();
+    }
+
+    @Override
+    public String lastActionReport() {
+        return game.lastActionReport();
+    }
+
+    @Override
+    public HasPosition galaxyPosition() {
+        return game.galaxyPosition();
+    }
+
+    @Override
+    public HasPosition playerPosition() {
+        return game.playerPosition();
+    }
+
+    @Override
+    public int spareTorpedoes() {
+        return game.spareTorpedoes();
+    }
+
+    @Override
+    public boolean hasSpareTorpedoes() {
+        return game.hasSpareTorpedoes();
+    }
+
+    @Override
+    public int playerShields() {
+        return game.playerShields();
+    }
+
+    @Override
+    public int playerEnergy() {
+        return game.playerEnergy();
+    }
+
+    @Override
+    public int spareEnergy() {
+        return game.spareEnergy();
+    }
+
+    @Override
+    public boolean hasSpareEnergy() {
+        return game.hasSpareEnergy();
+    }
+
+    @Override
+    public boolean hasSpareEnergy(int energy) {
+        return game.hasSpareEnergy(energy);
+    }
+
+    @Override
+    public HashMap<String, String> getSurroundingQuadrants() {
+        return game.getSurroundingQuadrants();
+    }
+
+    @Override
+    public int totalStarbaseCount() {
+        return game.totalStarbaseCount();
+    }
+
+    @Override
+    public int totalKlingonCount() {
+        return game.totalKlingonCount();
+    }
+
+    @Override
+    public <T extends HasPosition & HasSymbol & HasFaction> ArrayList<T> getSymbolsForQuadrant() {
+        return game.getSymbolsForQuadrant();
+    }
+
+    @Override
+    public String export() {
+        return game.export();
+    }
+
+    @Override
+    public void export(Appendable out) throws IOException {
+        game.export(out);
+    }
+
+    @Override
+    public void export(WritableByteChannel channel) throws IOException {
+        game.export(channel);
+    }
+
+    @Override
+    public void export(GameRecordSink sink) {
+        game.export(sink);
+    }
+
+    @Override
+    public void exportChanges(GameRecordSink sink) {
+        game.exportChanges(sink);
+    }
+
+    @Override
+    public GameSnapshot snapshot() {
+        return game.snapshot();
+    }
+
+    @Override
+    public void addTurnListener(TurnListener listener) {
+        game.addTurnListener(listener);
+    }
+
+    @Override
+    public void removeTurnListener(TurnListener listener) {
+        game.removeTurnListener(listener);
+    }
+}
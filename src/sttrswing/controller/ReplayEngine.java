@@ -0,0 +1,120 @@
+package sttrswing.controller;
+
+import sttrswing.model.Game;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays a command log (see {@link CommandLogFormat}) again on a fresh {@link Game} built from the
+ * recorded seed. Nothing is shown, so a whole log runs as fast as the model can play it;
+ * {@link #step()} plays one command at a time instead, e.g. to stop just before a bug.
+ *
+ * <p>Because every random decision comes from the game seed or the galaxy seed, the same log
+ * always reaches the same game, which is what makes a recorded bug report reproducible.</p>
+ */
+public class ReplayEngine {
+
+    private final CommandLogReader log;
+    private final Game game;
+    private int position = 0; // commands played so far
+
+    /**
+     * Constructs a {@link ReplayEngine} reading the log from the given channel. The channel is
+     * not closed.
+     *
+     * @param channel where to read the command log from
+     * @throws IOException if the channel cannot be read or does not hold a command log
+     */
+    public ReplayEngine(ReadableByteChannel channel) throws IOException {
+        this.log = new CommandLogReader(channel);
+        this.game = new Game(log.seed());
+    }
+
+    /**
+     * Plays the whole command log at the given path.
+     *
+     * @param path the command log to play
+     * @return the game as the log left it
+     * @throws IOException if the file cannot be read or is not a valid command log
+     */
+    public static Game replay(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ReplayEngine engine = new ReplayEngine(channel);
+            engine.run();
+            return engine.game();
+        }
+    }
+
+    /**
+     * Returns the game being played.
+     *
+     * @return the game being played
+     */
+    public Game game() {
+        return game;
+    }
+
+    /**
+     * Returns how many commands have been played.
+     *
+     * @return the number of commands played
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Returns if the log ended part way through a command, as a log being written when the game
+     * crashed does. Everything before that command has still been played.
+     *
+     * @return if the last command was cut short
+     */
+    public boolean truncated() {
+        return log.truncated();
+    }
+
+    /**
+     * Plays the next command.
+     *
+     * @return false if the log has ended and nothing was played
+     * @throws IOException if the log cannot be read or holds an unknown command
+     */
+    public boolean step() throws IOException {
+        if (!log.next()) {
+            return false;
+        }
+        switch (log.opcode()) {
+            case CommandLogFormat.shields -> game.shields(log.argument());
+            case CommandLogFormat.phasers -> game.firePhasers(log.argument());
+            case CommandLogFormat.torpedo -> game.fireTorpedo(log.argument());
+            case CommandLogFormat.scan -> game.scanQuadrant();
+            case CommandLogFormat.moveWithin -> game.moveWithinQuadrant(log.argument(),
+                    log.distance());
+            case CommandLogFormat.moveBetween -> game.moveBetweenQuadrants(log.argument(),
+                    log.distance());
+            case CommandLogFormat.turn -> game.turn();
+            case CommandLogFormat.restore -> game.restore(log.snapshot());
+            default -> throw new IOException("Unknown command " + log.opcode());
+        }
+        position += 1;
+        return true;
+    }
+
+    /**
+     * Plays every remaining command.
+     *
+     * @return how many commands were played
+     * @throws IOException if the log cannot be read or holds an unknown command
+     */
+    public int run() throws IOException {
+        int played = 0;
+        while (step()) {
+            played += 1;
+        }
+        return played;
+    }
+}
@@ -0,0 +1,113 @@
+package sttrswing.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of save files. A save is written compressed when its path ends in
+ * {@link #extension}, e.g. data/save.trek.gz or data/save.trekb.gz, and read back decompressed
+ * whenever it starts with the gzip magic bytes, whatever it is called. The format inside is picked
+ * from the rest of the path as usual, see {@link BinarySaveFormat#isBinary(String)}.
+ *
+ * <p>Either way the save streams through a fixed buffer, so compression costs no more memory
+ * than a plain save. A compressed save cannot be read out of order, so it is never indexed (see
+ * {@link IndexedSaveSource}) nor read in parallel chunks (see {@link ParallelTrekParser}).</p>
+ */
+public final class SaveCompression {
+
+    /**
+     * File extension, after the save format's own, that selects compression when saving.
+     */
+    public static final String extension = ".gz";
+
+    private static final int bufferSize = 64 * 1024; // bytes buffered by the gzip streams
+    private static final int gzipMagic = 0x1F8B; // first two bytes of every gzip stream
+
+    private SaveCompression() {
+    }
+
+    /**
+     * Returns if a save written to the given path should be compressed.
+     *
+     * @param path - path of the save file.
+     * @return true if the path ends in {@link #extension}.
+     */
+    public static boolean isCompressed(String path) {
+        return path != null && path.toLowerCase().endsWith(extension);
+    }
+
+    /**
+     * Returns if the save in the file at the given path starts with the gzip magic bytes, after
+     * the slot header if it has one (see {@link SaveSlotHeader}).
+     *
+     * @param file - the file to look at.
+     * @return true if the file is gzip compressed.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isCompressed(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(SaveSlotHeader.saveStart(channel));
+            return isCompressed(channel);
+        }
+    }
+
+    /**
+     * Reads the two bytes at the channel's position without moving it.
+     */
+    private static boolean isCompressed(FileChannel channel) throws IOException {
+        final ByteBuffer magic = ByteBuffer.allocate(2);
+        final long start = channel.position();
+        while (magic.hasRemaining()) {
+            if (channel.read(magic, start + magic.position()) < 0) {
+                return false;
+            }
+        }
+        return (magic.getShort(0) & 0xFFFF) == gzipMagic;
+    }
+
+    /**
+     * Opens the file at the given path for reading, decompressing it as it is read if it is
+     * compressed. Reading starts after the slot header if the file has one (see
+     * {@link SaveSlotHeader}). Closing the channel closes the file.
+     *
+     * @param file - the save file to read.
+     * @return a channel reading the save as it was before compression.
+     * @throws IOException if the file cannot be opened or its gzip header is invalid.
+     */
+    public static ReadableByteChannel open(Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            channel.position(SaveSlotHeader.saveStart(channel));
+            if (!isCompressed(channel)) {
+                return channel;
+            }
+            final InputStream in = Channels.newInputStream(channel);
+            return Channels.newChannel(new GZIPInputStream(in, bufferSize));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a gzip stream writing to the given channel. Once everything has been written, call
+     * {@link GZIPOutputStream#finish()} to write the rest of the stream; closing it also closes
+     * the channel.
+     *
+     * @param channel - where to write the compressed save.
+     * @return the stream to write the save to.
+     * @throws IOException if the gzip header cannot be written.
+     */
+    public static GZIPOutputStream compress(WritableByteChannel channel) throws IOException {
+        return new GZIPOutputStream(Channels.newOutputStream(channel), bufferSize);
+    }
+}
@@ -0,0 +1,196 @@
+package sttrswing.controller;
+
+import sttrswing.model.interfaces.GameModel;
+import sttrswing.model.interfaces.TurnListener;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps saves in named slots, one file per slot in a directory, e.g. slot
+ * "before the battle" is data/slots/before the battle.trekd.
+ *
+ * <p>
+ * Each slot is a delta save (see {@link BinarySaveFormat#deltaExtension})
+ * with a {@link SaveSlotHeader} in front of it, so {@link #list()} describes
+ * every slot from the first few bytes of its file and never reads any galaxy
+ * data; listing an archive of hundreds of slots costs one small read each.
+ * The manager counts the turns played as a {@link TurnListener}, carrying on
+ * from the slot's count when one is loaded, for the header's turn field.
+ * </p>
+ */
+public class SaveManager implements TurnListener {
+
+    /**
+     * File extension of slot files; anything else in the directory is ignored.
+     */
+    public static final String extension = BinarySaveFormat.deltaExtension;
+
+    private static final int maxNameLength = 64;
+
+    private final Path directory; // where the slot files are kept
+    private GameModel game; // game whose turns are counted, null when detached
+    private int turn = 0; // turns played in the attached game
+
+    /**
+     * Constructs a {@link SaveManager} keeping its slots in the given directory,
+     * which is created by the first save.
+     *
+     * @param directory the directory holding the slot files
+     */
+    public SaveManager(String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Starts counting the turns of the given game. Must be called on the thread
+     * playing the game, normally the Event Dispatch Thread.
+     *
+     * @param game the game whose turns to count
+     */
+    public void attach(GameModel game) {
+        if (game == this.game) {
+            return;
+        }
+        detach();
+        this.game = game;
+        this.turn = 0;
+        game.addTurnListener(this);
+    }
+
+    /**
+     * Stops counting the turns of the attached game.
+     */
+    public void detach() {
+        if (game != null) {
+            game.removeTurnListener(this);
+            game = null;
+        }
+    }
+
+    @Override
+    public void turnEnded(GameModel game) {
+        turn += 1;
+    }
+
+    /**
+     * Returns how many turns have been played, counting from the last slot
+     * loaded.
+     *
+     * @return the turns played
+     */
+    public int turn() {
+        return turn;
+    }
+
+    /**
+     * Returns the file the slot with the given name is kept in.
+     *
+     * @param name the slot name
+     * @return the slot's file
+     * @throws IllegalArgumentException if the name is empty, too long, or holds
+     *                                  anything but letters, digits, spaces,
+     *                                  dashes and underscores
+     */
+    public Path path(String name) {
+        if (name == null || name.isBlank() || name.length() > maxNameLength
+                || !name.matches("[A-Za-z0-9 _-]+")) {
+            throw new IllegalArgumentException("Slot names may only hold up to " + maxNameLength
+                    + " letters, digits, spaces, dashes and underscores");
+        }
+        return directory.resolve(name.trim() + extension);
+    }
+
+    /**
+     * Returns a saver for the given game as it is now into the slot with the
+     * given name, replacing whatever the slot held. Must be called on the
+     * thread playing the game; the saver can then run on any thread.
+     *
+     * @param game the game to save
+     * @param name the slot name, see {@link #path(String)}
+     * @return the saver, ready for {@link GameSaver#save()}
+     * @throws IllegalArgumentException if the name is not a valid slot name
+     */
+    public GameSaver saver(GameModel game, String name) {
+        Path path = path(name);
+        return new GameSaver(game.snapshot(), path.toString(), SaveSlotHeader.of(game, turn));
+    }
+
+    /**
+     * Notes that the given slot has been loaded into the attached game, so
+     * turns are counted on from the slot's.
+     *
+     * @param slot the slot loaded
+     */
+    public void loaded(Slot slot) {
+        turn = slot.header().turn();
+    }
+
+    /**
+     * Describes every slot in the directory from its header alone, most
+     * recently saved first. Files that cannot be read or have no header are
+     * left out. Safe to call from any thread.
+     *
+     * @return the slots, empty if there are none
+     * @throws IOException if the directory cannot be read
+     */
+    public List<Slot> list() throws IOException {
+        ArrayList<Slot> slots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return slots;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + extension)) {
+            for (Path file : files) {
+                SaveSlotHeader header;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    header = SaveSlotHeader.read(channel);
+                } catch (IOException e) {
+                    continue; // unreadable, e.g. deleted while listing
+                }
+                if (header != null) {
+                    String name = file.getFileName().toString();
+                    slots.add(new Slot(name.substring(0, name.length() - extension.length()),
+                            file, header));
+                }
+            }
+        }
+        slots.sort(Comparator.comparingLong((Slot slot) -> slot.header().timestamp()).reversed());
+        return slots;
+    }
+
+    /**
+     * One slot as listed by {@link #list()}: its name, its file and the header
+     * describing it.
+     */
+    public static final class Slot {
+        private final String name;
+        private final Path path;
+        private final SaveSlotHeader header;
+
+        private Slot(String name, Path path, SaveSlotHeader header) {
+            this.name = name;
+            this.path = path;
+            this.header = header;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        public SaveSlotHeader header() {
+            return header;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package sttrswing.controller;
+
+import sttrswing.model.interfaces.GameModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The small fixed header at the start of every save slot (see {@link SaveManager}): when the slot
+ * was saved, how many turns had been played, the Enterprise's stats and how many Klingons were
+ * left. It sits in front of the save itself, so a slot can be described by reading its first few
+ * bytes without touching any galaxy data. All numbers are big-endian.
+ *
+ * <pre>
+ * int   magic ('TRKH')
+ * short version
+ * short length of the header in bytes, the save itself starts right after it
+ * long  when the slot was saved, in milliseconds since the epoch
+ * int   turns played
+ * int   energy, int shields, int torpedoes
+ * int   Klingons remaining
+ *       zeros up to the length, room for fields added later
+ * </pre>
+ *
+ * <p>Everything that reads a save skips the header by its length (see
+ * {@link #saveStart(FileChannel)}), so a slot loads like any other save of its format, and a save
+ * without a header reads as before.</p>
+ */
+public final class SaveSlotHeader {
+
+    /**
+     * Length of the header as written; older or newer headers may differ, see the length field.
+     */
+    public static final int bytes = 64;
+
+    static final int magic = 0x54524B48; // "TRKH"
+    static final short version = 1;
+    private static final int fieldBytes = 36; // the fields of version 1, up to the Klingons
+
+    private final long timestamp;
+    private final int turn;
+    private final int energy;
+    private final int shields;
+    private final int torpedoes;
+    private final int klingons;
+
+    /**
+     * Constructs a {@link SaveSlotHeader} with the given fields.
+     *
+     * @param timestamp when the slot was saved, in milliseconds since the epoch
+     * @param turn      turns played
+     * @param energy    the Enterprise's energy
+     * @param shields   the Enterprise's shields
+     * @param torpedoes the Enterprise's torpedoes
+     * @param klingons  Klingons remaining in the galaxy
+     */
+    public SaveSlotHeader(long timestamp, int turn, int energy, int shields, int torpedoes,
+            int klingons) {
+        this.timestamp = timestamp;
+        this.turn = turn;
+        this.energy = energy;
+        this.shields = shields;
+        this.torpedoes = torpedoes;
+        this.klingons = klingons;
+    }
+
+    /**
+     * Returns the header for saving the given game now. Must be called on the thread playing the
+     * game, at the same time as its snapshot is taken.
+     *
+     * @param game the game being saved
+     * @param turn turns played
+     * @return the header for the save
+     */
+    public static SaveSlotHeader of(GameModel game, int turn) {
+        return new SaveSlotHeader(System.currentTimeMillis(), turn, game.playerEnergy(),
+                game.playerShields(), game.spareTorpedoes(), game.totalKlingonCount());
+    }
+
+    /**
+     * Reads the header at the start of the file, without moving the channel's position.
+     *
+     * @param channel the file to read
+     * @return the header, or null if the file does not start with one
+     * @throws IOException if the file cannot be read
+     */
+    public static SaveSlotHeader read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(fieldBytes);
+        if (!readAt(channel, buffer, 0) || buffer.getInt(0) != magic
+                || (buffer.getShort(6) & 0xFFFF) < fieldBytes) {
+            return null;
+        }
+        buffer.position(8);
+        return new SaveSlotHeader(buffer.getLong(), buffer.getInt(), buffer.getInt(),
+                buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+
+    /**
+     * Returns where the save itself starts in the file: after the header if it has one, at the
+     * start if not. The channel's position is not moved.
+     *
+     * @param channel the file to look at
+     * @return the offset of the save in the file
+     * @throws IOException if the file cannot be read
+     */
+    public static long saveStart(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        if (!readAt(channel, buffer, 0) || buffer.getInt(0) != magic) {
+            return 0;
+        }
+        return Math.min(buffer.getShort(6) & 0xFFFF, channel.size());
+    }
+
+    /**
+     * Writes the header at the channel's position; the save follows it.
+     *
+     * @param channel where to write the header
+     * @throws IOException if the channel cannot be written
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        buffer.putInt(magic);
+        buffer.putShort(version);
+        buffer.putShort((short) bytes);
+        buffer.putLong(timestamp);
+        buffer.putInt(turn);
+        buffer.putInt(energy);
+        buffer.putInt(shields);
+        buffer.putInt(torpedoes);
+        buffer.putInt(klingons);
+        buffer.clear(); // the rest stays zero
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fills the buffer from the given offset of the file, returning false if the file ends first.
+     */
+    private static boolean readAt(FileChannel channel, ByteBuffer buffer, long offset)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns when the slot was saved, in milliseconds since the epoch.
+     *
+     * @return when the slot was saved, in milliseconds since the epoch
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns how many turns had been played.
+     *
+     * @return how many turns had been played
+     */
+    public int turn() {
+        return turn;
+    }
+
+    /**
+     * Returns the Enterprise's energy.
+     *
+     * @return the Enterprise's energy
+     */
+    public int energy() {
+        return energy;
+    }
+
+    /**
+     * Returns the Enterprise's shields.
+     *
+     * @return the Enterprise's shields
+     */
+    public int shields() {
+        return shields;
+    }
+
+    /**
+     * Returns the Enterprise's torpedoes.
+     *
+     * @return the Enterprise's torpedoes
+     */
+    public int torpedoes() {
+        return torpedoes;
+    }
+
+    /**
+     * Returns how many Klingons were left in the galaxy.
+     *
+     * @return how many Klingons were left in the galaxy
+     */
+    public int klingons() {
+        return klingons;
+    }
+}
@@ -0,0 +1,280 @@
+package sttrswing.controller;
+
+import sttrswing.model.EntityStore;
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.interfaces.GameRecordSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Reads a .trek save in a single pass and hands each record to a {@link GameRecordSink} as soon
+ * as it has been read. The file is read through a fixed buffer and numbers are parsed straight
+ * from the bytes, so no line or substring is ever built and memory use does not grow with the
+ * size of the save.
+ *
+ * <p>Each record is a tag such as {@code [e]} or {@code [q]}, then {@code key:value} fields, then
+ * a {@code |} or the end of the line. Records with tags this tokenizer does not know are skipped,
+ * as are fields it does not know and lines that are not records, so newer saves still load.
+ * Values are whole numbers; only the galaxy record's {@code n} seed may be negative or larger
+ * than an int. The entity records ({@code [b]}, {@code [k]} and {@code [s]}, see
+ * {@link sttrswing.model.TrekTextWriter}) may leave out their {@code f} flags, and stars their
+ * {@code e} energy.</p>
+ */
+public final class TrekTokenizer {
+
+    private static final int bufferSize = 64 * 1024; // bytes read from the channel at a time
+    private static final int eof = -1;
+
+    private final ReadableByteChannel channel; // null when reading bytes already in memory
+    private final ByteBuffer buffer;
+    private final long[] values = new long[26]; // field values of the current record by key letter
+    private int seen; // bit per key letter of the fields present in the current record
+    private int symbolDigits; // number of digits in the current record's s: field
+    private int line; // current line, for error messages
+
+    /**
+     * Constructs a {@link TrekTokenizer} reading from the given channel. The channel is not closed.
+     *
+     * @param channel - where to read the save from.
+     */
+    public TrekTokenizer(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip(); // start empty
+        this.line = 1;
+    }
+
+    /**
+     * Constructs a {@link TrekTokenizer} reading the remaining bytes of the given buffer in place,
+     * e.g. one chunk of a mapped file, whose first line is the given line of the whole file.
+     */
+    TrekTokenizer(ByteBuffer bytes, int firstLine) {
+        this.channel = null;
+        this.buffer = bytes;
+        this.line = firstLine;
+    }
+
+    /**
+     * Reads the whole save file at the given path into the sink, decompressing it as it goes if
+     * it is compressed (see {@link SaveCompression}).
+     *
+     * @param path - the .trek file to read.
+     * @param sink - where to send each record.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static void parse(Path path, GameRecordSink sink) throws IOException {
+        try (ReadableByteChannel channel = SaveCompression.open(path)) {
+            new TrekTokenizer(channel).parse(sink);
+        }
+    }
+
+    /**
+     * Reads records until the end of the channel, sending each to the sink.
+     *
+     * @param sink - where to send each record.
+     * @throws IOException if the channel cannot be read or a known record is malformed.
+     */
+    public void parse(GameRecordSink sink) throws IOException {
+        int c = this.skipWhitespace();
+        while (c != eof) {
+            if (c != '[') {
+                this.skipLine(); // not a record, ignored as the line based loader did
+                c = this.skipWhitespace();
+                continue;
+            }
+            final int tag = this.next();
+            if (this.next() != ']') {
+                throw this.error("expected ']' to close the record tag");
+            }
+            switch (tag) {
+                case 'g' -> {
+                    this.readFields();
+                    sink.galaxy(this.field('w'), this.field('h'), this.longField('n'));
+                }
+                case 'e' -> {
+                    this.readFields();
+                    sink.enterprise(this.field('x'), this.field('y'), this.field('e'),
+                            this.field('s'), this.field('t'));
+                }
+                case 'q' -> {
+                    this.readFields();
+                    if (this.symbolDigits != 3) {
+                        throw this.error("quadrant symbol must be three digits");
+                    }
+                    final int symbol = this.field('s');
+                    sink.quadrant(this.field('x'), this.field('y'), symbol / 100, symbol / 10 % 10,
+                            symbol % 10);
+                }
+                case 'c' -> {
+                    this.readFields();
+                    sink.current(this.field('x'), this.field('y'));
+                }
+                case 'b', 'k' -> {
+                    this.readFields();
+                    sink.entity(tag == 'b' ? EntityType.STARBASE : EntityType.KLINGON,
+                            this.field('x'), this.field('y'), this.field('e'), this.field('f', 0));
+                }
+                case 's' -> {
+                    this.readFields();
+                    sink.entity(EntityType.STAR, this.field('x'), this.field('y'), 0,
+                            this.field('f', EntityStore.scannedFlag));
+                }
+                default -> this.skipLine();
+            }
+            c = this.skipWhitespace();
+        }
+    }
+
+    /**
+     * Reads the {@code key:value} fields of a record up to its {@code |} or end of line.
+     */
+    private void readFields() throws IOException {
+        this.seen = 0;
+        this.symbolDigits = 0;
+        while (true) {
+            int c = this.next();
+            while (c == ' ' || c == '\t') {
+                c = this.next();
+            }
+            if (c == '|' || c == '\n' || c == '\r' || c == eof) {
+                if (c == '\n') {
+                    this.line += 1;
+                }
+                return;
+            }
+            final int key = c;
+            if (this.next() != ':') {
+                throw this.error("expected ':' after field '" + (char) key + "'");
+            }
+            this.readValue(key);
+        }
+    }
+
+    /**
+     * Parses the digits of a field value in place. Values that are not numbers
+     * are skipped, so the record only fails if a field it needs is missing.
+     */
+    private void readValue(int key) throws IOException {
+        int c = this.peek();
+        while (c == ' ' || c == '\t') {
+            this.next();
+            c = this.peek();
+        }
+        final boolean negative = c == '-';
+        if (negative) {
+            this.next();
+            c = this.peek();
+        }
+        long value = 0;
+        int digits = 0;
+        while (c >= '0' && c <= '9') {
+            // accumulated negatively, so Long.MIN_VALUE fits
+            if (value < (Long.MIN_VALUE + (c - '0')) / 10) {
+                throw this.error("value of '" + (char) key + "' is too large");
+            }
+            value = value * 10 - (c - '0');
+            digits += 1;
+            this.next();
+            c = this.peek();
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw this.error("value of '" + (char) key + "' is too large");
+            }
+            value = -value;
+        }
+        if (digits == 0 || key < 'a' || key > 'z') {
+            while (c != ' ' && c != '\t' && c != '|' && c != '\n' && c != '\r' && c != eof) {
+                this.next();
+                c = this.peek();
+            }
+            return;
+        }
+        this.values[key - 'a'] = value;
+        this.seen |= 1 << (key - 'a');
+        if (key == 's') {
+            this.symbolDigits = digits;
+        }
+    }
+
+    private int field(int key) throws IOException {
+        return this.toInt(key, this.longField(key));
+    }
+
+    private int field(int key, int fallback) throws IOException {
+        if ((this.seen & (1 << (key - 'a'))) == 0) {
+            return fallback;
+        }
+        return this.toInt(key, this.values[key - 'a']);
+    }
+
+    private long longField(int key) throws IOException {
+        if ((this.seen & (1 << (key - 'a'))) == 0) {
+            throw this.error("missing '" + (char) key + "' value");
+        }
+        return this.values[key - 'a'];
+    }
+
+    private int toInt(int key, long value) throws IOException {
+        if (value < 0) {
+            throw this.error("value of '" + (char) key + "' must not be negative");
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw this.error("value of '" + (char) key + "' is too large");
+        }
+        return (int) value;
+    }
+
+    private void skipLine() throws IOException {
+        int c = this.next();
+        while (c != '\n' && c != eof) {
+            c = this.next();
+        }
+        this.line += 1;
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c = this.next();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+            if (c == '\n') {
+                this.line += 1;
+            }
+            c = this.next();
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (!this.buffer.hasRemaining() && !this.fill()) {
+            return eof;
+        }
+        return this.buffer.get(this.buffer.position()) & 0xFF;
+    }
+
+    private int next() throws IOException {
+        if (!this.buffer.hasRemaining() && !this.fill()) {
+            return eof;
+        }
+        return this.buffer.get() & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        if (this.channel == null) {
+            return false;
+        }
+        this.buffer.clear();
+        int read = 0;
+        while (read == 0) {
+            read = this.channel.read(this.buffer);
+        }
+        this.buffer.flip();
+        return read > 0;
+    }
+
+    private IOException error(String message) {
+        return new IOException("line " + this.line + ": " + message);
+    }
+}
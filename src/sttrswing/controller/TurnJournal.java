@@ -0,0 +1,469 @@
+package sttrswing.controller;
+
+import sttrswing.model.Galaxy;
+import sttrswing.model.GameSnapshot;
+import sttrswing.model.TrekTextWriter;
+import sttrswing.model.interfaces.GameModel;
+import sttrswing.model.interfaces.TurnListener;
+
+import javax.swing.SwingUtilities;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of a game: a full base save plus a log that each turn
+ * only appends what changed, the {@link sttrswing.model.Enterprise}, the
+ * current quadrant and the quadrants the galaxy has seen change (see
+ * {@link GameModel#exportChanges}). The cost of a turn therefore grows with
+ * what changed rather than with the size of the galaxy. Every so many turns
+ * the log is compacted: a new base save is written and the log starts again.
+ *
+ * <p>
+ * The log is binary, all numbers big-endian:
+ * </p>
+ * <pre>
+ * header int magic ('TRKJ'), short version, short flags (bit 0: closed cleanly),
+ *        long CRC-32 of the base save the log applies to      16 bytes
+ * blocks one per turn: int length, int CRC-32 of the records,
+ *        then the records as .trek text (see TrekTextWriter)
+ * </pre>
+ * <p>
+ * Recovery reads the base save, then replays every intact block on top of it.
+ * A block cut short by a crash fails its length or checksum and ends the
+ * replay. A log whose checksum does not match the base save belongs to an
+ * older base (a crash during compaction) and is ignored, as the base already
+ * holds everything in it.
+ * </p>
+ * <p>
+ * Recovery is only for a crash. Detaching marks the log closed cleanly once
+ * every block is written, and attaching leaves such a journal alone, so a new
+ * session starts a new game. A game already won or lost is never restored
+ * either, so a finished game can not come back on every launch.
+ * </p>
+ * <p>
+ * Nothing is written on the thread playing the game. Each turn only its
+ * changes are put into a block there; appending and forcing the block to
+ * disk, writing a new base save from a snapshot taken at that turn, and
+ * recovering when attaching all run on a single background thread, in order,
+ * as {@link AutosaveService} writes its autosaves.
+ * </p>
+ */
+public class TurnJournal implements TurnListener {
+
+    static final int magic = 0x54524B4A; // "TRKJ"
+    static final short version = 1;
+    static final int headerBytes = 16;
+    static final int blockHeaderBytes = 8;
+    static final short cleanFlag = 1; // header flag: detached, nothing to recover
+
+    private final String basePath; // the full save the log applies to, in any save format
+    private final String logPath; // the log of changes since the base save
+    private final int compactEvery; // turns between compactions, 0 to only compact on attach
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "trek-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // set by the writer when a write fails, so the next turn compacts instead
+    private final AtomicBoolean compactionNeeded = new AtomicBoolean(false);
+    private GameModel game; // game being journaled, null when detached
+    private int attachments = 0; // attach and detach calls, so a stale recovery is dropped
+    private int turns = 0; // turns journaled since the last compaction was queued
+    private FileChannel log; // the log, open for appending; only used by the writer
+    private volatile boolean healthy = true; // false once a write has failed
+
+    /**
+     * Constructs a {@link TurnJournal}.
+     *
+     * @param basePath     where the base save goes, written in the format its
+     *                     extension selects, see {@link GameSaver}
+     * @param logPath      where the log goes
+     * @param compactEvery how many turns between compactions, 0 to only compact
+     *                     when attaching
+     */
+    public TurnJournal(String basePath, String logPath, int compactEvery) {
+        this.basePath = basePath;
+        this.logPath = logPath;
+        this.compactEvery = Math.max(0, compactEvery);
+    }
+
+    /**
+     * Starts journaling the given game. In the background, the game is first
+     * recovered from the base save and its log if the last session crashed
+     * rather than detaching, and the game recovered is still being played;
+     * then, on the Event Dispatch Thread, it is restored into the game, a fresh
+     * base save is queued from it and the log started again. Must be called on
+     * the Event Dispatch Thread, which plays the game.
+     *
+     * @param game the game to journal
+     * @param done called on the Event Dispatch Thread once the game is being
+     *             journaled, with true if it was restored from an earlier
+     *             journal
+     */
+    public void attach(GameModel game, Consumer<Boolean> done) {
+        detach();
+        int attachment = attachments;
+        writer.execute(() -> {
+            GameSnapshot snapshot = null;
+            Galaxy galaxy = null;
+            try {
+                if (!closedCleanly(Paths.get(logPath))) {
+                    snapshot = recover(basePath, logPath);
+                }
+                if (snapshot != null) {
+                    galaxy = snapshot.toGalaxy();
+                    if (finished(snapshot, galaxy)) {
+                        snapshot = null; // over, a new game is started instead
+                        galaxy = null;
+                    }
+                }
+            } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                snapshot = null; // nothing usable to recover, journal the game as it is
+            }
+            GameSnapshot recovered = snapshot;
+            Galaxy built = galaxy;
+            SwingUtilities.invokeLater(() -> {
+                if (attachment != attachments) {
+                    return; // detached, or attached again, while recovering
+                }
+                boolean restored = false;
+                if (recovered != null) {
+                    try {
+                        game.restore(recovered, built);
+                        restored = true;
+                    } catch (IllegalArgumentException e) {
+                        // not a game this one can be put back to, journal it as it is
+                    }
+                }
+                this.game = game;
+                game.addTurnListener(this);
+                compact(game);
+                done.accept(restored);
+            });
+        });
+    }
+
+    /**
+     * Stops journaling. Blocks already queued are still written, then the log
+     * is marked closed cleanly and closed, so the next attach does not recover
+     * it.
+     */
+    public void detach() {
+        attachments += 1;
+        if (game != null) {
+            game.removeTurnListener(this);
+            game = null;
+        }
+        writer.execute(this::closeCleanly);
+    }
+
+    /**
+     * Detaches, then waits up to the given time for every queued write to
+     * finish.
+     *
+     * @param timeoutMillis how long to wait at most
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown(long timeoutMillis) throws InterruptedException {
+        detach();
+        writer.shutdown();
+        writer.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns if every write so far has succeeded. After a failed write the
+     * next turn compacts instead, so the journal recovers once writing works.
+     *
+     * @return if the journal is healthy
+     */
+    public boolean healthy() {
+        return healthy;
+    }
+
+    @Override
+    public void turnEnded(GameModel game) {
+        if (compactionNeeded.getAndSet(false) || (compactEvery > 0 && turns >= compactEvery)) {
+            compact(game);
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        game.exportChanges(new TrekTextWriter(text));
+        byte[] records = text.toString().getBytes(StandardCharsets.UTF_8);
+        turns += 1;
+        writer.execute(() -> append(records));
+    }
+
+    /**
+     * Appends one turn's records to the log as a block and forces it to disk.
+     * Runs on the writer.
+     */
+    private void append(byte[] records) {
+        if (log == null) {
+            return; // the last compaction failed, the next turn compacts again
+        }
+        ByteBuffer block = ByteBuffer.allocate(blockHeaderBytes + records.length);
+        block.putInt(records.length);
+        block.putInt((int) checksum(records));
+        block.put(records);
+        block.flip();
+        try {
+            while (block.hasRemaining()) {
+                log.write(block);
+            }
+            log.force(false);
+        } catch (IOException e) {
+            failed();
+        }
+    }
+
+    /**
+     * Snapshots the whole game and queues a new base save of it, after which
+     * the log starts again. The changes made so far are in the snapshot, so
+     * they are taken and dropped rather than logged.
+     */
+    private void compact(GameModel game) {
+        game.exportChanges(new TrekTextWriter(new StringBuilder())); // the base holds these
+        GameSnapshot snapshot = game.snapshot();
+        turns = 0;
+        writer.execute(() -> writeBase(snapshot));
+    }
+
+    /**
+     * Writes a new base save of the given snapshot, then replaces the log with
+     * an empty one pointing at it. The base save is written first, so a crash
+     * in between leaves a log that no longer matches and is ignored. Runs on
+     * the writer.
+     */
+    private void writeBase(GameSnapshot snapshot) {
+        closeLog();
+        // streamed to disk, then checksummed from there, so the text is never held in memory
+        GameSaver saver = new GameSaver(snapshot, basePath);
+        saver.save();
+        if (!saver.success()) {
+            failed();
+            return;
+        }
+        Path temp = null;
+        try {
+            long baseChecksum = checksum(Paths.get(basePath));
+            Path target = Paths.get(logPath).toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(headerBytes);
+                header.putInt(magic);
+                header.putShort(version);
+                header.putShort((short) 0);
+                header.putLong(baseChecksum);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                channel.force(true);
+            }
+            GameSaver.replace(temp, target);
+            temp = null;
+            log = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            healthy = true;
+        } catch (IOException e) {
+            failed();
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // compaction already failed, a stray temporary file is harmless
+                }
+            }
+        }
+    }
+
+    /**
+     * Notes a failed write: blocks are dropped until the next turn has
+     * compacted again. Runs on the writer.
+     */
+    private void failed() {
+        healthy = false;
+        closeLog();
+        compactionNeeded.set(true);
+    }
+
+    /**
+     * Sets the clean flag in the log's header, then closes it. Nothing is done
+     * if the log is not open, e.g. when attaching for the first time or after a
+     * failed write, so such a journal is still recovered. Runs on the writer.
+     */
+    private void closeCleanly() {
+        if (log == null) {
+            return;
+        }
+        closeLog();
+        // the log is appended to, so the header is written through a channel of its own
+        try (FileChannel channel = FileChannel.open(Paths.get(logPath), StandardOpenOption.WRITE)) {
+            ByteBuffer flags = ByteBuffer.allocate(2);
+            flags.putShort(0, cleanFlag);
+            while (flags.hasRemaining()) {
+                channel.write(flags, 6 + flags.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // left as after a crash, the next attach recovers it
+        }
+    }
+
+    private void closeLog() {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            // every block was already forced to disk
+        }
+        log = null;
+    }
+
+    /**
+     * Reads the base save and replays its log on top of it, whether or not the
+     * log was closed cleanly.
+     *
+     * @param basePath the base save
+     * @param logPath  the log of changes since the base save
+     * @return the recovered game, or null if there is no base save
+     * @throws IOException if the base save or an intact block cannot be read
+     */
+    public static GameSnapshot recover(String basePath, String logPath) throws IOException {
+        Path base = Paths.get(basePath);
+        if (!Files.exists(base)) {
+            return null;
+        }
+        GameSnapshot.Builder builder = new GameSnapshot.Builder();
+        boolean delta = false;
+        if (BinarySaveFormat.isBinary(basePath)) {
+            try (ReadableByteChannel channel = SaveCompression.open(base)) {
+                BinarySaveReader reader = new BinarySaveReader(channel);
+                reader.parse(builder);
+                delta = reader.isDelta();
+            }
+        } else {
+            TrekTokenizer.parse(base, builder);
+        }
+        Path logFile = Paths.get(logPath);
+        if (Files.exists(logFile)) {
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                replay(channel, checksum(base), builder);
+            }
+        }
+        // a delta base leaves out the quadrants still as generated, which were never logged
+        return delta ? builder.build().withGeneratedQuadrants() : builder.build();
+    }
+
+    /**
+     * Returns if the log at the given path was marked closed cleanly, false if
+     * there is none or it cannot be read.
+     */
+    private static boolean closedCleanly(Path logFile) {
+        if (!Files.exists(logFile)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(headerBytes);
+            return readFully(channel, header) && header.getInt(0) == magic
+                    && header.getShort(4) == version && (header.getShort(6) & cleanFlag) != 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns if the recovered game is over: every Klingon is destroyed, or the
+     * Enterprise is, which a save only records as its shields being gone (see
+     * {@link sttrswing.model.Enterprise#hit(int)}).
+     */
+    private static boolean finished(GameSnapshot snapshot, Galaxy galaxy) {
+        return galaxy.klingonCount() == 0 || snapshot.toEnterprise().shields() <= 0;
+    }
+
+    /**
+     * Replays every intact block of a log written for the base save with the
+     * given checksum.
+     */
+    private static void replay(FileChannel channel, long baseChecksum, GameSnapshot.Builder builder)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        if (!readFully(channel, header) || header.getInt() != magic
+                || header.getShort() != version) {
+            return;
+        }
+        header.getShort(); // flags, recover() replays a log closed cleanly all the same
+        if (header.getLong() != baseChecksum) {
+            return; // written for an older base save, which this one already includes
+        }
+        ByteBuffer blockHeader = ByteBuffer.allocate(blockHeaderBytes);
+        while (true) {
+            blockHeader.clear();
+            if (!readFully(channel, blockHeader)) {
+                return;
+            }
+            int length = blockHeader.getInt();
+            int expected = blockHeader.getInt();
+            if (length < 0 || length > channel.size() - channel.position()) {
+                return; // cut short
+            }
+            ByteBuffer records = ByteBuffer.allocate(length);
+            if (!readFully(channel, records) || (int) checksum(records.array()) != expected) {
+                return; // cut short or torn
+            }
+            new TrekTokenizer(Channels.newChannel(new ByteArrayInputStream(records.array())))
+                    .parse(builder);
+        }
+    }
+
+    /**
+     * Fills the buffer from the channel and flips it, returning false if the
+     * channel ends first.
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static long checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                crc.update(chunk, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,67 @@
+package sttrswing.model;
+
+/**
+ * Helpers for a {@link Quadrant}'s composition (how many {@link Star}s, {@link Starbase}s and
+ * {@link Klingon}s it holds) packed into a single int, one byte per count: stars in bits 16-23,
+ * starbases in bits 8-15 and Klingons in bits 0-7. This is the same information
+ * {@link Quadrant#symbol()} reports, cheap enough to keep for every {@link Quadrant} of a galaxy
+ * even when the {@link Quadrant}s themselves are not in memory.
+ */
+public final class Composition {
+
+  private Composition() {
+  }
+
+  /**
+   * Packs the given counts into one int. Each count must be between 0 and 255.
+   *
+   * @param stars     - number of {@link Star}s
+   * @param starbases - number of {@link Starbase}s
+   * @param klingons  - number of {@link Klingon}s
+   * @return the packed composition.
+   */
+  public static int pack(final int stars, final int starbases, final int klingons) {
+    return (stars << 16) | (starbases << 8) | klingons;
+  }
+
+  /**
+   * Returns the number of {@link Star}s in a packed composition.
+   *
+   * @param composition - packed composition
+   * @return the number of {@link Star}s.
+   */
+  public static int stars(final int composition) {
+    return (composition >>> 16) & 0xFF;
+  }
+
+  /**
+   * Returns the number of {@link Starbase}s in a packed composition.
+   *
+   * @param composition - packed composition
+   * @return the number of {@link Starbase}s.
+   */
+  public static int starbases(final int composition) {
+    return (composition >>> 8) & 0xFF;
+  }
+
+  /**
+   * Returns the number of {@link Klingon}s in a packed composition.
+   *
+   * @param composition - packed composition
+   * @return the number of {@link Klingon}s.
+   */
+  public static int klingons(final int composition) {
+    return composition & 0xFF;
+  }
+
+  /**
+   * Returns the symbol for a packed composition, formatted as in {@link Quadrant#symbol()}: stars,
+   * then starbases, then Klingons, e.g. 203.
+   *
+   * @param composition - packed composition
+   * @return the symbol for the composition.
+   */
+  public static String symbol(final int composition) {
+    return "" + stars(composition) + starbases(composition) + klingons(composition);
+  }
+}
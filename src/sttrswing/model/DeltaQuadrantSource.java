@@ -0,0 +1,71 @@
+package sttrswing.model;
+
+import sttrswing.model.interfaces.QuadrantSource;
+
+/**
+ * A {@link QuadrantSource} for a galaxy saved as a delta (see
+ * {@link GameSnapshot#exportDelta(sttrswing.model.interfaces.GameRecordSink)}): the quadrants in
+ * the given snapshot are built exactly as they were saved, and every other one is generated from
+ * the seed, as a {@link ProceduralQuadrantSource} would. Only the changed quadrants are held, so a
+ * lazy {@link Galaxy} resumes from a delta save without generating the rest up front.
+ */
+public final class DeltaQuadrantSource implements QuadrantSource {
+
+  private final GameSnapshot changes;
+
+  /**
+   * Constructs a {@link DeltaQuadrantSource} for the galaxy of the given snapshot, which holds the
+   * quadrants that differ from what its seed generates.
+   *
+   * @param changes - the changed quadrants, with the galaxy's size and seed.
+   */
+  public DeltaQuadrantSource(final GameSnapshot changes) {
+    this.changes = changes;
+  }
+
+  @Override
+  public int width() {
+    return this.changes.width();
+  }
+
+  @Override
+  public int height() {
+    return this.changes.height();
+  }
+
+  @Override
+  public long seed() {
+    return this.changes.seed();
+  }
+
+  @Override
+  public int composition(final int x, final int y) {
+    final QuadrantSnapshot changed = this.changes.quadrantAt(x, y);
+    if (changed != null) {
+      return changed.composition();
+    }
+    return Quadrant.generateComposition(GameRandom.forQuadrant(this.seed(), x, y));
+  }
+
+  /**
+   * Builds the {@link Quadrant} at the given coordinates, from its saved snapshot if it changed
+   * and from the seed if not. Either way building it twice gives equal quadrants, so a lazy galaxy
+   * can drop it until it is changed again.
+   */
+  @Override
+  public Quadrant materialize(final int x, final int y) {
+    final QuadrantSnapshot changed = this.changes.quadrantAt(x, y);
+    if (changed == null) {
+      return new Quadrant(x, y, GameRandom.forQuadrant(this.seed(), x, y));
+    }
+    final Quadrant quadrant = changed.toQuadrant(this.seed());
+    quadrant.markUnmodified();
+    return quadrant;
+  }
+
+  @Override
+  public boolean isSettled(final int x, final int y) {
+    final QuadrantSnapshot changed = this.changes.quadrantAt(x, y);
+    return changed == null || changed.isSettled();
+  }
+}
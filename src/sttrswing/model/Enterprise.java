@@ -297,14 +297,8 @@ public class Enterprise extends Entity implements Healable, HasFaction {
      */
     public String export() {
         StringBuilder sb = new StringBuilder();
-        sb.append("[e]");
-        sb.append(" x:" + this.getX());
-        sb.append(" y:" + this.getY());
-        sb.append(" e:" + this.energy.get());
-        sb.append(" s:" + this.shields.get());
-        sb.append(" t:" + this.torpedoes.get());
-        sb.append(" |");
-        sb.append("\n");
+        new TrekTextWriter(sb).enterprise(this.getX(), this.getY(), this.energy.get(),
+                this.shields.get(), this.torpedoes.get());
         return sb.toString();
     }
 }
\ No newline at end of file
@@ -8,16 +8,22 @@ import java.util.List;
 /**
  * {@link Entity} is used to represent an {@link Entity} or 'thing' for want of
  * a better term in the
- * {@link Game}. It's x and y coordinates stored in .position are used to
+ * {@link Game}. Its x and y coordinates are used to
  * indicate where it is in a
  * {@link Quadrant}.
+ *
+ * <p>
+ * The state itself (position, energy and flags) lives in a slot of an
+ * {@link EntityStore}; an {@link Entity} is a view onto that slot. Entities
+ * built with a public constructor own a private single slot store, while the
+ * entities of a {@link Quadrant} are views its stores create on demand.
+ * </p>
  */
 public class Entity implements Hittable, Positionable, HasSymbol {
 
-    private final XyPair position = new XyPair(0, 0); // position of this entity
+    private EntityStore store; // store holding this entity's state
+    private int slot; // slot of this entity within the store
     private String symbol = "###"; // symbol representing this entity
-    private boolean markedForRemoval = false; // whether this entity is marked for removal
-    private boolean scanned = false; // whether this entity has been scanned
 
     /**
      * Construct a new {@link Entity} at the given coordinates.
@@ -26,15 +32,85 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      * @param y - vertical coordinate
      */
     public Entity(final int x, final int y) {
-        this.position.setX(x);
-        this.position.setY(y);
+        this(x, y, 0, 0, 0);
+    }
+
+    /**
+     * Construct a new standalone {@link Entity} with an energy reserve and starting flags.
+     *
+     * @param x         - horizontal coordinate
+     * @param y         - vertical coordinate
+     * @param energy    - starting energy reserve
+     * @param maxEnergy - maximum energy reserve
+     * @param flags     - starting {@link EntityStore} flags
+     */
+    Entity(final int x, final int y, final int energy, final int maxEnergy, final int flags) {
+        this.store = new EntityStore(this, x, y, energy, maxEnergy, flags);
+        this.slot = 0;
+    }
+
+    /**
+     * Construct a view onto an existing slot of an {@link EntityStore}.
+     *
+     * @param store - the store holding the entity
+     * @param slot  - the slot of the entity in the store
+     */
+    Entity(final EntityStore store, final int slot) {
+        this.bind(store, slot);
+    }
+
+    /**
+     * Points this view at a (possibly different) slot, used by {@link EntityStore} when slots move.
+     *
+     * @param store - the store now holding the entity
+     * @param slot  - the slot now holding the entity
+     */
+    void bind(final EntityStore store, final int slot) {
+        this.store = store;
+        this.slot = slot;
+    }
+
+    /**
+     * Returns the energy reserve held for this {@link Entity}.
+     *
+     * @return the energy reserve held for this {@link Entity}.
+     */
+    int storedEnergy() {
+        return this.store.energy(this.slot);
+    }
+
+    /**
+     * Returns the maximum energy reserve this {@link Entity} can hold.
+     *
+     * @return the maximum energy reserve this {@link Entity} can hold.
+     */
+    int storedMaxEnergy() {
+        return this.store.maxEnergy();
+    }
+
+    /**
+     * Adjusts the energy reserve held for this {@link Entity}, within its bounds.
+     *
+     * @param amount - amount to add, negative to drain
+     */
+    void adjustStoredEnergy(final int amount) {
+        this.store.adjustEnergy(this.slot, amount);
+    }
+
+    /**
+     * Sets the energy reserve held for this {@link Entity}, within its bounds.
+     *
+     * @param energy - the new energy reserve
+     */
+    void setStoredEnergy(final int energy) {
+        this.store.setEnergy(this.slot, energy);
     }
 
     /**
      * Marks this {@link Entity} as scanned, so it doesn't have to be scanned twice.
      */
     public void scan() {
-        this.scanned = true;
+        this.store.setFlag(this.slot, EntityStore.scannedFlag);
     }
 
     /**
@@ -43,7 +119,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      * etc. Holding that entity as part of a cleanup step.
      */
     public void remove() {
-        this.markedForRemoval = true;
+        this.store.setFlag(this.slot, EntityStore.removedFlag);
     }
 
     /**
@@ -52,7 +128,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      * @return if an {@link Entity} has been marked as ready for removal.
      */
     public boolean isMarkedForRemoval() {
-        return this.markedForRemoval;
+        return this.store.hasFlag(this.slot, EntityStore.removedFlag);
     }
 
     /**
@@ -73,7 +149,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      */
     @Override
     public int getX() {
-        return this.position.getX();
+        return this.store.x(this.slot);
     }
 
     /**
@@ -83,7 +159,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      */
     @Override
     public void setX(final int x) {
-        this.position.setX(x);
+        this.store.setPosition(this.slot, x, this.getY());
     }
 
     /**
@@ -93,7 +169,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      */
     @Override
     public int getY() {
-        return this.position.getY();
+        return this.store.y(this.slot);
     }
 
     /**
@@ -103,11 +179,11 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      */
     @Override
     public void setY(final int y) {
-        this.position.setY(y);
+        this.store.setPosition(this.slot, this.getX(), y);
     }
 
     /**
-     * Adjust the {@link Entity} position (which is an {@link XyPair}) by a given
+     * Adjust the {@link Entity} position by a given
      * amount for the x and
      * y values. e.g. sample.adjustPosition(-1,0) - move left by 1
      * sample.adjustPosition(1,0) - move
@@ -126,8 +202,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      */
     @Override
     public void adjustPosition(final int x, final int y) {
-        this.position.adjustX(x);
-        this.position.adjustY(y);
+        this.store.setPosition(this.slot, this.getX() + x, this.getY() + y);
     }
 
     /**
@@ -136,7 +211,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      * @return a boolean indicating if the {@link Entity} has been scanned.
      */
     public boolean isScanned() {
-        return scanned;
+        return this.store.hasFlag(this.slot, EntityStore.scannedFlag);
     }
 
     @Override
@@ -155,7 +230,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      *         position, if it has been scanned, and if it is marked for removal
      */
     public String toString() {
-        return "Entity[x:" + this.position.getX() + ",y:" + this.position.getY() + ",scanned:"
+        return "Entity[x:" + this.getX() + ",y:" + this.getY() + ",scanned:"
                 + this.isScanned() + ",markedForRemoval" + this.isMarkedForRemoval() + "]";
     }
 
@@ -167,7 +242,7 @@ public class Entity implements Hittable, Positionable, HasSymbol {
      * @return 3 letter {@link String} symbol " ? " if not been scanned.
      */
     public String symbol() {
-        if (!this.scanned) {
+        if (!this.isScanned()) {
             return " ? ";
         }
         return this.symbol;
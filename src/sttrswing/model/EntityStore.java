@@ -0,0 +1,381 @@
+package sttrswing.model;
+
+import sttrswing.model.enums.EntityType;
+import java.util.Arrays;
+
+/**
+ * {@link EntityStore} holds the state of many entities of one kind as parallel primitive arrays
+ * (structure of arrays): one int each for x, y, energy and flags per slot. A {@link Quadrant}
+ * keeps one store per {@link EntityType}, and {@link Entity}, {@link Klingon}, {@link Starbase}
+ * and {@link Star} objects are thin views onto a slot that are only created when asked for.
+ *
+ * <p>Slots are kept dense: removing a slot moves the last slot into the gap (swap-remove), and any
+ * view of the moved slot is re-pointed. A view of a removed slot is given a private single slot
+ * store holding its final state, so code still holding it keeps seeing consistent values.</p>
+ *
+ * <p>The store also keeps a bitboard of the sectors its entities occupy (see {@link Sectors}), and
+ * a modification count that goes up every time a write actually changes something.</p>
+ */
+public final class EntityStore {
+
+  /**
+   * Flag bit set once an entity has been scanned.
+   */
+  public static final int scannedFlag = 1;
+
+  /**
+   * Flag bit set once an entity has been marked for removal.
+   */
+  public static final int removedFlag = 2;
+
+  private final EntityType type; // kind of view to build for a slot, null for a standalone store
+  private final int maxEnergy; // upper bound for the energy column, lower bound is always 0
+  private int size = 0;
+  private int[] xs;
+  private int[] ys;
+  private int[] energies;
+  private int[] flags;
+  private Entity[] views; // lazily created views, null until first asked for
+  private long mask = 0L; // sectors occupied by the entities in this store
+  private int modCount = 0; // number of writes that changed something since the last reset
+
+  /**
+   * Constructs an empty {@link EntityStore} for entities of the given type.
+   *
+   * @param type      - the kind of entity held, used to build views.
+   * @param maxEnergy - the maximum energy any entity in this store can hold.
+   * @param capacity  - the initial number of slots to allocate.
+   */
+  public EntityStore(final EntityType type, final int maxEnergy, final int capacity) {
+    this.type = type;
+    this.maxEnergy = maxEnergy;
+    final int initial = Math.max(1, capacity);
+    this.xs = new int[initial];
+    this.ys = new int[initial];
+    this.energies = new int[initial];
+    this.flags = new int[initial];
+  }
+
+  /**
+   * Constructs a store holding exactly one entity, owned by the given view. Used by entities that
+   * are not part of any {@link Quadrant}, like the {@link Enterprise} or a torpedo.
+   */
+  EntityStore(final Entity owner, final int x, final int y, final int energy, final int maxEnergy,
+      final int flags) {
+    this(null, maxEnergy, 1);
+    this.add(x, y, energy, flags);
+    this.views = new Entity[] {owner};
+  }
+
+  /**
+   * Returns the kind of entity this store holds, or null for a standalone store.
+   *
+   * @return the kind of entity this store holds.
+   */
+  public EntityType type() {
+    return this.type;
+  }
+
+  /**
+   * Returns the number of entities held.
+   *
+   * @return the number of entities held.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the bitboard of sectors occupied by entities in this store.
+   *
+   * @return the bitboard of sectors occupied by entities in this store.
+   */
+  public long mask() {
+    return this.mask;
+  }
+
+  /**
+   * Returns how many writes have changed this store since it was created or last reset.
+   *
+   * @return the modification count.
+   */
+  public int modCount() {
+    return this.modCount;
+  }
+
+  /**
+   * Resets the modification count to 0, e.g. once a freshly generated {@link Quadrant} is complete.
+   */
+  public void resetModCount() {
+    this.modCount = 0;
+  }
+
+  /**
+   * Adds an entity and returns its slot.
+   *
+   * @param x      - horizontal coordinate
+   * @param y      - vertical coordinate
+   * @param energy - starting energy, clamped to the store bounds
+   * @param flags  - starting flags, see {@link #scannedFlag} and {@link #removedFlag}
+   * @return the slot the entity was stored in.
+   */
+  public int add(final int x, final int y, final int energy, final int flags) {
+    if (this.size == this.xs.length) {
+      final int capacity = this.xs.length * 2;
+      this.xs = Arrays.copyOf(this.xs, capacity);
+      this.ys = Arrays.copyOf(this.ys, capacity);
+      this.energies = Arrays.copyOf(this.energies, capacity);
+      this.flags = Arrays.copyOf(this.flags, capacity);
+      if (this.views != null) {
+        this.views = Arrays.copyOf(this.views, capacity);
+      }
+    }
+    final int slot = this.size;
+    this.size += 1;
+    this.xs[slot] = x;
+    this.ys[slot] = y;
+    this.energies[slot] = this.clamp(energy);
+    this.flags[slot] = flags;
+    this.mask |= Sectors.bit(x, y);
+    this.modCount += 1;
+    return slot;
+  }
+
+  /**
+   * Returns the x coordinate of a slot.
+   *
+   * @param slot - slot to read
+   * @return the x coordinate of the slot.
+   */
+  public int x(final int slot) {
+    return this.xs[slot];
+  }
+
+  /**
+   * Returns the y coordinate of a slot.
+   *
+   * @param slot - slot to read
+   * @return the y coordinate of the slot.
+   */
+  public int y(final int slot) {
+    return this.ys[slot];
+  }
+
+  /**
+   * Returns the energy of a slot.
+   *
+   * @param slot - slot to read
+   * @return the energy of the slot.
+   */
+  public int energy(final int slot) {
+    return this.energies[slot];
+  }
+
+  /**
+   * Returns the maximum energy of entities in this store.
+   *
+   * @return the maximum energy of entities in this store.
+   */
+  public int maxEnergy() {
+    return this.maxEnergy;
+  }
+
+  /**
+   * Returns the raw flag bits of a slot.
+   *
+   * @param slot - slot to read
+   * @return the flag bits of the slot.
+   */
+  public int flags(final int slot) {
+    return this.flags[slot];
+  }
+
+  /**
+   * Returns if the given flag is set on a slot.
+   *
+   * @param slot - slot to read
+   * @param flag - {@link #scannedFlag} or {@link #removedFlag}
+   * @return if the flag is set.
+   */
+  public boolean hasFlag(final int slot, final int flag) {
+    return (this.flags[slot] & flag) != 0;
+  }
+
+  /**
+   * Sets the given flag on a slot.
+   *
+   * @param slot - slot to change
+   * @param flag - {@link #scannedFlag} or {@link #removedFlag}
+   */
+  public void setFlag(final int slot, final int flag) {
+    if ((this.flags[slot] & flag) != flag) {
+      this.flags[slot] |= flag;
+      this.modCount += 1;
+    }
+  }
+
+  /**
+   * Sets the given flag on every slot.
+   *
+   * @param flag - {@link #scannedFlag} or {@link #removedFlag}
+   */
+  public void setFlagOnAll(final int flag) {
+    for (int slot = 0; slot < this.size; slot += 1) {
+      this.setFlag(slot, flag);
+    }
+  }
+
+  /**
+   * Moves a slot to a new position, keeping the occupancy bitboard in step.
+   *
+   * @param slot - slot to move
+   * @param x    - new horizontal coordinate
+   * @param y    - new vertical coordinate
+   */
+  public void setPosition(final int slot, final int x, final int y) {
+    if (this.xs[slot] == x && this.ys[slot] == y) {
+      return;
+    }
+    this.modCount += 1;
+    this.mask &= ~Sectors.bit(this.xs[slot], this.ys[slot]);
+    this.xs[slot] = x;
+    this.ys[slot] = y;
+    this.mask |= Sectors.bit(x, y);
+  }
+
+  /**
+   * Adjusts the energy of a slot by the given amount, clamped between 0 and the store maximum.
+   *
+   * @param slot   - slot to change
+   * @param amount - amount to add, negative to drain
+   */
+  public void adjustEnergy(final int slot, final int amount) {
+    this.setEnergy(slot, this.energies[slot] + amount);
+  }
+
+  /**
+   * Sets the energy of a slot, clamped between 0 and the store maximum.
+   *
+   * @param slot   - slot to change
+   * @param energy - the new energy
+   */
+  public void setEnergy(final int slot, final int energy) {
+    final int clamped = this.clamp(energy);
+    if (this.energies[slot] != clamped) {
+      this.energies[slot] = clamped;
+      this.modCount += 1;
+    }
+  }
+
+  /**
+   * Returns the slot of the entity at the given sector, or -1 if there is none.
+   *
+   * @param x - horizontal coordinate
+   * @param y - vertical coordinate
+   * @return the slot at x,y or -1.
+   */
+  public int slotAt(final int x, final int y) {
+    if ((this.mask & Sectors.bit(x, y)) == 0L) {
+      return -1;
+    }
+    for (int slot = 0; slot < this.size; slot += 1) {
+      if (this.xs[slot] == x && this.ys[slot] == y) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns how many slots have the given flag set.
+   *
+   * @param flag - {@link #scannedFlag} or {@link #removedFlag}
+   * @return how many slots have the flag set.
+   */
+  public int countFlagged(final int flag) {
+    int count = 0;
+    for (int slot = 0; slot < this.size; slot += 1) {
+      if ((this.flags[slot] & flag) != 0) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Swap-removes every slot marked for removal.
+   *
+   * @return how many slots were removed.
+   */
+  public int removeMarked() {
+    int removed = 0;
+    for (int slot = this.size - 1; slot >= 0; slot -= 1) {
+      if ((this.flags[slot] & removedFlag) != 0) {
+        this.swapRemove(slot);
+        removed += 1;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Removes a slot by moving the last slot into its place.
+   *
+   * @param slot - the slot to remove
+   */
+  public void swapRemove(final int slot) {
+    final int last = this.size - 1;
+    this.modCount += 1;
+    this.mask &= ~Sectors.bit(this.xs[slot], this.ys[slot]);
+    if (this.views != null && this.views[slot] != null) {
+      final Entity removed = this.views[slot];
+      removed.bind(new EntityStore(removed, this.xs[slot], this.ys[slot], this.energies[slot],
+          this.maxEnergy, this.flags[slot]), 0);
+    }
+    if (slot != last) {
+      this.xs[slot] = this.xs[last];
+      this.ys[slot] = this.ys[last];
+      this.energies[slot] = this.energies[last];
+      this.flags[slot] = this.flags[last];
+      if (this.views != null) {
+        this.views[slot] = this.views[last];
+        if (this.views[slot] != null) {
+          this.views[slot].bind(this, slot);
+        }
+      }
+    }
+    if (this.views != null) {
+      this.views[last] = null;
+    }
+    this.size = last;
+  }
+
+  /**
+   * Returns the view for a slot, creating it on first use.
+   *
+   * @param slot - slot to view
+   * @return the {@link Entity} view for the slot.
+   */
+  public Entity view(final int slot) {
+    if (this.views == null) {
+      this.views = new Entity[this.xs.length];
+    }
+    Entity view = this.views[slot];
+    if (view == null) {
+      view = switch (this.type) {
+        case STAR -> new Star(this, slot);
+        case STARBASE -> new Starbase(this, slot);
+        case KLINGON -> new Klingon(this, slot);
+      };
+      this.views[slot] = view;
+    }
+    return view;
+  }
+
+  private int clamp(final int energy) {
+    if (energy > this.maxEnergy) {
+      return this.maxEnergy;
+    }
+    return Math.max(energy, 0);
+  }
+}
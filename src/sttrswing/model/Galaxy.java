@@ -1,38 +1,437 @@
 package sttrswing.model;
 
+import sttrswing.model.enums.TickMode;
+import sttrswing.model.interfaces.CompositionListener;
+import sttrswing.model.interfaces.GameRecordSink;
+import sttrswing.model.interfaces.QuadrantSource;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Handles the {@link Quadrant}s held within the {@link Galaxy}.
+ *
+ * <p>
+ * Quadrants are stored in a flat row-major array: the quadrant at {@code (x, y)}
+ * lives at index {@code y * width + x}, so lookups by coordinate are a single
+ * array access rather than a search.
+ * </p>
+ *
+ * <p>
+ * The galaxy keeps running totals of stars, starbases and Klingons. They are
+ * counted once when the quadrants are adopted and then updated through each
+ * quadrant's {@link CompositionListener} hook, so the win/lose checks never
+ * need to walk the grid.
+ * </p>
+ *
+ * <p>
+ * A generated galaxy is fully determined by its seed: every quadrant draws from
+ * its own stream derived from (seed, x, y) (see {@link GameRandom}), so the
+ * result is the same whether quadrants are generated serially or in parallel.
+ * </p>
+ *
+ * <p>
+ * A galaxy built from a {@link QuadrantSource} is lazy: it only keeps the
+ * packed composition (see {@link Composition}) of every quadrant, and builds a
+ * quadrant's entities when something asks for the quadrant itself. At most
+ * {@code residentLimit} built quadrants are kept; beyond that the least
+ * recently used ones are dropped, except the one the player is in. Ones that
+ * have not changed since they were built go first, as the source builds them
+ * again as they were. One that has changed (see {@link Quadrant#isModified()})
+ * is only dropped if that is not enough, and is kept as a
+ * {@link QuadrantSnapshot} it is built from again instead of the source, as a
+ * {@link DeltaQuadrantSource} keeps a delta save's quadrants. Ticking every
+ * turn changes besieged quadrants all over a large galaxy, so without this the
+ * built quadrants would grow past the limit and stay there.
+ * </p>
+ *
+ * <p>
+ * In {@link TickMode#CATCH_UP} mode the out-of-focus tick only advances a
+ * turn counter. Each quadrant remembers the turn it was last simulated to and
+ * applies the turns it missed in one step (see {@link Quadrant#catchUp(int)})
+ * whenever this galaxy hands it out. The tick never changes a quadrant's
+ * composition, so counts, {@link #compositionAt} and {@link #export()} are
+ * exact without catching anything up.
+ * </p>
  */
-public class Galaxy {
+public class Galaxy implements CompositionListener {
+
+    private static final int defaultWidth = 8; // quadrants per row in a standard galaxy
+    private static final int defaultHeight = 8; // rows of quadrants in a standard galaxy
+    // galaxies with at least this many quadrants are generated in parallel
+    private static final int parallelGenerationThreshold = 4096;
+    // galaxies with at least this many quadrants run the out-of-focus tick in parallel
+    private static final int parallelTickThreshold = 4096;
+
+    /**
+     * Default number of built quadrants a lazy galaxy keeps in memory.
+     */
+    public static final int defaultResidentLimit = 64;
+
+    // x and y offsets of the eight neighbours of a quadrant, in the order
+    // getQuadrantClusterAt reports them: left column, centre column, right column
+    private static final int[] neighbourDeltaX = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] neighbourDeltaY = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+    private final int width; // number of quadrants along the x axis
+    private final int height; // number of quadrants along the y axis
+    private final long seed; // seed the quadrants were generated from, 0 if they were provided
 
     /**
-     * All quadrants in this galaxy, logically arranged as an 8×8 grid (row-major: y
-     * then x).
-     * Never {@code null}. The reference is initialised in the constructor and not
-     * reassigned.
+     * All quadrants in this galaxy in row-major order (index {@code y * width + x}).
+     * Never {@code null}; slots with no quadrant hold {@code null}.
      */
-    private final List<Quadrant> quadrants;
+    private final Quadrant[] quadrants;
+
+    /**
+     * Packed composition of every quadrant in row-major order, kept in step with
+     * built quadrants so it is always current.
+     */
+    private final int[] compositions;
+
+    private final QuadrantSource source; // builds quadrants on demand, null for an eager galaxy
+    private final int residentLimit; // built quadrants kept by a lazy galaxy before evicting
+    // built quadrants of a lazy galaxy by index, least recently used first; null when eager
+    private final LinkedHashMap<Integer, Quadrant> resident;
+    // changed quadrants a lazy galaxy has dropped, by index, built from here instead of the source
+    private final HashMap<Integer, Evicted> evicted;
+    private int focusIndex = -1; // index of the quadrant the player is in, never evicted
+    private TickMode tickMode = TickMode.EVERY_TURN; // how out-of-focus quadrants are simulated
+    private int turn = 0; // number of out-of-focus ticks so far
+    // quadrants changed since the last takeDirty, by index; see takeDirty for what is tracked
+    private final BitSet dirty = new BitSet();
+    // every change set kept up to date, the default one first, see trackChanges
+    private final ArrayList<BitSet> changeSets = new ArrayList<>(List.of(this.dirty));
+    private int focusModCount = 0; // modCount of the focused quadrant when last checked
+
+    /**
+     * Index offsets matching {@link #neighbourDeltaX}/{@link #neighbourDeltaY}
+     * for this galaxy's width, so a neighbour's index is {@code index + offset}.
+     */
+    private final int[] neighbourOffsets = new int[neighbourDeltaX.length];
+
+    private int starTotal = 0; // running total of stars across all quadrants
+    private int starbaseTotal = 0; // running total of starbases across all quadrants
+    private int klingonTotal = 0; // running total of Klingons across all quadrants
 
     /**
      * Constructs a new Galaxy with 64 {@link Quadrant}s arranged as an 8×8 grid.
      */
     public Galaxy() {
-        this.quadrants = this.generateQuadrants();
+        this(defaultWidth, defaultHeight);
+    }
+
+    /**
+     * Constructs a new Galaxy with {@code width * height} generated {@link Quadrant}s
+     * from a fresh random seed.
+     *
+     * @param width  number of quadrants along the x axis
+     * @param height number of quadrants along the y axis
+     */
+    public Galaxy(final int width, final int height) {
+        this(width, height, GameRandom.newSeed());
+    }
+
+    /**
+     * Constructs a new Galaxy with {@code width * height} {@link Quadrant}s
+     * generated from the given seed. The same seed and size always give the same
+     * galaxy.
+     *
+     * @param width  number of quadrants along the x axis
+     * @param height number of quadrants along the y axis
+     * @param seed   seed every quadrant's random stream is derived from
+     */
+    public Galaxy(final int width, final int height, final long seed) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Galaxy dimensions must not be negative");
+        }
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.quadrants = new Quadrant[width * height];
+        this.compositions = new int[width * height];
+        this.source = null;
+        this.residentLimit = 0;
+        this.resident = null;
+        this.evicted = null;
+        this.computeNeighbourOffsets();
+        for (Quadrant quadrant : this.generateQuadrants()) {
+            this.quadrants[this.indexOf(quadrant.getX(), quadrant.getY())] = quadrant;
+        }
+        this.adoptQuadrants();
     }
 
     /**
      * Constructs a new Galaxy using the provided quadrants rather than generating
-     * its own.
-     * The list reference is stored as-is (no defensive copy).
+     * its own. The grid is sized to fit the largest coordinates present, and each
+     * quadrant is placed by its own coordinates; if two quadrants share
+     * coordinates the later one wins.
      *
      * @param quadrants quadrants this {@link Galaxy} should use; expected to
      *                  represent an 8×8 grid
      */
     public Galaxy(ArrayList<Quadrant> quadrants) {
-        this.quadrants = quadrants;
+        this(extent(quadrants, true), extent(quadrants, false), 0L, quadrants);
+    }
+
+    /**
+     * Constructs a new Galaxy of the given size using the provided quadrants,
+     * e.g. when restoring a saved game. Each quadrant is placed by its own
+     * coordinates; slots no quadrant was provided for stay empty.
+     *
+     * @param width     number of quadrants along the x axis
+     * @param height    number of quadrants along the y axis
+     * @param seed      seed the quadrants were originally generated from, 0 if
+     *                  unknown
+     * @param quadrants quadrants this {@link Galaxy} should use
+     * @throws IllegalArgumentException if a quadrant lies outside the galaxy
+     */
+    public Galaxy(final int width, final int height, final long seed,
+            final List<Quadrant> quadrants) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Galaxy dimensions must not be negative");
+        }
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.quadrants = new Quadrant[width * height];
+        this.compositions = new int[width * height];
+        this.source = null;
+        this.residentLimit = 0;
+        this.resident = null;
+        this.evicted = null;
+        this.computeNeighbourOffsets();
+        for (Quadrant quadrant : quadrants) {
+            if (!this.contains(quadrant.getX(), quadrant.getY())) {
+                throw new IllegalArgumentException("Quadrant " + quadrant.getX() + ","
+                        + quadrant.getY() + " is outside the galaxy");
+            }
+            this.quadrants[this.indexOf(quadrant.getX(), quadrant.getY())] = quadrant;
+        }
+        this.adoptQuadrants();
+    }
+
+    /**
+     * Returns the width (or height) of the smallest grid holding every given
+     * quadrant.
+     */
+    private static int extent(final List<Quadrant> quadrants, final boolean horizontal) {
+        int max = -1;
+        for (Quadrant quadrant : quadrants) {
+            if (quadrant.getX() < 0 || quadrant.getY() < 0) {
+                throw new IllegalArgumentException("Quadrant coordinates must not be negative");
+            }
+            max = Math.max(max, horizontal ? quadrant.getX() : quadrant.getY());
+        }
+        return max + 1;
+    }
+
+    /**
+     * Constructs a new lazy Galaxy whose quadrants come from the given source.
+     * Only each quadrant's composition is worked out up front (in parallel for
+     * large galaxies); a quadrant is built the first time it is asked for.
+     *
+     * @param source        where to get quadrants and their compositions from
+     * @param residentLimit how many built quadrants to keep before dropping the
+     *                      least recently used unmodified ones; at least 1
+     */
+    public Galaxy(final QuadrantSource source, final int residentLimit) {
+        if (residentLimit < 1) {
+            throw new IllegalArgumentException("A lazy Galaxy must keep at least one quadrant");
+        }
+        this.width = source.width();
+        this.height = source.height();
+        this.seed = source.seed();
+        this.quadrants = new Quadrant[this.width * this.height];
+        this.source = source;
+        this.residentLimit = residentLimit;
+        this.resident = new LinkedHashMap<>(16, 0.75f, true);
+        this.evicted = new HashMap<>();
+        this.computeNeighbourOffsets();
+        IntStream indices = IntStream.range(0, this.quadrants.length);
+        if (this.quadrants.length >= parallelGenerationThreshold) {
+            indices = indices.parallel();
+        }
+        this.compositions = indices
+                .map(index -> source.composition(index % this.width, index / this.width))
+                .toArray();
+        for (int composition : this.compositions) {
+            this.starTotal += Composition.stars(composition);
+            this.starbaseTotal += Composition.starbases(composition);
+            this.klingonTotal += Composition.klingons(composition);
+        }
+    }
+
+    /**
+     * Returns if this galaxy builds its quadrants on demand from a
+     * {@link QuadrantSource}.
+     *
+     * @return true for a lazy galaxy
+     */
+    public boolean isLazy() {
+        return this.source != null;
+    }
+
+    /**
+     * Returns how many quadrants are currently built and held in memory.
+     *
+     * @return the number of built quadrants
+     */
+    public int residentCount() {
+        if (this.resident != null) {
+            return this.resident.size();
+        }
+        int count = 0;
+        for (Quadrant quadrant : this.quadrants) {
+            if (quadrant != null) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns if the quadrant at the given coordinates is currently built and
+     * held in memory.
+     *
+     * @param x horizontal coordinate
+     * @param y vertical coordinate
+     * @return true if the quadrant is built
+     */
+    public boolean isResident(final int x, final int y) {
+        return this.contains(x, y) && this.quadrants[this.indexOf(x, y)] != null;
+    }
+
+    /**
+     * Returns how this galaxy simulates the quadrants the player is not in.
+     *
+     * @return the current tick mode
+     */
+    public TickMode tickMode() {
+        return this.tickMode;
+    }
+
+    /**
+     * Changes how this galaxy simulates the quadrants the player is not in.
+     * Leaving {@link TickMode#CATCH_UP} first brings every quadrant up to date
+     * (see {@link #catchUpAll()}).
+     *
+     * @param tickMode the tick mode to use from now on
+     */
+    public void setTickMode(final TickMode tickMode) {
+        if (tickMode == this.tickMode) {
+            return;
+        }
+        if (this.tickMode == TickMode.CATCH_UP) {
+            this.catchUpAll();
+        } else {
+            for (Quadrant quadrant : this.quadrants) {
+                if (quadrant != null) {
+                    quadrant.markSimulated(this.turn);
+                }
+            }
+        }
+        this.tickMode = tickMode;
+    }
+
+    /**
+     * Returns how many out-of-focus ticks this galaxy has had.
+     *
+     * @return the current turn
+     */
+    public int turn() {
+        return this.turn;
+    }
+
+    /**
+     * Sets the turn of a galaxy just built from a snapshot (see
+     * {@link GameSnapshot#toGalaxy()}), whose quadrants are marked with the
+     * turns they had been simulated to. If any of them lags behind and catching
+     * it up would change it, the galaxy is put in {@link TickMode#CATCH_UP}
+     * mode, so it is caught up when handed out, or with every other quadrant
+     * when the mode is changed again.
+     *
+     * @param turn the turn the snapshot was taken at
+     */
+    void resume(final int turn) {
+        this.turn = turn;
+        for (Quadrant quadrant : this.quadrants) {
+            if (quadrant != null && quadrant.simulatedTurn() < turn
+                    && quadrant.changesOutOfFocus()) {
+                this.tickMode = TickMode.CATCH_UP;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the turn back, or forward, to that of a version of the game being
+     * put back. The quadrants keep the turns they have been simulated to.
+     *
+     * @param turn the turn of the version
+     */
+    void rewind(final int turn) {
+        this.turn = turn;
+    }
+
+    /**
+     * Brings every quadrant up to the current turn, for callers that need the
+     * exact state of every entity at once (e.g. to save it). A lazy galaxy
+     * builds the quadrants the missed turns would change. Does nothing outside
+     * {@link TickMode#CATCH_UP} mode.
+     */
+    public void catchUpAll() {
+        if (this.tickMode != TickMode.CATCH_UP) {
+            return;
+        }
+        boolean built = false;
+        for (int index = 0; index < this.quadrants.length; index += 1) {
+            Quadrant quadrant = this.quadrants[index];
+            if (quadrant == null && this.source != null && this.changesOutOfFocus(index)) {
+                quadrant = this.materialize(index);
+                built = true;
+            }
+            if (quadrant != null) {
+                this.catchUp(index, quadrant);
+            }
+        }
+        if (built) {
+            this.evict();
+        }
+    }
+
+    /**
+     * Returns the number of quadrants along the x axis.
+     *
+     * @return the number of quadrants along the x axis
+     */
+    public int width() {
+        return this.width;
+    }
+
+    /**
+     * Returns the seed this galaxy was generated from, or 0 if its quadrants were
+     * provided rather than generated.
+     *
+     * @return the generation seed
+     */
+    public long seed() {
+        return this.seed;
+    }
+
+    /**
+     * Returns the number of quadrants along the y axis.
+     *
+     * @return the number of quadrants along the y axis
+     */
+    public int height() {
+        return this.height;
     }
 
     /**
@@ -44,72 +443,58 @@ public class Galaxy {
      * @param x x-coordinate of the centre quadrant
      * @param y y-coordinate of the centre quadrant
      * @return list of neighbouring quadrants including the centre; empty if the
-     *         centre does not exist
+     *         centre does not exist. A lazy galaxy builds all of them, so prefer
+     *         {@link #compositionAt} when only their counts are needed.
      */
     public List<Quadrant> getQuadrantClusterAt(final int x, final int y) {
-        ArrayList<Quadrant> cluster = new ArrayList<>();
+        ArrayList<Quadrant> cluster = new ArrayList<>(9);
         Quadrant center = this.quadrantAt(x, y);
         if (center == null) {
             return cluster;
         }
         cluster.add(center);
 
-        final int left = x - 1;
-        final int top = y - 1;
-        final int bottom = y + 1;
-        final int right = x + 1;
-
-        Quadrant q = this.quadrantAt(left, top);
-        if (q != null)
-            cluster.add(q);
-
-        q = this.quadrantAt(left, y);
-        if (q != null)
-            cluster.add(q);
-
-        q = this.quadrantAt(left, bottom);
-        if (q != null)
-            cluster.add(q);
-
-        q = this.quadrantAt(x, top);
-        if (q != null)
-            cluster.add(q);
-
-        q = this.quadrantAt(x, bottom);
-        if (q != null)
-            cluster.add(q);
-
-        q = this.quadrantAt(right, top);
-        if (q != null)
-            cluster.add(q);
-
-        q = this.quadrantAt(right, y);
-        if (q != null)
-            cluster.add(q);
-
-        q = this.quadrantAt(right, bottom);
-        if (q != null)
-            cluster.add(q);
-
+        final int index = this.indexOf(x, y);
+        for (int i = 0; i < this.neighbourOffsets.length; i += 1) {
+            if (this.contains(x + neighbourDeltaX[i], y + neighbourDeltaY[i])) {
+                Quadrant q = this.quadrantAtIndex(index + this.neighbourOffsets[i]);
+                if (q != null) {
+                    cluster.add(q);
+                }
+            }
+        }
         return cluster;
     }
 
     /**
-     * Generates 64 {@link Quadrant} instances with unique coordinates laid out as
-     * an 8×8 grid.
+     * Generates {@code width * height} {@link Quadrant} instances with unique
+     * coordinates laid out as a grid, {@code x} being the column and {@code y}
+     * the row. Large galaxies are generated in parallel.
      *
      * @return a list of generated quadrants in row-major order (y then x)
      */
     public List<Quadrant> generateQuadrants() {
-        final int maxRows = 8;
-        final int maxCols = 8;
-        ArrayList<Quadrant> list = new ArrayList<>();
-        for (int row = 0; row < maxRows; row += 1) {
-            for (int col = 0; col < maxCols; col += 1) {
-                list.add(new Quadrant(row, col));
-            }
+        return this.generateQuadrants(this.width * this.height >= parallelGenerationThreshold);
+    }
+
+    /**
+     * Generates {@code width * height} {@link Quadrant} instances from this
+     * galaxy's seed, serially or in parallel. Both give identical quadrants.
+     *
+     * @param parallel whether to spread generation across the common fork-join
+     *                 pool
+     * @return a list of generated quadrants in row-major order (y then x)
+     */
+    public List<Quadrant> generateQuadrants(final boolean parallel) {
+        IntStream indices = IntStream.range(0, this.width * this.height);
+        if (parallel) {
+            indices = indices.parallel();
         }
-        return list;
+        return indices.mapToObj(index -> {
+            final int col = index % this.width;
+            final int row = index / this.width;
+            return new Quadrant(col, row, GameRandom.forQuadrant(this.seed, col, row));
+        }).collect(Collectors.toList());
     }
 
     /**
@@ -119,11 +504,7 @@ public class Galaxy {
      * @return total number of Klingons
      */
     public int klingonCount() {
-        int klingons = 0;
-        for (Quadrant q : this.quadrants) {
-            klingons += q.klingonCount();
-        }
-        return klingons;
+        return this.klingonTotal;
     }
 
     /**
@@ -133,44 +514,507 @@ public class Galaxy {
      * @return total number of starbases
      */
     public int starbaseCount() {
-        int starbases = 0;
-        for (Quadrant q : this.quadrants) {
-            starbases += q.starbaseCount();
+        return this.starbaseTotal;
+    }
+
+    /**
+     * Returns the total number of stars across all quadrants in this
+     * {@link Galaxy}.
+     *
+     * @return total number of stars
+     */
+    public int starCount() {
+        return this.starTotal;
+    }
+
+    /**
+     * Applies a change in a quadrant's composition to this galaxy's running
+     * totals.
+     *
+     * @param quadrant      the quadrant that changed
+     * @param starDelta     change in the number of stars
+     * @param starbaseDelta change in the number of starbases
+     * @param klingonDelta  change in the number of Klingons
+     */
+    @Override
+    public void compositionChanged(Quadrant quadrant, int starDelta, int starbaseDelta,
+            int klingonDelta) {
+        this.starTotal += starDelta;
+        this.starbaseTotal += starbaseDelta;
+        this.klingonTotal += klingonDelta;
+        if (this.contains(quadrant.getX(), quadrant.getY())) {
+            final int index = this.indexOf(quadrant.getX(), quadrant.getY());
+            this.compositions[index] = quadrant.composition();
+            this.markChanged(index);
+        }
+    }
+
+    /**
+     * Counts every quadrant once into the running totals and registers this
+     * galaxy as each quadrant's composition listener.
+     */
+    private void adoptQuadrants() {
+        for (Quadrant quadrant : this.quadrants) {
+            if (quadrant != null) {
+                quadrant.setCompositionListener(this);
+                this.compositionChanged(quadrant, quadrant.starCount(),
+                        quadrant.starbaseCount(), quadrant.klingonCount());
+            }
+        }
+    }
+
+    /**
+     * Returns the packed composition (see {@link Composition}) of the quadrant
+     * at the given coordinates without building it.
+     *
+     * @param x horizontal coordinate of the quadrant
+     * @param y vertical coordinate of the quadrant
+     * @return the packed composition; 0 outside the grid or where there is no
+     *         quadrant
+     */
+    public int compositionAt(final int x, final int y) {
+        if (!this.contains(x, y)) {
+            return 0;
+        }
+        return this.compositions[this.indexOf(x, y)];
+    }
+
+    /**
+     * Returns the {@link Quadrant} at the given coordinates and marks it as the
+     * one the player is in, so a lazy galaxy never drops it.
+     *
+     * @param x horizontal coordinate of the quadrant
+     * @param y vertical coordinate of the quadrant
+     * @return the quadrant at {@code (x, y)}; {@code null} if none exists
+     */
+    public Quadrant focus(final int x, final int y) {
+        if (!this.contains(x, y)) {
+            return null;
+        }
+        this.noteFocusedChanges();
+        this.focusIndex = this.indexOf(x, y);
+        final Quadrant focused = this.quadrantAtIndex(this.focusIndex);
+        if (focused != null) {
+            this.focusModCount = focused.modCount();
+        }
+        return focused;
+    }
+
+    /**
+     * Marks the focused quadrant dirty if it has changed since it was last
+     * checked; the player changes it directly rather than through the galaxy.
+     */
+    private void noteFocusedChanges() {
+        if (this.focusIndex < 0 || this.quadrants[this.focusIndex] == null) {
+            return;
+        }
+        final int modCount = this.quadrants[this.focusIndex].modCount();
+        if (modCount != this.focusModCount) {
+            this.markChanged(this.focusIndex);
+            this.focusModCount = modCount;
+        }
+    }
+
+    /**
+     * Marks the quadrant at the given coordinates as changed, for changes made
+     * to a quadrant other than the focused one from outside the galaxy.
+     *
+     * @param x horizontal coordinate
+     * @param y vertical coordinate
+     */
+    public void markDirty(final int x, final int y) {
+        if (this.contains(x, y)) {
+            this.markChanged(this.indexOf(x, y));
+        }
+    }
+
+    /**
+     * Returns the indices of the quadrants that have changed since the last
+     * call, and starts tracking afresh. Tracked are changes made by ticks and
+     * catch-up, changes in any quadrant's composition, changes to the focused
+     * quadrant, and quadrants passed to {@link #markDirty(int, int)}. Quadrants
+     * a lazy galaxy builds but does not change are not dirty, as they can be
+     * built again.
+     *
+     * @return the indices ({@code y * width + x}) of the changed quadrants
+     */
+    public BitSet takeDirty() {
+        return this.takeDirty(this.dirty);
+    }
+
+    /**
+     * Starts keeping a new change set up to date, for a second consumer of
+     * changes that must not take them from {@link #takeDirty()}, e.g. undo
+     * history alongside a journal. Each change set sees every change.
+     *
+     * @return the new change set, to pass to {@link #takeDirty(BitSet)}
+     */
+    public BitSet trackChanges() {
+        final BitSet changes = new BitSet();
+        this.changeSets.add(changes);
+        return changes;
+    }
+
+    /**
+     * Stops keeping a change set from {@link #trackChanges()} up to date.
+     *
+     * @param changes the change set to drop
+     */
+    public void stopTracking(final BitSet changes) {
+        if (changes != this.dirty) {
+            this.changeSets.remove(changes);
+        }
+    }
+
+    /**
+     * Returns the indices of the quadrants that have changed since the given
+     * change set was last taken from, and starts it afresh. See
+     * {@link #takeDirty()} for what is tracked.
+     *
+     * @param changes a change set from {@link #trackChanges()}
+     * @return the indices ({@code y * width + x}) of the changed quadrants
+     */
+    public BitSet takeDirty(final BitSet changes) {
+        this.noteFocusedChanges();
+        final BitSet changed = (BitSet) changes.clone();
+        changes.clear();
+        return changed;
+    }
+
+    /**
+     * Returns if the quadrants have changed since the given change set was
+     * last taken from, without starting it afresh.
+     *
+     * @param changes a change set from {@link #trackChanges()}
+     * @return if any quadrant has changed
+     */
+    boolean hasChanged(final BitSet changes) {
+        this.noteFocusedChanges();
+        return !changes.isEmpty();
+    }
+
+    private void markChanged(final int index) {
+        for (int i = 0; i < this.changeSets.size(); i += 1) {
+            this.changeSets.get(i).set(index);
+        }
+    }
+
+    /**
+     * Puts the given quadrant in place of the one at its coordinates, e.g. to
+     * put back an earlier version of it, keeping the totals and compositions
+     * up to date and marking it changed. The quadrant is treated as up to date
+     * with the current turn. Only an eager galaxy can have quadrants replaced,
+     * as a lazy one may drop and rebuild them.
+     *
+     * @param quadrant the quadrant to put in place
+     * @throws IllegalArgumentException if the quadrant lies outside the galaxy
+     * @throws IllegalStateException    if the galaxy is lazy
+     */
+    public void replace(final Quadrant quadrant) {
+        this.replace(quadrant, this.turn);
+    }
+
+    /**
+     * Puts the given quadrant in place like {@link #replace(Quadrant)}, as
+     * simulated to the given turn. Outside {@link TickMode#CATCH_UP} mode it is
+     * caught up to the current turn at once.
+     */
+    void replace(final Quadrant quadrant, final int simulatedTurn) {
+        if (this.source != null) {
+            throw new IllegalStateException("Quadrants of a lazy Galaxy cannot be replaced");
+        }
+        if (!this.contains(quadrant.getX(), quadrant.getY())) {
+            throw new IllegalArgumentException("Quadrant " + quadrant.getX() + ","
+                    + quadrant.getY() + " is outside the galaxy");
+        }
+        final int index = this.indexOf(quadrant.getX(), quadrant.getY());
+        final Quadrant old = this.quadrants[index];
+        if (old != null) {
+            old.setCompositionListener(null);
+            this.starTotal -= old.starCount();
+            this.starbaseTotal -= old.starbaseCount();
+            this.klingonTotal -= old.klingonCount();
+            this.compositions[index] = 0;
+        }
+        this.quadrants[index] = quadrant;
+        quadrant.markSimulated(simulatedTurn);
+        if (this.tickMode != TickMode.CATCH_UP) {
+            quadrant.catchUp(this.turn);
+        }
+        quadrant.setCompositionListener(this);
+        this.compositionChanged(quadrant, quadrant.starCount(), quadrant.starbaseCount(),
+                quadrant.klingonCount());
+        if (index == this.focusIndex) {
+            this.focusModCount = quadrant.modCount();
+        }
+    }
+
+    /**
+     * Brings the quadrant at the given index up to the current turn, marking it
+     * dirty if that changed it.
+     */
+    private void catchUp(final int index, final Quadrant quadrant) {
+        final int before = quadrant.modCount();
+        quadrant.catchUp(this.turn);
+        if (quadrant.modCount() != before) {
+            this.markChanged(index);
+        }
+    }
+
+    private Quadrant quadrantAtIndex(final int index) {
+        Quadrant quadrant;
+        if (this.resident == null) {
+            quadrant = this.quadrants[index];
+        } else {
+            quadrant = this.resident.get(index); // also marks it most recently used
+            if (quadrant == null) {
+                quadrant = this.materialize(index);
+                this.evict();
+            }
+        }
+        if (quadrant != null && this.tickMode == TickMode.CATCH_UP) {
+            this.catchUp(index, quadrant);
+        }
+        return quadrant;
+    }
+
+    /**
+     * Builds the quadrant at the given index of a lazy galaxy and holds it,
+     * without evicting anything.
+     */
+    private Quadrant materialize(final int index) {
+        final Quadrant quadrant = this.build(index);
+        if (this.tickMode != TickMode.CATCH_UP) {
+            // ticked every turn it would have changed, so it is up to date
+            quadrant.markSimulated(this.turn);
+        }
+        quadrant.setCompositionListener(this);
+        this.quadrants[index] = quadrant;
+        this.resident.put(index, quadrant);
+        return quadrant;
+    }
+
+    /**
+     * Builds the quadrant at the given index of a lazy galaxy as it was when
+     * last dropped if it had changed, from the source if not. Either way it is
+     * unmodified, as dropping it again loses nothing until it changes.
+     */
+    private Quadrant build(final int index) {
+        final Evicted dropped = this.evicted.get(index);
+        if (dropped == null) {
+            return this.source.materialize(index % this.width, index / this.width);
+        }
+        final Quadrant quadrant = dropped.snapshot.toQuadrant(this.seed);
+        quadrant.markSimulated(dropped.simulatedTurn);
+        quadrant.markUnmodified();
+        return quadrant;
+    }
+
+    /**
+     * Drops least recently used quadrants until no more than
+     * {@code residentLimit} are built, never the focused quadrant. Unmodified
+     * quadrants are dropped first; if that is not enough, modified ones are
+     * too, each kept as a snapshot to build it from again.
+     */
+    private void evict() {
+        this.evict(false);
+        this.evict(true);
+    }
+
+    private void evict(final boolean modified) {
+        Iterator<Map.Entry<Integer, Quadrant>> eldest = this.resident.entrySet().iterator();
+        while (this.resident.size() > this.residentLimit && eldest.hasNext()) {
+            Map.Entry<Integer, Quadrant> entry = eldest.next();
+            final int index = entry.getKey();
+            final Quadrant quadrant = entry.getValue();
+            if (index == this.focusIndex || quadrant.isModified() != modified) {
+                continue;
+            }
+            if (modified) {
+                this.evicted.put(index, new Evicted(quadrant.snapshot(), quadrant.simulatedTurn()));
+            }
+            eldest.remove();
+            this.quadrants[index] = null;
+            quadrant.setCompositionListener(null);
         }
-        return starbases;
     }
 
     /**
      * Returns the {@link Quadrant} located at the specified coordinates, if
-     * present.
+     * present. A lazy galaxy builds it if it is not already built.
      *
      * @param x horizontal coordinate of the quadrant to find
      * @param y vertical coordinate of the quadrant to find
      * @return the quadrant at {@code (x, y)}; {@code null} if none exists
      */
     public Quadrant quadrantAt(final int x, final int y) {
-        for (Quadrant quadrant : this.quadrants) {
-            if (quadrant.getX() == x && quadrant.getY() == y) {
-                return quadrant;
-            }
+        if (!this.contains(x, y)) {
+            return null;
+        }
+        return this.quadrantAtIndex(this.indexOf(x, y));
+    }
+
+    /**
+     * Returns if the given coordinates fall inside this {@link Galaxy}'s grid.
+     *
+     * @param x horizontal coordinate
+     * @param y vertical coordinate
+     * @return true if {@code (x, y)} is inside the grid bounds
+     */
+    public boolean contains(final int x, final int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height;
+    }
+
+    /**
+     * Returns the row-major storage index for the given coordinates. The
+     * coordinates are expected to be inside the grid (see {@link #contains}).
+     *
+     * @param x horizontal coordinate
+     * @param y vertical coordinate
+     * @return {@code y * width + x}
+     */
+    public int indexOf(final int x, final int y) {
+        return y * this.width + x;
+    }
+
+    private void computeNeighbourOffsets() {
+        for (int i = 0; i < this.neighbourOffsets.length; i += 1) {
+            this.neighbourOffsets[i] = neighbourDeltaY[i] * this.width + neighbourDeltaX[i];
         }
-        return null;
     }
 
     /**
      * Invokes {@code outOfFocusTick(game)} on all {@link Quadrant}s except those
      * provided in
-     * {@code quadrantsToSkip}.
+     * {@code quadrantsToSkip}. Large galaxies are ticked in parallel.
      *
-     * @param quadrantsToSkip quadrants that should not be ticked
+     * @param quadrantsToSkip quadrants that should not be ticked, may be null
      * @param game            the game instance passed to each quadrant's tick
      */
     public void outOfFocusTick(ArrayList<Quadrant> quadrantsToSkip, Game game) {
-        for (Quadrant quadrant : this.quadrants) {
-            if (!quadrantsToSkip.contains(quadrant)) {
-                quadrant.outOfFocusTick(game);
+        this.outOfFocusTick(quadrantsToSkip, game, this.quadrants.length >= parallelTickThreshold);
+    }
+
+    /**
+     * Invokes {@code outOfFocusTick(game)} on all {@link Quadrant}s except those
+     * provided in {@code quadrantsToSkip}, serially or in parallel. Each
+     * quadrant's tick only touches that quadrant, so both give identical
+     * results.
+     *
+     * <p>
+     * A lazy galaxy only builds the quadrants the tick would actually change:
+     * ones with more than two Klingons and at least one starbase. Everywhere
+     * else an unbuilt quadrant's starbases are already at full energy, so
+     * healing them would do nothing. Building touches shared state, so those
+     * quadrants are built and ticked serially after the parallel pass over the
+     * quadrants already built.
+     * </p>
+     *
+     * <p>
+     * In {@link TickMode#CATCH_UP} mode this only advances the turn. Either
+     * way the skipped quadrants are marked as up to date since they were ticked
+     * directly, and changed if catching them up would have changed them, so
+     * a version of the game records that they no longer lag behind.
+     * </p>
+     *
+     * @param quadrantsToSkip quadrants that should not be ticked, may be null
+     * @param game            the game instance passed to each quadrant's tick
+     * @param parallel        whether to spread the tick across the common
+     *                        fork-join pool
+     */
+    public void outOfFocusTick(final List<Quadrant> quadrantsToSkip, final Game game,
+            final boolean parallel) {
+        final int[] skipped = this.indicesOf(quadrantsToSkip);
+        this.turn += 1;
+        for (int index : skipped) {
+            this.quadrants[index].markSimulated(this.turn);
+            if (this.quadrants[index].changesOutOfFocus()) {
+                this.markChanged(index);
+            }
+        }
+        if (this.tickMode == TickMode.CATCH_UP) {
+            return;
+        }
+        IntStream indices = IntStream.range(0, this.quadrants.length);
+        if (parallel) {
+            indices = indices.parallel();
+        }
+        final int[] changed = indices.filter(index -> {
+            final Quadrant quadrant = this.quadrants[index];
+            if (quadrant == null || isSkipped(skipped, index)) {
+                return false;
+            }
+            final int before = quadrant.modCount();
+            quadrant.outOfFocusTick(game);
+            quadrant.markSimulated(this.turn);
+            return quadrant.modCount() != before;
+        }).toArray();
+        for (int index : changed) {
+            this.markChanged(index);
+        }
+        if (this.source == null) {
+            return;
+        }
+        boolean built = false;
+        for (int index = 0; index < this.quadrants.length; index += 1) {
+            if (this.quadrants[index] == null && this.changesOutOfFocus(index)
+                    && !isSkipped(skipped, index)) {
+                // ticking drains or heals a starbase, so the quadrant is modified
+                this.materialize(index).outOfFocusTick(game);
+                this.markChanged(index);
+                built = true;
+            }
+        }
+        if (built) {
+            this.evict();
+        }
+    }
+
+    /**
+     * Returns the storage indices of the given quadrants that belong to this
+     * galaxy.
+     */
+    private int[] indicesOf(final List<Quadrant> quadrants) {
+        if (quadrants == null) {
+            return new int[0];
+        }
+        return quadrants.stream()
+                .filter(q -> q != null && this.contains(q.getX(), q.getY())
+                        && this.quadrants[this.indexOf(q.getX(), q.getY())] == q)
+                .mapToInt(q -> this.indexOf(q.getX(), q.getY()))
+                .toArray();
+    }
+
+    private static boolean isSkipped(final int[] skipped, final int index) {
+        for (int skip : skipped) {
+            if (skip == index) {
+                return true;
             }
         }
+        return false;
+    }
+
+    private static boolean isBesieged(final int composition) {
+        return Composition.klingons(composition) > 2 && Composition.starbases(composition) > 0;
+    }
+
+    /**
+     * Returns if ticking the unbuilt quadrant at the given index of a lazy
+     * galaxy would change it: it is besieged, or a starbase in it is below
+     * full energy and would heal, going by its snapshot if it was dropped after
+     * changing and by its source if not.
+     */
+    private boolean changesOutOfFocus(final int index) {
+        final int composition = this.compositions[index];
+        if (isBesieged(composition)) {
+            return true;
+        }
+        if (Composition.starbases(composition) == 0) {
+            return false;
+        }
+        final Evicted dropped = this.evicted.get(index);
+        return dropped != null ? !dropped.snapshot.isSettled()
+                : !this.source.isSettled(index % this.width, index / this.width);
     }
 
     /**
@@ -185,16 +1029,50 @@ public class Galaxy {
      */
     public String export() {
         StringBuilder exportString = new StringBuilder();
-        for (Quadrant quadrant : this.quadrants) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("[q]");
-            sb.append(" x:").append(quadrant.getX());
-            sb.append(" y:").append(quadrant.getY());
-            sb.append(" s:").append(quadrant.symbol());
-            sb.append(" |");
-            sb.append("\n");
-            exportString.append(sb);
+        TrekTextWriter writer = new TrekTextWriter(exportString);
+        for (int index = 0; index < this.quadrants.length; index += 1) {
+            if (this.source == null && this.quadrants[index] == null) {
+                continue;
+            }
+            final int composition = this.compositions[index];
+            writer.quadrant(index % this.width, index / this.width, Composition.stars(composition),
+                    Composition.starbases(composition), Composition.klingons(composition));
         }
         return exportString.toString();
     }
+
+    /**
+     * Sends every quadrant with all of its entities to the sink, in row-major
+     * order (see {@link Quadrant#export(GameRecordSink)}). Quadrants are first
+     * brought up to the current turn. A lazy galaxy builds each unbuilt quadrant
+     * just long enough to export it, without holding on to it.
+     *
+     * @param sink where to send the records
+     */
+    public void export(final GameRecordSink sink) {
+        this.catchUpAll();
+        for (int index = 0; index < this.quadrants.length; index += 1) {
+            Quadrant quadrant = this.quadrants[index];
+            if (quadrant == null && this.source != null) {
+                quadrant = this.build(index);
+            }
+            if (quadrant != null) {
+                quadrant.export(sink);
+            }
+        }
+    }
+
+    /**
+     * A changed quadrant a lazy galaxy has dropped: a snapshot to build it from
+     * again and the turn it had been simulated to.
+     */
+    private static final class Evicted {
+        private final QuadrantSnapshot snapshot;
+        private final int simulatedTurn;
+
+        Evicted(final QuadrantSnapshot snapshot, final int simulatedTurn) {
+            this.snapshot = snapshot;
+            this.simulatedTurn = simulatedTurn;
+        }
+    }
 }
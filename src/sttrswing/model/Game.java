@@ -1,12 +1,18 @@
 package sttrswing.model;
 
 import sttrswing.model.interfaces.GameModel;
+import sttrswing.model.interfaces.GameRecordSink;
 import sttrswing.model.interfaces.HasFaction;
 import sttrswing.model.interfaces.HasPosition;
 import sttrswing.model.interfaces.HasSymbol;
+import sttrswing.model.interfaces.TurnListener;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * The main Game class responsible for holding all relevant classes for the game
@@ -17,10 +23,12 @@ public class Game implements GameModel {
 
     private String report = ""; // report for last action taken
     private Galaxy galaxy; // the game's galaxy
-    private final int startingQuadrantX = 4; // starting quadrant X coordinate
-    private final int startingQuadrantY = 4; // starting quadrant Y coordinate
     private Quadrant currentQuadrant; // current quadrant the player is in
     private Enterprise enterprise; // the player's ship
+    private final long seed; // seed the galaxy and every random decision derive from
+    private final SplittableRandom random; // stream for random decisions made by the game itself
+    private final ArrayList<TurnListener> turnListeners = new ArrayList<>(); // told after each turn
+    private GameHistory history; // versions to undo and redo between, null if none are kept
 
     /**
      * Construct an instance of {@link Game} with a generated list of 64
@@ -28,10 +36,136 @@ public class Game implements GameModel {
      * current {@link Quadrant} chosen to act as the starting {@link Quadrant}.
      */
     public Game() {
+        this(GameRandom.newSeed());
+    }
+
+    /**
+     * Construct an instance of {@link Game} whose galaxy and every later random
+     * decision are derived from the given seed, so two games built with the same
+     * seed and given the same actions play out identically.
+     *
+     * @param seed - the seed for this game.
+     */
+    public Game(final long seed) {
+        this(seed, new Galaxy(8, 8, seed));
+    }
+
+    /**
+     * Construct an instance of {@link Game} played in the given {@link Galaxy},
+     * for example a lazy one built from a {@link ProceduralQuadrantSource}. The
+     * {@link Enterprise} starts in the middle quadrant of the galaxy (4,4 for the
+     * standard 8x8 galaxy).
+     *
+     * @param seed   - the seed for the game's own random decisions.
+     * @param galaxy - the galaxy to play in.
+     */
+    public Game(final long seed, final Galaxy galaxy) {
+        this.seed = seed;
+        this.random = GameRandom.forGame(seed);
         this.enterprise = new Enterprise(5, 5);
 
-        this.galaxy = new Galaxy();
-        this.currentQuadrant = this.getGalaxy().quadrantAt(startingQuadrantX, startingQuadrantY);
+        this.galaxy = galaxy;
+        this.currentQuadrant = galaxy.focus(galaxy.width() / 2, galaxy.height() / 2);
+    }
+
+    /**
+     * Returns the seed this game was created from.
+     *
+     * @return the seed this game was created from.
+     */
+    public long seed() {
+        return this.seed;
+    }
+
+    /**
+     * Starts keeping up to the given number of turns that can be undone, with
+     * the game as it is now as the first version. Each later turn, load and
+     * restore adds a version holding only what it changed. 0 stops keeping
+     * any.
+     *
+     * @param levels - how many turns can be undone at most.
+     */
+    public void keepHistory(final int levels) {
+        if (this.history != null) {
+            this.history.release();
+        }
+        this.history = levels > 0 ? new GameHistory(levels) : null;
+        this.recordHistory();
+    }
+
+    private void recordHistory() {
+        if (this.history != null) {
+            this.history.record(this);
+        }
+    }
+
+    @Override
+    public boolean canUndo() {
+        return this.history != null && this.history.canUndo();
+    }
+
+    @Override
+    public boolean canRedo() {
+        return this.history != null && this.history.canRedo();
+    }
+
+    @Override
+    public boolean undo() {
+        if (!this.canUndo()) {
+            return false;
+        }
+        final GameSnapshot from = this.history.current();
+        final BitSet pending = this.history.takeChanges(this);
+        this.moveTo(from, this.history.undo(), pending);
+        this.history.moved(this);
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (!this.canRedo()) {
+            return false;
+        }
+        final GameSnapshot from = this.history.current();
+        final BitSet pending = this.history.takeChanges(this);
+        this.moveTo(from, this.history.redo(), pending);
+        this.history.moved(this);
+        return true;
+    }
+
+    /**
+     * Puts the game back to another version from its history. Only the
+     * quadrants that differ between the two versions, or have changed since
+     * the current one, are rebuilt, each as simulated to the turn the version
+     * recorded for it; a lazy galaxy, or a version of another galaxy, is
+     * restored in full instead.
+     *
+     * @param from    - the version the game is at, plus the pending changes.
+     * @param to      - the version to put the game back to.
+     * @param pending - quadrants changed since {@code from}, null if unknown.
+     */
+    private void moveTo(final GameSnapshot from, final GameSnapshot to, final BitSet pending) {
+        if (this.galaxy.isLazy() || pending == null || from.width() != to.width()
+                || from.height() != to.height() || from.seed() != to.seed()) {
+            this.restoreState(to, to.toGalaxy());
+            return;
+        }
+        from.forEachDifference(to, pending::set);
+        this.galaxy.rewind(to.turn());
+        for (int index = pending.nextSetBit(0); index >= 0; index = pending.nextSetBit(index + 1)) {
+            final QuadrantSnapshot quadrant = to.recordedAt(index);
+            if (quadrant != null) {
+                this.galaxy.replace(quadrant.toQuadrant(to.seed()),
+                        quadrant.simulatedTurn(to.turn()));
+            }
+        }
+        this.enterprise = to.toEnterprise();
+        if (to.hasCurrentQuadrant()) {
+            this.currentQuadrant = this.galaxy.focus(to.currentX(), to.currentY());
+        } else {
+            this.currentQuadrant = this.galaxy.focus(this.currentQuadrant.getX(),
+                    this.currentQuadrant.getY());
+        }
     }
 
     @Override
@@ -135,27 +269,32 @@ public class Game implements GameModel {
         surroundingQuadrants.put("bottomLeft", null);
         surroundingQuadrants.put("left", null);
 
-        List<Quadrant> quadrants = this.getGalaxy().getQuadrantClusterAt(quadrantX, quadrantY);
-        for (Quadrant quadrant : quadrants) {
-            int deltaX = quadrant.getX() - quadrantX;
-            int deltaY = quadrant.getY() - quadrantY;
-
-            if (deltaX == 0 && deltaY == -1) {
-                surroundingQuadrants.put("top", quadrant.symbol());
-            } else if (deltaX == -1 && deltaY == -1) {
-                surroundingQuadrants.put("topLeft", quadrant.symbol());
-            } else if (deltaX == 1 && deltaY == -1) {
-                surroundingQuadrants.put("topRight", quadrant.symbol());
-            } else if (deltaX == 1 && deltaY == 0) {
-                surroundingQuadrants.put("right", quadrant.symbol());
-            } else if (deltaX == 1 && deltaY == 1) {
-                surroundingQuadrants.put("bottomRight", quadrant.symbol());
-            } else if (deltaX == 0 && deltaY == 1) {
-                surroundingQuadrants.put("bottom", quadrant.symbol());
-            } else if (deltaX == -1 && deltaY == 1) {
-                surroundingQuadrants.put("bottomLeft", quadrant.symbol());
-            } else if (deltaX == -1 && deltaY == 0) {
-                surroundingQuadrants.put("left", quadrant.symbol());
+        // read the neighbours' compositions rather than the quadrants themselves,
+        // so a lazy galaxy does not have to build them
+        Galaxy galaxy = this.getGalaxy();
+        for (int deltaY = -1; deltaY <= 1; deltaY += 1) {
+            for (int deltaX = -1; deltaX <= 1; deltaX += 1) {
+                if (!galaxy.contains(quadrantX + deltaX, quadrantY + deltaY)) {
+                    continue;
+                }
+                String symbol = Composition.symbol(galaxy.compositionAt(quadrantX + deltaX, quadrantY + deltaY));
+                if (deltaX == 0 && deltaY == -1) {
+                    surroundingQuadrants.put("top", symbol);
+                } else if (deltaX == -1 && deltaY == -1) {
+                    surroundingQuadrants.put("topLeft", symbol);
+                } else if (deltaX == 1 && deltaY == -1) {
+                    surroundingQuadrants.put("topRight", symbol);
+                } else if (deltaX == 1 && deltaY == 0) {
+                    surroundingQuadrants.put("right", symbol);
+                } else if (deltaX == 1 && deltaY == 1) {
+                    surroundingQuadrants.put("bottomRight", symbol);
+                } else if (deltaX == 0 && deltaY == 1) {
+                    surroundingQuadrants.put("bottom", symbol);
+                } else if (deltaX == -1 && deltaY == 1) {
+                    surroundingQuadrants.put("bottomLeft", symbol);
+                } else if (deltaX == -1 && deltaY == 0) {
+                    surroundingQuadrants.put("left", symbol);
+                }
             }
         }
 
@@ -309,7 +448,7 @@ public class Game implements GameModel {
      * Progresses the game state forward by one turn. Calls .tick() on the current
      * {@link Quadrant}
      * and calls .outOfFocusTick on {@link Quadrant}s that are not the current
-     * quadrant.
+     * quadrant, then tells every {@link TurnListener}.
      */
     public void turn() {
         this.currentQuadrant.tick(this);
@@ -317,6 +456,20 @@ public class Game implements GameModel {
         list.add(this.currentQuadrant);
         galaxy.outOfFocusTick(list, this);
         System.out.println("report " + this.report);
+        this.recordHistory();
+        for (TurnListener listener : new ArrayList<>(this.turnListeners)) {
+            listener.turnEnded(this);
+        }
+    }
+
+    @Override
+    public void addTurnListener(final TurnListener listener) {
+        this.turnListeners.add(listener);
+    }
+
+    @Override
+    public void removeTurnListener(final TurnListener listener) {
+        this.turnListeners.remove(listener);
     }
 
     /**
@@ -368,25 +521,19 @@ public class Game implements GameModel {
             this.report = "I can't do it captain! We have no Torpedos left!";
             return;
         }
-        torpedo.adjustPosition(vector.getX(), vector.getY());
-
-        final int onGridMax = 9;
-        final int maxIterations = 999;
-
-        int iterations = 0;
-        boolean isGoingToHit = (quadrant.getEntityAt(torpedo.getX(), torpedo.getY()) != null);
-        boolean onGrid = (torpedo.getX() > 0 && torpedo.getY() > 0 && torpedo.getX() < onGridMax
-                && torpedo.getY() < onGridMax);
-
-        while (!isGoingToHit && onGrid && iterations < maxIterations) {
-            iterations += 1;
-            torpedo.adjustPosition(vector.getX(), vector.getY());
-            isGoingToHit = (quadrant.getEntityAt(torpedo.getX(), torpedo.getY()) != null);
-            onGrid = (torpedo.getX() > 0 && torpedo.getY() > 0 && torpedo.getX() < onGridMax
-                    && torpedo.getY() < onGridMax);
+        // trace the torpedo with the precomputed ray for its direction: the first
+        // occupied sector along the ray is what it hits
+        final int direction = Sectors.direction(vector.getX(), vector.getY());
+        final int fromX = this.getEnterprise().getX();
+        final int fromY = this.getEnterprise().getY();
+        int target = -1;
+        if (direction >= 0 && Sectors.inBounds(fromX, fromY)) {
+            target = Sectors.firstHit(Sectors.index(fromX, fromY), direction, quadrant.occupiedMask());
         }
-        if (iterations == maxIterations) {
-            throw new RuntimeException("Hit maximum iterations for Game.torpedos()!");
+        final boolean isGoingToHit = target >= 0;
+        if (isGoingToHit) {
+            torpedo.setX(Sectors.x(target));
+            torpedo.setY(Sectors.y(target));
         }
 
         final String courseArrow = getDirectionIndicatorArrow(course);
@@ -395,7 +542,7 @@ public class Game implements GameModel {
         if (isGoingToHit) {
             this.report = "Torpedo fired at course bearing:" + course + courseArrow
                     + " has hit target! It hit a:";
-            Entity entity = quadrant.getEntityAt(torpedo.getX(), torpedo.getY());
+            Entity entity = quadrant.getEntityAt(Sectors.x(target), Sectors.y(target));
             this.report += entity.symbol();
             entity.hit(999999);
         }
@@ -537,8 +684,8 @@ public class Game implements GameModel {
             return false;
         }
 
-        Entity quadrantEntity = quadrant.getEntityAt(proposedX, proposedY);
-        if (quadrantEntity != null) { // Oh, no! there is something already there!!!
+        if (quadrant.isOccupied(proposedX, proposedY)) { // Oh, no! there is something already there!!!
+            Entity quadrantEntity = quadrant.getEntityAt(proposedX, proposedY);
             this.report = "ENCOUNTERED A ENTITY:" + quadrantEntity.symbol() + "EN ROUTE.";
             return false;
         }
@@ -585,7 +732,7 @@ public class Game implements GameModel {
         }
         if (nextQuadrantIsValid) {
             /* @todo confirm this is actually firing when I think it should */
-            XyPair newPosition = this.currentQuadrant.getRandomEmptySector();
+            XyPair newPosition = this.currentQuadrant.getRandomEmptySector(this.random);
             report += "Moved" + this.getDirectionIndicatorArrow(course) + "(" + (int) Math.floor(distance)
                     + ") between quadrants, arrived at quadrant (" + newPosition.getX() + ", "
                     + newPosition.getY() + ")";
@@ -603,7 +750,8 @@ public class Game implements GameModel {
         int y = this.currentQuadrant.getY();
         this.enterprise = enterprise;
         this.galaxy = galaxy;
-        this.currentQuadrant = this.getGalaxy().quadrantAt(x, y);
+        this.currentQuadrant = this.getGalaxy().focus(x, y);
+        this.recordHistory();
     }
 
     /**
@@ -617,7 +765,7 @@ public class Game implements GameModel {
      */
     public boolean attemptMoveBetweenQuadrants(final XyPair vector) {
         Quadrant proposedQuadrant = this.getGalaxy()
-                .quadrantAt(this.currentQuadrant.getX() + vector.getX(),
+                .focus(this.currentQuadrant.getX() + vector.getX(),
                         this.currentQuadrant.getY() + vector.getY());
         if (proposedQuadrant == null) {
             return false;
@@ -628,24 +776,193 @@ public class Game implements GameModel {
     }
 
     /**
-     * Export out a stringified representation of the internal state of our Game,
-     * specifically exports
-     * the
-     * {@link Enterprise} x,y,energy, shields, and torpedoes, as well as every
-     * {@link sttrswing.model.Quadrant}s
-     * x,y, number of stars, klingons and starbases. Example output structure: [e]
-     * x:5 y:5 e:2500
-     * s:500 t:10 | [q] x:0 y:0 s:111 | [q] x:0 y:1 s:002 | [q] x:0 y:2 s:110 | [q]
-     * x:0 y:3 s:021 |
-     * [q] x:0 y:4 s:022 | [q] x:0 y:5 s:120 | [q] x:0 y:6 s:012 |
+     * Export out a stringified representation of the internal state of our Game:
+     * the {@link Enterprise} x,y,energy, shields, and torpedoes, the
+     * {@link Quadrant} the player is in, and every {@link Quadrant}s x,y and
+     * number of stars, starbases and klingons followed by the position, energy
+     * and flags of each of its entities, see {@link TrekTextWriter}. Example
+     * output structure: [e] x:5 y:5 e:2500 s:500 t:10 | [c] x:4 y:4 | [q] x:0
+     * y:0 s:111 | [b] x:3 y:1 e:300 f:0 | [k] x:6 y:2 e:200 f:0 | [s] x:0 y:7
+     * f:1 | [q] x:0 y:1 s:002 | ...
      * <p>
      * 
      * @return a stringified representation of the internal state of our Game.
      */
     @Override
     public String export() {
-        String exportedEnterprise = this.enterprise.export();
-        String exportedGalaxy = this.galaxy.export();
-        return exportedEnterprise + exportedGalaxy;
+        StringBuilder exported = new StringBuilder();
+        this.export(new TrekTextWriter(exported));
+        return exported.toString();
+    }
+
+    /**
+     * Appends the same text as {@link #export()} to the given output record by
+     * record, without ever holding the whole of it.
+     *
+     * @param out - where to append the text.
+     * @throws IOException if the output cannot be written.
+     */
+    @Override
+    public void export(final Appendable out) throws IOException {
+        this.writeText(new TrekTextWriter(out));
+    }
+
+    /**
+     * Writes the same text as {@link #export()} to the given channel through a
+     * fixed buffer, so the memory used does not grow with the galaxy. The channel
+     * is not closed.
+     *
+     * @param channel - where to write the text.
+     * @throws IOException if the channel cannot be written.
+     */
+    @Override
+    public void export(final WritableByteChannel channel) throws IOException {
+        this.writeText(new TrekTextWriter(channel));
+    }
+
+    private void writeText(final TrekTextWriter writer) throws IOException {
+        try {
+            this.export(writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Sends the full state of the game to the given sink: the galaxy record, then
+     * the {@link Enterprise}, then the current {@link Quadrant}, then every
+     * {@link Quadrant} with all of its entities.
+     *
+     * @param sink - where to send the records.
+     */
+    @Override
+    public void export(final GameRecordSink sink) {
+        sink.galaxy(this.galaxy.width(), this.galaxy.height(), this.galaxy.seed());
+        sink.enterprise(this.enterprise.getX(), this.enterprise.getY(), this.enterprise.energy(),
+                this.enterprise.shields(), this.enterprise.torpedoAmmo());
+        sink.current(this.currentQuadrant.getX(), this.currentQuadrant.getY());
+        this.galaxy.export(sink);
+    }
+
+    /**
+     * Sends only what has changed since the last call: the {@link Enterprise}
+     * and current {@link Quadrant} records, then every {@link Quadrant} the
+     * {@link Galaxy} has seen change (see {@link Galaxy#takeDirty()}) with all
+     * of its entities. Sending these records on top of a full export gives the
+     * game as it is now.
+     *
+     * @param sink - where to send the records.
+     */
+    @Override
+    public void exportChanges(final GameRecordSink sink) {
+        this.exportChanges(sink, this.galaxy.takeDirty());
+    }
+
+    /**
+     * Sends the {@link Enterprise} and current {@link Quadrant} records, then
+     * the given quadrants with all of their entities.
+     *
+     * @param sink    - where to send the records.
+     * @param changed - indices of the quadrants to send.
+     */
+    void exportChanges(final GameRecordSink sink, final BitSet changed) {
+        sink.enterprise(this.enterprise.getX(), this.enterprise.getY(), this.enterprise.energy(),
+                this.enterprise.shields(), this.enterprise.torpedoAmmo());
+        sink.current(this.currentQuadrant.getX(), this.currentQuadrant.getY());
+        int width = this.galaxy.width();
+        for (int index = changed.nextSetBit(0); index >= 0; index = changed.nextSetBit(index + 1)) {
+            Quadrant quadrant = this.galaxy.quadrantAt(index % width, index / width);
+            if (quadrant != null) {
+                quadrant.export(sink);
+            }
+        }
+    }
+
+    /**
+     * Puts the galaxy turn, the {@link Enterprise} and current {@link Quadrant}
+     * records, then a snapshot of each of the given quadrants into a builder
+     * started from an earlier version, like
+     * {@link #exportChanges(GameRecordSink, BitSet)}. Each snapshot keeps the
+     * turn its quadrant has been simulated to, so the quadrants left out may
+     * lag behind and are caught up when the version is read.
+     *
+     * @param builder - the builder of the next version.
+     * @param changed - indices of the quadrants to put.
+     */
+    void snapshotChanges(final GameSnapshot.Builder builder, final BitSet changed) {
+        builder.turn(this.galaxy.turn());
+        builder.enterprise(this.enterprise.getX(), this.enterprise.getY(),
+                this.enterprise.energy(), this.enterprise.shields(), this.enterprise.torpedoAmmo());
+        builder.current(this.currentQuadrant.getX(), this.currentQuadrant.getY());
+        int width = this.galaxy.width();
+        for (int index = changed.nextSetBit(0); index >= 0; index = changed.nextSetBit(index + 1)) {
+            Quadrant quadrant = this.galaxy.quadrantAt(index % width, index / width);
+            if (quadrant != null) {
+                builder.put(quadrant.snapshot());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} If history is kept (see {@link #keepHistory(int)}) and
+     * nothing has changed since its current version, e.g. when a listener
+     * snapshots the game at the end of a turn, that version is returned
+     * rather than taking the whole galaxy again.
+     */
+    @Override
+    public GameSnapshot snapshot() {
+        if (this.history != null) {
+            final GameSnapshot current = this.history.currentIfUnchanged(this);
+            if (current != null) {
+                return current;
+            }
+        }
+        return GameSnapshot.of(this);
+    }
+
+    @Override
+    public void restore(final GameSnapshot snapshot) {
+        this.restore(snapshot, snapshot.toGalaxy());
+    }
+
+    /**
+     * Replaces the {@link Enterprise}, {@link Galaxy} and current {@link Quadrant}
+     * with the ones in the snapshot, using a galaxy already built from it (see
+     * {@link GameSnapshot#toGalaxy()}), e.g. on a background thread. Nothing is
+     * replaced until everything is ready, so a snapshot that cannot be restored
+     * leaves the game as it was. The galaxy keeps this game's
+     * {@link sttrswing.model.enums.TickMode}; if the snapshot does not say which
+     * quadrant the player is in, the player stays at the same coordinates as
+     * before. If history is kept (see {@link #keepHistory(int)}) the restore
+     * can be undone.
+     *
+     * @param snapshot - the state to restore.
+     * @param galaxy   - the galaxy built from the snapshot.
+     * @throws IllegalArgumentException if the current quadrant is not in the
+     *                                  galaxy.
+     */
+    @Override
+    public void restore(final GameSnapshot snapshot, final Galaxy galaxy) {
+        this.restoreState(snapshot, galaxy);
+        this.recordHistory();
+    }
+
+    private void restoreState(final GameSnapshot snapshot, final Galaxy galaxy) {
+        int x = this.currentQuadrant.getX();
+        int y = this.currentQuadrant.getY();
+        if (snapshot.hasCurrentQuadrant()) {
+            x = snapshot.currentX();
+            y = snapshot.currentY();
+        }
+        galaxy.setTickMode(this.galaxy.tickMode());
+        Quadrant current = galaxy.focus(x, y);
+        if (current == null) {
+            throw new IllegalArgumentException("Quadrant " + x + "," + y
+                    + " is not in the restored galaxy");
+        }
+        this.enterprise = snapshot.toEnterprise();
+        this.galaxy = galaxy;
+        this.currentQuadrant = current;
     }
 }
@@ -0,0 +1,167 @@
+package sttrswing.model;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**
+ * The versions of a {@link Game} undo and redo move between, one per turn. Each version is a
+ * {@link GameSnapshot} built on top of the one before it from only what changed that turn (see
+ * {@link GameSnapshot.Builder#Builder(GameSnapshot)}), so it shares every unchanged quadrant with
+ * it and recording a turn costs in proportion to what the turn changed.
+ *
+ * <p>The history keeps its own change set on the game's {@link Galaxy} (see
+ * {@link Galaxy#trackChanges()}), so it never takes changes from anyone else. When the game's
+ * galaxy is swapped, e.g. by loading, the next version is a full snapshot. In
+ * {@link sttrswing.model.enums.TickMode#CATCH_UP} mode a quadrant that has not been caught up is
+ * shared with the version before as it was, with the turn it had been simulated to, and is only
+ * caught up when the version is read or put back (see {@link GameSnapshot}), so recording a turn
+ * still costs in proportion to what it changed.</p>
+ */
+final class GameHistory {
+
+  private final int levels; // most versions kept to undo to
+  private final ArrayDeque<GameSnapshot> undo = new ArrayDeque<>(); // newest first
+  private final ArrayDeque<GameSnapshot> redo = new ArrayDeque<>(); // newest undone first
+  private GameSnapshot current; // the game as of the last version recorded or moved to
+  private Galaxy galaxy; // galaxy whose changes are tracked, null before the first version
+  private BitSet changes; // this history's change set on that galaxy
+
+  /**
+   * Constructs an empty history keeping up to the given number of versions to undo to.
+   */
+  GameHistory(final int levels) {
+    this.levels = levels;
+  }
+
+  /**
+   * Records the game as it is now as the newest version, after the current one. Anything that
+   * could be redone is dropped.
+   */
+  void record(final Game game) {
+    final GameSnapshot next = this.snapshot(game);
+    if (this.current != null && this.levels > 0) {
+      this.undo.push(this.current);
+      if (this.undo.size() > this.levels) {
+        this.undo.removeLast();
+      }
+    }
+    this.redo.clear();
+    this.current = next;
+  }
+
+  /**
+   * Returns the game as of the last version recorded or moved to.
+   */
+  GameSnapshot current() {
+    return this.current;
+  }
+
+  /**
+   * Returns the current version if the game has not changed since it was recorded or moved to,
+   * null if it has or it is of another galaxy. Nothing is taken from the change set.
+   */
+  GameSnapshot currentIfUnchanged(final Game game) {
+    if (this.current == null || game.getGalaxy() != this.galaxy
+        || this.galaxy.hasChanged(this.changes)
+        || !this.current.holds(game.getEnterprise(), game.getCurrentQuadrant())) {
+      return null;
+    }
+    return this.current;
+  }
+
+  /**
+   * Returns the quadrants changed in the game since the last version was recorded or moved to,
+   * and starts tracking afresh.
+   */
+  BitSet takeChanges(final Game game) {
+    if (game.getGalaxy() != this.galaxy) {
+      return null;
+    }
+    return this.galaxy.takeDirty(this.changes);
+  }
+
+  /**
+   * Returns if there is a version before the current one.
+   */
+  boolean canUndo() {
+    return !this.undo.isEmpty();
+  }
+
+  /**
+   * Returns if there is an undone version after the current one.
+   */
+  boolean canRedo() {
+    return !this.redo.isEmpty();
+  }
+
+  /**
+   * Steps back one version, returning the version to put the game back to, or null if there is
+   * none. The game must then be put back to it and {@link #moved(Game)} called.
+   */
+  GameSnapshot undo() {
+    if (this.undo.isEmpty()) {
+      return null;
+    }
+    this.redo.push(this.current);
+    this.current = this.undo.pop();
+    return this.current;
+  }
+
+  /**
+   * Steps forward one undone version, returning the version to put the game back to, or null if
+   * there is none. The game must then be put back to it and {@link #moved(Game)} called.
+   */
+  GameSnapshot redo() {
+    if (this.redo.isEmpty()) {
+      return null;
+    }
+    this.undo.push(this.current);
+    this.current = this.redo.pop();
+    return this.current;
+  }
+
+  /**
+   * Notes that the game has been put back to the current version, so the changes that made are
+   * not taken for a new turn's.
+   */
+  void moved(final Game game) {
+    this.track(game.getGalaxy());
+    this.galaxy.takeDirty(this.changes);
+  }
+
+  /**
+   * Builds the newest version: on top of the current one from what has changed since, or afresh
+   * if there is no current version or the galaxy has been swapped.
+   */
+  private GameSnapshot snapshot(final Game game) {
+    if (this.current == null || game.getGalaxy() != this.galaxy) {
+      this.track(game.getGalaxy());
+      this.galaxy.takeDirty(this.changes); // everything is in the full snapshot
+      return GameSnapshot.versionOf(game);
+    }
+    final GameSnapshot.Builder builder = new GameSnapshot.Builder(this.current);
+    game.snapshotChanges(builder, this.galaxy.takeDirty(this.changes));
+    return builder.build();
+  }
+
+  /**
+   * Stops tracking changes, once the history is no longer kept.
+   */
+  void release() {
+    if (this.galaxy != null) {
+      this.galaxy.stopTracking(this.changes);
+      this.galaxy = null;
+    }
+  }
+
+  private void track(final Galaxy galaxy) {
+    if (galaxy == this.galaxy) {
+      return;
+    }
+    if (this.galaxy != null) {
+      this.galaxy.stopTracking(this.changes);
+    }
+    this.galaxy = galaxy;
+    this.changes = galaxy.trackChanges();
+  }
+}
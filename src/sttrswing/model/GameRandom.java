@@ -0,0 +1,79 @@
+package sttrswing.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Derives the seeds for every random stream in a {@link Game} from one game seed, so a game can
+ * be reproduced exactly from its seed.
+ *
+ * <p>Each {@link Quadrant} gets its own stream derived from (seed, x, y) rather than sharing one
+ * sequential stream, so a {@link Galaxy} comes out the same no matter what order (or how many
+ * threads) its quadrants are generated in.</p>
+ */
+public final class GameRandom {
+
+  private static final long golden = 0x9E3779B97F4A7C15L; // 2^64 / golden ratio, as in SplitMix64
+  private static final long gameSalt = 0x5DEECE66DL; // keeps the game stream apart from quadrants
+
+  private GameRandom() {
+  }
+
+  /**
+   * Returns a fresh, unpredictable seed for a new game.
+   *
+   * @return a new seed.
+   */
+  public static long newSeed() {
+    return new SplittableRandom().nextLong();
+  }
+
+  /**
+   * Returns the seed of the stream used by the {@link Quadrant} at the given galaxy coordinates.
+   *
+   * @param seed - the galaxy seed
+   * @param x    - horizontal galaxy coordinate of the {@link Quadrant}
+   * @param y    - vertical galaxy coordinate of the {@link Quadrant}
+   * @return the seed for that {@link Quadrant}'s stream.
+   */
+  public static long quadrantSeed(final long seed, final int x, final int y) {
+    final long coordinates = ((long) x << 32) | (y & 0xFFFFFFFFL);
+    return mix(seed + mix(coordinates + golden));
+  }
+
+  /**
+   * Returns a stream for the {@link Quadrant} at the given galaxy coordinates.
+   *
+   * @param seed - the galaxy seed
+   * @param x    - horizontal galaxy coordinate of the {@link Quadrant}
+   * @param y    - vertical galaxy coordinate of the {@link Quadrant}
+   * @return a new stream, always the same for the same arguments.
+   */
+  public static SplittableRandom forQuadrant(final long seed, final int x, final int y) {
+    return new SplittableRandom(quadrantSeed(seed, x, y));
+  }
+
+  /**
+   * Returns the stream used by the {@link Game} itself for decisions outside any one
+   * {@link Quadrant}'s generation, like where the Enterprise arrives after a warp.
+   *
+   * @param seed - the game seed
+   * @return a new stream, always the same for the same seed.
+   */
+  public static SplittableRandom forGame(final long seed) {
+    return new SplittableRandom(mix(seed ^ gameSalt));
+  }
+
+  /**
+   * SplitMix64 finaliser: scrambles the bits of the given value so nearby inputs give unrelated
+   * outputs.
+   *
+   * @param value - value to scramble
+   * @return the scrambled value.
+   */
+  public static long mix(final long value) {
+    long z = value;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,617 @@
+package sttrswing.model;
+
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.interfaces.GameModel;
+import sttrswing.model.interfaces.GameRecordSink;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An immutable copy of the full state of a {@link Game}: the size and seed of its {@link Galaxy},
+ * the {@link Enterprise}'s position and stats, the {@link Quadrant} the player is in, and a
+ * {@link QuadrantSnapshot} of every {@link Quadrant} with the exact state of each entity.
+ *
+ * <p>A snapshot is built in one pass from the records of a full export (see
+ * {@link GameRecordSink}) by a {@link Builder}, whether they come from a running game or from a
+ * save file, and {@link Game#restore(GameSnapshot)} puts it back in one pass.</p>
+ *
+ * <p>The quadrants are held in a persistent trie, so a snapshot built on top of another one (see
+ * {@link Builder#Builder(GameSnapshot)}) copies only the quadrants that changed and shares the rest
+ * with it. This is what keeps many levels of undo cheap.</p>
+ *
+ * <p>A version recorded in {@link sttrswing.model.enums.TickMode#CATCH_UP} mode also keeps the
+ * galaxy turn, and shares the quadrants that have not been caught up with the version before it,
+ * each with the turn it had been simulated to (see {@link QuadrantSnapshot}). Reading the
+ * quadrants, exporting and comparing the snapshot catch them up on the way, and
+ * {@link #toGalaxy()} builds a galaxy that catches them up as it hands them out, so recording a
+ * turn never has to catch up the whole galaxy.</p>
+ */
+public final class GameSnapshot {
+
+  private static final int parallelBuildThreshold = 4096; // quadrants worth building in parallel
+
+  private final int width;
+  private final int height;
+  private final long seed;
+  private final int enterpriseX;
+  private final int enterpriseY;
+  private final int energy;
+  private final int shields;
+  private final int torpedoes;
+  private final int currentX; // -1 if the records did not say which quadrant the player is in
+  private final int currentY;
+  private final QuadrantTrie quadrants; // row-major, null where the galaxy has no quadrant
+  private final int quadrantCount;
+  private final int turn; // galaxy turn, 0 if not known
+
+  private GameSnapshot(final Builder builder, final int width, final int height,
+      final QuadrantTrie quadrants, final int quadrantCount) {
+    this.width = width;
+    this.height = height;
+    this.seed = builder.seed;
+    this.enterpriseX = builder.enterprise[0];
+    this.enterpriseY = builder.enterprise[1];
+    this.energy = builder.enterprise[2];
+    this.shields = builder.enterprise[3];
+    this.torpedoes = builder.enterprise[4];
+    this.currentX = builder.currentX;
+    this.currentY = builder.currentY;
+    this.quadrants = quadrants;
+    this.quadrantCount = quadrantCount;
+    this.turn = Math.max(builder.turn, 0);
+  }
+
+  /**
+   * Takes a snapshot of the given game in a single pass over its full export.
+   *
+   * @param game - the game to copy.
+   * @return a snapshot of the game.
+   */
+  public static GameSnapshot of(final GameModel game) {
+    final Builder builder = new Builder();
+    game.export(builder);
+    return builder.build();
+  }
+
+  /**
+   * Takes a snapshot of the given game to build later versions on, like {@link #of(GameModel)}
+   * but keeping the galaxy turn, so a quadrant a later version shares with it is known to have
+   * been simulated to that turn.
+   */
+  static GameSnapshot versionOf(final Game game) {
+    final Builder builder = new Builder();
+    builder.turn(game.getGalaxy().turn());
+    game.export(builder);
+    return builder.build();
+  }
+
+  /**
+   * Returns the galaxy turn the snapshot was taken at, 0 if it is not known.
+   */
+  int turn() {
+    return this.turn;
+  }
+
+  /**
+   * Returns the number of quadrants along the x axis.
+   *
+   * @return the galaxy width.
+   */
+  public int width() {
+    return this.width;
+  }
+
+  /**
+   * Returns the number of quadrants along the y axis.
+   *
+   * @return the galaxy height.
+   */
+  public int height() {
+    return this.height;
+  }
+
+  /**
+   * Returns the seed the galaxy was generated from, 0 if it is not known.
+   *
+   * @return the galaxy seed.
+   */
+  public long seed() {
+    return this.seed;
+  }
+
+  /**
+   * Returns if the snapshot records which {@link Quadrant} the player is in; older saves do not.
+   *
+   * @return if {@link #currentX()} and {@link #currentY()} are known.
+   */
+  public boolean hasCurrentQuadrant() {
+    return this.currentX >= 0;
+  }
+
+  /**
+   * Returns the horizontal galaxy coordinate of the {@link Quadrant} the player is in.
+   *
+   * @return the horizontal coordinate, -1 if unknown.
+   */
+  public int currentX() {
+    return this.currentX;
+  }
+
+  /**
+   * Returns the vertical galaxy coordinate of the {@link Quadrant} the player is in.
+   *
+   * @return the vertical coordinate, -1 if unknown.
+   */
+  public int currentY() {
+    return this.currentY;
+  }
+
+  /**
+   * Returns how many quadrants the snapshot holds.
+   *
+   * @return the number of quadrants.
+   */
+  public int quadrantCount() {
+    return this.quadrantCount;
+  }
+
+  /**
+   * Returns if the snapshot holds every quadrant of the galaxy.
+   *
+   * @return true if no quadrant is missing.
+   */
+  public boolean isComplete() {
+    return this.quadrantCount == this.width * this.height;
+  }
+
+  /**
+   * Returns the snapshot of the {@link Quadrant} at the given galaxy coordinates, caught up to the
+   * snapshot's turn.
+   *
+   * @param x - horizontal galaxy coordinate
+   * @param y - vertical galaxy coordinate
+   * @return the quadrant snapshot, or null if there is none there.
+   */
+  public QuadrantSnapshot quadrantAt(final int x, final int y) {
+    if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+      return null;
+    }
+    return this.caughtUp(this.quadrants.get(y * this.width + x));
+  }
+
+  /**
+   * Returns the snapshot of the quadrant at the given index ({@code y * width + x}) as it was
+   * recorded, which may lag behind the snapshot's turn, or null if there is none there.
+   */
+  QuadrantSnapshot recordedAt(final int index) {
+    return this.quadrants.get(index);
+  }
+
+  private QuadrantSnapshot caughtUp(final QuadrantSnapshot quadrant) {
+    return quadrant == null ? null : quadrant.caughtUp(this.turn, this.seed);
+  }
+
+  /**
+   * Sends the index ({@code y * width + x}) of every quadrant that may differ between this
+   * snapshot and another of the same size, in proportion to how many there are when one was built
+   * on top of the other. Quadrants they share are never reported.
+   *
+   * @throws IllegalArgumentException if the snapshots are not the same size.
+   */
+  void forEachDifference(final GameSnapshot other, final IntConsumer action) {
+    if (other.width != this.width || other.height != this.height) {
+      throw new IllegalArgumentException("Snapshots of different galaxies cannot be compared");
+    }
+    this.quadrants.forEachDifference(other.quadrants, action);
+  }
+
+  /**
+   * Returns if this snapshot holds the given {@link Enterprise} as it is now, with the player in
+   * the given {@link Quadrant}.
+   */
+  boolean holds(final Enterprise enterprise, final Quadrant current) {
+    return this.enterpriseX == enterprise.getX() && this.enterpriseY == enterprise.getY()
+        && this.energy == enterprise.energy() && this.shields == enterprise.shields()
+        && this.torpedoes == enterprise.torpedoAmmo() && this.currentX == current.getX()
+        && this.currentY == current.getY();
+  }
+
+  /**
+   * Builds a new {@link Enterprise} with the position and stats in this snapshot.
+   *
+   * @return a new {@link Enterprise}.
+   */
+  public Enterprise toEnterprise() {
+    return new Enterprise(this.enterpriseX, this.enterpriseY, this.energy, this.shields,
+        this.torpedoes);
+  }
+
+  /**
+   * Builds a new {@link Galaxy} holding a {@link Quadrant} for every quadrant in this snapshot.
+   * Large galaxies are built in parallel; each {@link Quadrant} only depends on its own snapshot
+   * and the seed, so the result is the same either way. Quadrants that lag behind the snapshot's
+   * turn are caught up by the galaxy when it hands them out (see {@link Galaxy#resume(int)}).
+   *
+   * @return a new {@link Galaxy}.
+   */
+  public Galaxy toGalaxy() {
+    final Galaxy galaxy;
+    if (this.quadrantCount < parallelBuildThreshold) {
+      final ArrayList<Quadrant> built = new ArrayList<>(this.quadrantCount);
+      this.quadrants.forEach(quadrant -> built.add(this.build(quadrant)));
+      galaxy = new Galaxy(this.width, this.height, this.seed, built);
+    } else {
+      final List<Quadrant> built = IntStream.range(0, this.quadrants.size()).parallel()
+          .mapToObj(this.quadrants::get)
+          .filter(Objects::nonNull)
+          .map(this::build)
+          .collect(Collectors.toList());
+      galaxy = new Galaxy(this.width, this.height, this.seed, built);
+    }
+    galaxy.resume(this.turn);
+    return galaxy;
+  }
+
+  private Quadrant build(final QuadrantSnapshot snapshot) {
+    final Quadrant quadrant = snapshot.toQuadrant(this.seed);
+    quadrant.markSimulated(snapshot.simulatedTurn(this.turn));
+    return quadrant;
+  }
+
+  /**
+   * Sends the records of this snapshot to the sink in the order of a full export.
+   *
+   * @param sink - where to send the records.
+   */
+  public void export(final GameRecordSink sink) {
+    sink.galaxy(this.width, this.height, this.seed);
+    sink.enterprise(this.enterpriseX, this.enterpriseY, this.energy, this.shields,
+        this.torpedoes);
+    if (this.hasCurrentQuadrant()) {
+      sink.current(this.currentX, this.currentY);
+    }
+    this.quadrants.forEach(quadrant -> this.caughtUp(quadrant).export(sink));
+  }
+
+  /**
+   * Sends the records of this snapshot to the sink like {@link #export(GameRecordSink)}, but
+   * leaves out every quadrant that is exactly as the seed generates it (see
+   * {@link QuadrantSnapshot#isGenerated(long)}). Generating the left out quadrants again from the
+   * seed, e.g. with {@link #withGeneratedQuadrants()}, gives back the whole snapshot. Large
+   * galaxies are compared in parallel; the records are still sent in order.
+   *
+   * @param sink - where to send the records.
+   * @throws IllegalStateException if the snapshot is missing quadrants, as those would be
+   *                               generated again.
+   */
+  public void exportDelta(final GameRecordSink sink) {
+    if (!this.isComplete()) {
+      throw new IllegalStateException("Only a snapshot of every quadrant can be saved as a delta");
+    }
+    sink.galaxy(this.width, this.height, this.seed);
+    sink.enterprise(this.enterpriseX, this.enterpriseY, this.energy, this.shields,
+        this.torpedoes);
+    if (this.hasCurrentQuadrant()) {
+      sink.current(this.currentX, this.currentY);
+    }
+    Stream<QuadrantSnapshot> changed = IntStream.range(0, this.quadrants.size())
+        .mapToObj(index -> this.caughtUp(this.quadrants.get(index)))
+        .filter(quadrant -> !quadrant.isGenerated(this.seed));
+    if (this.quadrantCount >= parallelBuildThreshold) {
+      changed = changed.parallel();
+    }
+    changed.forEachOrdered(quadrant -> quadrant.export(sink));
+  }
+
+  /**
+   * Returns a snapshot holding every quadrant of the galaxy: the ones in this snapshot as they
+   * are, and every missing one as the seed generates it. This is how the quadrants left out of a
+   * delta export (see {@link #exportDelta(GameRecordSink)}) are put back.
+   *
+   * @return the complete snapshot, this one if it is already complete.
+   */
+  public GameSnapshot withGeneratedQuadrants() {
+    if (this.isComplete()) {
+      return this;
+    }
+    IntStream missing = IntStream.range(0, this.quadrants.size())
+        .filter(index -> this.quadrants.get(index) == null);
+    if (this.width * this.height - this.quadrantCount >= parallelBuildThreshold) {
+      missing = missing.parallel();
+    }
+    final Builder builder = new Builder(this);
+    missing.mapToObj(index -> {
+      final int x = index % this.width;
+      final int y = index / this.width;
+      return new Quadrant(x, y, GameRandom.forQuadrant(this.seed, x, y)).snapshot();
+    }).forEachOrdered(quadrant -> quadrant.export(builder));
+    return builder.build();
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof GameSnapshot)) {
+      return false;
+    }
+    final GameSnapshot that = (GameSnapshot) other;
+    return this.width == that.width && this.height == that.height && this.seed == that.seed
+        && this.enterpriseX == that.enterpriseX && this.enterpriseY == that.enterpriseY
+        && this.energy == that.energy && this.shields == that.shields
+        && this.torpedoes == that.torpedoes && this.currentX == that.currentX
+        && this.currentY == that.currentY && this.sameQuadrants(that);
+  }
+
+  /**
+   * Returns if both snapshots hold the same quadrants once caught up. At the same turn a quadrant
+   * they share is caught up the same way, so only the ones they do not share are compared.
+   */
+  private boolean sameQuadrants(final GameSnapshot that) {
+    if (this.turn == that.turn) {
+      return this.quadrants.contentEquals(that.quadrants,
+          (mine, theirs) -> this.caughtUp(mine).equals(that.caughtUp(theirs)));
+    }
+    for (int index = 0; index < this.quadrants.size(); index += 1) {
+      if (!Objects.equals(this.caughtUp(this.quadrants.get(index)),
+          that.caughtUp(that.quadrants.get(index)))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    final int[] hash = {31 * Long.hashCode(this.seed)};
+    this.quadrants.forEach(quadrant -> hash[0] = 31 * hash[0] + this.caughtUp(quadrant).hashCode());
+    return hash[0];
+  }
+
+  /**
+   * Collects the records of a full export, in order, into a {@link GameSnapshot}. Without a galaxy
+   * record the galaxy is sized to fit the quadrants, as text saves have always been. Records sent
+   * after a full export (e.g. replayed from a journal) replace the earlier enterprise, current
+   * quadrant and quadrant records they repeat.
+   *
+   * <p>A builder started from an earlier snapshot takes everything from it, and the records sent
+   * only replace what they repeat, so sending it a game's changes since that snapshot (see
+   * {@link Game#exportChanges(GameRecordSink)}) builds the game as it is now, sharing every
+   * unchanged quadrant with the earlier snapshot.</p>
+   */
+  public static final class Builder implements GameRecordSink {
+
+    private int width = -1; // -1 until a galaxy record arrives
+    private int height = -1;
+    private long seed = 0L;
+    private int[] enterprise; // x, y, energy, shields, torpedoes; null until its record arrives
+    private int currentX = -1;
+    private int currentY = -1;
+    private int turn = -1; // galaxy turn, -1 if not known
+    private final ArrayList<QuadrantSnapshot> quadrants = new ArrayList<>();
+    private QuadrantTrie base; // quadrants of the snapshot built on, null when building afresh
+    private int baseCount;
+    // the last quadrant record, held until we know if entity records follow it
+    private boolean hasPending = false;
+    private int pendingX;
+    private int pendingY;
+    private int pendingComposition;
+    private final int[] pendingEntities = new int[Sectors.size * Sectors.size];
+    private int pendingEntityCount = 0;
+
+    /**
+     * Constructs a builder for a snapshot built from records alone.
+     */
+    public Builder() {
+    }
+
+    /**
+     * Constructs a builder for a snapshot built on top of the given one: it starts as a copy of
+     * it, and records sent replace the parts they repeat. The galaxy size cannot change.
+     *
+     * @param base - the snapshot to build on.
+     */
+    public Builder(final GameSnapshot base) {
+      this.width = base.width;
+      this.height = base.height;
+      this.seed = base.seed;
+      this.enterprise = new int[] {base.enterpriseX, base.enterpriseY, base.energy, base.shields,
+          base.torpedoes};
+      this.currentX = base.currentX;
+      this.currentY = base.currentY;
+      this.turn = base.turn;
+      this.base = base.quadrants;
+      this.baseCount = base.quadrantCount;
+    }
+
+    @Override
+    public void galaxy(final int width, final int height, final long seed) {
+      if (this.base != null && (width != this.width || height != this.height)) {
+        throw new IllegalArgumentException("Galaxy size differs from the snapshot built on");
+      }
+      if (width < 0 || height < 0) {
+        throw new IllegalArgumentException("Galaxy dimensions must not be negative");
+      }
+      this.width = width;
+      this.height = height;
+      this.seed = seed;
+    }
+
+    @Override
+    public void enterprise(final int x, final int y, final int energy, final int shields,
+        final int torpedoes) {
+      this.enterprise = new int[] {x, y, energy, shields, torpedoes};
+    }
+
+    @Override
+    public void current(final int x, final int y) {
+      this.currentX = x;
+      this.currentY = y;
+    }
+
+    @Override
+    public void quadrant(final int x, final int y, final int stars, final int starbases,
+        final int klingons) {
+      this.flush();
+      if (x < 0 || y < 0) {
+        throw new IllegalArgumentException("Quadrant coordinates must not be negative");
+      }
+      this.hasPending = true;
+      this.pendingX = x;
+      this.pendingY = y;
+      this.pendingComposition = Composition.pack(stars, starbases, klingons);
+    }
+
+    @Override
+    public void entity(final EntityType type, final int x, final int y, final int energy,
+        final int flags) {
+      if (!this.hasPending) {
+        throw new IllegalArgumentException("Entity record without a quadrant record");
+      }
+      if (this.pendingEntityCount == Sectors.size * Sectors.size) {
+        throw new IllegalArgumentException("Quadrant " + this.pendingX + "," + this.pendingY
+            + " has more entities than sectors");
+      }
+      this.pendingEntities[this.pendingEntityCount] = QuadrantSnapshot.pack(type, x, y, energy,
+          flags);
+      this.pendingEntityCount += 1;
+    }
+
+    /**
+     * Sets the galaxy turn the snapshot is taken at. Quadrant records sent from here on hold
+     * quadrants simulated to that turn.
+     */
+    void turn(final int turn) {
+      this.turn = turn;
+    }
+
+    /**
+     * Sends a quadrant snapshot as a whole, as if its quadrant and entity records had been sent,
+     * without packing its entities again.
+     */
+    void put(final QuadrantSnapshot quadrant) {
+      this.flush();
+      if (this.base == null) {
+        this.quadrants.add(quadrant);
+        return;
+      }
+      this.replace(quadrant);
+    }
+
+    /**
+     * Adds everything another builder has collected, as if the records sent to it had been sent
+     * to this one after its own, e.g. to put together a save parsed in chunks on several threads.
+     * Neither builder may be built on an earlier snapshot.
+     *
+     * @param later - the builder holding the records that came after this one's.
+     * @throws IllegalStateException if either builder is built on an earlier snapshot.
+     */
+    public void append(final Builder later) {
+      if (this.base != null || later.base != null) {
+        throw new IllegalStateException("Only builders started afresh can be appended");
+      }
+      this.flush();
+      later.flush();
+      if (later.width >= 0) {
+        this.width = later.width;
+        this.height = later.height;
+        this.seed = later.seed;
+      }
+      if (later.enterprise != null) {
+        this.enterprise = later.enterprise;
+      }
+      if (later.currentX >= 0) {
+        this.currentX = later.currentX;
+        this.currentY = later.currentY;
+      }
+      this.quadrants.addAll(later.quadrants);
+    }
+
+    /**
+     * Finishes the snapshot once every record has been sent.
+     *
+     * @return the snapshot.
+     * @throws IllegalStateException    if there was no enterprise record, or neither quadrant
+     *                                  records nor a galaxy record to size the galaxy.
+     * @throws IllegalArgumentException if a quadrant lies outside the galaxy record's size.
+     */
+    public GameSnapshot build() {
+      this.flush();
+      if (this.base != null) {
+        return new GameSnapshot(this, this.width, this.height, this.base, this.baseCount);
+      }
+      if (this.enterprise == null) {
+        throw new IllegalStateException("Missing enterprise record");
+      }
+      if (this.quadrants.isEmpty() && this.width < 0) {
+        throw new IllegalStateException("Missing quadrant records");
+      }
+      int width = this.width;
+      int height = this.height;
+      if (width < 0) {
+        for (QuadrantSnapshot quadrant : this.quadrants) {
+          width = Math.max(width, quadrant.getX() + 1);
+          height = Math.max(height, quadrant.getY() + 1);
+        }
+      }
+      final QuadrantSnapshot[] grid = new QuadrantSnapshot[width * height];
+      int count = 0;
+      for (QuadrantSnapshot quadrant : this.quadrants) {
+        if (quadrant.getX() >= width || quadrant.getY() >= height) {
+          throw new IllegalArgumentException("Quadrant " + quadrant.getX() + ","
+              + quadrant.getY() + " is outside the galaxy");
+        }
+        final int index = quadrant.getY() * width + quadrant.getX();
+        if (grid[index] == null) {
+          count += 1;
+        }
+        grid[index] = quadrant; // a later record for the same quadrant replaces an earlier one
+      }
+      return new GameSnapshot(this, width, height, QuadrantTrie.of(grid), count);
+    }
+
+    /**
+     * Finishes the last quadrant read: exact if it had entity records, counts only if not.
+     */
+    private void flush() {
+      if (!this.hasPending) {
+        return;
+      }
+      // an empty quadrant is exact even without entity records
+      final int[] entities = this.pendingEntityCount == 0 && this.pendingComposition != 0 ? null
+          : Arrays.copyOf(this.pendingEntities, this.pendingEntityCount);
+      final QuadrantSnapshot quadrant = new QuadrantSnapshot(this.pendingX, this.pendingY,
+          this.pendingComposition, entities,
+          this.turn < 0 ? QuadrantSnapshot.upToDate : this.turn);
+      this.hasPending = false;
+      this.pendingEntityCount = 0;
+      if (this.base == null) {
+        this.quadrants.add(quadrant);
+        return;
+      }
+      this.replace(quadrant);
+    }
+
+    /**
+     * Puts the quadrant into the snapshot built on, in place of the one it repeats.
+     */
+    private void replace(final QuadrantSnapshot quadrant) {
+      if (quadrant.getX() >= this.width || quadrant.getY() >= this.height) {
+        throw new IllegalArgumentException("Quadrant " + quadrant.getX() + ","
+            + quadrant.getY() + " is outside the galaxy");
+      }
+      final int index = quadrant.getY() * this.width + quadrant.getX();
+      if (this.base.get(index) == null) {
+        this.baseCount += 1;
+      }
+      this.base = this.base.with(index, quadrant);
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package sttrswing.model;
+
+import sttrswing.model.interfaces.GameModel;
+import sttrswing.model.interfaces.TurnListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Every turn of a {@link Game} kept for seeking back to, e.g. to look over a long game after it
+ * has ended. The game is kept as a full {@link GameSnapshot} every few turns, a keyframe, and as
+ * only what each turn changed in between, a delta: the galaxy turn, the {@link Enterprise}, the
+ * current {@link Quadrant} and the snapshot of every quadrant the turn changed.
+ *
+ * <p>An index from each turn to the keyframe before it makes {@link #seek(int)} one keyframe plus
+ * at most {@link #keyframeInterval()} - 1 deltas applied on top of it (see
+ * {@link GameSnapshot.Builder#Builder(GameSnapshot)}), however long the game. Each periodic
+ * keyframe is itself built on the one before, so it shares every unchanged quadrant with it and
+ * recording a turn costs in proportion to what the turn changed.</p>
+ *
+ * <p>Like {@link GameHistory} the timeline keeps its own change set on the game's {@link Galaxy}
+ * (see {@link Galaxy#trackChanges()}). When the game's galaxy is swapped, e.g. by loading, the
+ * next turn is a keyframe taken afresh. In {@link sttrswing.model.enums.TickMode#CATCH_UP} mode a
+ * quadrant that has not been caught up stays in the keyframe or delta it was last recorded in,
+ * with the turn it had been simulated to, and is caught up when a sought snapshot is read or
+ * restored (see {@link GameSnapshot}), never to record a turn.</p>
+ */
+public final class GameTimeline implements TurnListener {
+
+  private final int keyframeInterval; // most turns from one keyframe to the next
+  private final ArrayList<GameSnapshot> keyframes = new ArrayList<>();
+  private final ArrayList<Integer> keyframeTurns = new ArrayList<>(); // turn of each keyframe
+  private final ArrayList<TurnDelta> deltas = new ArrayList<>(); // by turn, null at keyframes
+  private int[] keyframeIndex = new int[64]; // by turn, which keyframe seeking starts from
+  private Game game; // game being recorded, null when detached
+  private Galaxy galaxy; // galaxy whose changes are tracked
+  private BitSet changes; // this timeline's change set on that galaxy
+
+  /**
+   * Constructs an empty {@link GameTimeline} keeping a keyframe at least every given number of
+   * turns.
+   *
+   * @param keyframeInterval - most turns between keyframes, at least 1.
+   */
+  public GameTimeline(final int keyframeInterval) {
+    if (keyframeInterval < 1) {
+      throw new IllegalArgumentException("Keyframe interval must be at least 1");
+    }
+    this.keyframeInterval = keyframeInterval;
+  }
+
+  /**
+   * Starts recording the given game afresh, with the game as it is now as turn 0. Anything
+   * recorded before is dropped.
+   *
+   * @param game - the game to record.
+   */
+  public void attach(final Game game) {
+    this.detach();
+    this.keyframes.clear();
+    this.keyframeTurns.clear();
+    this.deltas.clear();
+    this.game = game;
+    game.addTurnListener(this);
+    this.keyframe(game);
+  }
+
+  /**
+   * Stops recording. Everything recorded so far can still be sought.
+   */
+  public void detach() {
+    if (this.game != null) {
+      this.game.removeTurnListener(this);
+      this.game = null;
+    }
+    if (this.galaxy != null) {
+      this.galaxy.stopTracking(this.changes);
+      this.galaxy = null;
+    }
+  }
+
+  @Override
+  public void turnEnded(final GameModel game) {
+    if (game != this.game) {
+      return;
+    }
+    if (this.game.getGalaxy() != this.galaxy) {
+      this.keyframe(this.game);
+      return;
+    }
+    this.deltas.add(new TurnDelta(this.game, this.galaxy.takeDirty(this.changes)));
+    final int turn = this.lastTurn();
+    this.index(turn, this.keyframes.size() - 1);
+    if (turn - this.keyframeTurns.get(this.keyframes.size() - 1) >= this.keyframeInterval) {
+      final GameSnapshot keyframe = this.seek(turn);
+      this.deltas.set(turn, null); // the keyframe holds it now
+      this.addKeyframe(turn, keyframe);
+    }
+  }
+
+  /**
+   * Returns the last turn recorded, 0 if only the game as it was when attached is.
+   *
+   * @return the last turn that can be sought.
+   */
+  public int lastTurn() {
+    return this.deltas.size() - 1;
+  }
+
+  /**
+   * Returns the most turns between one keyframe and the next.
+   *
+   * @return the keyframe interval.
+   */
+  public int keyframeInterval() {
+    return this.keyframeInterval;
+  }
+
+  /**
+   * Returns how many keyframes are kept.
+   *
+   * @return the number of keyframes.
+   */
+  public int keyframeCount() {
+    return this.keyframes.size();
+  }
+
+  /**
+   * Returns the turn of the keyframe seeking to the given turn starts from.
+   *
+   * @param turn - a recorded turn.
+   * @return the turn of the keyframe at or before it.
+   * @throws IllegalArgumentException if the turn has not been recorded.
+   */
+  public int keyframeTurn(final int turn) {
+    this.check(turn);
+    return this.keyframeTurns.get(this.keyframeIndex[turn]);
+  }
+
+  /**
+   * Returns the game as it was at the end of the given turn: the keyframe before it with the
+   * deltas since applied on top. Quadrants that had not been caught up by then are caught up as
+   * the snapshot is read or restored. Restore it into a game to look at it (see
+   * {@link Game#restore(GameSnapshot)}).
+   *
+   * @param turn - a recorded turn, 0 for the game as it was when attached.
+   * @return the game at that turn.
+   * @throws IllegalArgumentException if the turn has not been recorded.
+   */
+  public GameSnapshot seek(final int turn) {
+    this.check(turn);
+    final int index = this.keyframeIndex[turn];
+    final int from = this.keyframeTurns.get(index);
+    if (from == turn) {
+      return this.keyframes.get(index);
+    }
+    final GameSnapshot.Builder builder = new GameSnapshot.Builder(this.keyframes.get(index));
+    for (int next = from + 1; next <= turn; next += 1) {
+      this.deltas.get(next).applyTo(builder);
+    }
+    return builder.build();
+  }
+
+  private void check(final int turn) {
+    if (turn < 0 || turn > this.lastTurn()) {
+      throw new IllegalArgumentException("Turn " + turn + " has not been recorded");
+    }
+  }
+
+  /**
+   * Records the game as it is now as a keyframe taken afresh, and tracks changes to its galaxy
+   * from here on.
+   */
+  private void keyframe(final Game game) {
+    if (game.getGalaxy() != this.galaxy) {
+      if (this.galaxy != null) {
+        this.galaxy.stopTracking(this.changes);
+      }
+      this.galaxy = game.getGalaxy();
+      this.changes = this.galaxy.trackChanges();
+    }
+    this.galaxy.takeDirty(this.changes); // everything is in the keyframe
+    this.deltas.add(null);
+    this.addKeyframe(this.lastTurn(), GameSnapshot.versionOf(game));
+  }
+
+  private void addKeyframe(final int turn, final GameSnapshot keyframe) {
+    this.keyframes.add(keyframe);
+    this.keyframeTurns.add(turn);
+    this.index(turn, this.keyframes.size() - 1);
+  }
+
+  private void index(final int turn, final int keyframe) {
+    if (turn == this.keyframeIndex.length) {
+      this.keyframeIndex = Arrays.copyOf(this.keyframeIndex, turn * 2);
+    }
+    this.keyframeIndex[turn] = keyframe;
+  }
+
+  /**
+   * What one turn changed: the galaxy turn, the {@link Enterprise}, the current {@link Quadrant}
+   * and a snapshot of every quadrant changed, with the turn it has been simulated to.
+   */
+  private static final class TurnDelta {
+
+    private final int turn; // galaxy turn at the end of the turn
+    private final int[] enterprise; // x, y, energy, shields, torpedoes
+    private final int currentX;
+    private final int currentY;
+    private final QuadrantSnapshot[] quadrants;
+
+    TurnDelta(final Game game, final BitSet changed) {
+      this.turn = game.getGalaxy().turn();
+      final Enterprise ship = game.getEnterprise();
+      this.enterprise = new int[] {ship.getX(), ship.getY(), ship.energy(), ship.shields(),
+          ship.torpedoAmmo()};
+      this.currentX = game.getCurrentQuadrant().getX();
+      this.currentY = game.getCurrentQuadrant().getY();
+      final Galaxy galaxy = game.getGalaxy();
+      final int width = galaxy.width();
+      final ArrayList<QuadrantSnapshot> quadrants = new ArrayList<>(changed.cardinality());
+      for (int index = changed.nextSetBit(0); index >= 0; index = changed.nextSetBit(index + 1)) {
+        final Quadrant quadrant = galaxy.quadrantAt(index % width, index / width);
+        if (quadrant != null) {
+          quadrants.add(quadrant.snapshot());
+        }
+      }
+      this.quadrants = quadrants.toArray(new QuadrantSnapshot[0]);
+    }
+
+    void applyTo(final GameSnapshot.Builder builder) {
+      builder.turn(this.turn);
+      builder.enterprise(this.enterprise[0], this.enterprise[1], this.enterprise[2],
+          this.enterprise[3], this.enterprise[4]);
+      builder.current(this.currentX, this.currentY);
+      for (QuadrantSnapshot quadrant : this.quadrants) {
+        builder.put(quadrant);
+      }
+    }
+  }
+}
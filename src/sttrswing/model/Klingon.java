@@ -10,10 +10,7 @@ import sttrswing.model.interfaces.Hittable;
  */
 public class Klingon extends Entity implements Hittable, HasFaction {
 
-  private final int maxEnergy = 300;
-  private final Stat energy = new Stat(maxEnergy, maxEnergy);
-  private Faction faction = Faction.NEUTRAL;
-  //until identified the klingon is detected as neutral
+  static final int maxEnergy = 300; // starting and maximum energy reserve
 
   /**
    * Constructs a {@link Klingon} instance at the given X and Y position.
@@ -22,17 +19,28 @@ public class Klingon extends Entity implements Hittable, HasFaction {
    * @param y - vertical coordinate
    */
   public Klingon(final int x, final int y) {
-    super(x, y);
+    super(x, y, maxEnergy, maxEnergy, 0);
   }
 
   /**
-   * Return the {@link Faction} this belongs to.
+   * Constructs a {@link Klingon} view onto a slot of a {@link Quadrant}'s {@link EntityStore}.
+   *
+   * @param store - the store holding the {@link Klingon}
+   * @param slot  - the slot of the {@link Klingon} in the store
+   */
+  Klingon(final EntityStore store, final int slot) {
+    super(store, slot);
+  }
+
+  /**
+   * Return the {@link Faction} this belongs to. Until identified by a scan the {@link Klingon} is
+   * detected as neutral.
    *
    * @return the {@link Faction} this belongs to
    */
   @Override
   public Faction faction() {
-    return faction;
+    return this.isScanned() ? Faction.KLINGON : Faction.NEUTRAL;
   }
 
   /**
@@ -44,7 +52,7 @@ public class Klingon extends Entity implements Hittable, HasFaction {
    * @return how much damage was dealt by this {@link Klingon} in this attack.
    */
   public int attack(final Hittable hittable) {
-    final int thirdDamage = (int) Math.floor(this.energy.get() / 3);
+    final int thirdDamage = (int) Math.floor(this.storedEnergy() / 3);
     hittable.hit(thirdDamage);
     return thirdDamage;
   }
@@ -56,10 +64,10 @@ public class Klingon extends Entity implements Hittable, HasFaction {
    * @param damage - amount to reduce the {@link Klingon} energy reserves by.
    */
   public void hit(final int damage) {
-    System.out.println("KLINGON HIT FOR" + -damage + " ENERGY:" + this.energy);
-    this.energy.adjust(-damage);
-    System.out.println("KLINGON NOW HAS ENERGY:" + this.energy);
-    if (this.energy.get() < 1) {
+    System.out.println("KLINGON HIT FOR" + -damage + " ENERGY:" + this.storedEnergy());
+    this.adjustStoredEnergy(-damage);
+    System.out.println("KLINGON NOW HAS ENERGY:" + this.storedEnergy());
+    if (this.storedEnergy() < 1) {
       this.remove(); //mark for removal
     }
   }
@@ -76,18 +84,12 @@ public class Klingon extends Entity implements Hittable, HasFaction {
     if (!this.isScanned()) {
       return " ? ";
     }
-    if (this.energy.get() < this.maxEnergy / 3) { //1/3rd hp or less left
+    if (this.storedEnergy() < maxEnergy / 3) { //1/3rd hp or less left
       return "-k-";
     }
-    if (this.energy.get() < this.maxEnergy / 2) { //half hp or less left
+    if (this.storedEnergy() < maxEnergy / 2) { //half hp or less left
       return "+k+";
     }
     return "+K+";
   }
-
-  @Override
-  public void scan() {
-    super.scan();
-    this.faction = Faction.KLINGON;
-  }
 }
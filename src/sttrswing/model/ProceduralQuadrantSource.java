@@ -0,0 +1,56 @@
+package sttrswing.model;
+
+import sttrswing.model.interfaces.QuadrantSource;
+
+/**
+ * A {@link QuadrantSource} that derives every {@link Quadrant} from a seed, see
+ * {@link GameRandom#forQuadrant(long, int, int)}. Nothing is stored, so any size of galaxy costs
+ * the same to hold.
+ */
+public final class ProceduralQuadrantSource implements QuadrantSource {
+
+  private final int width;
+  private final int height;
+  private final long seed;
+
+  /**
+   * Constructs a {@link ProceduralQuadrantSource} for a galaxy of the given size.
+   *
+   * @param width  - number of quadrants along the x axis
+   * @param height - number of quadrants along the y axis
+   * @param seed   - seed every {@link Quadrant}'s stream is derived from
+   */
+  public ProceduralQuadrantSource(final int width, final int height, final long seed) {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Galaxy dimensions must not be negative");
+    }
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+  }
+
+  @Override
+  public int width() {
+    return this.width;
+  }
+
+  @Override
+  public int height() {
+    return this.height;
+  }
+
+  @Override
+  public long seed() {
+    return this.seed;
+  }
+
+  @Override
+  public int composition(final int x, final int y) {
+    return Quadrant.generateComposition(GameRandom.forQuadrant(this.seed, x, y));
+  }
+
+  @Override
+  public Quadrant materialize(final int x, final int y) {
+    return new Quadrant(x, y, GameRandom.forQuadrant(this.seed, x, y));
+  }
+}
@@ -1,33 +1,80 @@
 package sttrswing.model;
 
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.interfaces.CompositionListener;
+import sttrswing.model.interfaces.GameRecordSink;
 import sttrswing.model.interfaces.HasPosition;
 import sttrswing.model.interfaces.Hittable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * {@link Quadrant} are sections of space with a randomised mixture of {@link Star}s,
  * {@link Klingon}s and {@link Starbase}s.
+ *
+ * <p>Each kind of entity is held in its own {@link EntityStore} (primitive columns for position,
+ * energy and flags, plus an occupancy bitboard), and the {@link Star}, {@link Klingon} and
+ * {@link Starbase} objects handed out are views onto those stores.</p>
  */
 public class Quadrant implements Hittable, HasPosition {
 
-  private final List<Star> stars = new ArrayList<>();
-  private final List<Klingon> klingons = new ArrayList<>();
-  private final List<Starbase> starbases = new ArrayList<>();
+  private final EntityStore stars = new EntityStore(EntityType.STAR, 0, 4);
+  private final EntityStore klingons = new EntityStore(EntityType.KLINGON, Klingon.maxEnergy, 2);
+  private final EntityStore starbases =
+      new EntityStore(EntityType.STARBASE, Starbase.maxEnergy, 2);
   private final XyPair position;
-  private final int maxRows = 8;
-  private final int maxCols = 8;
+  private final SplittableRandom random; // this quadrant's own stream, see GameRandom
+  private CompositionListener compositionListener; // told when entities are removed, may be null
+  private int simulatedTurn = 0; // galaxy turn the out-of-focus effects have been applied up to
+  private static final int outOfFocusHeal = 10; // energy a starbase regains per quiet turn
+  private static final int outOfFocusDrain = 1; // energy a starbase loses per besieged turn
+  private static final int maxRows = 8;
+  private static final int maxCols = 8;
 
   /**
-   * Constructs a {@link Quadrant} at the given coordinates.
+   * Constructs a {@link Quadrant} at the given coordinates, drawing from an unseeded stream.
    *
    * @param galaxyX - horizontal coordinate for this {@link Quadrant} in the {@link Galaxy}.
    * @param galaxyY - vertical coordinate for this {@link Quadrant} in the {@link Galaxy}.
    */
   public Quadrant(final int galaxyX, final int galaxyY) {
+    this(galaxyX, galaxyY, new SplittableRandom());
+  }
+
+  /**
+   * Constructs a {@link Quadrant} at the given coordinates, making every random decision from the
+   * given stream. The same stream state always produces the same {@link Quadrant}.
+   *
+   * @param galaxyX - horizontal coordinate for this {@link Quadrant} in the {@link Galaxy}.
+   * @param galaxyY - vertical coordinate for this {@link Quadrant} in the {@link Galaxy}.
+   * @param random  - the stream to draw from, kept for later draws by this {@link Quadrant}.
+   */
+  public Quadrant(final int galaxyX, final int galaxyY, final SplittableRandom random) {
     this.position = new XyPair(galaxyX, galaxyY);
-    Random random = new Random();
+    this.random = random;
+    generate(random, this);
+    this.resetModified();
+  }
+
+  /**
+   * Works out the composition (see {@link Composition}) of the {@link Quadrant} the given stream
+   * would generate, without building it. Makes exactly the same draws as
+   * {@link #Quadrant(int, int, SplittableRandom)}, so for streams in the same state the result
+   * always matches {@link #composition()} of the generated {@link Quadrant}.
+   *
+   * @param random - the stream to draw from.
+   * @return the packed composition of the {@link Quadrant} the stream would generate.
+   */
+  public static int generateComposition(final SplittableRandom random) {
+    return generate(random, null);
+  }
+
+  /**
+   * Makes every random draw for a generated {@link Quadrant}, placing the entities into the given
+   * {@link Quadrant} or, when it is null, only counting them.
+   */
+  private static int generate(final SplittableRandom random, final Quadrant into) {
     // Doing 1-100 below is less efficient than 0-99, but makes it easy to see what I am doing
     int enemies = random.nextInt(100) + 1; // pick a random number from 1-100
     // this is not my final answer, I'm just using this variable as a temporary for now
@@ -67,21 +114,34 @@ public class Quadrant implements Hittable, HasPosition {
       starbases = 0;
     }
     // Now place all these in random spots in the Quadrant
+    int placedStars = 0;
+    int placedStarbases = 0;
+    int placedKlingons = 0;
     for (int y = 0; y < maxRows; y += 1) {
       for (int x = 0; x < maxCols; x += 1) {
         int d6 = random.nextInt(6) + 1; // d6 is a six-sided die (dice)
         if (d6 == 1 && starbases > 0) { // have to thow a "1" on the die to get a Starbase
           starbases -= 1;
-          this.starbases.add(new Starbase(x, y));
+          placedStarbases += 1;
+          if (into != null) {
+            into.starbases.add(x, y, Starbase.maxEnergy, 0);
+          }
         } else if (d6 == 2 && enemies > 0) { // or thow a "2" on the die to get a Klingon
           enemies -= 1;
-          this.klingons.add(new Klingon(x, y));
+          placedKlingons += 1;
+          if (into != null) {
+            into.klingons.add(x, y, Klingon.maxEnergy, 0);
+          }
         } else if (d6 == 3 && stars > 0) { // or thow a "3" on the die to get a Star
           stars -= 1;
-          this.stars.add(new Star(x, y));
+          placedStars += 1;
+          if (into != null) {
+            into.stars.add(x, y, 0, EntityStore.scannedFlag);
+          }
         }
       }
     }
+    return Composition.pack(placedStars, placedStarbases, placedKlingons);
   }
 
   /**
@@ -109,67 +169,181 @@ public class Quadrant implements Hittable, HasPosition {
    *                  </p>
    */
   public Quadrant(final int galaxyX, final int galaxyY, int starbases, int klingons, int stars) {
+    this(galaxyX, galaxyY, starbases, klingons, stars, new SplittableRandom());
+  }
+
+  /**
+   * Constructs a {@link Quadrant} with the given number of each entity placed on random empty
+   * sectors drawn from the given stream, see
+   * {@link #Quadrant(int, int, int, int, int)}.
+   *
+   * @param galaxyX   - horizontal coordinate
+   * @param galaxyY   - vertical coordinate
+   * @param starbases - number of {@link Starbase} to place
+   * @param klingons  - number of {@link Klingon} to place
+   * @param stars     - number of {@link Star} to place
+   * @param random    - the stream to draw from, kept for later draws by this {@link Quadrant}.
+   */
+  public Quadrant(final int galaxyX, final int galaxyY, int starbases, int klingons, int stars,
+      final SplittableRandom random) {
     this.position = new XyPair(galaxyX, galaxyY);
-        /*
-        This is the original test code below,
-        but YOU still have to modify it to put the objects in random places.
-        You will need to import java.util.Random
-        Look up how to use java.util.Random in the Java API.
-        @todo change this test code to randomise the location of each the objects in the Quadrant
-         */
+    this.random = random;
     for (int starbase = 0; starbase < starbases; starbase++) {
       XyPair position = this.getRandomEmptySector();
-      this.starbases.add(new Starbase(position.getX(), position.getY()));
+      this.starbases.add(position.getX(), position.getY(), Starbase.maxEnergy, 0);
     }
     for (int klingon = 0; klingon < klingons; klingon++) {
       XyPair position = this.getRandomEmptySector();
-      this.klingons.add(new Klingon(position.getX(), position.getY()));
+      this.klingons.add(position.getX(), position.getY(), Klingon.maxEnergy, 0);
     }
     for (int star = 0; star < stars; star++) {
       XyPair position = this.getRandomEmptySector();
-      this.stars.add(new Star(position.getX(), position.getY()));
+      this.stars.add(position.getX(), position.getY(), 0, EntityStore.scannedFlag);
     }
+    this.resetModified();
   }
 
+  /**
+   * Returns a random sector in this {@link Quadrant} with nothing in it, or null if every sector
+   * is taken. Draws from this {@link Quadrant}'s own stream.
+   *
+   * @return a random unoccupied sector, or null if there are none.
+   */
   public XyPair getRandomEmptySector() {
-    final List<XyPair> fullSectors = new ArrayList<>();
-
-    for (Star star : this.stars) {
-      fullSectors.add(new XyPair(star.getX(), star.getY()));
-    }
-    for (Klingon klingon : this.klingons) {
-      fullSectors.add(new XyPair(klingon.getX(), klingon.getY()));
-    }
-    for (Starbase starbase : this.starbases) {
-      fullSectors.add(new XyPair(starbase.getX(), starbase.getY()));
-    }
+    return this.getRandomEmptySector(this.random);
+  }
 
-    final List<XyPair> emptySectors = new ArrayList<>();
-    for (int y = 0; y < this.maxRows; y++) {
-      for (int x = 0; x < this.maxCols; x++) {
-        XyPair option = new XyPair(x, y);
-        if (!fullSectors.contains(option)) {
-          emptySectors.add(option);
-        }
-      }
-    }
-    if (emptySectors.isEmpty()) {
+  /**
+   * Returns a random sector in this {@link Quadrant} with nothing in it, or null if every sector
+   * is taken.
+   *
+   * @param random - the stream to draw the choice from.
+   * @return a random unoccupied sector, or null if there are none.
+   */
+  public XyPair getRandomEmptySector(final SplittableRandom random) {
+    final long emptySectors = ~this.occupiedMask();
+    if (emptySectors == 0L) {
       return null;
     }
-    Random random = new Random();
-    return emptySectors.get(random.nextInt(emptySectors.size()));
+    final int choice = random.nextInt(Long.bitCount(emptySectors));
+    final int index = Sectors.nthSetBit(emptySectors, choice);
+    return new XyPair(Sectors.x(index), Sectors.y(index));
+  }
+
+  /**
+   * Returns the bitboard of every sector holding a {@link Star}, {@link Klingon} or
+   * {@link Starbase} (see {@link Sectors}).
+   *
+   * @return the bitboard of occupied sectors.
+   */
+  public long occupiedMask() {
+    return this.stars.mask() | this.klingons.mask() | this.starbases.mask();
   }
 
+  /**
+   * Returns if any {@link Entity} in this {@link Quadrant} is at the given sector.
+   *
+   * @param x - horizontal coordinate
+   * @param y - vertical coordinate
+   * @return if the sector is occupied, false for out of bounds coordinates.
+   */
+  public boolean isOccupied(final int x, final int y) {
+    return (this.occupiedMask() & Sectors.bit(x, y)) != 0L;
+  }
+
+  /**
+   * Returns if anything in this {@link Quadrant} has changed since it was constructed: an entity
+   * moved, scanned, damaged, healed, marked for removal or removed. An unmodified generated
+   * {@link Quadrant} can always be rebuilt from its stream, so a {@link Galaxy} is free to drop it.
+   *
+   * @return if this {@link Quadrant} has changed since it was constructed.
+   */
+  public boolean isModified() {
+    return this.stars.modCount() != 0 || this.klingons.modCount() != 0
+        || this.starbases.modCount() != 0;
+  }
+
+  /**
+   * Returns how many changes have been made to this {@link Quadrant} since it was constructed. The
+   * count only goes up, so comparing it with an earlier value tells if anything changed since.
+   *
+   * @return the number of changes made.
+   */
+  public int modCount() {
+    return this.stars.modCount() + this.klingons.modCount() + this.starbases.modCount();
+  }
+
+  /**
+   * Treats this {@link Quadrant} as unmodified from now on, for a
+   * {@link sttrswing.model.interfaces.QuadrantSource} that has just placed its entities and can
+   * build it again exactly, so a {@link Galaxy} is free to drop it.
+   */
+  public void markUnmodified() {
+    this.resetModified();
+  }
+
+  private void resetModified() {
+    this.stars.resetModCount();
+    this.klingons.resetModCount();
+    this.starbases.resetModCount();
+  }
+
+  /**
+   * Returns the counts of {@link Star}s, {@link Starbase}s and {@link Klingon}s in this
+   * {@link Quadrant} packed into one int, see {@link Composition}.
+   *
+   * @return the packed composition of this {@link Quadrant}.
+   */
+  public int composition() {
+    return Composition.pack(this.starCount(), this.starbaseCount(), this.klingonCount());
+  }
+
+  /**
+   * Sets who should be told when {@link Klingon}s, {@link Starbase}s or {@link Star}s are removed
+   * from this {@link Quadrant}. Only one listener is kept; pass null to stop notifications.
+   *
+   * @param listener - the listener to notify, typically the owning {@link Galaxy}.
+   */
+  public void setCompositionListener(final CompositionListener listener) {
+    this.compositionListener = listener;
+  }
+
+  /**
+   * Returns views of the {@link Klingon}s in this {@link Quadrant}. The list is a fresh copy, but
+   * the {@link Klingon}s in it write straight through to this {@link Quadrant}.
+   *
+   * @return views of the {@link Klingon}s in this {@link Quadrant}.
+   */
   public List<Klingon> klingons() {
-    return this.klingons;
+    return views(this.klingons);
   }
 
+  /**
+   * Returns views of the {@link Star}s in this {@link Quadrant}.
+   *
+   * @return views of the {@link Star}s in this {@link Quadrant}.
+   */
   public List<Star> stars() {
-    return this.stars;
+    return views(this.stars);
   }
 
+  /**
+   * Returns views of the {@link Starbase}s in this {@link Quadrant}. The list is a fresh copy,
+   * but the {@link Starbase}s in it write straight through to this {@link Quadrant}.
+   *
+   * @return views of the {@link Starbase}s in this {@link Quadrant}.
+   */
   public List<Starbase> starbases() {
-    return this.starbases;
+    return views(this.starbases);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Entity> ArrayList<T> views(final EntityStore store) {
+    final ArrayList<T> list = new ArrayList<>(store.size());
+    for (int slot = 0; slot < store.size(); slot += 1) {
+      list.add((T) store.view(slot));
+    }
+    return list;
   }
 
   /**
@@ -230,20 +404,17 @@ public class Quadrant implements Hittable, HasPosition {
    * @return 3 character {@link String} symbol.
    */
   public String getSymbolAt(final int x, final int y) {
-    for (Star star : stars) {
-      if (star.getX() == x && star.getY() == y) {
-        return star.symbol();
-      }
+    int slot = this.stars.slotAt(x, y);
+    if (slot >= 0) {
+      return this.stars.view(slot).symbol();
     }
-    for (Klingon ship : klingons) {
-      if (ship.getX() == x && ship.getY() == y) {
-        return ship.symbol();
-      }
+    slot = this.klingons.slotAt(x, y);
+    if (slot >= 0) {
+      return this.klingons.view(slot).symbol();
     }
-    for (Starbase starbase : starbases) {
-      if (starbase.getX() == x && starbase.getY() == y) {
-        return starbase.symbol();
-      }
+    slot = this.starbases.slotAt(x, y);
+    if (slot >= 0) {
+      return this.starbases.view(slot).symbol();
     }
     return "   ";
   }
@@ -257,22 +428,19 @@ public class Quadrant implements Hittable, HasPosition {
    * return that, otherwise return null.
    */
   public Entity getEntityAt(final int x, final int y) {
-    for (Starbase starbase : this.starbases) {
-      if (starbase.getX() == x && starbase.getY() == y) {
-        return starbase;
-      }
+    if (!this.isOccupied(x, y)) {
+      return null;
     }
-    for (Entity star : this.stars) {
-      if (star.getX() == x && star.getY() == y) {
-        return star;
-      }
+    int slot = this.starbases.slotAt(x, y);
+    if (slot >= 0) {
+      return this.starbases.view(slot);
     }
-    for (Klingon klingon : this.klingons) {
-      if (klingon.getX() == x && klingon.getY() == y) {
-        return klingon;
-      }
+    slot = this.stars.slotAt(x, y);
+    if (slot >= 0) {
+      return this.stars.view(slot);
     }
-    return null;
+    slot = this.klingons.slotAt(x, y);
+    return slot >= 0 ? this.klingons.view(slot) : null;
   }
 
   /**
@@ -281,13 +449,7 @@ public class Quadrant implements Hittable, HasPosition {
    * @return how many {@link Klingon}s are currently marked for removal.
    */
   public int klingonsMarkedForRemovalCount() {
-    int totalDestroyed = 0;
-    for (Klingon klingon : this.klingons) {
-      if (klingon.isMarkedForRemoval()) {
-        totalDestroyed += 1;
-      }
-    }
-    return totalDestroyed;
+    return this.klingons.countFlagged(EntityStore.removedFlag);
   }
 
   @Override
@@ -302,15 +464,9 @@ public class Quadrant implements Hittable, HasPosition {
    * Scan every {@link Klingon}, {@link Starbase} and {@link Star} in this {@link Quadrant}.
    */
   public void scan() {
-    for (Klingon klingon : this.klingons) {
-      klingon.scan();
-    }
-    for (Starbase starbase : this.starbases) {
-      starbase.scan();
-    }
-    for (Star star : this.stars) {
-      star.scan();
-    }
+    this.klingons.setFlagOnAll(EntityStore.scannedFlag);
+    this.starbases.setFlagOnAll(EntityStore.scannedFlag);
+    this.stars.setFlagOnAll(EntityStore.scannedFlag);
   }
 
   /**
@@ -329,11 +485,7 @@ public class Quadrant implements Hittable, HasPosition {
    * @return a {@link String} representation of the {@link Quadrant}
    */
   public String symbol() {
-    final int starCount = this.starCount();
-    final int starbaseCount = this.starbaseCount();
-    final int klingonCount = this.klingonCount();
-
-    return String.format("%d%d%d", starCount, starbaseCount, klingonCount);
+    return Composition.symbol(this.composition());
   }
 
   /**
@@ -344,12 +496,13 @@ public class Quadrant implements Hittable, HasPosition {
    */
   public void tick(final Game game) {
     Enterprise enterprise = game.getEnterprise();
-    for (Starbase starbase : this.starbases) {
+    final ArrayList<Starbase> starbases = views(this.starbases);
+    for (Starbase starbase : starbases) {
       starbase.attemptHeal(enterprise);
     }
     int totalDamage = 0;
-    for (Klingon klingon : this.klingons) {
-      boolean isDocked = enterprise.docked((ArrayList<Starbase>) this.starbases);
+    final boolean isDocked = enterprise.docked(starbases);
+    for (Klingon klingon : this.klingons()) {
       if (isDocked) {
         System.out.println("ship was docked with a nearby starbase and thus safe from attack!");
       } else if (this.isAlignedWithEnterprise(klingon, enterprise)) {
@@ -384,22 +537,13 @@ public class Quadrant implements Hittable, HasPosition {
   }
 
   private boolean hasBlockingObstacle(final Klingon klingon, final Enterprise enterprise) {
-    final int stepX = Integer.compare(enterprise.getX(), klingon.getX());
-    final int stepY = Integer.compare(enterprise.getY(), klingon.getY());
-
-    int x = klingon.getX() + stepX;
-    int y = klingon.getY() + stepY;
-
-    while (x != enterprise.getX() || y != enterprise.getY()) {
-      Entity entity = this.getEntityAt(x, y);
-      if (entity instanceof Star || entity instanceof Starbase) {
-        return true;
-      }
-      x += stepX;
-      y += stepY;
+    if (!Sectors.inBounds(klingon.getX(), klingon.getY())
+        || !Sectors.inBounds(enterprise.getX(), enterprise.getY())) {
+      return false;
     }
-
-    return false;
+    final long path = Sectors.between(Sectors.index(klingon.getX(), klingon.getY()),
+        Sectors.index(enterprise.getX(), enterprise.getY()));
+    return (path & (this.stars.mask() | this.starbases.mask())) != 0L;
   }
 
   /**
@@ -411,15 +555,152 @@ public class Quadrant implements Hittable, HasPosition {
    * @param game - game state we want to manipulate
    */
   public void outOfFocusTick(final Game game) {
-    for (Starbase starbase : this.starbases) {
-      if (this.klingonCount() > 2) {
-        starbase.hit(1);
+    this.simulateOutOfFocus(1);
+  }
+
+  /**
+   * Returns the galaxy turn this {@link Quadrant}'s out-of-focus effects have been applied up to,
+   * see {@link #catchUp(int)}.
+   *
+   * @return the last turn simulated.
+   */
+  public int simulatedTurn() {
+    return this.simulatedTurn;
+  }
+
+  /**
+   * Records that this {@link Quadrant} is up to date at the given turn without applying anything,
+   * e.g. because the player was in it and it was ticked with {@link #tick(Game)} instead.
+   *
+   * @param turn - the galaxy turn this {@link Quadrant} is now up to date with.
+   */
+  public void markSimulated(final int turn) {
+    this.simulatedTurn = turn;
+  }
+
+  /**
+   * Applies every {@link #outOfFocusTick(Game)} between the last simulated turn and the given turn
+   * in one step. Out of focus nothing moves and no {@link Klingon} is removed, so each turn has the
+   * same effect and the result is exactly what ticking turn by turn would give.
+   *
+   * @param turn - the galaxy turn to bring this {@link Quadrant} up to.
+   */
+  public void catchUp(final int turn) {
+    if (turn > this.simulatedTurn) {
+      this.simulateOutOfFocus(turn - this.simulatedTurn);
+    }
+    this.simulatedTurn = Math.max(this.simulatedTurn, turn);
+  }
+
+  /**
+   * Returns if an out-of-focus tick would change this {@link Quadrant}: it has a starbase and is
+   * either besieged or has a starbase below full energy. Catching up one that does not is a no-op
+   * however many turns it missed.
+   */
+  boolean changesOutOfFocus() {
+    if (this.starbases.size() == 0) {
+      return false;
+    }
+    if (this.klingonCount() > 2) {
+      return true;
+    }
+    for (int slot = 0; slot < this.starbases.size(); slot += 1) {
+      if (this.starbases.energy(slot) < Starbase.maxEnergy) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void simulateOutOfFocus(final int turns) {
+    // same as Starbase.hit(1) / Starbase.heal(10) per turn, applied to the store without building
+    // views; energy is clamped to 0..max, so past max + 1 turns every starbase has saturated
+    final int effectiveTurns = Math.min(turns, Starbase.maxEnergy + 1);
+    final boolean besieged = this.klingonCount() > 2;
+    for (int slot = 0; slot < this.starbases.size(); slot += 1) {
+      if (besieged) {
+        this.starbases.adjustEnergy(slot, -outOfFocusDrain * effectiveTurns);
+        if (this.starbases.energy(slot) < 1) {
+          this.starbases.setFlag(slot, EntityStore.removedFlag);
+        }
       } else {
-        starbase.heal(10);
+        this.starbases.adjustEnergy(slot, outOfFocusHeal * effectiveTurns);
       }
     }
   }
 
+  /**
+   * Places an entity with the given state on an empty sector, e.g. when restoring a saved game.
+   *
+   * @param type   - kind of entity to place.
+   * @param x      - horizontal sector coordinate.
+   * @param y      - vertical sector coordinate.
+   * @param energy - energy reserve, clamped to the bounds for that kind of entity.
+   * @param flags  - flag bits, see {@link EntityStore#scannedFlag} and
+   *               {@link EntityStore#removedFlag}.
+   * @throws IllegalArgumentException if the sector is out of bounds or already occupied.
+   */
+  public void place(final EntityType type, final int x, final int y, final int energy,
+      final int flags) {
+    if (!Sectors.inBounds(x, y) || this.isOccupied(x, y)) {
+      throw new IllegalArgumentException("Sector " + x + "," + y + " is not free");
+    }
+    this.store(type).add(x, y, energy, flags);
+    if (this.compositionListener != null) {
+      this.compositionListener.compositionChanged(this,
+          type == EntityType.STAR ? 1 : 0,
+          type == EntityType.STARBASE ? 1 : 0,
+          type == EntityType.KLINGON ? 1 : 0);
+    }
+  }
+
+  private EntityStore store(final EntityType type) {
+    return switch (type) {
+      case STAR -> this.stars;
+      case STARBASE -> this.starbases;
+      case KLINGON -> this.klingons;
+    };
+  }
+
+  /**
+   * Sends this {@link Quadrant}'s record and the records of all its entities to the sink,
+   * starbases first, then {@link Klingon}s, then {@link Star}s.
+   *
+   * @param sink - where to send the records.
+   */
+  public void export(final GameRecordSink sink) {
+    sink.quadrant(this.getX(), this.getY(), this.starCount(), this.starbaseCount(),
+        this.klingonCount());
+    for (EntityStore store : new EntityStore[] {this.starbases, this.klingons, this.stars}) {
+      for (int slot = 0; slot < store.size(); slot += 1) {
+        sink.entity(store.type(), store.x(slot), store.y(slot), store.energy(slot),
+            store.flags(slot));
+      }
+    }
+  }
+
+  /**
+   * Returns an immutable copy of this {@link Quadrant} with the exact state of every entity, in
+   * the same order as {@link #export(GameRecordSink)}, and the turn it has been simulated to if
+   * catching it up would change it (see {@link #changesOutOfFocus()}).
+   *
+   * @return a snapshot of this {@link Quadrant}.
+   */
+  public QuadrantSnapshot snapshot() {
+    final int[] entities = new int[this.starbases.size() + this.klingons.size()
+        + this.stars.size()];
+    int next = 0;
+    for (EntityStore store : new EntityStore[] {this.starbases, this.klingons, this.stars}) {
+      for (int slot = 0; slot < store.size(); slot += 1) {
+        entities[next] = QuadrantSnapshot.pack(store.type(), store.x(slot), store.y(slot),
+            store.energy(slot), store.flags(slot));
+        next += 1;
+      }
+    }
+    return new QuadrantSnapshot(this.getX(), this.getY(), this.composition(), entities,
+        this.changesOutOfFocus() ? this.simulatedTurn : QuadrantSnapshot.upToDate);
+  }
+
   /**
    * Hit every {@link Hittable} {@link Klingon} in this {@link Quadrant}.
    *
@@ -427,25 +708,20 @@ public class Quadrant implements Hittable, HasPosition {
    */
   @Override
   public void hit(final int damage) {
-    for (Klingon klingon : this.klingons) {
+    for (Klingon klingon : this.klingons()) {
       klingon.hit(damage);
     }
   }
 
   /**
    * Removes any {@link Klingon} and {@link Starbase} that have been marked for removal from their
-   * respective {@link List}. Only public for testing purposes.
+   * respective stores. Only public for testing purposes.
    */
   public void cleanup() {
-    for (int i = this.klingons.size() - 1; i >= 0; i -= 1) {
-      if (this.klingons.get(i).isMarkedForRemoval()) {
-        this.klingons.remove(i);
-      }
-    }
-    for (int i = this.starbases.size() - 1; i >= 0; i -= 1) {
-      if (this.starbases.get(i).isMarkedForRemoval()) {
-        this.starbases.remove(i);
-      }
+    final int klingonDelta = -this.klingons.removeMarked();
+    final int starbaseDelta = -this.starbases.removeMarked();
+    if (this.compositionListener != null && (klingonDelta != 0 || starbaseDelta != 0)) {
+      this.compositionListener.compositionChanged(this, 0, starbaseDelta, klingonDelta);
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,259 @@
+package sttrswing.model;
+
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.interfaces.GameRecordSink;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * An immutable copy of one {@link Quadrant}: its galaxy coordinates, its composition and, when
+ * known, the exact position, energy and flags of every entity in it. A snapshot taken from a live
+ * {@link Quadrant} always holds its entities; one read from an older save may only hold the
+ * counts, in which case {@link #toQuadrant(long)} places them at random as loading always did.
+ *
+ * <p>Each entity is packed into one int: bits 0-5 the sector index (see {@link Sectors}), bits
+ * 6-7 the flags, bits 8-9 the {@link EntityType} ordinal and bits 16-31 the energy.</p>
+ *
+ * <p>A snapshot taken in {@link sttrswing.model.enums.TickMode#CATCH_UP} mode may lag behind the
+ * galaxy turn of the {@link GameSnapshot} holding it, so it also keeps the turn its quadrant had
+ * been simulated to (see {@link Quadrant#catchUp(int)}); {@link #caughtUp(int, long)} applies the
+ * turns it missed. Two snapshots are equal if they hold the same entities, whatever that turn.</p>
+ */
+public final class QuadrantSnapshot {
+
+  private static final int flagShift = 6;
+  private static final int typeShift = 8;
+  private static final int energyShift = 16;
+  private static final EntityType[] types = EntityType.values();
+
+  /**
+   * Simulated turn of a snapshot that is up to date at any turn, because it was taken with every
+   * quadrant caught up or catching it up would not change it.
+   */
+  static final int upToDate = -1;
+
+  private final int x;
+  private final int y;
+  private final int composition; // see Composition
+  private final int[] entities; // packed entities, starbases, Klingons, then stars; null if unknown
+  private final int simulatedTurn; // turn the quadrant had been simulated to, or upToDate
+
+  /**
+   * Constructs a snapshot that is up to date from packed entities, see
+   * {@link #QuadrantSnapshot(int, int, int, int[], int)}.
+   */
+  QuadrantSnapshot(final int x, final int y, final int composition, final int[] entities) {
+    this(x, y, composition, entities, upToDate);
+  }
+
+  /**
+   * Constructs a snapshot from packed entities, checking that they fit the quadrant and do not
+   * share a sector. The array is kept, not copied.
+   */
+  QuadrantSnapshot(final int x, final int y, final int composition, final int[] entities,
+      final int simulatedTurn) {
+    if (entities != null) {
+      long occupied = 0L;
+      int stars = 0;
+      int starbases = 0;
+      int klingons = 0;
+      for (int entity : entities) {
+        final long bit = 1L << (entity & 63);
+        if ((occupied & bit) != 0L) {
+          throw new IllegalArgumentException("Quadrant " + x + "," + y
+              + " has two entities in sector " + Sectors.x(entity & 63) + ","
+              + Sectors.y(entity & 63));
+        }
+        occupied |= bit;
+        switch (type(entity)) {
+          case STAR -> stars += 1;
+          case STARBASE -> starbases += 1;
+          case KLINGON -> klingons += 1;
+        }
+      }
+      if (Composition.pack(stars, starbases, klingons) != composition) {
+        throw new IllegalArgumentException("Entity records of quadrant " + x + "," + y
+            + " do not match its counts");
+      }
+    }
+    this.x = x;
+    this.y = y;
+    this.composition = composition;
+    this.entities = entities;
+    this.simulatedTurn = simulatedTurn;
+  }
+
+  /**
+   * Packs one entity the way a snapshot stores it.
+   *
+   * @throws IllegalArgumentException if the sector is out of bounds.
+   */
+  static int pack(final EntityType type, final int x, final int y, final int energy,
+      final int flags) {
+    if (!Sectors.inBounds(x, y)) {
+      throw new IllegalArgumentException("Sector " + x + "," + y + " is out of bounds");
+    }
+    return Sectors.index(x, y)
+        | (flags & (EntityStore.scannedFlag | EntityStore.removedFlag)) << flagShift
+        | type.ordinal() << typeShift
+        | (energy & 0xFFFF) << energyShift;
+  }
+
+  private static EntityType type(final int entity) {
+    return types[(entity >>> typeShift) & 3];
+  }
+
+  /**
+   * Returns the horizontal galaxy coordinate of the {@link Quadrant}.
+   *
+   * @return the horizontal galaxy coordinate.
+   */
+  public int getX() {
+    return this.x;
+  }
+
+  /**
+   * Returns the vertical galaxy coordinate of the {@link Quadrant}.
+   *
+   * @return the vertical galaxy coordinate.
+   */
+  public int getY() {
+    return this.y;
+  }
+
+  /**
+   * Returns the counts of each kind of entity packed into one int, see {@link Composition}.
+   *
+   * @return the packed composition.
+   */
+  public int composition() {
+    return this.composition;
+  }
+
+  /**
+   * Returns if this snapshot holds the exact state of every entity, rather than only the counts.
+   *
+   * @return if the entities are known.
+   */
+  public boolean isExact() {
+    return this.entities != null;
+  }
+
+  /**
+   * Returns if this snapshot holds exactly the {@link Quadrant} the given seed generates at its
+   * coordinates, i.e. nothing in it has changed since the galaxy was generated. The composition is
+   * compared first, so most changed quadrants are told apart without generating their entities.
+   *
+   * @param seed - the galaxy seed.
+   * @return true if the seed generates this exact quadrant.
+   */
+  public boolean isGenerated(final long seed) {
+    if (this.entities == null || this.composition
+        != Quadrant.generateComposition(GameRandom.forQuadrant(seed, this.x, this.y))) {
+      return false;
+    }
+    return this.equals(new Quadrant(this.x, this.y, GameRandom.forQuadrant(seed, this.x, this.y))
+        .snapshot());
+  }
+
+  /**
+   * Returns if every starbase in this snapshot is known to be at full energy, see
+   * {@link sttrswing.model.interfaces.QuadrantSource#isSettled(int, int)}.
+   */
+  boolean isSettled() {
+    if (Composition.starbases(this.composition) == 0) {
+      return true;
+    }
+    if (this.entities == null) {
+      return true; // counts-only starbases are placed at full energy
+    }
+    for (int entity : this.entities) {
+      if (type(entity) == EntityType.STARBASE && entity >>> energyShift < Starbase.maxEnergy) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the turn this snapshot's quadrant had been simulated to, held in a
+   * {@link GameSnapshot} of the given galaxy turn.
+   */
+  int simulatedTurn(final int turn) {
+    return this.simulatedTurn == upToDate ? turn : Math.min(this.simulatedTurn, turn);
+  }
+
+  /**
+   * Returns this snapshot with the out-of-focus turns it missed up to the given galaxy turn
+   * applied, this one if it missed none.
+   */
+  QuadrantSnapshot caughtUp(final int turn, final long seed) {
+    if (this.simulatedTurn(turn) == turn) {
+      return this;
+    }
+    final Quadrant quadrant = this.toQuadrant(seed);
+    quadrant.markSimulated(this.simulatedTurn);
+    quadrant.catchUp(turn);
+    return quadrant.snapshot();
+  }
+
+  /**
+   * Builds a new {@link Quadrant} from this snapshot, with every entity exactly where it was. The
+   * {@link Quadrant}'s own stream, and the placement of entities only known by their counts, come
+   * from {@link GameRandom#forQuadrant(long, int, int)} with the given seed, so the same snapshot
+   * and seed always build the same {@link Quadrant}.
+   *
+   * @param seed - the galaxy seed.
+   * @return a new {@link Quadrant}.
+   */
+  public Quadrant toQuadrant(final long seed) {
+    final SplittableRandom random = GameRandom.forQuadrant(seed, this.x, this.y);
+    if (this.entities == null) {
+      return new Quadrant(this.x, this.y, Composition.starbases(this.composition),
+          Composition.klingons(this.composition), Composition.stars(this.composition), random);
+    }
+    final Quadrant quadrant = new Quadrant(this.x, this.y, 0, 0, 0, random);
+    for (int entity : this.entities) {
+      final int sector = entity & 63;
+      quadrant.place(type(entity), Sectors.x(sector), Sectors.y(sector), entity >>> energyShift,
+          (entity >>> flagShift) & 3);
+    }
+    return quadrant;
+  }
+
+  /**
+   * Sends this snapshot's quadrant record, then its entity records if they are known, to the sink.
+   *
+   * @param sink - where to send the records.
+   */
+  public void export(final GameRecordSink sink) {
+    sink.quadrant(this.x, this.y, Composition.stars(this.composition),
+        Composition.starbases(this.composition), Composition.klingons(this.composition));
+    if (this.entities == null) {
+      return;
+    }
+    for (int entity : this.entities) {
+      final int sector = entity & 63;
+      sink.entity(type(entity), Sectors.x(sector), Sectors.y(sector), entity >>> energyShift,
+          (entity >>> flagShift) & 3);
+    }
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof QuadrantSnapshot)) {
+      return false;
+    }
+    final QuadrantSnapshot that = (QuadrantSnapshot) other;
+    return this.x == that.x && this.y == that.y && this.composition == that.composition
+        && Arrays.equals(this.entities, that.entities);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * (31 * this.x + this.y) + this.composition) + Arrays.hashCode(this.entities);
+  }
+}
@@ -0,0 +1,184 @@
+package sttrswing.model;
+
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A persistent array of {@link QuadrantSnapshot}s, indexed like a {@link Galaxy} ({@code y * width
+ * + x}). It is a trie with 32 slots per node, so replacing one entry copies only the handful of
+ * nodes on the way to it and shares everything else with the trie it came from. Many versions of a
+ * large galaxy that differ in a few quadrants each therefore cost little more than one.
+ */
+final class QuadrantTrie {
+
+  private static final int bits = 5;
+  private static final int width = 1 << bits; // slots per node
+  private static final int mask = width - 1;
+
+  private final int size;
+  private final int shift; // bits to shift an index by to find its slot in the root
+  private final Object[] root; // inner nodes hold Object[] children, leaves hold snapshots
+
+  private QuadrantTrie(final int size, final int shift, final Object[] root) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+  }
+
+  /**
+   * Builds a trie holding the given entries, null where there is no quadrant.
+   */
+  static QuadrantTrie of(final QuadrantSnapshot[] entries) {
+    int shift = 0;
+    while ((long) width << shift < entries.length) {
+      shift += bits;
+    }
+    return new QuadrantTrie(entries.length, shift, build(entries, 0, shift));
+  }
+
+  private static Object[] build(final QuadrantSnapshot[] entries, final int start,
+      final int shift) {
+    final Object[] node = new Object[width];
+    if (shift == 0) {
+      System.arraycopy(entries, start, node, 0, Math.min(width, entries.length - start));
+      return node;
+    }
+    for (int slot = 0; slot < width; slot += 1) {
+      final int childStart = start + (slot << shift);
+      if (childStart >= entries.length) {
+        break;
+      }
+      node[slot] = build(entries, childStart, shift - bits);
+    }
+    return node;
+  }
+
+  /**
+   * Returns how many entries the trie holds, including empty ones.
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the entry at the given index, null if there is no quadrant there.
+   */
+  QuadrantSnapshot get(final int index) {
+    Object[] node = this.root;
+    for (int shift = this.shift; shift > 0; shift -= bits) {
+      node = (Object[]) node[(index >>> shift) & mask];
+    }
+    return (QuadrantSnapshot) node[index & mask];
+  }
+
+  /**
+   * Returns a trie like this one but with the entry at the given index replaced, sharing every
+   * node off the path to it. This trie is not changed.
+   */
+  QuadrantTrie with(final int index, final QuadrantSnapshot entry) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index " + index + " is outside the trie");
+    }
+    return new QuadrantTrie(this.size, this.shift, with(this.root, this.shift, index, entry));
+  }
+
+  private static Object[] with(final Object[] node, final int shift, final int index,
+      final QuadrantSnapshot entry) {
+    final Object[] copy = node.clone();
+    final int slot = (index >>> shift) & mask;
+    if (shift == 0) {
+      copy[slot] = entry;
+    } else {
+      copy[slot] = with((Object[]) node[slot], shift - bits, index, entry);
+    }
+    return copy;
+  }
+
+  /**
+   * Sends the index of every entry that is a different object in the other trie, which must be
+   * the same size. Subtrees the two share are skipped without being looked at, so comparing two
+   * versions of one trie costs in proportion to how much they differ.
+   */
+  void forEachDifference(final QuadrantTrie other, final IntConsumer action) {
+    if (other.size != this.size) {
+      throw new IllegalArgumentException("Tries of different sizes cannot be compared");
+    }
+    differences(this.root, other.root, this.shift, 0, action);
+  }
+
+  private static void differences(final Object[] a, final Object[] b, final int shift,
+      final int start, final IntConsumer action) {
+    if (a == b) {
+      return;
+    }
+    for (int slot = 0; slot < width; slot += 1) {
+      if (a[slot] == b[slot]) {
+        continue;
+      }
+      if (shift == 0) {
+        action.accept(start + slot);
+      } else {
+        differences((Object[]) a[slot], (Object[]) b[slot], shift - bits,
+            start + (slot << shift), action);
+      }
+    }
+  }
+
+  /**
+   * Sends every entry in index order, skipping the empty ones.
+   */
+  void forEach(final Consumer<QuadrantSnapshot> action) {
+    forEach(this.root, this.shift, action);
+  }
+
+  private static void forEach(final Object[] node, final int shift,
+      final Consumer<QuadrantSnapshot> action) {
+    for (Object child : node) {
+      if (child == null) {
+        continue;
+      }
+      if (shift == 0) {
+        action.accept((QuadrantSnapshot) child);
+      } else {
+        forEach((Object[]) child, shift - bits, action);
+      }
+    }
+  }
+
+  /**
+   * Returns if both tries hold entries the given test finds equal at every index. Shared subtrees,
+   * and entries that are the same object, are equal without being looked at.
+   */
+  boolean contentEquals(final QuadrantTrie other,
+      final BiPredicate<QuadrantSnapshot, QuadrantSnapshot> equal) {
+    if (other.size != this.size) {
+      return false;
+    }
+    return contentEquals(this.root, other.root, this.shift, equal);
+  }
+
+  private static boolean contentEquals(final Object[] a, final Object[] b, final int shift,
+      final BiPredicate<QuadrantSnapshot, QuadrantSnapshot> test) {
+    if (a == b) {
+      return true;
+    }
+    for (int slot = 0; slot < width; slot += 1) {
+      final Object left = a[slot];
+      final Object right = b[slot];
+      if (left == right) {
+        continue;
+      }
+      if (left == null || right == null) {
+        return false;
+      }
+      final boolean equal = shift == 0
+          ? test.test((QuadrantSnapshot) left, (QuadrantSnapshot) right)
+          : contentEquals((Object[]) left, (Object[]) right, shift - bits, test);
+      if (!equal) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
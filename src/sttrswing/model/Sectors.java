@@ -0,0 +1,193 @@
+package sttrswing.model;
+
+/**
+ * Helpers for treating the 8x8 sectors of a {@link Quadrant} as the 64 bits of a {@code long}
+ * (a bitboard). The sector at x,y maps to bit {@code y * 8 + x}, so bit 0 is the top left sector
+ * and bit 63 the bottom right.
+ *
+ * <p>For line of sight and torpedo tracing it also keeps a table of rays: for every sector and
+ * each of the 8 compass directions, the mask of sectors from (not including) that sector to the
+ * edge of the {@link Quadrant}. Directions are numbered 0-7 in course order (course 1 is direction
+ * 0): east, north east, north, north west, west, south west, south, south east.</p>
+ */
+public final class Sectors {
+
+  /**
+   * Number of sectors along each side of a {@link Quadrant}.
+   */
+  public static final int size = 8;
+
+  /**
+   * Number of compass directions a ray can take.
+   */
+  public static final int directions = 8;
+
+  // x and y steps for each direction, in course order (y grows downwards)
+  private static final int[] directionX = {1, 1, 0, -1, -1, -1, 0, 1};
+  private static final int[] directionY = {0, -1, -1, -1, 0, 1, 1, 1};
+
+  // rays[index][direction]: sectors from index (exclusive) to the edge along direction
+  private static final long[][] rays = new long[size * size][directions];
+
+  static {
+    for (int index = 0; index < size * size; index += 1) {
+      for (int direction = 0; direction < directions; direction += 1) {
+        long ray = 0L;
+        int x = x(index) + directionX[direction];
+        int y = y(index) + directionY[direction];
+        while (inBounds(x, y)) {
+          ray |= bit(x, y);
+          x += directionX[direction];
+          y += directionY[direction];
+        }
+        rays[index][direction] = ray;
+      }
+    }
+  }
+
+  private Sectors() {
+  }
+
+  /**
+   * Returns if the given coordinates are inside a {@link Quadrant}.
+   *
+   * @param x - horizontal coordinate
+   * @param y - vertical coordinate
+   * @return if 0 &lt;= x,y &lt; 8.
+   */
+  public static boolean inBounds(final int x, final int y) {
+    return x >= 0 && y >= 0 && x < size && y < size;
+  }
+
+  /**
+   * Returns the bit index for the given sector. The coordinates must be in bounds.
+   *
+   * @param x - horizontal coordinate
+   * @param y - vertical coordinate
+   * @return the bit index {@code y * 8 + x}.
+   */
+  public static int index(final int x, final int y) {
+    return y * size + x;
+  }
+
+  /**
+   * Returns the bitboard with only the given sector set, or 0 if the sector is out of bounds so
+   * that tests against it simply fail.
+   *
+   * @param x - horizontal coordinate
+   * @param y - vertical coordinate
+   * @return a single bit mask for the sector, or 0 when out of bounds.
+   */
+  public static long bit(final int x, final int y) {
+    if (!inBounds(x, y)) {
+      return 0L;
+    }
+    return 1L << index(x, y);
+  }
+
+  /**
+   * Returns the horizontal coordinate of a bit index.
+   *
+   * @param index - bit index between 0 and 63
+   * @return the x coordinate of that sector.
+   */
+  public static int x(final int index) {
+    return index & (size - 1);
+  }
+
+  /**
+   * Returns the vertical coordinate of a bit index.
+   *
+   * @param index - bit index between 0 and 63
+   * @return the y coordinate of that sector.
+   */
+  public static int y(final int index) {
+    return index >>> 3;
+  }
+
+  /**
+   * Returns the index of the n-th (counting from 0) set bit of the given mask, lowest bit first.
+   *
+   * @param mask - mask to search
+   * @param n    - which set bit we want, must be less than {@code Long.bitCount(mask)}
+   * @return the bit index of the n-th set bit.
+   */
+  public static int nthSetBit(final long mask, final int n) {
+    long remaining = mask;
+    for (int i = 0; i < n; i += 1) {
+      remaining &= remaining - 1; // drop the lowest set bit
+    }
+    return Long.numberOfTrailingZeros(remaining);
+  }
+
+  /**
+   * Returns the direction (0-7, see {@link Sectors}) of a single step, or -1 if the step is not
+   * one of the 8 compass directions.
+   *
+   * @param stepX - horizontal step, -1, 0 or 1
+   * @param stepY - vertical step, -1, 0 or 1
+   * @return the direction of the step, or -1.
+   */
+  public static int direction(final int stepX, final int stepY) {
+    for (int direction = 0; direction < directions; direction += 1) {
+      if (directionX[direction] == stepX && directionY[direction] == stepY) {
+        return direction;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the mask of sectors from the given sector (not included) to the edge of the
+   * {@link Quadrant} along the given direction.
+   *
+   * @param index     - bit index of the starting sector
+   * @param direction - direction between 0 and 7
+   * @return the ray mask.
+   */
+  public static long ray(final int index, final int direction) {
+    return rays[index][direction];
+  }
+
+  /**
+   * Returns the mask of sectors strictly between two sectors, or 0 if they do not share a row,
+   * column or diagonal.
+   *
+   * @param from - bit index of one end
+   * @param to   - bit index of the other end
+   * @return the mask of sectors between the two.
+   */
+  public static long between(final int from, final int to) {
+    final int direction = direction(Integer.signum(x(to) - x(from)),
+        Integer.signum(y(to) - y(from)));
+    if (direction < 0) {
+      return 0L;
+    }
+    final long ray = rays[from][direction];
+    if ((ray & (1L << to)) == 0L) {
+      return 0L; // roughly that way, but not on the same line
+    }
+    return ray & ~rays[to][direction] & ~(1L << to);
+  }
+
+  /**
+   * Returns the first sector in the given mask along a ray, i.e. the nearest one to the starting
+   * sector, or -1 if the ray meets nothing.
+   *
+   * @param index     - bit index of the starting sector
+   * @param direction - direction between 0 and 7
+   * @param occupied  - mask of sectors that stop the ray
+   * @return the bit index of the first sector hit, or -1.
+   */
+  public static int firstHit(final int index, final int direction, final long occupied) {
+    final long hits = rays[index][direction] & occupied;
+    if (hits == 0L) {
+      return -1;
+    }
+    // bit indices grow along rays heading east or south, and shrink along the others
+    if (directionY[direction] * size + directionX[direction] > 0) {
+      return Long.numberOfTrailingZeros(hits);
+    }
+    return 63 - Long.numberOfLeadingZeros(hits);
+  }
+}
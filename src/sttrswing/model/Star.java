@@ -17,9 +17,19 @@ public class Star extends Entity implements HasFaction {
    * @param y - vertical coordinate
    */
   public Star(final int x, final int y) {
-    super(x, y);
+    super(x, y, 0, 0, EntityStore.scannedFlag);
+    this.setSymbol(" * ");
+  }
+
+  /**
+   * Constructs a {@link Star} view onto a slot of a {@link Quadrant}'s {@link EntityStore}.
+   *
+   * @param store - the store holding the {@link Star}
+   * @param slot  - the slot of the {@link Star} in the store
+   */
+  Star(final EntityStore store, final int slot) {
+    super(store, slot);
     this.setSymbol(" * ");
-    this.scan();
   }
 
   /**
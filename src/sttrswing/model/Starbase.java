@@ -11,9 +11,7 @@ import sttrswing.model.interfaces.Hittable;
  */
 public class Starbase extends Entity implements Hittable, HasFaction, Healable {
 
-  private final int maxEnergy = 300;
-  private final Stat energy = new Stat(maxEnergy, maxEnergy);
-  private Faction faction = Faction.NEUTRAL;
+  public static final int maxEnergy = 300; // starting and maximum energy reserve
 
   /**
    * Constructs a {@link Starbase} instance at the given coordinates.
@@ -22,18 +20,29 @@ public class Starbase extends Entity implements Hittable, HasFaction, Healable {
    * @param y - vertical coordinate
    */
   public Starbase(final int x, final int y) {
-    super(x, y);
+    super(x, y, maxEnergy, maxEnergy, 0);
     this.setSymbol("[S]");
   }
 
   /**
-   * Return the {@link Faction} this appears to belong to.
+   * Constructs a {@link Starbase} view onto a slot of a {@link Quadrant}'s {@link EntityStore}.
+   *
+   * @param store - the store holding the {@link Starbase}
+   * @param slot  - the slot of the {@link Starbase} in the store
+   */
+  Starbase(final EntityStore store, final int slot) {
+    super(store, slot);
+    this.setSymbol("[S]");
+  }
+
+  /**
+   * Return the {@link Faction} this appears to belong to, neutral until it has been scanned.
    *
    * @return the {@link Faction} this appears to belong to.
    */
   @Override
   public Faction faction() {
-    return faction;
+    return this.isScanned() ? Faction.FEDERATION : Faction.NEUTRAL;
   }
 
   /**
@@ -49,7 +58,7 @@ public class Starbase extends Entity implements Hittable, HasFaction, Healable {
     if (!this.isScanned()) {
       return " ? ";
     }
-    if (this.energy.get() > 0) {
+    if (this.storedEnergy() > 0) {
       return "[S]";
     }
     return "|s|";
@@ -63,8 +72,8 @@ public class Starbase extends Entity implements Hittable, HasFaction, Healable {
    */
   @Override
   public void hit(final int damage) {
-    this.energy.adjust(-damage);
-    if (this.energy.get() < 1) {
+    this.adjustStoredEnergy(-damage);
+    if (this.storedEnergy() < 1) {
       this.remove();
     }
   }
@@ -81,20 +90,11 @@ public class Starbase extends Entity implements Hittable, HasFaction, Healable {
     int deltaX = Math.abs(this.getX() - enterprise.getX());
     int deltaY = Math.abs(this.getY() - enterprise.getY());
     if (deltaX <= 1 && deltaY <= 1 && !(deltaX == 0 && deltaY == 0)) {
-      enterprise.gainEnergy(this.energy.get());
-      this.energy.set(0);
+      enterprise.gainEnergy(this.storedEnergy());
+      this.setStoredEnergy(0);
     }
   }
 
-  /**
-   * Scan this ship and reveal it's {@link Faction}.
-   */
-  @Override
-  public void scan() {
-    super.scan();
-    this.faction = Faction.FEDERATION;
-  }
-
   /**
    * Replenish the starbases energy by the given amount up to it's maximum.
    *
@@ -102,6 +102,6 @@ public class Starbase extends Entity implements Hittable, HasFaction, Healable {
    */
   @Override
   public void heal(int energy) {
-    this.energy.adjust(energy);
+    this.adjustStoredEnergy(energy);
   }
 }
\ No newline at end of file
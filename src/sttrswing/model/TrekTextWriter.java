@@ -0,0 +1,150 @@
+package sttrswing.model;
+
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.interfaces.GameRecordSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the records it is sent as .trek text, one record per line, e.g.
+ * <pre>
+ * [g] w:8 h:8 n:-4311864208421052651 |
+ * [e] x:5 y:6 e:2500 s:500 t:10 |
+ * [c] x:4 y:4 |
+ * [q] x:0 y:0 s:111 |
+ * [b] x:3 y:1 e:300 f:0 |
+ * [k] x:6 y:2 e:200 f:1 |
+ * [s] x:0 y:7 f:1 |
+ * </pre>
+ * Entity records follow the quadrant record they belong to: {@code [b]} for a {@link Starbase},
+ * {@code [k]} for a {@link Klingon} and {@code [s]} for a {@link Star}, with {@code f} holding the
+ * flag bits (see {@link EntityStore#scannedFlag}). The galaxy record {@code [g]} gives the
+ * galaxy's width, height and seed ({@code n}), so a text save resumes the same galaxy; saves
+ * written before it was added are sized from their quadrants and have seed 0.
+ *
+ * <p>Each record is put together in one reused line buffer and handed on straight away, either to
+ * an {@link Appendable} or, through a fixed byte buffer, to a channel, so a save of any size is
+ * written in constant memory. The text is plain ASCII, so it is the same in UTF-8. Call
+ * {@link #flush()} once the last record has been sent. {@link GameRecordSink} methods cannot throw
+ * checked exceptions, so write failures are thrown as {@link UncheckedIOException}.</p>
+ */
+public final class TrekTextWriter implements GameRecordSink {
+
+  private static final int bufferSize = 64 * 1024; // bytes collected before each channel write
+
+  private final Appendable out; // where to append each line, null when writing to a channel
+  private final WritableByteChannel channel;
+  private final ByteBuffer bytes;
+  private final StringBuilder line = new StringBuilder(64); // the record being written
+
+  /**
+   * Constructs a {@link TrekTextWriter} appending to the given builder, writer or other
+   * {@link Appendable}.
+   *
+   * @param out - where to append the text.
+   */
+  public TrekTextWriter(final Appendable out) {
+    this.out = out;
+    this.channel = null;
+    this.bytes = null;
+  }
+
+  /**
+   * Constructs a {@link TrekTextWriter} writing to the given channel. The channel is not closed.
+   *
+   * @param channel - where to write the text.
+   */
+  public TrekTextWriter(final WritableByteChannel channel) {
+    this.out = null;
+    this.channel = channel;
+    this.bytes = ByteBuffer.allocate(bufferSize);
+  }
+
+  @Override
+  public void galaxy(final int width, final int height, final long seed) {
+    this.line.append("[g] w:").append(width).append(" h:").append(height).append(" n:")
+        .append(seed).append(" |\n");
+    this.emit();
+  }
+
+  @Override
+  public void enterprise(final int x, final int y, final int energy, final int shields,
+      final int torpedoes) {
+    this.line.append("[e] x:").append(x).append(" y:").append(y).append(" e:").append(energy)
+        .append(" s:").append(shields).append(" t:").append(torpedoes).append(" |\n");
+    this.emit();
+  }
+
+  @Override
+  public void current(final int x, final int y) {
+    this.line.append("[c] x:").append(x).append(" y:").append(y).append(" |\n");
+    this.emit();
+  }
+
+  @Override
+  public void quadrant(final int x, final int y, final int stars, final int starbases,
+      final int klingons) {
+    this.line.append("[q] x:").append(x).append(" y:").append(y).append(" s:")
+        .append(Composition.symbol(Composition.pack(stars, starbases, klingons))).append(" |\n");
+    this.emit();
+  }
+
+  @Override
+  public void entity(final EntityType type, final int x, final int y, final int energy,
+      final int flags) {
+    this.line.append(switch (type) {
+      case STARBASE -> "[b]";
+      case KLINGON -> "[k]";
+      case STAR -> "[s]";
+    });
+    this.line.append(" x:").append(x).append(" y:").append(y);
+    if (type != EntityType.STAR) {
+      this.line.append(" e:").append(energy);
+    }
+    this.line.append(" f:").append(flags).append(" |\n");
+    this.emit();
+  }
+
+  /**
+   * Writes out everything still buffered for the channel. Nothing is buffered when appending.
+   *
+   * @throws IOException if the channel cannot be written.
+   */
+  public void flush() throws IOException {
+    if (this.channel != null) {
+      this.drain();
+    }
+  }
+
+  /**
+   * Hands the finished line on and empties it for the next record.
+   */
+  private void emit() {
+    try {
+      if (this.channel == null) {
+        this.out.append(this.line);
+      } else {
+        if (this.bytes.remaining() < this.line.length()) {
+          this.drain();
+        }
+        for (int i = 0; i < this.line.length(); i += 1) {
+          this.bytes.put((byte) this.line.charAt(i));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.line.setLength(0);
+  }
+
+  private void drain() throws IOException {
+    this.bytes.flip();
+    while (this.bytes.hasRemaining()) {
+      this.channel.write(this.bytes);
+    }
+    this.bytes.clear();
+  }
+}
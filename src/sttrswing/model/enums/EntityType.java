@@ -0,0 +1,19 @@
+package sttrswing.model.enums;
+
+/**
+ * Enum for the kinds of entity a {@link sttrswing.model.Quadrant} holds.
+ */
+public enum EntityType {
+  /**
+   * A {@link sttrswing.model.Star}, which never moves, fights or heals.
+   */
+  STAR,
+  /**
+   * A {@link sttrswing.model.Starbase}, which can heal the Enterprise and be worn down.
+   */
+  STARBASE,
+  /**
+   * A {@link sttrswing.model.Klingon}, which attacks the Enterprise.
+   */
+  KLINGON
+}
@@ -0,0 +1,17 @@
+package sttrswing.model.enums;
+
+/**
+ * Enum for how a {@link sttrswing.model.Galaxy} simulates the {@link sttrswing.model.Quadrant}s
+ * the player is not in.
+ */
+public enum TickMode {
+  /**
+   * Every out-of-focus {@link sttrswing.model.Quadrant} is ticked on every turn.
+   */
+  EVERY_TURN,
+  /**
+   * Out-of-focus {@link sttrswing.model.Quadrant}s only record the turns that have passed, and
+   * apply them all at once when they are next looked at.
+   */
+  CATCH_UP
+}
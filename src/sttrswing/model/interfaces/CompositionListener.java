@@ -0,0 +1,21 @@
+package sttrswing.model.interfaces;
+
+import sttrswing.model.Quadrant;
+
+/**
+ * Interface for something that wants to be told when the number of stars, starbases or Klingons
+ * in a {@link Quadrant} changes, so it can keep running totals without recounting.
+ */
+public interface CompositionListener {
+
+    /**
+     * Called after the composition of the given {@link Quadrant} has changed.
+     *
+     * @param quadrant      - the {@link Quadrant} that changed.
+     * @param starDelta     - change in the number of stars (negative when removed).
+     * @param starbaseDelta - change in the number of starbases (negative when removed).
+     * @param klingonDelta  - change in the number of Klingons (negative when removed).
+     */
+    public void compositionChanged(Quadrant quadrant, int starDelta, int starbaseDelta,
+            int klingonDelta);
+}
@@ -3,6 +3,9 @@ package sttrswing.model.interfaces;
 import sttrswing.model.Enterprise;
 import sttrswing.model.Galaxy;
 import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -190,19 +193,124 @@ public interface GameModel {
   /**
    * Export out a stringified representation of the internal state of our Game, specifically exports
    * the
-   * {@link Enterprise} x,y,energy, shields, and torpedoes, as well as every {@link sttrswing.model.Quadrant}s
-   * x,y, number of stars, klingons and starbases.
+   * {@link Enterprise} x,y,energy, shields, and torpedoes, the {@link sttrswing.model.Quadrant} the
+   * player is in, as well as every {@link sttrswing.model.Quadrant}s
+   * x,y, number of stars, klingons and starbases, each followed by the position, energy and flags
+   * of its starbases ([b]), klingons ([k]) and stars ([s]).
    * Example output structure:
    * [e] x:5 y:5 e:2500 s:500 t:10 |
+   * [c] x:4 y:4 |
    * [q] x:0 y:0 s:111 |
+   * [b] x:3 y:1 e:300 f:0 |
+   * [k] x:6 y:2 e:200 f:1 |
+   * [s] x:0 y:7 f:1 |
    * [q] x:0 y:1 s:002 |
-   * [q] x:0 y:2 s:110 |
-   * [q] x:0 y:3 s:021 |
-   * [q] x:0 y:4 s:022 |
-   * [q] x:0 y:5 s:120 |
-   * [q] x:0 y:6 s:012 |
+   * [k] x:1 y:5 e:200 f:0 |
+   * [k] x:4 y:4 e:200 f:0 |
    * <p>
    * @return a stringified representation of the internal state of our Game.
    */
   String export();
+
+  /**
+   * Appends the same text as {@link #export()} to the given output record by record, without
+   * ever holding the whole of it.
+   *
+   * @param out where to append the text.
+   * @throws IOException if the output cannot be written.
+   */
+  void export(Appendable out) throws IOException;
+
+  /**
+   * Writes the same text as {@link #export()} to the given channel through a fixed buffer, so the
+   * memory used does not grow with the galaxy. The channel is not closed.
+   *
+   * @param channel where to write the text.
+   * @throws IOException if the channel cannot be written.
+   */
+  void export(WritableByteChannel channel) throws IOException;
+
+  /**
+   * Sends the full state of the game, including every entity's position, energy and flags, to the
+   * given sink, see {@link GameRecordSink} for the order of the records.
+   *
+   * @param sink where to send the records.
+   */
+  void export(GameRecordSink sink);
+
+  /**
+   * Sends the enterprise and current quadrant records, then only the quadrants that have changed
+   * since the last call, so a journal can record each turn at a cost proportional to what changed.
+   *
+   * @param sink where to send the records.
+   */
+  void exportChanges(GameRecordSink sink);
+
+  /**
+   * Returns an immutable copy of the full state of the game, see {@link GameSnapshot}.
+   *
+   * @return a snapshot of the game.
+   */
+  GameSnapshot snapshot();
+
+  /**
+   * Puts the game back into the state held by the snapshot, including the exact position, energy
+   * and flags of every entity and the quadrant the player is in.
+   *
+   * @param snapshot the state to restore.
+   */
+  void restore(GameSnapshot snapshot);
+
+  /**
+   * Puts the game back into the state held by the snapshot like {@link #restore(GameSnapshot)},
+   * using a galaxy already built from it with {@link GameSnapshot#toGalaxy()}, so the slow part of
+   * a restore can run off the Swing event thread and only the swap happens on it.
+   *
+   * @param snapshot the state to restore.
+   * @param galaxy   the galaxy built from the snapshot.
+   */
+  void restore(GameSnapshot snapshot, Galaxy galaxy);
+
+  /**
+   * Adds a listener to be told after every turn.
+   *
+   * @param listener the listener to add.
+   */
+  void addTurnListener(TurnListener listener);
+
+  /**
+   * Removes a listener added with {@link #addTurnListener(TurnListener)}.
+   *
+   * @param listener the listener to remove.
+   */
+  void removeTurnListener(TurnListener listener);
+
+  /**
+   * Returns if there is a turn that can be undone.
+   *
+   * @return if {@link #undo()} would do anything.
+   */
+  boolean canUndo();
+
+  /**
+   * Returns if there is an undone turn that can be redone.
+   *
+   * @return if {@link #redo()} would do anything.
+   */
+  boolean canRedo();
+
+  /**
+   * Puts the game back to how it was before the last turn, or the last load or restore. Anything
+   * played since that turn ended is undone with it.
+   *
+   * @return false if there was nothing to undo.
+   */
+  boolean undo();
+
+  /**
+   * Plays back the last turn undone, if nothing has been played since it was undone.
+   *
+   * @return false if there was nothing to redo.
+   */
+  boolean redo();
 }
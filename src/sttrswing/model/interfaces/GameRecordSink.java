@@ -0,0 +1,69 @@
+package sttrswing.model.interfaces;
+
+import sttrswing.model.enums.EntityType;
+
+/**
+ * Interface for something that takes the records of a saved game one at a time, in the order they
+ * appear, e.g. a loader building model objects as a .trek file is read, or a writer turning a
+ * running game into a save.
+ *
+ * <p>A full export sends the galaxy record, then the enterprise record, then the current quadrant
+ * record, then every quadrant record in row-major order, each followed by the entity records for
+ * that quadrant (if any). Text saves have no galaxy record, and older saves have no current
+ * quadrant or entity records.</p>
+ */
+public interface GameRecordSink {
+
+    /**
+     * Called once, first, with the size of the galaxy and the seed it was generated from.
+     *
+     * @param width  - number of quadrants along the x axis.
+     * @param height - number of quadrants along the y axis.
+     * @param seed   - the galaxy seed, 0 if it was not generated from one.
+     */
+    public void galaxy(int width, int height, long seed);
+
+    /**
+     * Called for the enterprise record, {@code [e] x:5 y:6 e:2500 s:500 t:10 |}.
+     *
+     * @param x         - horizontal sector coordinate.
+     * @param y         - vertical sector coordinate.
+     * @param energy    - energy reserve.
+     * @param shields   - shield strength.
+     * @param torpedoes - torpedoes left.
+     */
+    public void enterprise(int x, int y, int energy, int shields, int torpedoes);
+
+    /**
+     * Called for the record of the quadrant the enterprise is in, {@code [c] x:4 y:4 |}.
+     *
+     * @param x - horizontal galaxy coordinate.
+     * @param y - vertical galaxy coordinate.
+     */
+    public void current(int x, int y);
+
+    /**
+     * Called for each quadrant record, {@code [q] x:0 y:1 s:002 |}.
+     *
+     * @param x         - horizontal galaxy coordinate.
+     * @param y         - vertical galaxy coordinate.
+     * @param stars     - number of stars.
+     * @param starbases - number of starbases.
+     * @param klingons  - number of Klingons.
+     */
+    public void quadrant(int x, int y, int stars, int starbases, int klingons);
+
+    /**
+     * Called for each entity in the quadrant of the last {@link #quadrant} record, starbases
+     * first, then Klingons, then stars. When a quadrant has entity records they give its exact
+     * contents; without them its entities are placed at random from the counts.
+     *
+     * @param type   - kind of entity.
+     * @param x      - horizontal sector coordinate.
+     * @param y      - vertical sector coordinate.
+     * @param energy - energy reserve.
+     * @param flags  - flag bits, see {@link sttrswing.model.EntityStore#scannedFlag} and
+     *               {@link sttrswing.model.EntityStore#removedFlag}.
+     */
+    public void entity(EntityType type, int x, int y, int energy, int flags);
+}
@@ -0,0 +1,65 @@
+package sttrswing.model.interfaces;
+
+import sttrswing.model.Quadrant;
+
+/**
+ * Interface for something that can describe and build the {@link Quadrant}s of a galaxy on
+ * demand, so a {@link sttrswing.model.Galaxy} only has to hold the few it actually needs.
+ */
+public interface QuadrantSource {
+
+    /**
+     * Returns the number of quadrants along the x axis.
+     *
+     * @return the number of quadrants along the x axis.
+     */
+    public int width();
+
+    /**
+     * Returns the number of quadrants along the y axis.
+     *
+     * @return the number of quadrants along the y axis.
+     */
+    public int height();
+
+    /**
+     * Returns the seed the quadrants are derived from, or 0 if they are not derived from a seed.
+     *
+     * @return the seed the quadrants are derived from.
+     */
+    public long seed();
+
+    /**
+     * Returns the packed composition (see {@link sttrswing.model.Composition}) of the
+     * {@link Quadrant} at the given coordinates, without building it.
+     *
+     * @param x - horizontal coordinate of the {@link Quadrant}.
+     * @param y - vertical coordinate of the {@link Quadrant}.
+     * @return the packed composition of that {@link Quadrant}.
+     */
+    public int composition(int x, int y);
+
+    /**
+     * Builds the {@link Quadrant} at the given coordinates with all of its entities. Building the
+     * same coordinates twice must give equal {@link Quadrant}s.
+     *
+     * @param x - horizontal coordinate of the {@link Quadrant}.
+     * @param y - vertical coordinate of the {@link Quadrant}.
+     * @return a new {@link Quadrant} for those coordinates.
+     */
+    public Quadrant materialize(int x, int y);
+
+    /**
+     * Returns if every starbase in the {@link Quadrant} at the given coordinates is built at full
+     * energy, so that ticking it out of focus changes nothing unless it is besieged. A lazy
+     * {@link sttrswing.model.Galaxy} leaves settled quadrants unbuilt while ticking; any other
+     * quadrant with a starbase is built and ticked like in an eager galaxy.
+     *
+     * @param x - horizontal coordinate of the {@link Quadrant}.
+     * @param y - vertical coordinate of the {@link Quadrant}.
+     * @return if the {@link Quadrant} is built with every starbase at full energy.
+     */
+    public default boolean isSettled(int x, int y) {
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package sttrswing.model.interfaces;
+
+/**
+ * Interface for something that wants to be told each time a {@link GameModel} finishes a turn,
+ * e.g. to save the game in the background every few turns.
+ */
+public interface TurnListener {
+
+    /**
+     * Called on the thread playing the game, right after a turn has finished. Should return
+     * quickly, anything slow belongs on another thread.
+     *
+     * @param game - the game that finished a turn.
+     */
+    public void turnEnded(GameModel game);
+}
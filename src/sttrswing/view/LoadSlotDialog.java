@@ -0,0 +1,114 @@
+package sttrswing.view;
+
+import sttrswing.controller.SaveManager;
+import sttrswing.controller.SaveSlotHeader;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A modal dialog listing save slots, most recent first, with what each slot's
+ * header says about it, for the player to pick one to load. The slots are
+ * listed up front (see {@link SaveManager#list()}), so showing the dialog
+ * reads no files.
+ */
+public class LoadSlotDialog extends JDialog {
+
+    private final List<SaveManager.Slot> slots; // slots in the order of the table rows
+    private final JTable table; // one row per slot
+    private SaveManager.Slot chosen; // slot picked to load, null until one is
+
+    /**
+     * Constructs a new {@link LoadSlotDialog} over the given window.
+     *
+     * @param owner the window the dialog belongs to
+     * @param slots the slots to list, most recent first
+     */
+    public LoadSlotDialog(Frame owner, List<SaveManager.Slot> slots) {
+        super(owner, "Load", true);
+        this.slots = slots;
+
+        DefaultTableModel model = new DefaultTableModel(new Object[]{
+                "Slot", "Saved", "Turn", "Energy", "Shields", "Torpedoes", "Klingons"}, 0) {
+            @Override public boolean isCellEditable(int row, int column) { return false; }
+        };
+        DateFormat format = DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT);
+        for (SaveManager.Slot slot : slots) {
+            SaveSlotHeader header = slot.header();
+            model.addRow(new Object[]{
+                    slot.name(), format.format(new Date(header.timestamp())), header.turn(),
+                    header.energy(), header.shields(), header.torpedoes(), header.klingons()});
+        }
+        table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setFillsViewportHeight(true);
+        table.setBackground(Pallete.BLACK.color());
+        table.setForeground(Pallete.WHITE.color());
+        table.setGridColor(Pallete.GREYDARK.color());
+        if (!slots.isEmpty()) {
+            table.setRowSelectionInterval(0, 0);
+        }
+
+        JButton load = new JButton("Load");
+        load.addActionListener(e -> pick(table.getSelectedRow()));
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(e -> dispose());
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    pick(table.rowAtPoint(e.getPoint()));
+                }
+            }
+        });
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.setBackground(Pallete.BLACK.color());
+        buttons.add(cancel);
+        buttons.add(load);
+
+        JPanel content = new JPanel(new BorderLayout(8, 8));
+        content.setBackground(Pallete.BLACK.color());
+        content.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        content.add(new JScrollPane(table), BorderLayout.CENTER);
+        content.add(buttons, BorderLayout.SOUTH);
+        setContentPane(content);
+        getRootPane().setDefaultButton(load);
+        setSize(640, 360);
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Shows the dialog and waits for the player to pick a slot or cancel.
+     *
+     * @return the slot picked, or {@code null} if the dialog was cancelled
+     */
+    public SaveManager.Slot choose() {
+        chosen = null;
+        setVisible(true);
+        return chosen;
+    }
+
+    /**
+     * Exposed for testability: returns the table listing the slots.
+     *
+     * @return the slot table
+     */
+    public JTable getTable() {
+        return table;
+    }
+
+    private void pick(int row) {
+        if (row < 0 || row >= slots.size()) {
+            return;
+        }
+        chosen = slots.get(row);
+        dispose();
+    }
+}
@@ -0,0 +1,85 @@
+package sttrswing.view;
+
+import sttrswing.model.Game;
+import sttrswing.model.GameTimeline;
+import sttrswing.view.guicomponents.Slider;
+import sttrswing.view.panels.EnterpriseStatus;
+import sttrswing.view.panels.QuadrantScan;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * A window for looking back over the turns played, e.g. after the game has
+ * ended: a slider scrubs through every turn the {@link GameTimeline} recorded
+ * and the Enterprise's status and the quadrant it was in are shown as they
+ * were at the end of that turn. Each turn shown is sought from the timeline
+ * (see {@link GameTimeline#seek(int)}) and restored into a game of the
+ * dialog's own, so the game being played is never touched.
+ */
+public class TimelineDialog extends JDialog {
+
+    private final GameTimeline timeline; // turns to scrub through
+    private final Game shown = new Game(); // game restored to the turn shown
+    private final Slider slider; // turn shown, 0 up to the last turn recorded
+    private final JLabel turnLabel = new JLabel();
+    private final JPanel panels = new JPanel(new GridLayout(1, 2, 8, 8)); // status and scan of the turn
+
+    /**
+     * Constructs a new {@link TimelineDialog} over the given window, showing
+     * the last turn recorded.
+     *
+     * @param owner    the window the dialog belongs to
+     * @param timeline the turns to scrub through
+     */
+    public TimelineDialog(Frame owner, GameTimeline timeline) {
+        super(owner, "Timeline", false);
+        this.timeline = timeline;
+
+        slider = new Slider(timeline.lastTurn(), JSlider.HORIZONTAL);
+        slider.setBackground(Pallete.BLACK.color());
+        slider.setForeground(Pallete.WHITE.color());
+        slider.addChangeListener(e -> showTurn(slider.getValue()));
+        turnLabel.setForeground(Pallete.WHITE.color());
+
+        JPanel scrub = new JPanel(new BorderLayout(8, 8));
+        scrub.setBackground(Pallete.BLACK.color());
+        scrub.add(turnLabel, BorderLayout.WEST);
+        scrub.add(slider, BorderLayout.CENTER);
+
+        panels.setBackground(Pallete.BLACK.color());
+
+        JPanel content = new JPanel(new BorderLayout(8, 8));
+        content.setBackground(Pallete.BLACK.color());
+        content.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        content.add(panels, BorderLayout.CENTER);
+        content.add(scrub, BorderLayout.SOUTH);
+        setContentPane(content);
+        setSize(800, 520);
+        setLocationRelativeTo(owner);
+        showTurn(slider.getValue());
+    }
+
+    /**
+     * Exposed for testability: returns the slider choosing the turn shown.
+     *
+     * @return the turn slider
+     */
+    public Slider getSlider() {
+        return slider;
+    }
+
+    /**
+     * Restores the given turn into the dialog's game and rebuilds the panels
+     * showing it.
+     */
+    private void showTurn(int turn) {
+        shown.restore(timeline.seek(turn));
+        turnLabel.setText("Turn " + turn + " / " + timeline.lastTurn());
+        panels.removeAll();
+        panels.add(new EnterpriseStatus(shown));
+        panels.add(new QuadrantScan(shown));
+        panels.revalidate();
+        panels.repaint();
+    }
+}
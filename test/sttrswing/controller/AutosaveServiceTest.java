@@ -0,0 +1,49 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import sttrswing.controller.AutosaveService;
+import sttrswing.controller.TrekTokenizer;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+
+public class AutosaveServiceTest {
+
+  @Test
+  public void requests_made_while_writing_only_write_the_newest() throws Exception {
+    Path directory = Files.createTempDirectory("autosave");
+    Path path = directory.resolve("autosave.trek");
+    ExecutorService writer = Executors.newSingleThreadExecutor();
+    CountDownLatch busy = new CountDownLatch(1);
+    writer.execute(() -> {
+      try {
+        busy.await(); // holds the writer as a slow write would
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    AutosaveService autosave = new AutosaveService(path.toString(), 0, 0, 0, writer);
+    Game game = new Game(3L, new Galaxy(8, 8, 42L));
+
+    for (int turn = 0; turn < 3; turn += 1) {
+      game.turn();
+      autosave.request(game);
+    }
+    GameSnapshot newest = game.snapshot();
+    busy.countDown();
+    autosave.shutdown(5_000);
+
+    assertEquals(1, autosave.saves());
+    assertTrue(autosave.lastSucceeded());
+    GameSnapshot.Builder saved = new GameSnapshot.Builder();
+    TrekTokenizer.parse(path, saved);
+    assertEquals(newest, saved.build());
+  }
+}
@@ -0,0 +1,129 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import sttrswing.controller.BinarySaveReader;
+import sttrswing.controller.BinarySaveWriter;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+import sttrswing.model.QuadrantSnapshot;
+import sttrswing.model.enums.EntityType;
+
+public class BinarySaveTest {
+
+  private static byte[] write(GameSnapshot snapshot) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinarySaveWriter writer = new BinarySaveWriter(Channels.newChannel(bytes));
+    snapshot.export(writer);
+    writer.finish();
+    return bytes.toByteArray();
+  }
+
+  private static GameSnapshot read(byte[] save) throws IOException {
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    new BinarySaveReader(Channels.newChannel(new ByteArrayInputStream(save))).parse(builder);
+    return builder.build();
+  }
+
+  @Test
+  public void round_trip_gives_back_the_same_snapshot() throws IOException {
+    Game game = new Game(14L, new Galaxy(6, 5, 3L));
+    game.shields(200);
+    GameSnapshot snapshot = game.snapshot();
+
+    GameSnapshot read = read(write(snapshot));
+
+    assertEquals(snapshot, read);
+    assertEquals(3L, read.seed());
+    assertEquals(game.export(), readInto(read).export());
+  }
+
+  private static Game readInto(GameSnapshot snapshot) {
+    Game game = new Game(1L);
+    game.restore(snapshot);
+    return game;
+  }
+
+  @Test
+  public void reads_version_1_saves_without_a_current_quadrant() throws IOException {
+    ByteBuffer save = ByteBuffer.allocate(64);
+    save.putInt(0x5452454B).putShort((short) 1).putShort((short) 0); // 'TREK', version 1
+    save.putInt(1).putInt(1).putLong(9L); // 1x1 galaxy, seed 9
+    save.putInt(4).putInt(5).putInt(2500).putInt(500).putInt(10); // enterprise
+    save.putShort((short) (1 << 15 | 1)); // one star, entity records follow
+    save.put((byte) (1 << 6 | 2 * 8 + 3)); // scanned star at 3,2
+    save.flip();
+    byte[] bytes = Arrays.copyOf(save.array(), save.limit());
+
+    GameSnapshot read = read(bytes);
+
+    assertFalse(read.hasCurrentQuadrant());
+    assertEquals(9L, read.seed());
+    QuadrantSnapshot quadrant = read.quadrantAt(0, 0);
+    assertNotNull(quadrant);
+    assertEquals(quadrant, snapshotOf(1, 1, 9L, 1, 0, 0,
+        new int[] {3, 2, 0, 1}).quadrantAt(0, 0));
+    assertEquals(2500, read.toEnterprise().energy());
+  }
+
+  @Test
+  public void truncated_save_is_rejected() throws IOException {
+    byte[] save = write(new Game(5L, new Galaxy(4, 4, 5L)).snapshot());
+    for (int length : new int[] {0, 10, 30, save.length - 1}) {
+      try {
+        read(Arrays.copyOf(save, length));
+        fail("expected a save of " + length + " bytes to be rejected");
+      } catch (IOException e) {
+        assertEquals("Binary save file is truncated", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void energies_up_to_the_unsigned_short_limit_round_trip() throws IOException {
+    GameSnapshot snapshot = snapshotOf(1, 1, 2L, 0, 1, 1,
+        new int[] {1, 1, 65535, 0}, new int[] {2, 2, 65534, 1});
+
+    GameSnapshot read = read(write(snapshot));
+
+    assertEquals(snapshot, read);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void energy_above_the_unsigned_short_limit_is_rejected() throws IOException {
+    BinarySaveWriter writer =
+        new BinarySaveWriter(Channels.newChannel(new ByteArrayOutputStream()));
+    writer.galaxy(1, 1, 2L);
+    writer.enterprise(4, 5, 2500, 500, 10);
+    writer.quadrant(0, 0, 0, 0, 1);
+    writer.entity(EntityType.KLINGON, 1, 1, 65536, 0);
+  }
+
+  /**
+   * Builds a snapshot of one quadrant at 0,0 holding the given counts and entities, each
+   * {x, y, energy, flags}: starbases first, then Klingons, then stars.
+   */
+  private static GameSnapshot snapshotOf(int width, int height, long seed, int stars,
+      int starbases, int klingons, int[]... entities) {
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    builder.galaxy(width, height, seed);
+    builder.enterprise(4, 5, 2500, 500, 10);
+    builder.quadrant(0, 0, stars, starbases, klingons);
+    int index = 0;
+    for (int[] entity : entities) {
+      EntityType type = index < starbases ? EntityType.STARBASE
+          : index < starbases + klingons ? EntityType.KLINGON : EntityType.STAR;
+      builder.entity(type, entity[0], entity[1], entity[2], entity[3]);
+      index += 1;
+    }
+    return builder.build();
+  }
+}
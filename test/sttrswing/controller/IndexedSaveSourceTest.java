@@ -0,0 +1,139 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import sttrswing.controller.GameLoader;
+import sttrswing.controller.GameSaver;
+import sttrswing.controller.IndexedSaveSource;
+import sttrswing.controller.SaveSlotHeader;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+
+public class IndexedSaveSourceTest {
+
+  private static final int indexStart = 52; // header, enterprise and current quadrant records
+
+  private static Path save(GameSnapshot snapshot) throws IOException {
+    Path path = Files.createTempDirectory("indexed").resolve("save.trekb");
+    GameSaver saver = new GameSaver(snapshot, path.toString());
+    saver.save();
+    assertTrue(saver.success());
+    return path;
+  }
+
+  /**
+   * Reads the whole save back through the source, as a full export would send it.
+   */
+  private static GameSnapshot readAll(IndexedSaveSource source) {
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    source.exportHeader(builder);
+    for (int y = 0; y < source.height(); y += 1) {
+      for (int x = 0; x < source.width(); x += 1) {
+        source.exportQuadrant(x, y, builder);
+      }
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void mapped_save_reads_back_every_quadrant() throws IOException {
+    Game game = new Game(4L, new Galaxy(6, 5, 3L));
+    GameSnapshot snapshot = game.snapshot();
+    Path path = save(snapshot);
+
+    assertTrue(IndexedSaveSource.isIndexed(path));
+    IndexedSaveSource source = new IndexedSaveSource(path);
+
+    assertTrue(source.isComplete());
+    assertEquals(6, source.width());
+    assertEquals(5, source.height());
+    assertEquals(3L, source.seed());
+    assertEquals(game.getCurrentQuadrant().getX(), source.currentX());
+    assertEquals(game.getCurrentQuadrant().getY(), source.currentY());
+    assertEquals(snapshot, readAll(source));
+    for (int y = 0; y < 5; y += 1) {
+      for (int x = 0; x < 6; x += 1) {
+        assertEquals(snapshot.quadrantAt(x, y).composition(), source.composition(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void index_pointing_outside_the_quadrants_is_rejected() throws IOException {
+    Path path = save(new Game(4L, new Galaxy(3, 3, 3L)).snapshot());
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(0, indexStart), indexStart + 4 * 2);
+    }
+
+    try {
+      new IndexedSaveSource(path);
+      fail("expected the index to be rejected");
+    } catch (IOException e) {
+      assertEquals("Invalid index entry for quadrant 2", e.getMessage());
+    }
+    GameLoader loader = new GameLoader(path.toString());
+    loader.load();
+    assertFalse(loader.success());
+  }
+
+  @Test
+  public void slot_header_in_front_is_skipped() throws IOException {
+    Game game = new Game(4L, new Galaxy(5, 5, 8L));
+    GameSnapshot snapshot = game.snapshot();
+    Path save = save(snapshot);
+    Path slot = save.resolveSibling("slot.trekb");
+    try (FileChannel channel = FileChannel.open(slot, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE)) {
+      SaveSlotHeader.of(game, 12).write(channel);
+      channel.write(ByteBuffer.wrap(Files.readAllBytes(save)));
+    }
+
+    assertTrue(IndexedSaveSource.isIndexed(slot));
+    assertEquals(snapshot, readAll(new IndexedSaveSource(slot)));
+  }
+
+  @Test
+  public void save_missing_quadrants_is_loaded_in_full() throws IOException {
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    builder.galaxy(4, 4, 6L);
+    builder.enterprise(3, 3, 2000, 400, 8);
+    builder.current(1, 1);
+    builder.quadrant(1, 1, 2, 0, 1);
+    GameSnapshot partial = builder.build();
+    Path path = save(partial);
+
+    assertTrue(IndexedSaveSource.isIndexed(path));
+    assertFalse(new IndexedSaveSource(path).isComplete());
+    GameLoader loader = new GameLoader(path.toString());
+    loader.load();
+
+    assertTrue(loader.success());
+    assertEquals(partial, loader.buildSnapshot());
+    assertEquals(1, loader.quadrantCount());
+  }
+
+  @Test
+  public void saved_game_resumes_through_the_loader() throws IOException {
+    Game game = new Game(4L, new Galaxy(7, 6, 11L));
+    game.shields(300);
+    game.moveBetweenQuadrants(3, 1.0);
+    Path path = save(game.snapshot());
+
+    GameLoader loader = new GameLoader(path.toString());
+    loader.load();
+    assertTrue(loader.success());
+    assertEquals(42, loader.quadrantCount());
+    Game resumed = new Game(9L);
+    resumed.restore(loader.buildSnapshot(), loader.buildGalaxy());
+
+    assertEquals(game.export(), resumed.export());
+  }
+}
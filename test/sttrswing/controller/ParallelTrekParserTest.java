@@ -0,0 +1,78 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import sttrswing.controller.GameSaver;
+import sttrswing.controller.ParallelTrekParser;
+import sttrswing.controller.TrekTokenizer;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+
+public class ParallelTrekParserTest {
+
+  private static final int chunkBytes = 512; // small enough to cut a test save into many chunks
+
+  private static Path save(Game game) throws IOException {
+    Path path = Files.createTempDirectory("parallel").resolve("save.trek");
+    GameSaver saver = new GameSaver(game.snapshot(), path.toString());
+    saver.save();
+    assertTrue(saver.success());
+    return path;
+  }
+
+  private static GameSnapshot parallel(Path path) throws IOException {
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    ParallelTrekParser.parse(path, builder, 0, chunkBytes);
+    return builder.build();
+  }
+
+  private static GameSnapshot onePass(Path path) throws IOException {
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    TrekTokenizer.parse(path, builder);
+    return builder.build();
+  }
+
+  @Test
+  public void chunks_read_the_same_snapshot_as_one_pass() throws IOException {
+    Path path = save(new Game(6L, new Galaxy(16, 12, 5L)));
+    assertTrue(Files.size(path) > 8 * chunkBytes);
+
+    GameSnapshot expected = onePass(path);
+
+    assertEquals(expected, parallel(path));
+    assertEquals(16 * 12, parallel(path).quadrantCount());
+  }
+
+  @Test
+  public void malformed_chunk_fails_with_its_line_in_the_file() throws IOException {
+    Path path = save(new Game(6L, new Galaxy(16, 12, 5L)));
+    List<String> lines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+    int broken = lines.size() - 1;
+    while (!lines.get(broken).startsWith("[k]") && !lines.get(broken).startsWith("[s]")) {
+      broken -= 1;
+    }
+    lines.set(broken, lines.get(broken).replace(" y:", " w:"));
+    Files.write(path, lines, StandardCharsets.US_ASCII);
+
+    String expected = "line " + (broken + 1) + ": missing 'y' value";
+    try {
+      onePass(path);
+      fail("expected one pass to reject the save");
+    } catch (IOException e) {
+      assertEquals(expected, e.getMessage());
+    }
+    try {
+      parallel(path);
+      fail("expected the chunks to reject the save");
+    } catch (IOException e) {
+      assertEquals(expected, e.getMessage());
+    }
+  }
+}
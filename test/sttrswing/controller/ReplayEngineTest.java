@@ -0,0 +1,70 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import sttrswing.controller.RecordingGameModel;
+import sttrswing.controller.ReplayEngine;
+import sttrswing.model.Game;
+
+public class ReplayEngineTest {
+
+  /**
+   * Plays a little of everything: shields, phasers, torpedoes, scans and moves within and
+   * between quadrants.
+   */
+  private static void play(RecordingGameModel game) {
+    game.shields(150);
+    game.scanQuadrant();
+    game.firePhasers(120);
+    game.fireTorpedo(3);
+    game.moveWithinQuadrant(1, 2.0);
+    game.moveBetweenQuadrants(7, 1.0);
+    game.fireTorpedo(5);
+    game.moveWithinQuadrant(5, 1.5);
+    game.moveBetweenQuadrants(3, 2.0);
+    game.shields(50);
+  }
+
+  @Test
+  public void replay_reaches_the_recorded_game() throws IOException {
+    Path path = Files.createTempDirectory("replay").resolve("session.trekr");
+    Game played = new Game(21L);
+    RecordingGameModel recorder = new RecordingGameModel(played,
+        FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    play(recorder);
+    recorder.close();
+    assertFalse(recorder.recording());
+
+    Game replayed = ReplayEngine.replay(path);
+
+    assertEquals(played.export(), replayed.export());
+  }
+
+  @Test
+  public void stepping_plays_every_recorded_command() throws IOException {
+    ByteArrayOutputStream log = new ByteArrayOutputStream();
+    Game played = new Game(8L);
+    RecordingGameModel recorder = new RecordingGameModel(played, Channels.newChannel(log));
+    play(recorder);
+    recorder.flush();
+
+    ReplayEngine engine =
+        new ReplayEngine(Channels.newChannel(new ByteArrayInputStream(log.toByteArray())));
+    while (engine.step()) {
+      // one command at a time
+    }
+
+    assertEquals(recorder.commands(), engine.position());
+    assertFalse(engine.truncated());
+    assertEquals(played.export(), engine.game().export());
+  }
+}
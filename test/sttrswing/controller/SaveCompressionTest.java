@@ -0,0 +1,80 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import sttrswing.controller.GameLoader;
+import sttrswing.controller.GameSaver;
+import sttrswing.controller.SaveCompression;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+
+public class SaveCompressionTest {
+
+  private static Game played() {
+    Game game = new Game(4L, new Galaxy(8, 6, 13L));
+    game.shields(250);
+    game.moveBetweenQuadrants(5, 1.0);
+    game.fireTorpedo(2);
+    return game;
+  }
+
+  private static Path save(Game game, String name) throws IOException {
+    Path path = Files.createTempDirectory("compressed").resolve(name);
+    GameSaver saver = new GameSaver(game.snapshot(), path.toString());
+    saver.save();
+    assertTrue(saver.success());
+    return path;
+  }
+
+  /**
+   * Loads the save at the given path into a game of its own.
+   */
+  private static Game load(Path path) {
+    GameLoader loader = new GameLoader(path.toString());
+    loader.load();
+    assertTrue(loader.success());
+    Game game = new Game(9L);
+    game.restore(loader.buildSnapshot(), loader.buildGalaxy());
+    return game;
+  }
+
+  private static void assertRoundTrip(String name) throws IOException {
+    Game game = played();
+    Path path = save(game, name);
+
+    assertTrue(SaveCompression.isCompressed(path));
+    assertEquals(game.export(), load(path).export());
+  }
+
+  @Test
+  public void text_save_round_trips_compressed() throws IOException {
+    assertRoundTrip("save.trek.gz");
+  }
+
+  @Test
+  public void binary_save_round_trips_compressed() throws IOException {
+    assertRoundTrip("save.trekb.gz");
+  }
+
+  @Test
+  public void delta_save_round_trips_compressed() throws IOException {
+    assertRoundTrip("save.trekd.gz");
+  }
+
+  @Test
+  public void compressed_save_is_read_whatever_it_is_called() throws IOException {
+    Game game = played();
+    for (String name : new String[] {"save.trek", "save.trekb"}) {
+      Path compressed = save(game, name + SaveCompression.extension);
+      Path renamed = Files.move(compressed, compressed.resolveSibling(name));
+
+      assertFalse(SaveCompression.isCompressed(renamed.toString()));
+      assertTrue(SaveCompression.isCompressed(renamed));
+      assertEquals(game.export(), load(renamed).export());
+    }
+  }
+}
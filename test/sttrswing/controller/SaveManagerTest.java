@@ -0,0 +1,113 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import sttrswing.controller.GameLoader;
+import sttrswing.controller.GameSaver;
+import sttrswing.controller.SaveManager;
+import sttrswing.controller.SaveSlotHeader;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+
+public class SaveManagerTest {
+
+  private static void save(GameSaver saver) {
+    saver.save();
+    assertTrue(saver.success());
+  }
+
+  @Test
+  public void slot_names_are_checked_before_they_are_trimmed() throws IOException {
+    Path directory = Files.createTempDirectory("slots");
+    SaveManager slots = new SaveManager(directory.toString());
+    String longest = "a".repeat(64);
+
+    assertEquals(directory.resolve("before the battle.trekd"), slots.path("before the battle"));
+    assertEquals(directory.resolve("kirk_1-a.trekd"), slots.path("  kirk_1-a "));
+    assertEquals(directory.resolve(longest + ".trekd"), slots.path(longest));
+    for (String name : new String[] {null, "", "   ", "a".repeat(65), " " + longest,
+        "../escape", "tab\there", "star*"}) {
+      try {
+        slots.path(name);
+        fail("expected slot name '" + name + "' to be rejected");
+      } catch (IllegalArgumentException e) {
+        // rejected
+      }
+    }
+  }
+
+  @Test
+  public void slots_are_listed_newest_first() throws IOException {
+    Path directory = Files.createTempDirectory("slots");
+    SaveManager slots = new SaveManager(directory.toString());
+    Game game = new Game(4L, new Galaxy(5, 5, 2L));
+    long[] saved = {1_000L, 3_000L, 2_000L};
+    for (int i = 0; i < saved.length; i += 1) {
+      Files.createDirectories(directory);
+      save(new GameSaver(game.snapshot(), slots.path("slot " + i).toString(),
+          new SaveSlotHeader(saved[i], 10 * i, 2000 + i, 300, 7, 12)));
+    }
+
+    List<SaveManager.Slot> listed = slots.list();
+
+    assertEquals(3, listed.size());
+    assertEquals("slot 1", listed.get(0).name());
+    assertEquals("slot 2", listed.get(1).name());
+    assertEquals("slot 0", listed.get(2).name());
+    SaveSlotHeader header = listed.get(1).header();
+    assertEquals(2_000L, header.timestamp());
+    assertEquals(20, header.turn());
+    assertEquals(2002, header.energy());
+    assertEquals(300, header.shields());
+    assertEquals(7, header.torpedoes());
+    assertEquals(12, header.klingons());
+  }
+
+  @Test
+  public void files_without_a_header_are_left_out() throws IOException {
+    Path directory = Files.createTempDirectory("slots");
+    SaveManager slots = new SaveManager(directory.toString());
+    Game game = new Game(4L, new Galaxy(5, 5, 2L));
+    save(slots.saver(game, "kept"));
+    save(new GameSaver(game.snapshot(), directory.resolve("plain.trekd").toString()));
+    Files.write(directory.resolve("short.trekd"), new byte[] {1, 2, 3});
+    Files.write(directory.resolve("notes.txt"), "not a slot".getBytes());
+
+    List<SaveManager.Slot> listed = slots.list();
+
+    assertEquals(1, listed.size());
+    assertEquals("kept", listed.get(0).name());
+    assertEquals(0, new SaveManager(directory.resolve("missing").toString()).list().size());
+  }
+
+  @Test
+  public void slot_loads_with_its_header_skipped() throws IOException {
+    Path directory = Files.createTempDirectory("slots");
+    SaveManager slots = new SaveManager(directory.toString());
+    Game game = new Game(4L, new Galaxy(6, 6, 21L));
+    slots.attach(game);
+    game.shields(200);
+    game.moveBetweenQuadrants(1, 1.0);
+    game.turn();
+    save(slots.saver(game, "mid game"));
+
+    SaveManager.Slot slot = slots.list().get(0);
+    assertEquals(2, slot.header().turn());
+    assertEquals(game.playerEnergy(), slot.header().energy());
+    GameLoader loader = new GameLoader(slot.path().toString());
+    loader.load();
+    assertTrue(loader.success());
+    Game loaded = new Game(9L);
+    loaded.restore(loader.buildSnapshot(), loader.buildGalaxy());
+
+    assertEquals(game.export(), loaded.export());
+    SaveManager resumed = new SaveManager(directory.toString());
+    resumed.loaded(slot);
+    assertEquals(2, resumed.turn());
+  }
+}
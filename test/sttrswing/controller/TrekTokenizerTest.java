@@ -0,0 +1,101 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import sttrswing.controller.TrekTokenizer;
+import sttrswing.model.TrekTextWriter;
+
+public class TrekTokenizerTest {
+
+  /**
+   * Parses the given save text and returns its records as written back out by a
+   * {@link TrekTextWriter}.
+   */
+  private static String parse(String text) throws IOException {
+    StringBuilder out = new StringBuilder();
+    new TrekTokenizer(Channels.newChannel(
+        new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))))
+        .parse(new TrekTextWriter(out));
+    return out.toString();
+  }
+
+  private static String error(String text) {
+    try {
+      parse(text);
+    } catch (IOException e) {
+      return e.getMessage();
+    }
+    fail("expected the save to be rejected");
+    return null;
+  }
+
+  @Test
+  public void reads_every_record_it_knows() throws IOException {
+    String save = "[e] x:5 y:6 e:2500 s:500 t:10 |\n"
+        + "[c] x:0 y:0 |\n"
+        + "[q] x:0 y:0 s:111 |\n"
+        + "[b] x:3 y:1 e:300 f:0 |\n"
+        + "[k] x:6 y:2 e:200 f:1 |\n"
+        + "[s] x:0 y:7 f:1 |\n";
+    assertEquals(save, parse(save));
+  }
+
+  @Test
+  public void galaxy_record_keeps_the_whole_seed() throws IOException {
+    for (long seed : new long[] {0L, 42L, -4311864208421052651L, Long.MIN_VALUE, Long.MAX_VALUE}) {
+      String save = "[g] w:8 h:9 n:" + seed + " |\n";
+      assertEquals(save, parse(save));
+    }
+    assertEquals("line 1: value of 'n' is too large", error("[g] w:8 h:8 n:9223372036854775808 |"));
+    assertEquals("line 1: value of 'w' must not be negative", error("[g] w:-8 h:8 n:1 |"));
+  }
+
+  @Test
+  public void skips_unknown_tags_fields_and_lines() throws IOException {
+    String save = "trek save\n"
+        + "[z] anything at all |\n"
+        + "[e] x:5 y:6 e:2500 s:500 t:10 w:7 z:kirk |\n"
+        + "[q] x:1 y:2 s:010 |\n";
+    assertEquals("[e] x:5 y:6 e:2500 s:500 t:10 |\n[q] x:1 y:2 s:010 |\n", parse(save));
+  }
+
+  @Test
+  public void entities_without_flags_take_the_defaults() throws IOException {
+    String save = "[q] x:0 y:0 s:111 |\n"
+        + "[b] x:3 y:1 e:300 |\n"
+        + "[k] x:6 y:2 e:200 |\n"
+        + "[s] x:0 y:7 |\n";
+    assertEquals("[q] x:0 y:0 s:111 |\n"
+        + "[b] x:3 y:1 e:300 f:0 |\n"
+        + "[k] x:6 y:2 e:200 f:0 |\n"
+        + "[s] x:0 y:7 f:1 |\n", parse(save));
+  }
+
+  @Test
+  public void stars_need_no_energy_but_starbases_do() throws IOException {
+    assertEquals("[s] x:2 y:3 f:0 |\n", parse("[s] x:2 y:3 f:0 |\n"));
+    assertEquals("line 1: missing 'e' value", error("[b] x:2 y:3 f:0 |\n"));
+  }
+
+  @Test
+  public void quadrant_symbol_must_be_three_digits() {
+    assertEquals("line 1: quadrant symbol must be three digits", error("[q] x:0 y:0 s:11 |\n"));
+    assertEquals("line 1: quadrant symbol must be three digits", error("[q] x:0 y:0 s:1111 |\n"));
+  }
+
+  @Test
+  public void errors_give_the_line_they_are_on() {
+    String save = "[e] x:5 y:6 e:2500 s:500 t:10 |\n"
+        + "\n"
+        + "[q] x:0 y:0 s:111 |\n"
+        + "[k] x:6 e:200 |\n";
+    assertEquals("line 4: missing 'y' value", error(save));
+    assertEquals("line 2: expected ':' after field 'x'", error("[c] x:1 y:1 |\n[c] x1 |\n"));
+    assertEquals("line 1: expected ']' to close the record tag", error("[ee] x:1 |\n"));
+  }
+}
@@ -0,0 +1,195 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import sttrswing.controller.GameSaver;
+import sttrswing.controller.TurnJournal;
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+
+public class TurnJournalTest {
+
+  @Test
+  public void recovery_from_a_text_base_keeps_the_seed() throws IOException {
+    Path directory = Files.createTempDirectory("journal");
+    String base = directory.resolve("journal.trek").toString();
+    Game game = new Game(3L, new Galaxy(8, 8, 42L));
+    GameSaver saver = new GameSaver(game.snapshot(), base);
+    saver.save();
+    assertTrue(saver.success());
+
+    GameSnapshot recovered = TurnJournal.recover(base, directory.resolve("journal.log").toString());
+
+    assertEquals(42L, recovered.seed());
+    assertEquals(game.snapshot(), recovered);
+  }
+
+  /**
+   * Journals the given game, waiting until the journal has recovered and queued its first
+   * base save.
+   */
+  private static TurnJournal attach(Path directory, Game game, int compactEvery)
+      throws InterruptedException {
+    return attach(directory, game, compactEvery, new AtomicBoolean());
+  }
+
+  private static TurnJournal attach(Path directory, Game game, int compactEvery,
+      AtomicBoolean restored) throws InterruptedException {
+    TurnJournal journal = new TurnJournal(directory.resolve("journal.trek").toString(),
+        directory.resolve("journal.log").toString(), compactEvery);
+    CountDownLatch attached = new CountDownLatch(1);
+    journal.attach(game, recovered -> {
+      restored.set(recovered);
+      attached.countDown();
+    });
+    attached.await();
+    return journal;
+  }
+
+  /**
+   * Clears the clean flag a detach sets in the log's header, leaving the journal as a crash
+   * would.
+   */
+  private static void crash(Path directory) throws IOException {
+    try (FileChannel log = FileChannel.open(directory.resolve("journal.log"),
+        StandardOpenOption.WRITE)) {
+      log.write(ByteBuffer.allocate(2), 6);
+    }
+  }
+
+  private static GameSnapshot recover(Path directory) throws IOException {
+    return TurnJournal.recover(directory.resolve("journal.trek").toString(),
+        directory.resolve("journal.log").toString());
+  }
+
+  @Test
+  public void recovery_stops_at_the_last_intact_block() throws Exception {
+    Path directory = Files.createTempDirectory("journal");
+    Game game = new Game(3L, new Galaxy(8, 8, 42L));
+    TurnJournal journal = attach(directory, game, 0);
+    GameSnapshot[] turns = new GameSnapshot[3];
+    for (int turn = 0; turn < turns.length; turn += 1) {
+      game.turn();
+      turns[turn] = game.snapshot();
+    }
+    journal.shutdown(5_000);
+    assertTrue(journal.healthy());
+    Path log = directory.resolve("journal.log");
+    byte[] written = Files.readAllBytes(log);
+    assertEquals(turns[2], recover(directory));
+
+    Files.write(log, Arrays.copyOf(written, written.length - 1)); // cut short
+    assertEquals(turns[1], recover(directory));
+
+    byte[] torn = written.clone();
+    torn[torn.length - 3] ^= 1; // whole, but not as it was written
+    Files.write(log, torn);
+    assertEquals(turns[1], recover(directory));
+  }
+
+  @Test
+  public void log_for_another_base_is_ignored() throws Exception {
+    Path directory = Files.createTempDirectory("journal");
+    Game game = new Game(3L, new Galaxy(8, 8, 42L));
+    TurnJournal journal = attach(directory, game, 0);
+    game.turn();
+    game.turn();
+    journal.shutdown(5_000);
+
+    GameSnapshot other = new Game(9L, new Galaxy(6, 6, 7L)).snapshot();
+    GameSaver saver = new GameSaver(other, directory.resolve("journal.trek").toString());
+    saver.save();
+    assertTrue(saver.success());
+
+    assertEquals(other, recover(directory));
+  }
+
+  @Test
+  public void compaction_starts_the_log_again() throws Exception {
+    Path directory = Files.createTempDirectory("journal");
+    Game game = new Game(3L, new Galaxy(8, 8, 42L));
+    TurnJournal journal = attach(directory, game, 3);
+    for (int turn = 0; turn < 3; turn += 1) {
+      game.turn();
+    }
+    game.turn(); // the fourth turn compacts instead of appending
+    journal.shutdown(5_000);
+
+    assertEquals(16L, Files.size(directory.resolve("journal.log")));
+    assertEquals(game.snapshot(), recover(directory));
+  }
+
+  @Test
+  public void attaching_after_a_crash_restores_the_journaled_game() throws Exception {
+    Path directory = Files.createTempDirectory("journal");
+    Game game = new Game(3L, new Galaxy(8, 8, 42L));
+    TurnJournal journal = attach(directory, game, 0);
+    game.turn();
+    game.turn();
+    journal.shutdown(5_000);
+
+    crash(directory);
+
+    Game resumed = new Game(11L);
+    AtomicBoolean restored = new AtomicBoolean();
+    TurnJournal again = attach(directory, resumed, 0, restored);
+    again.shutdown(5_000);
+
+    assertTrue(restored.get());
+    assertEquals(game.snapshot(), resumed.snapshot());
+    assertEquals(42L, resumed.getGalaxy().seed());
+  }
+
+  @Test
+  public void clean_shutdown_is_not_recovered() throws Exception {
+    Path directory = Files.createTempDirectory("journal");
+    Game game = new Game(3L, new Galaxy(8, 8, 42L));
+    TurnJournal journal = attach(directory, game, 0);
+    game.turn();
+    game.turn();
+    journal.shutdown(5_000);
+
+    Game fresh = new Game(11L, new Galaxy(6, 6, 7L));
+    GameSnapshot before = fresh.snapshot();
+    AtomicBoolean restored = new AtomicBoolean(true);
+    TurnJournal again = attach(directory, fresh, 0, restored);
+    again.shutdown(5_000);
+
+    assertFalse(restored.get());
+    assertEquals(before, fresh.snapshot());
+    assertEquals(before, recover(directory)); // journaling the new game from here on
+  }
+
+  @Test
+  public void finished_game_is_not_restored() throws Exception {
+    Path directory = Files.createTempDirectory("journal");
+    Game game = new Game(3L, new Galaxy(8, 8, 42L));
+    TurnJournal journal = attach(directory, game, 0);
+    game.turn();
+    game.getEnterprise().hit(100_000);
+    game.turn();
+    assertTrue(game.hasLost());
+    journal.shutdown(5_000);
+    crash(directory);
+
+    Game fresh = new Game(11L, new Galaxy(6, 6, 7L));
+    GameSnapshot before = fresh.snapshot();
+    AtomicBoolean restored = new AtomicBoolean(true);
+    TurnJournal again = attach(directory, fresh, 0, restored);
+    again.shutdown(5_000);
+
+    assertFalse(restored.get());
+    assertEquals(before, fresh.snapshot());
+  }
+}
@@ -0,0 +1,351 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import sttrswing.model.Composition;
+import sttrswing.model.Galaxy;
+import sttrswing.model.ProceduralQuadrantSource;
+import sttrswing.model.Quadrant;
+import sttrswing.model.Starbase;
+import sttrswing.model.TrekTextWriter;
+import sttrswing.model.enums.TickMode;
+import sttrswing.model.interfaces.QuadrantSource;
+
+public class GalaxyTest {
+
+  @Test
+  public void quadrantAt_returns_quadrant_with_matching_coordinates() {
+    Galaxy g = new Galaxy(12, 5);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 12; x++) {
+        Quadrant q = g.quadrantAt(x, y);
+        assertNotNull(q);
+        assertEquals(x, q.getX());
+        assertEquals(y, q.getY());
+      }
+    }
+  }
+
+  @Test
+  public void quadrantAt_outside_bounds_is_null() {
+    Galaxy g = new Galaxy();
+    assertNull(g.quadrantAt(-1, 0));
+    assertNull(g.quadrantAt(0, -1));
+    assertNull(g.quadrantAt(8, 0));
+    assertNull(g.quadrantAt(0, 8));
+  }
+
+  @Test
+  public void cluster_is_clipped_at_corners_and_full_in_the_middle() {
+    Galaxy g = new Galaxy();
+    assertEquals(4, g.getQuadrantClusterAt(0, 0).size());
+    assertEquals(6, g.getQuadrantClusterAt(0, 4).size());
+    List<Quadrant> cluster = g.getQuadrantClusterAt(4, 4);
+    assertEquals(9, cluster.size());
+    assertSame(g.quadrantAt(4, 4), cluster.get(0));
+    for (Quadrant q : cluster) {
+      assertTrue(Math.abs(q.getX() - 4) <= 1 && Math.abs(q.getY() - 4) <= 1);
+    }
+  }
+
+  @Test
+  public void provided_quadrants_are_placed_by_their_own_coordinates() {
+    ArrayList<Quadrant> list = new ArrayList<>();
+    list.add(new Quadrant(1, 0, 0, 0, 0));
+    list.add(new Quadrant(0, 1, 0, 0, 0));
+    list.add(new Quadrant(0, 0, 0, 0, 0));
+    Galaxy g = new Galaxy(list);
+    assertEquals(2, g.width());
+    assertEquals(2, g.height());
+    assertSame(list.get(0), g.quadrantAt(1, 0));
+    assertSame(list.get(1), g.quadrantAt(0, 1));
+    assertNull(g.quadrantAt(1, 1));
+  }
+
+  @Test
+  public void totals_follow_quadrant_cleanup() {
+    ArrayList<Quadrant> list = new ArrayList<>();
+    Quadrant a = new Quadrant(0, 0, 1, 2, 3);
+    list.add(a);
+    list.add(new Quadrant(1, 0, 2, 1, 0));
+    Galaxy g = new Galaxy(list);
+    assertEquals(3, g.klingonCount());
+    assertEquals(3, g.starbaseCount());
+    assertEquals(3, g.starCount());
+
+    a.klingons().get(0).remove();
+    a.starbases().get(0).remove();
+    a.cleanup();
+    assertEquals(2, g.klingonCount());
+    assertEquals(2, g.starbaseCount());
+  }
+
+  @Test
+  public void same_seed_gives_same_galaxy_serial_or_parallel() {
+    Galaxy a = new Galaxy(40, 30, 42L);
+    Galaxy b = new Galaxy(40, 30, 42L);
+    assertEquals(a.export(), b.export());
+
+    List<Quadrant> serial = a.generateQuadrants(false);
+    List<Quadrant> parallel = a.generateQuadrants(true);
+    assertEquals(serial.size(), parallel.size());
+    for (int i = 0; i < serial.size(); i++) {
+      assertEquals(serial.get(i).symbol(), parallel.get(i).symbol());
+      assertEquals(serial.get(i).occupiedMask(), parallel.get(i).occupiedMask());
+    }
+  }
+
+  @Test
+  public void lazy_galaxy_matches_eager_galaxy_from_same_seed() {
+    Galaxy eager = new Galaxy(20, 20, 7L);
+    Galaxy lazy = new Galaxy(new ProceduralQuadrantSource(20, 20, 7L), 4);
+    assertEquals(eager.export(), lazy.export());
+    assertEquals(eager.klingonCount(), lazy.klingonCount());
+    assertEquals(eager.starbaseCount(), lazy.starbaseCount());
+    assertEquals(eager.starCount(), lazy.starCount());
+    assertEquals(0, lazy.residentCount());
+    Quadrant q = lazy.quadrantAt(3, 11);
+    assertEquals(eager.quadrantAt(3, 11).occupiedMask(), q.occupiedMask());
+    assertEquals(q.composition(), lazy.compositionAt(3, 11));
+  }
+
+  @Test
+  public void lazy_galaxy_evicts_only_unmodified_unfocused_quadrants() {
+    Galaxy g = new Galaxy(new ProceduralQuadrantSource(30, 30, 11L), 2);
+    Quadrant focused = g.focus(0, 0);
+    focused.scan();
+    Quadrant scanned = g.quadrantAt(1, 0);
+    scanned.scan();
+    for (int x = 2; x < 10; x++) {
+      g.quadrantAt(x, 0);
+    }
+    assertTrue(g.isResident(0, 0));
+    assertTrue(g.isResident(1, 0));
+    assertFalse(g.isResident(2, 0));
+    assertSame(scanned, g.quadrantAt(1, 0));
+    assertTrue(g.residentCount() <= 3);
+  }
+
+  @Test
+  public void lazy_galaxy_summary_follows_cleanup() {
+    Galaxy g = new Galaxy(new ProceduralQuadrantSource(16, 16, 5L), 4);
+    int total = g.klingonCount();
+    for (int y = 0; y < 16; y++) {
+      for (int x = 0; x < 16; x++) {
+        if (Composition.klingons(g.compositionAt(x, y)) > 0) {
+          Quadrant q = g.focus(x, y);
+          q.klingons().get(0).remove();
+          q.cleanup();
+          assertEquals(total - 1, g.klingonCount());
+          assertEquals(q.composition(), g.compositionAt(x, y));
+          return;
+        }
+      }
+    }
+    fail("expected at least one Klingon in the galaxy");
+  }
+
+  @Test
+  public void parallel_out_of_focus_tick_matches_serial() {
+    Galaxy serial = new Galaxy(70, 70, 3L);
+    Galaxy parallel = new Galaxy(70, 70, 3L);
+    for (Galaxy g : new Galaxy[] {serial, parallel}) {
+      for (int x = 0; x < 70; x++) {
+        for (Starbase starbase : g.quadrantAt(x, x).starbases()) {
+          starbase.hit(295);
+        }
+      }
+    }
+    ArrayList<Quadrant> skip = new ArrayList<>();
+    skip.add(serial.quadrantAt(10, 10));
+    ArrayList<Quadrant> parallelSkip = new ArrayList<>();
+    parallelSkip.add(parallel.quadrantAt(10, 10));
+    for (int turn = 0; turn < 5; turn++) {
+      serial.outOfFocusTick(skip, null, false);
+      parallel.outOfFocusTick(parallelSkip, null, true);
+    }
+    for (int y = 0; y < 70; y++) {
+      for (int x = 0; x < 70; x++) {
+        List<Starbase> expected = serial.quadrantAt(x, y).starbases();
+        List<Starbase> actual = parallel.quadrantAt(x, y).starbases();
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(expected.get(i).isMarkedForRemoval(), actual.get(i).isMarkedForRemoval());
+          assertEquals(drain(expected.get(i)), drain(actual.get(i)));
+        }
+      }
+    }
+    for (Starbase starbase : serial.quadrantAt(10, 10).starbases()) {
+      assertEquals(5, drain(starbase));
+    }
+  }
+
+  @Test
+  public void catch_up_mode_matches_ticking_every_turn() {
+    Galaxy everyTurn = new Galaxy(30, 30, 9L);
+    Galaxy eagerCatchUp = new Galaxy(30, 30, 9L);
+    Galaxy lazyCatchUp = new Galaxy(new ProceduralQuadrantSource(30, 30, 9L), 4);
+    eagerCatchUp.setTickMode(TickMode.CATCH_UP);
+    lazyCatchUp.setTickMode(TickMode.CATCH_UP);
+    for (Galaxy g : new Galaxy[] {everyTurn, eagerCatchUp}) {
+      for (int x = 0; x < 30; x++) {
+        for (Starbase starbase : g.quadrantAt(x, x).starbases()) {
+          starbase.hit(250);
+        }
+      }
+    }
+    for (int turn = 0; turn < 12; turn++) {
+      for (Galaxy g : new Galaxy[] {everyTurn, eagerCatchUp, lazyCatchUp}) {
+        ArrayList<Quadrant> skip = new ArrayList<>();
+        skip.add(g.focus(5, 5));
+        g.outOfFocusTick(skip, null);
+      }
+    }
+    assertEquals(12, lazyCatchUp.turn());
+    for (int y = 0; y < 30; y++) {
+      for (int x = 0; x < 30; x++) {
+        List<Starbase> expected = everyTurn.quadrantAt(x, y).starbases();
+        List<Starbase> eager = eagerCatchUp.quadrantAt(x, y).starbases();
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(expected.get(i).isMarkedForRemoval(), eager.get(i).isMarkedForRemoval());
+          assertEquals(drain(expected.get(i)), drain(eager.get(i)));
+        }
+        if (x != y) {
+          List<Starbase> lazy = lazyCatchUp.quadrantAt(x, y).starbases();
+          Quadrant fresh = new ProceduralQuadrantSource(30, 30, 9L).materialize(x, y);
+          if (fresh.klingonCount() > 2) {
+            for (Starbase starbase : lazy) {
+              assertEquals(300 - 12, drain(starbase));
+            }
+          } else {
+            assertFalse(lazyCatchUp.quadrantAt(x, y).isModified());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void take_dirty_reports_only_quadrants_changed_since_last_call() {
+    Galaxy g = new Galaxy(10, 10, 13L);
+    g.takeDirty();
+    Quadrant focused = g.focus(2, 3);
+    assertTrue(g.takeDirty().isEmpty());
+
+    Quadrant damaged = null;
+    for (int index = 0; index < 100 && damaged == null; index++) {
+      Quadrant q = g.quadrantAt(index % 10, index / 10);
+      if (q != focused && !q.starbases().isEmpty()) {
+        damaged = q;
+      }
+    }
+    assertNotNull(damaged);
+    damaged.starbases().get(0).hit(50);
+    focused.scan();
+    ArrayList<Quadrant> skip = new ArrayList<>();
+    skip.add(focused);
+    g.outOfFocusTick(skip, null);
+
+    BitSet dirty = g.takeDirty();
+    assertTrue(dirty.get(g.indexOf(focused.getX(), focused.getY())));
+    assertTrue(dirty.get(g.indexOf(damaged.getX(), damaged.getY())));
+    assertTrue(dirty.cardinality() < 100);
+    assertTrue(g.takeDirty().isEmpty());
+  }
+
+  @Test
+  public void lazy_galaxy_ticks_quadrants_whose_starbases_are_not_settled() {
+    ProceduralQuadrantSource procedural = new ProceduralQuadrantSource(20, 20, 17L);
+    int found = -1;
+    for (int index = 0; index < 400 && found < 0; index++) {
+      int composition = procedural.composition(index % 20, index / 20);
+      if (Composition.starbases(composition) > 0 && Composition.klingons(composition) <= 2) {
+        found = index;
+      }
+    }
+    assertTrue("expected a quiet quadrant with a starbase", found >= 0);
+    final int damagedX = found % 20;
+    final int damagedY = found / 20;
+    QuadrantSource damaged = new QuadrantSource() {
+      public int width() {
+        return 20;
+      }
+
+      public int height() {
+        return 20;
+      }
+
+      public long seed() {
+        return 17L;
+      }
+
+      public int composition(int x, int y) {
+        return procedural.composition(x, y);
+      }
+
+      public Quadrant materialize(int x, int y) {
+        Quadrant q = procedural.materialize(x, y);
+        if (x == damagedX && y == damagedY) {
+          q.starbases().get(0).hit(100);
+          q.markUnmodified();
+        }
+        return q;
+      }
+
+      public boolean isSettled(int x, int y) {
+        return x != damagedX || y != damagedY;
+      }
+    };
+    Galaxy g = new Galaxy(damaged, 400); // room for every quadrant the tick changes
+    g.focus(0, 0);
+    g.outOfFocusTick(new ArrayList<>(), null, false);
+
+    assertTrue(g.isResident(damagedX, damagedY));
+    assertEquals(Starbase.maxEnergy - 90,
+        drain(g.quadrantAt(damagedX, damagedY).starbases().get(0)));
+  }
+
+  @Test
+  public void lazy_galaxy_stays_within_its_resident_limit_ticking_every_turn() {
+    Galaxy eager = new Galaxy(40, 40, 23L);
+    Galaxy lazy = new Galaxy(new ProceduralQuadrantSource(40, 40, 23L), 8);
+    int besieged = 0;
+    for (int index = 0; index < 1600; index++) {
+      int composition = lazy.compositionAt(index % 40, index / 40);
+      if (Composition.klingons(composition) > 2 && Composition.starbases(composition) > 0) {
+        besieged++;
+      }
+    }
+    assertTrue("expected more besieged quadrants than the limit", besieged > 8);
+
+    for (int turn = 0; turn < 20; turn++) {
+      for (Galaxy g : new Galaxy[] {eager, lazy}) {
+        ArrayList<Quadrant> skip = new ArrayList<>();
+        skip.add(g.focus(20, 20));
+        g.outOfFocusTick(skip, null);
+      }
+      assertTrue(lazy.residentCount() <= 8);
+    }
+
+    // the changed quadrants dropped along the way are built again as they were left
+    StringBuilder expected = new StringBuilder();
+    eager.export(new TrekTextWriter(expected));
+    StringBuilder actual = new StringBuilder();
+    lazy.export(new TrekTextWriter(actual));
+    assertEquals(expected.toString(), actual.toString());
+    assertTrue(lazy.residentCount() <= 8);
+  }
+
+  // hits the starbase 1 at a time until it is marked for removal, returning the energy it had
+  private static int drain(Starbase starbase) {
+    int energy = 0;
+    while (!starbase.isMarkedForRemoval()) {
+      starbase.hit(1);
+      energy++;
+    }
+    return energy;
+  }
+}
@@ -0,0 +1,339 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+import sttrswing.model.GameTimeline;
+import sttrswing.model.Klingon;
+import sttrswing.model.ProceduralQuadrantSource;
+import sttrswing.model.Quadrant;
+import sttrswing.model.QuadrantSnapshot;
+import sttrswing.model.XyPair;
+import sttrswing.model.enums.EntityType;
+import sttrswing.model.enums.TickMode;
+import sttrswing.model.interfaces.GameRecordSink;
+import sttrswing.model.interfaces.QuadrantSource;
+
+public class GameSnapshotTest {
+
+  @Test
+  public void restore_puts_back_every_entity_and_the_current_quadrant() {
+    Game game = new Game(21L);
+    assertTrue(game.attemptMoveBetweenQuadrants(new XyPair(-1, 1)));
+    Quadrant quadrant = game.getCurrentQuadrant();
+    quadrant.scan();
+    for (Klingon klingon : quadrant.klingons()) {
+      klingon.hit(40);
+    }
+    GameSnapshot snapshot = game.snapshot();
+    String before = game.export();
+
+    Game other = new Game(99L);
+    other.restore(snapshot);
+    assertEquals(before, other.export());
+    assertEquals(snapshot, other.snapshot());
+    assertEquals(quadrant.getX(), other.getCurrentQuadrant().getX());
+    assertEquals(quadrant.getY(), other.getCurrentQuadrant().getY());
+  }
+
+  @Test
+  public void snapshot_is_not_changed_by_later_play() {
+    Game game = new Game(4L);
+    GameSnapshot snapshot = game.snapshot();
+    Quadrant quadrant = game.getCurrentQuadrant();
+    QuadrantSnapshot copy = snapshot.quadrantAt(quadrant.getX(), quadrant.getY());
+    assertEquals(quadrant.snapshot(), copy);
+    XyPair free = quadrant.getRandomEmptySector();
+    quadrant.place(EntityType.KLINGON, free.getX(), free.getY(), 200, 0);
+    assertNotEquals(quadrant.snapshot(), copy);
+    assertEquals(copy, snapshot.quadrantAt(quadrant.getX(), quadrant.getY()));
+  }
+
+  @Test
+  public void builder_replays_its_own_export() {
+    GameSnapshot snapshot = new Game(8L).snapshot();
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    snapshot.export(builder);
+    assertEquals(snapshot, builder.build());
+  }
+
+  @Test
+  public void streamed_export_matches_the_exported_string() throws IOException {
+    Game game = new Game(6L);
+    game.getCurrentQuadrant().scan();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    game.export(Channels.newChannel(bytes));
+    StringWriter text = new StringWriter();
+    game.export(text);
+    assertEquals(game.export(), bytes.toString(StandardCharsets.UTF_8));
+    assertEquals(game.export(), text.toString());
+  }
+
+  @Test
+  public void appended_builders_build_the_same_snapshot_as_one_builder() {
+    GameSnapshot snapshot = new Game(12L).snapshot();
+    GameSnapshot.Builder first = new GameSnapshot.Builder();
+    GameSnapshot.Builder second = new GameSnapshot.Builder();
+    int[] quadrants = {0};
+    snapshot.export(new GameRecordSink() {
+      public void galaxy(int width, int height, long seed) {
+        first.galaxy(width, height, seed);
+      }
+
+      public void enterprise(int x, int y, int energy, int shields, int torpedoes) {
+        first.enterprise(x, y, energy, shields, torpedoes);
+      }
+
+      public void current(int x, int y) {
+        first.current(x, y);
+      }
+
+      public void quadrant(int x, int y, int stars, int starbases, int klingons) {
+        quadrants[0] += 1;
+        sink().quadrant(x, y, stars, starbases, klingons);
+      }
+
+      public void entity(EntityType type, int x, int y, int energy, int flags) {
+        sink().entity(type, x, y, energy, flags);
+      }
+
+      // the first half of the quadrants go to the first builder, the rest to the second
+      private GameRecordSink sink() {
+        return quadrants[0] <= 32 ? first : second;
+      }
+    });
+    first.append(second);
+    assertEquals(snapshot, first.build());
+  }
+
+  @Test
+  public void delta_export_leaves_out_quadrants_as_generated() {
+    Game game = new Game(21L, new Galaxy(8, 8, 42L));
+    Quadrant changed = null;
+    for (int index = 0; changed == null; index += 1) {
+      Quadrant quadrant = game.getGalaxy().quadrantAt(index % 8, index / 8);
+      if (!quadrant.klingons().isEmpty()) {
+        changed = quadrant;
+      }
+    }
+    for (Klingon klingon : changed.klingons()) {
+      klingon.hit(40);
+    }
+    GameSnapshot snapshot = game.snapshot();
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    snapshot.exportDelta(builder);
+    GameSnapshot delta = builder.build();
+
+    assertTrue(delta.quadrantCount() < snapshot.quadrantCount());
+    assertEquals(changed.snapshot(), delta.quadrantAt(changed.getX(), changed.getY()));
+    assertEquals(snapshot, delta.withGeneratedQuadrants());
+  }
+
+  @Test
+  public void counts_only_quadrants_are_placed_the_same_for_the_same_seed() {
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    builder.galaxy(2, 1, 77L);
+    builder.enterprise(1, 1, 2500, 500, 10);
+    builder.current(0, 0);
+    builder.quadrant(0, 0, 4, 1, 2);
+    builder.quadrant(1, 0, 6, 0, 1);
+    GameSnapshot snapshot = builder.build();
+    assertFalse(snapshot.quadrantAt(0, 0).isExact());
+    Game one = new Game(3L);
+    one.restore(snapshot);
+    Game two = new Game(5L);
+    two.restore(snapshot);
+    assertEquals(one.export(), two.export());
+  }
+
+  @Test
+  public void undo_and_redo_step_between_turns() {
+    Game game = new Game(13L);
+    game.keepHistory(10);
+    assertFalse(game.canUndo());
+    String start = game.export();
+    Quadrant quadrant = game.getCurrentQuadrant();
+    XyPair free = quadrant.getRandomEmptySector();
+    quadrant.place(EntityType.KLINGON, free.getX(), free.getY(), 200, 0);
+    game.shields(300); // ends the turn
+    String after = game.export();
+    assertNotEquals(start, after);
+
+    assertTrue(game.undo());
+    assertEquals(start, game.export());
+    assertFalse(game.canUndo());
+    assertTrue(game.redo());
+    assertEquals(after, game.export());
+    assertFalse(game.canRedo());
+
+    assertTrue(game.undo());
+    game.turn();
+    assertFalse(game.canRedo());
+  }
+
+  @Test
+  public void undo_keeps_only_the_given_number_of_levels_and_covers_restores() {
+    Game game = new Game(17L);
+    game.keepHistory(2);
+    String start = game.export();
+    game.restore(new Game(18L).snapshot());
+    game.turn();
+    assertTrue(game.undo());
+    assertTrue(game.undo());
+    assertEquals(start, game.export());
+    game.turn();
+    game.turn();
+    game.turn();
+    assertTrue(game.undo());
+    assertTrue(game.undo());
+    assertFalse(game.undo());
+  }
+
+  @Test
+  public void history_in_catch_up_mode_records_turns_without_building_quadrants() {
+    AtomicInteger built = new AtomicInteger();
+    Game lazy = new Game(29L, new Galaxy(countingSource(40, 40, 37L, built), 8));
+    Game eager = new Game(29L, new Galaxy(40, 40, 37L));
+    Game everyTurn = new Game(29L, new Galaxy(40, 40, 37L));
+    for (Game game : new Game[] {lazy, eager}) {
+      game.getGalaxy().setTickMode(TickMode.CATCH_UP);
+      game.keepHistory(10);
+    }
+    ArrayList<GameSnapshot> expected = new ArrayList<>();
+    expected.add(GameSnapshot.of(everyTurn));
+    int builtBefore = built.get();
+    for (int turn = 1; turn <= 6; turn += 1) {
+      lazy.turn();
+      eager.turn();
+      everyTurn.turn();
+      expected.add(GameSnapshot.of(everyTurn));
+      assertEquals("turn " + turn, expected.get(turn), lazy.snapshot());
+    }
+    assertEquals(builtBefore, built.get()); // no quadrant was caught up to record a turn
+
+    for (Game game : new Game[] {lazy, eager}) {
+      for (int turn = 5; turn >= 0; turn -= 1) {
+        assertTrue(game.undo());
+        assertEquals("turn " + turn, expected.get(turn), GameSnapshot.of(game));
+      }
+      assertTrue(game.redo());
+      assertEquals(expected.get(1), GameSnapshot.of(game));
+    }
+  }
+
+  private static QuadrantSource countingSource(int width, int height, long seed,
+      AtomicInteger built) {
+    ProceduralQuadrantSource source = new ProceduralQuadrantSource(width, height, seed);
+    return new QuadrantSource() {
+      @Override
+      public int width() {
+        return source.width();
+      }
+
+      @Override
+      public int height() {
+        return source.height();
+      }
+
+      @Override
+      public long seed() {
+        return source.seed();
+      }
+
+      @Override
+      public int composition(int x, int y) {
+        return source.composition(x, y);
+      }
+
+      @Override
+      public Quadrant materialize(int x, int y) {
+        built.incrementAndGet();
+        return source.materialize(x, y);
+      }
+
+      @Override
+      public boolean isSettled(int x, int y) {
+        return source.isSettled(x, y);
+      }
+    };
+  }
+
+  @Test
+  public void timeline_seeks_to_every_recorded_turn() {
+    Game game = new Game(23L, new Galaxy(8, 8, 31L));
+    GameTimeline timeline = new GameTimeline(4);
+    timeline.attach(game);
+    ArrayList<GameSnapshot> played = new ArrayList<>();
+    played.add(game.snapshot());
+    game.addTurnListener(ended -> played.add(ended.snapshot()));
+    for (int turn = 1; turn <= 25; turn += 1) {
+      if (turn == 13) {
+        game.restore(new Game(24L, new Galaxy(8, 8, 32L)).snapshot());
+      }
+      if (turn % 3 == 0) {
+        game.moveBetweenQuadrants(turn % 8 + 1, 1);
+      } else if (turn % 3 == 1) {
+        game.moveWithinQuadrant(turn % 8 + 1, 2);
+      } else {
+        game.shields(10);
+      }
+      game.turn();
+    }
+    int last = played.size() - 1;
+    timeline.detach();
+    game.shields(10);
+
+    assertEquals(last, timeline.lastTurn());
+    for (int turn = 0; turn <= last; turn += 1) {
+      assertEquals("turn " + turn, played.get(turn), timeline.seek(turn));
+      assertTrue(turn - timeline.keyframeTurn(turn) < timeline.keyframeInterval());
+    }
+  }
+
+  @Test
+  public void timeline_in_catch_up_mode_records_turns_without_building_quadrants() {
+    AtomicInteger built = new AtomicInteger();
+    Game game = new Game(29L, new Galaxy(countingSource(40, 40, 37L, built), 8));
+    game.getGalaxy().setTickMode(TickMode.CATCH_UP);
+    Game everyTurn = new Game(29L, new Galaxy(40, 40, 37L));
+    GameTimeline timeline = new GameTimeline(4);
+    timeline.attach(game);
+    ArrayList<GameSnapshot> expected = new ArrayList<>();
+    expected.add(GameSnapshot.of(everyTurn));
+    int builtBefore = built.get();
+    for (int turn = 1; turn <= 10; turn += 1) {
+      game.turn();
+      everyTurn.turn();
+      expected.add(GameSnapshot.of(everyTurn));
+    }
+    assertEquals(builtBefore, built.get()); // no quadrant was caught up to record a turn
+
+    for (int turn = 0; turn <= 10; turn += 1) {
+      GameSnapshot sought = timeline.seek(turn);
+      assertEquals("turn " + turn, expected.get(turn), sought);
+      Game viewer = new Game(3L);
+      viewer.restore(sought);
+      assertEquals("turn " + turn, expected.get(turn), GameSnapshot.of(viewer));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void builder_rejects_entities_sharing_a_sector() {
+    GameSnapshot.Builder builder = new GameSnapshot.Builder();
+    builder.enterprise(1, 1, 2500, 500, 10);
+    builder.quadrant(0, 0, 2, 0, 0);
+    builder.entity(EntityType.STAR, 3, 3, 0, 1);
+    builder.entity(EntityType.STAR, 3, 3, 0, 1);
+    builder.build();
+  }
+}
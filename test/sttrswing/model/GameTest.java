@@ -0,0 +1,73 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import sttrswing.model.Galaxy;
+import sttrswing.model.Game;
+import sttrswing.model.GameSnapshot;
+import sttrswing.model.Quadrant;
+import sttrswing.model.enums.EntityType;
+
+public class GameTest {
+
+  @Test
+  public void torpedo_along_row_zero_hits_the_first_entity_in_its_path() {
+    Game game = new Game(7L);
+    Quadrant quadrant = new Quadrant(0, 0, 0, 0, 0);
+    quadrant.place(EntityType.KLINGON, 5, 0, 200, 0);
+    game.getEnterprise().setX(0);
+    game.getEnterprise().setY(0);
+
+    game.torpedoes(1, quadrant);
+    quadrant.cleanup();
+
+    assertEquals(0, quadrant.klingonCount());
+    assertTrue(game.lastActionReport().contains("has hit target!"));
+  }
+
+  @Test
+  public void torpedo_along_column_zero_hits_the_first_entity_in_its_path() {
+    Game game = new Game(7L);
+    Quadrant quadrant = new Quadrant(0, 0, 0, 0, 0);
+    quadrant.place(EntityType.STAR, 0, 3, 0, 1);
+    quadrant.place(EntityType.KLINGON, 0, 6, 200, 0);
+    game.getEnterprise().setX(0);
+    game.getEnterprise().setY(0);
+
+    game.torpedoes(7, quadrant);
+    quadrant.cleanup();
+
+    assertEquals(1, quadrant.klingonCount()); // the star took the torpedo
+    assertTrue(game.lastActionReport().contains("has hit target!"));
+  }
+
+  @Test
+  public void snapshot_with_history_kept_matches_a_full_export() {
+    Game game = new Game(5L, new Galaxy(8, 8, 42L));
+    game.keepHistory(4);
+    for (int turn = 0; turn < 5; turn += 1) {
+      game.turn();
+      GameSnapshot snapshot = game.snapshot();
+      assertSame(snapshot, game.snapshot());
+      assertEquals(GameSnapshot.of(game), snapshot);
+    }
+
+    game.getEnterprise().setX((game.getEnterprise().getX() + 1) % 8); // changed without a turn
+    assertEquals(GameSnapshot.of(game), game.snapshot());
+    game.turn();
+    placeStar(game.getCurrentQuadrant()); // changed without a turn too
+    assertEquals(GameSnapshot.of(game), game.snapshot());
+  }
+
+  private static void placeStar(Quadrant quadrant) {
+    for (int sector = 0; sector < 64; sector += 1) {
+      try {
+        quadrant.place(EntityType.STAR, sector % 8, sector / 8, 0, 1);
+        return;
+      } catch (IllegalArgumentException e) {
+        // occupied, try the next sector
+      }
+    }
+    fail("no free sector");
+  }
+}
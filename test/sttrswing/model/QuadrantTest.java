@@ -12,6 +12,8 @@ import sttrswing.model.Entity;
 
 import sttrswing.model.Starbase;
 
+import sttrswing.model.Klingon;
+
 import sttrswing.model.Enterprise;
 
 public class QuadrantTest {
@@ -72,4 +74,46 @@ public class QuadrantTest {
     assertEquals(k0 - 1, q.klingonCount());
     assertEquals(b0 - 1, q.starbaseCount());
   }
+
+  @Test
+  public void getRandomEmptySector_only_offers_the_last_free_sector() {
+    Quadrant crowded = new Quadrant(0, 0, 0, 0, 63);
+    XyPair free = crowded.getRandomEmptySector();
+    assertNotNull(free);
+    assertFalse(crowded.isOccupied(free.getX(), free.getY()));
+    for (int i = 0; i < 20; i++) {
+      XyPair again = crowded.getRandomEmptySector();
+      assertEquals(free.getX(), again.getX());
+      assertEquals(free.getY(), again.getY());
+    }
+  }
+
+  @Test
+  public void isOccupied_tracks_entities_and_cleanup() {
+    Starbase base = q.starbases().get(0);
+    assertTrue(q.isOccupied(base.getX(), base.getY()));
+    assertFalse(q.isOccupied(-1, 0));
+    base.remove();
+    q.cleanup();
+    assertFalse(q.isOccupied(base.getX(), base.getY()));
+    assertNull(q.getEntityAt(base.getX(), base.getY()));
+  }
+
+  @Test
+  public void views_stay_attached_to_their_entity_across_cleanup() {
+    Klingon first = q.klingons().get(0);
+    Klingon last = q.klingons().get(2);
+    int lastX = last.getX();
+    int lastY = last.getY();
+
+    first.remove();
+    q.cleanup();
+
+    assertEquals(2, q.klingonCount());
+    assertEquals(lastX, last.getX());
+    assertEquals(lastY, last.getY());
+    last.scan();
+    assertEquals("+K+", q.getSymbolAt(lastX, lastY));
+    assertTrue(first.isMarkedForRemoval());
+  }
 }
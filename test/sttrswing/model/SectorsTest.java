@@ -0,0 +1,61 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import sttrswing.model.Sectors;
+
+public class SectorsTest {
+
+  private static final int[] stepX = {1, 1, 0, -1, -1, -1, 0, 1};
+  private static final int[] stepY = {0, -1, -1, -1, 0, 1, 1, 1};
+
+  @Test
+  public void direction_follows_course_order() {
+    for (int d = 0; d < Sectors.directions; d++) {
+      assertEquals(d, Sectors.direction(stepX[d], stepY[d]));
+    }
+    assertEquals(-1, Sectors.direction(0, 0));
+  }
+
+  @Test
+  public void ray_runs_to_the_edge() {
+    assertEquals(7, Long.bitCount(Sectors.ray(Sectors.index(0, 0), 0)));
+    assertEquals(7, Long.bitCount(Sectors.ray(Sectors.index(0, 0), 7)));
+    assertEquals(0L, Sectors.ray(Sectors.index(0, 0), 2));
+    assertEquals(Sectors.bit(4, 3), Sectors.ray(Sectors.index(3, 4), 1) & Sectors.bit(4, 3));
+  }
+
+  @Test
+  public void first_hit_matches_stepping_sector_by_sector() {
+    SplittableRandom random = new SplittableRandom(1L);
+    for (int trial = 0; trial < 500; trial++) {
+      long occupied = random.nextLong() & random.nextLong();
+      int origin = random.nextInt(64);
+      for (int d = 0; d < Sectors.directions; d++) {
+        int expected = -1;
+        int x = Sectors.x(origin) + stepX[d];
+        int y = Sectors.y(origin) + stepY[d];
+        while (Sectors.inBounds(x, y)) {
+          if ((occupied & Sectors.bit(x, y)) != 0L) {
+            expected = Sectors.index(x, y);
+            break;
+          }
+          x += stepX[d];
+          y += stepY[d];
+        }
+        assertEquals(expected, Sectors.firstHit(origin, d, occupied));
+      }
+    }
+  }
+
+  @Test
+  public void between_excludes_both_ends_and_unaligned_sectors() {
+    long path = Sectors.between(Sectors.index(1, 1), Sectors.index(4, 4));
+    assertEquals(Sectors.bit(2, 2) | Sectors.bit(3, 3), path);
+    assertEquals(path, Sectors.between(Sectors.index(4, 4), Sectors.index(1, 1)));
+    assertEquals(0L, Sectors.between(Sectors.index(0, 0), Sectors.index(1, 0)));
+    assertEquals(0L, Sectors.between(Sectors.index(0, 0), Sectors.index(3, 1)));
+  }
+}